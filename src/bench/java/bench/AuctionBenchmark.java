@@ -0,0 +1,60 @@
+package bench;
+
+import simulation.computation.RandomSource;
+import simulation.goods.OrderBook;
+import simulation.goods.ProductType;
+import simulation.goods.TransactionType;
+
+/**
+ * Batch auction clearing of one village's order book, from 100 to 100k
+ * orders.
+ */
+class AuctionBenchmark {
+  private static final int[] SIZES  = { 100, 1_000, 10_000, 100_000 };
+  private static final int   ROUNDS = 100;
+  private static final long  SEED   = 42L;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println("== auction: place and clear an order book ==");
+
+    for (int size : SIZES) {
+      int[]     products = new int[size];
+      boolean[] buys     = new boolean[size];
+      float[]   weights  = new float[size];
+      float[]   limits   = new float[size];
+
+      RandomSource source = new RandomSource(SEED);
+      for (int i = 0; i < size; ++i) {
+        products[i] = (source.nextInt() >>> 1) % ProductType.COUNT;
+        buys[i]     = source.nextBoolean();
+        weights[i]  = source.nextFloat() * 20.0f;
+        limits[i]   = 5.0f + source.nextFloat() * 10.0f;
+      }
+
+      OrderBook book   = new OrderBook(size);
+      int       rounds = Math.max(1, ROUNDS * 1_000 / size);
+
+      Benchmarks.measure(
+        "clear, " + size + " orders", (long)size * rounds, () -> {
+          double sum = 0.0;
+          for (int r = 0; r < rounds; ++r) {
+            book.clear();
+            for (int i = 0; i < size; ++i) {
+              book.add(
+                i,
+                buys[i] ? TransactionType.BUY : TransactionType.SELL,
+                ProductType.byOrdinal(products[i]),
+                weights[i],
+                limits[i]);
+            }
+            book.match();
+            sum += book.getVolume(ProductType.FOOD);
+          }
+          return sum;
+        });
+    }
+  }
+}
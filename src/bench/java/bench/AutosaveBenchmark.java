@@ -0,0 +1,100 @@
+package bench;
+
+import io.arguments.Difficulty;
+import io.arguments.Parser;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import simulation.computation.TraverseMarket;
+import simulation.environment.Autosave;
+import simulation.environment.Epochs;
+import simulation.strategy.BalancedStrategy;
+
+/**
+ * Cost of autosave on the advance loop: the journal alone, and the journal
+ * with a snapshot every 10 ms, and recovery from the files. Uses the long
+ * lived merchant of the event log benchmark.
+ */
+class AutosaveBenchmark {
+  private static final long SEED     = 102L;
+  private static final int  VILLAGES = 50;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "11", "--infinite" });
+    Difficulty difficulty = parser.getDifficulty();
+
+    try {
+      Path directory = Files.createTempDirectory("autosave");
+      Path base      = directory.resolve("autosave.snap");
+      directory.toFile().deleteOnExit();
+
+      int epochCount = create(difficulty).advanceBy(Integer.MAX_VALUE);
+      System.out.println(
+        "== autosave: " + epochCount + " epochs per round ==");
+
+      Benchmarks.measure("Epochs.advanceBy", epochCount, () -> {
+        return create(difficulty).advanceBy(Integer.MAX_VALUE);
+      });
+      Benchmarks.measure("Epochs.advanceBy, journal", epochCount, () -> {
+        return advanceSaved(difficulty, base, Long.MAX_VALUE / 2);
+      });
+      Benchmarks.measure("Epochs.advanceBy, snapshot 10 ms", epochCount, () -> {
+        return advanceSaved(difficulty, base, 10);
+      });
+
+      // snapshot at the start, every epoch in the journal
+      advanceSaved(difficulty, base, Long.MAX_VALUE / 2);
+      Benchmarks.measure("Autosave.recover", epochCount, () -> {
+        try {
+          return Autosave.recover(base).getCount();
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+
+      try (Stream<Path> files = Files.list(directory)) {
+        files.forEach(path -> path.toFile().deleteOnExit());
+      }
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Internal, advance a simulation to its end with autosave.
+   * @param difficulty Difficulty.
+   * @param base Snapshot file.
+   * @param interval Milliseconds between snapshots.
+   * @return Count of epochs executed.
+   */
+  private static int advanceSaved(
+    Difficulty difficulty, Path base, long interval) {
+    Epochs epochs = create(difficulty);
+    try (Autosave autosave = new Autosave(
+           epochs, base, interval, Autosave.DEFAULT_COMMIT)) {
+      int executed = epochs.advanceBy(Integer.MAX_VALUE);
+      if (autosave.getFailure() != null) throw autosave.getFailure();
+      return executed;
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Internal, simulation ready to advance.
+   * @param difficulty Difficulty.
+   * @return Simulation.
+   */
+  private static Epochs create(Difficulty difficulty) {
+    Epochs epochs = new Epochs(difficulty, SEED, VILLAGES);
+    epochs.setStrategyType(new BalancedStrategy(epochs));
+    epochs.setTraverseAlgorithm(new TraverseMarket(epochs));
+    return epochs;
+  }
+}
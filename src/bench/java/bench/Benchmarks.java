@@ -0,0 +1,91 @@
+package bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Benchmark entry point. Runs the benchmarks named in the arguments or all of
+ * them.
+ */
+public class Benchmarks {
+  private static final Map<String, Runnable> BENCHMARKS = new LinkedHashMap<>();
+
+  static {
+    BENCHMARKS.put("random", RandomBenchmark::run);
+    BENCHMARKS.put("epochs", EpochsBenchmark::run);
+    BENCHMARKS.put("spatial", SpatialBenchmark::run);
+    BENCHMARKS.put("regeneration", RegenerationBenchmark::run);
+    BENCHMARKS.put("world", WorldBenchmark::run);
+    BENCHMARKS.put("market", MarketBenchmark::run);
+    BENCHMARKS.put("auction", AuctionBenchmark::run);
+    BENCHMARKS.put("fork", ForkBenchmark::run);
+    BENCHMARKS.put("eventlog", EventLogBenchmark::run);
+    BENCHMARKS.put("ledger", LedgerBenchmark::run);
+    BENCHMARKS.put("snapshot", SnapshotBenchmark::run);
+    BENCHMARKS.put("json", JsonBenchmark::run);
+    BENCHMARKS.put("autosave", AutosaveBenchmark::run);
+    BENCHMARKS.put("history", HistoryBenchmark::run);
+  }
+
+  /**
+   * Run benchmarks.
+   * @param Args Names of the benchmarks to run, all if empty.
+   * @throws IllegalArgumentException Unknown benchmark name.
+   */
+  public static void main(String[] Args) {
+    if (Args.length == 0) {
+      BENCHMARKS.values().forEach(Runnable::run);
+      return;
+    }
+
+    for (String name : Args) {
+      Runnable benchmark = BENCHMARKS.get(name);
+      if (benchmark == null) {
+        throw new IllegalArgumentException(
+          "Unknown benchmark " + name + ", known: " + BENCHMARKS.keySet());
+      }
+      benchmark.run();
+    }
+  }
+
+  /**
+   * Time an operation repeated several times and print the best rate.
+   * @param label Printed label.
+   * @param operations Count of operations done by one call of body.
+   * @param body Benchmarked code, returns a value so it cannot be eliminated.
+   */
+  static void measure(String label, long operations, Measured body) {
+    final int warmups = 3;
+    final int rounds  = 5;
+
+    double sink = 0.0;
+    for (int i = 0; i < warmups; ++i) sink += body.run();
+
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < rounds; ++i) {
+      long start = System.nanoTime();
+      sink += body.run();
+      best = Math.min(best, System.nanoTime() - start);
+    }
+
+    double perSecond = operations / (best / 1e9);
+    System.out.printf(
+      "%-40s %14.0f ops/s %12.3f ms  (sink %.1f)%n",
+      label,
+      perSecond,
+      best / 1e6,
+      sink % 10);
+  }
+
+  /**
+   * Benchmarked body.
+   */
+  @FunctionalInterface
+  interface Measured {
+    /**
+     * Run the body once.
+     * @return Any value derived from the work done.
+     */
+    double run();
+  }
+}
@@ -0,0 +1,79 @@
+package bench;
+
+import io.arguments.Difficulty;
+import io.arguments.Parser;
+import simulation.computation.TraversePrices;
+import simulation.environment.EpochStats;
+import simulation.environment.Epochs;
+import simulation.strategy.ConservativeStrategy;
+
+/**
+ * Sustained epochs per second of the full advance loop, one epoch at a time
+ * and in bulk, and in bulk with the phases timed. Merchants die after a few dozen epochs, so fresh simulations
+ * are started until the target count of completed epochs has been executed.
+ */
+class EpochsBenchmark {
+  private static final int EPOCHS = 1_000_000;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println("== epochs: " + EPOCHS + " epochs per round ==");
+
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "42" });
+    Difficulty difficulty = parser.getDifficulty();
+
+    Benchmarks.measure("Epochs.advance", EPOCHS, () -> {
+      long executed = 0;
+      long seed     = 0;
+
+      while (executed < EPOCHS) {
+        Epochs epochs = new Epochs(difficulty, seed++);
+        epochs.setStrategyType(new ConservativeStrategy());
+        epochs.setTraverseAlgorithm(new TraversePrices(epochs));
+
+        while (!epochs.isSimulationFinished() && executed < EPOCHS) {
+          int before = epochs.getCount();
+          epochs.advance();
+          executed += epochs.getCount() - before;
+        }
+      }
+
+      return seed;
+    });
+
+    Benchmarks.measure("Epochs.advanceBy", EPOCHS, () -> {
+      long executed = 0;
+      long seed     = 0;
+
+      while (executed < EPOCHS) {
+        Epochs epochs = new Epochs(difficulty, seed++);
+        epochs.setStrategyType(new ConservativeStrategy());
+        epochs.setTraverseAlgorithm(new TraversePrices(epochs));
+
+        executed += epochs.advanceBy((int)(EPOCHS - executed));
+      }
+
+      return seed;
+    });
+
+    EpochStats stats = new EpochStats();
+    Benchmarks.measure("Epochs.advanceBy, stats", EPOCHS, () -> {
+      long executed = 0;
+      long seed     = 0;
+
+      while (executed < EPOCHS) {
+        Epochs epochs = new Epochs(difficulty, seed++);
+        epochs.setStrategyType(new ConservativeStrategy());
+        epochs.setTraverseAlgorithm(new TraversePrices(epochs));
+        epochs.setStats(stats);
+
+        executed += epochs.advanceBy((int)(EPOCHS - executed));
+      }
+
+      return seed;
+    });
+  }
+}
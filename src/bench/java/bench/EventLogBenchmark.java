@@ -0,0 +1,78 @@
+package bench;
+
+import io.arguments.Difficulty;
+import io.arguments.Parser;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import simulation.computation.TraverseMarket;
+import simulation.environment.Epochs;
+import simulation.environment.EventLog;
+import simulation.environment.EventReplay;
+import simulation.strategy.BalancedStrategy;
+
+/**
+ * Cost of the event log on the advance loop, and replay of the log. Uses one
+ * merchant of an infinite world that survives for thousands of epochs, so the
+ * cost of creating the file does not hide the cost per epoch.
+ */
+class EventLogBenchmark {
+  private static final long SEED     = 102L;
+  private static final int  VILLAGES = 50;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "11", "--infinite" });
+    Difficulty difficulty = parser.getDifficulty();
+
+    try {
+      Path path = Files.createTempFile("events", ".log");
+      path.toFile().deleteOnExit();
+
+      int epochCount = create(difficulty).advanceBy(Integer.MAX_VALUE);
+      System.out.println(
+        "== event log: " + epochCount + " epochs per round ==");
+
+      Benchmarks.measure("Epochs.advanceBy", epochCount, () -> {
+        return create(difficulty).advanceBy(Integer.MAX_VALUE);
+      });
+
+      Benchmarks.measure("Epochs.advanceBy, logged", epochCount, () -> {
+        Epochs epochs = create(difficulty);
+        try (EventLog log = new EventLog(epochs, path)) {
+          int executed = epochs.advanceBy(Integer.MAX_VALUE);
+          log.flush();
+          return executed;
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+
+      Benchmarks.measure("EventReplay.replay", epochCount, () -> {
+        try {
+          return EventReplay.replay(path, difficulty).getCount();
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Internal, simulation ready to advance.
+   * @param difficulty Difficulty.
+   * @return Simulation.
+   */
+  private static Epochs create(Difficulty difficulty) {
+    Epochs epochs = new Epochs(difficulty, SEED, VILLAGES);
+    epochs.setStrategyType(new BalancedStrategy(epochs));
+    epochs.setTraverseAlgorithm(new TraverseMarket(epochs));
+    return epochs;
+  }
+}
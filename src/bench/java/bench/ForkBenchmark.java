@@ -0,0 +1,48 @@
+package bench;
+
+import io.arguments.Difficulty;
+import io.arguments.Parser;
+import simulation.computation.TraversePrices;
+import simulation.environment.Epochs;
+import simulation.strategy.ConservativeStrategy;
+
+/**
+ * Forks per second, and forks advancing two epochs within the first
+ * regeneration period, so only the villages they trade in get copied.
+ */
+class ForkBenchmark {
+  private static final int[] SIZES = { 5, 1_000, 100_000 };
+  private static final int   FORKS = 100_000;
+  private static final long  SEED  = 42L;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println("== fork: forks per second ==");
+
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "42" });
+    Difficulty difficulty = parser.getDifficulty();
+
+    for (int size : SIZES) {
+      Epochs parent = new Epochs(difficulty, SEED, size);
+      parent.setStrategyType(new ConservativeStrategy());
+      parent.setTraverseAlgorithm(new TraversePrices(parent));
+      parent.advance();
+
+      Benchmarks.measure("fork, " + size + " villages", FORKS, () -> {
+        long count = 0;
+        for (int i = 0; i < FORKS; ++i) count += parent.fork().getCount();
+        return count;
+      });
+
+      Benchmarks.measure(
+        "fork and advance 2, " + size + " villages", FORKS, () -> {
+          long count = 0;
+          for (int i = 0; i < FORKS; ++i) count += parent.fork().advanceBy(2);
+          return count;
+        });
+    }
+  }
+}
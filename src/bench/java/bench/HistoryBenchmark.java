@@ -0,0 +1,110 @@
+package bench;
+
+import io.arguments.Difficulty;
+import io.arguments.Parser;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import simulation.computation.TraverseMarket;
+import simulation.environment.Epochs;
+import simulation.environment.Metric;
+import simulation.environment.MetricHistory;
+import simulation.strategy.BalancedStrategy;
+
+/**
+ * Cost of recording the metrics on the advance loop, their compressed size
+ * lossless and rounded like the console records them, and range queries over
+ * the run. Uses the long lived merchant of the event log benchmark.
+ */
+class HistoryBenchmark {
+  private static final long SEED          = 102L;
+  private static final int  VILLAGES      = 50;
+  private static final int  MANTISSA_BITS = 12;
+  private static final int  BUCKETS       = 64;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "11", "--infinite" });
+    Difficulty difficulty = parser.getDifficulty();
+
+    int epochCount = create(difficulty).advanceBy(Integer.MAX_VALUE);
+    System.out.println("== history: " + epochCount + " epochs per round ==");
+
+    Benchmarks.measure("Epochs.advanceBy", epochCount, () -> {
+      return create(difficulty).advanceBy(Integer.MAX_VALUE);
+    });
+    Benchmarks.measure("Epochs.advanceBy, history", epochCount, () -> {
+      return record(difficulty, MetricHistory.LOSSLESS).size();
+    });
+    Benchmarks.measure("Epochs.advanceBy, history rounded", epochCount, () -> {
+      return record(difficulty, MANTISSA_BITS).size();
+    });
+
+    MetricHistory lossless = record(difficulty, MetricHistory.LOSSLESS);
+    MetricHistory rounded  = record(difficulty, MANTISSA_BITS);
+    int           from     = lossless.getFirstEpoch();
+    int           to       = lossless.getEndEpoch();
+
+    Benchmarks.measure("MetricHistory.range, every epoch", epochCount, () -> {
+      return lossless.range(Metric.MONEY, from, to)[to - from - 1];
+    });
+    Benchmarks.measure("MetricHistory.downsample", epochCount, () -> {
+      float[] min  = new float[BUCKETS];
+      float[] mean = new float[BUCKETS];
+      float[] max  = new float[BUCKETS];
+      lossless.downsample(Metric.MONEY, from, to, min, mean, max);
+      return mean[BUCKETS - 1];
+    });
+
+    System.out.printf(
+      "bytes per metric per epoch: %.2f lossless, %.2f with %d mantissa bits%n",
+      bytesPerSample(lossless),
+      bytesPerSample(rounded),
+      MANTISSA_BITS);
+    try {
+      lossless.close();
+      rounded.close();
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Internal, the merchant of the benchmark.
+   * @param difficulty Difficulty.
+   * @return New simulation.
+   */
+  private static Epochs create(Difficulty difficulty) {
+    Epochs epochs = new Epochs(difficulty, SEED, VILLAGES);
+    epochs.setStrategyType(new BalancedStrategy(epochs));
+    epochs.setTraverseAlgorithm(new TraverseMarket(epochs));
+    return epochs;
+  }
+
+  /**
+   * Internal, run the merchant until it dies, recording its metrics.
+   * @param difficulty Difficulty.
+   * @param mantissaBits Mantissa bits samples are rounded to.
+   * @return History of the run, spilled to a temporary file.
+   */
+  private static MetricHistory record(Difficulty difficulty, int mantissaBits) {
+    Epochs        epochs  = create(difficulty);
+    MetricHistory history = new MetricHistory(
+      epochs, null, MetricHistory.DEFAULT_RESIDENT_BLOCKS, mantissaBits);
+    epochs.advanceBy(Integer.MAX_VALUE);
+    return history;
+  }
+
+  /**
+   * Internal, compressed size of a sample.
+   * @param history History of a run.
+   * @return Bytes per metric per epoch.
+   */
+  private static double bytesPerSample(MetricHistory history) {
+    return (double)history.getCompressedBytes()
+           / Math.max(1, history.size())
+           / Metric.COUNT;
+  }
+}
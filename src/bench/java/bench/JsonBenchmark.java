@@ -0,0 +1,79 @@
+package bench;
+
+import io.arguments.Difficulty;
+import io.arguments.Parser;
+import io.json.Converter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import simulation.computation.TraverseMarket;
+import simulation.environment.Epochs;
+import simulation.environment.VillageMap;
+import simulation.strategy.AggressiveStrategy;
+
+/**
+ * Latency of a console save and resume through a new Converter, first in a
+ * cold JVM and then warmed up, and JSON throughput of a mid sized map.
+ */
+class JsonBenchmark {
+  private static final int[] SIZES = { VillageMap.COUNT_OF_VILLAGES, 5_000 };
+  private static final long  SEED  = 42L;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println("== json: save and resume ==");
+
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "42" });
+    Difficulty difficulty = parser.getDifficulty();
+
+    try {
+      Path json = Files.createTempFile("save", ".json");
+      json.toFile().deleteOnExit();
+
+      for (int size : SIZES) {
+        Epochs epochs = new Epochs(difficulty, SEED, size);
+        epochs.setStrategyType(new AggressiveStrategy(epochs));
+        epochs.setTraverseAlgorithm(new TraverseMarket(epochs));
+        epochs.advanceBy(10);
+
+        if (size == SIZES[0]) {
+          // only the first save of the run pays for loading the classes
+          long start = System.nanoTime();
+          saveAndResume(epochs, json);
+          System.out.printf(
+            "%-40s %14s %12.3f ms%n",
+            "cold new Converter, save and resume",
+            "",
+            (System.nanoTime() - start) / 1e6);
+        }
+
+        Benchmarks.measure(
+          "new Converter, save and resume, " + size, size, () -> {
+            return saveAndResume(epochs, json);
+          });
+      }
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Internal, save and resume like the console does.
+   * @param epochs Simulation to save.
+   * @param json File to save to.
+   * @return Count of epochs of the resumed simulation.
+   */
+  private static int saveAndResume(Epochs epochs, Path json) {
+    Converter converter = new Converter();
+    try {
+      converter.write(epochs, json);
+      return converter.read(json).getCount();
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+}
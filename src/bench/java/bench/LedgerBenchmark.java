@@ -0,0 +1,62 @@
+package bench;
+
+import simulation.computation.RandomSource;
+import simulation.goods.LedgerGrouping;
+import simulation.goods.LedgerSummary;
+import simulation.goods.ProductType;
+import simulation.goods.TradeLedger;
+import simulation.goods.TransactionType;
+
+/**
+ * Aggregation queries over a trade ledger of 10M random trades, a few per
+ * epoch on 100 villages.
+ */
+class LedgerBenchmark {
+  private static final int  TRADES   = 10_000_000;
+  private static final int  VILLAGES = 100;
+  private static final long SEED     = 42L;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println("== ledger: queries over " + TRADES + " trades ==");
+
+    TradeLedger  ledger = new TradeLedger();
+    RandomSource source = new RandomSource(SEED);
+    for (int i = 0; i < TRADES; ++i) {
+      ledger.record(
+        i / 4,
+        (source.nextInt() >>> 1) % VILLAGES,
+        source.nextBoolean() ? TransactionType.BUY : TransactionType.SELL,
+        ProductType.byOrdinal((source.nextInt() >>> 1) % ProductType.COUNT),
+        source.nextFloat() * 10.0f,
+        source.nextFloat() * 10.0f);
+    }
+
+    for (LedgerGrouping grouping : LedgerGrouping.values()) {
+      Benchmarks.measure("summarize by " + grouping, TRADES, () -> {
+        return sum(ledger.summarize(grouping));
+      });
+    }
+
+    int epochs = TRADES / 4;
+    Benchmarks.measure("summarize 10% of epochs", TRADES / 10, () -> {
+      return sum(ledger.summarize(
+        LedgerGrouping.PRODUCT, epochs / 2, epochs / 2 + epochs / 10));
+    });
+  }
+
+  /**
+   * Internal, fold a summary so it cannot be eliminated.
+   * @param summary Summary.
+   * @return Sum of the profits.
+   */
+  private static double sum(LedgerSummary summary) {
+    double profit = 0.0;
+    for (int g = 0; g < summary.getGroupCount(); ++g) {
+      profit += summary.getProfit(g);
+    }
+    return profit;
+  }
+}
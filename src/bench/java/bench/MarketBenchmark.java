@@ -0,0 +1,52 @@
+package bench;
+
+import io.arguments.Difficulty;
+import io.arguments.Parser;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import simulation.batch.RunConfiguration;
+import simulation.batch.SharedMarket;
+
+/**
+ * Shared market of 10k merchants on a large map, on one thread and on every
+ * core.
+ */
+class MarketBenchmark {
+  private static final int MERCHANTS = 10_000;
+  private static final int VILLAGES  = 10_000;
+  private static final int ROUNDS    = 10;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println(
+      "== market: " + MERCHANTS + " merchants, " + VILLAGES + " villages ==");
+
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "42" });
+    Difficulty             difficulty     = parser.getDifficulty();
+    List<RunConfiguration> configurations = RunConfiguration.all();
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int parallelism : new int[] { 1, cores }) {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+      Benchmarks.measure(
+        "merchant epochs, " + parallelism + " threads",
+        (long)MERCHANTS * ROUNDS,
+        () -> {
+          SharedMarket market = new SharedMarket(
+            difficulty,
+            VILLAGES,
+            MERCHANTS,
+            i -> configurations.get(i % configurations.size()),
+            pool);
+          market.advanceBy(ROUNDS);
+          return market.getAlive();
+        });
+
+      pool.shutdown();
+    }
+  }
+}
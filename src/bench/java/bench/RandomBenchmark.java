@@ -0,0 +1,53 @@
+package bench;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+import simulation.computation.RandomSource;
+
+/**
+ * Compares a fresh java.util.Random per draw with seeded RandomSource streams.
+ */
+class RandomBenchmark {
+  private static final int  DRAWS   = 10_000_000;
+  private static final long SEED    = 42L;
+  private static final int  THREADS = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println("== random: " + DRAWS + " floats per round ==");
+
+    Benchmarks.measure("new Random() per draw", DRAWS, () -> {
+      double sum = 0.0;
+      for (int i = 0; i < DRAWS; ++i) sum += new Random().nextFloat();
+      return sum;
+    });
+
+    Benchmarks.measure("RandomSource", DRAWS, () -> {
+      RandomSource source = new RandomSource(SEED);
+      double       sum    = 0.0;
+      for (int i = 0; i < DRAWS; ++i) sum += source.nextFloat();
+      return sum;
+    });
+
+    Benchmarks.measure(
+      "new Random() per draw, " + THREADS + " threads",
+      (long)DRAWS * THREADS,
+      () -> IntStream.range(0, THREADS).parallel().mapToDouble(t -> {
+        double sum = 0.0;
+        for (int i = 0; i < DRAWS; ++i) sum += new Random().nextFloat();
+        return sum;
+      }).sum());
+
+    Benchmarks.measure(
+      "RandomSource.forIndex, " + THREADS + " threads",
+      (long)DRAWS * THREADS,
+      () -> IntStream.range(0, THREADS).parallel().mapToDouble(t -> {
+        RandomSource source = RandomSource.forIndex(SEED, t);
+        double       sum    = 0.0;
+        for (int i = 0; i < DRAWS; ++i) sum += source.nextFloat();
+        return sum;
+      }).sum());
+  }
+}
@@ -0,0 +1,36 @@
+package bench;
+
+import io.arguments.Difficulty;
+import io.arguments.Parser;
+import simulation.environment.Epochs;
+import simulation.environment.VillageMap;
+
+/**
+ * Map regeneration in place, from 5 to 1M villages.
+ */
+class RegenerationBenchmark {
+  private static final int[] SIZES = { 5, 1_000, 100_000, 1_000_000 };
+  private static final long  SEED  = 42L;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println("== regeneration: villages regenerated per second ==");
+
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "42" });
+    Difficulty difficulty = parser.getDifficulty();
+
+    for (int size : SIZES) {
+      VillageMap map     = new Epochs(difficulty, SEED, size).getVillageMap();
+      int        repeats = Math.max(1, 100_000 / size);
+
+      Benchmarks.measure(
+        "regenerate, " + size + " villages", (long)size * repeats, () -> {
+          for (int i = 0; i < repeats; ++i) map.regenerateMap();
+          return map.getBestPrices().getPriceIndex();
+        });
+    }
+  }
+}
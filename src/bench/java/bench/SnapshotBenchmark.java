@@ -0,0 +1,177 @@
+package bench;
+
+import io.arguments.Difficulty;
+import io.arguments.Parser;
+import io.json.Converter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import simulation.computation.TraversePrices;
+import simulation.environment.Epochs;
+import simulation.environment.Snapshot;
+import simulation.environment.SnapshotChain;
+import simulation.environment.VillageMap;
+import simulation.strategy.BalancedStrategy;
+import simulation.vilages.Village;
+
+/**
+ * Saving and resuming a large map as JSON through strings, as streamed JSON
+ * and as a binary snapshot, and checkpointing it every epoch as full
+ * snapshots and as a chain of deltas.
+ */
+class SnapshotBenchmark {
+  private static final int VILLAGES = 200_000;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println("== snapshot: " + VILLAGES + " villages ==");
+
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "42" });
+    Difficulty difficulty = parser.getDifficulty();
+
+    Epochs epochs = new Epochs(difficulty, 42L, VILLAGES);
+    epochs.setStrategyType(new BalancedStrategy(epochs));
+    epochs.setTraverseAlgorithm(new TraversePrices(epochs));
+    epochs.advanceBy(10);
+
+    Converter converter = new Converter();
+    try {
+      Path json     = Files.createTempFile("save", ".json");
+      Path snapshot = Files.createTempFile("save", Snapshot.EXTENSION);
+      json.toFile().deleteOnExit();
+      snapshot.toFile().deleteOnExit();
+
+      Benchmarks.measure("JSON save", VILLAGES, () -> {
+        try {
+          Files.write(json, converter.toJSON(epochs).getBytes());
+          return Files.size(json);
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+      Benchmarks.measure("JSON resume", VILLAGES, () -> {
+        try {
+          String read = new String(Files.readAllBytes(json));
+          return converter.fromJSON(read).getCount();
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+      Benchmarks.measure("JSON save, streamed", VILLAGES, () -> {
+        try {
+          converter.write(epochs, json);
+          return Files.size(json);
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+      Benchmarks.measure("JSON resume, streamed", VILLAGES, () -> {
+        try {
+          return converter.read(json).getCount();
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+      Benchmarks.measure("Snapshot.write", VILLAGES, () -> {
+        try {
+          Snapshot.write(epochs, snapshot);
+          return Files.size(snapshot);
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+      Benchmarks.measure("Snapshot.read", VILLAGES, () -> {
+        try {
+          return Snapshot.read(snapshot).getCount();
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+      // villages are materialized when touched, the query builds the indexes
+      Benchmarks.measure("Snapshot.read, first query", VILLAGES, () -> {
+        try {
+          Epochs resumed = Snapshot.read(snapshot);
+          return resumed.getVillageMap().getClosestToPlayer().getMoney();
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+
+      // one regeneration cycle, a save after every epoch
+      Benchmarks.measure("3 epochs, Snapshot.write each", 3, () -> {
+        try {
+          for (int i = 0; i < 3; ++i) {
+            changeEpoch(epochs, i);
+            Snapshot.write(epochs, snapshot);
+          }
+          return Files.size(snapshot);
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+
+      SnapshotChain chain = new SnapshotChain(epochs, snapshot);
+      Benchmarks.measure("3 epochs, SnapshotChain.checkpoint each", 3, () -> {
+        try {
+          for (int i = 0; i < 3; ++i) {
+            changeEpoch(epochs, i);
+            chain.checkpoint();
+          }
+          return chain.getDeltaCount();
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+
+      Village village = epochs.getVillageMap().getVillages().get(0);
+      chain.compact();
+      Benchmarks.measure("checkpoint, 1 village changed", 1, () -> {
+        try {
+          epochs.getVillageMap().repriceVillage(village);
+          chain.checkpoint();
+          return chain.getDeltaCount();
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+
+      Path delta = snapshot.resolveSibling(snapshot.getFileName() + ".1");
+      System.out.println(
+        "JSON " + Files.size(json) + " bytes, snapshot "
+        + Files.size(snapshot) + " bytes, delta " + Files.size(delta)
+        + " bytes");
+      for (int i = 1; i <= chain.getDeltaCount(); ++i) {
+        snapshot.resolveSibling(snapshot.getFileName() + "." + i)
+          .toFile()
+          .deleteOnExit();
+      }
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Internal, change what an epoch would, the merchant of the benchmark is
+   * dead by then: every village on every third epoch, otherwise the merchant
+   * and the village it traded with.
+   * @param epochs Simulation.
+   * @param epoch Epoch of the regeneration cycle.
+   */
+  private static void changeEpoch(Epochs epochs, int epoch) {
+    VillageMap map = epochs.getVillageMap();
+    if (epoch % 3 == 0) {
+      map.regenerateMap();
+      return;
+    }
+
+    Village village = map.getVillages().get(epoch);
+    village.addMoney(1.0f);
+    map.repriceVillage(village);
+    epochs.getPlayerStorage().addMoney(1.0f);
+    epochs.getPlayerState().setCurrentPosition(village.getPosition());
+  }
+}
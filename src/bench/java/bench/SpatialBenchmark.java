@@ -0,0 +1,95 @@
+package bench;
+
+import io.arguments.Difficulty;
+import io.arguments.Parser;
+import simulation.computation.RandomSource;
+import simulation.environment.Epochs;
+import simulation.environment.SpatialIndex;
+import simulation.environment.VillageColumns;
+
+/**
+ * Nearest village queries, linear scan against the spatial index, from 10 to
+ * 1M villages.
+ */
+class SpatialBenchmark {
+  private static final int[] SIZES   = { 10, 100, 1_000, 10_000, 100_000,
+                                         1_000_000 };
+  private static final int   QUERIES = 10_000;
+  private static final long  SEED    = 42L;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println("== spatial: " + QUERIES + " nearest queries ==");
+
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "42" });
+    Difficulty difficulty = parser.getDifficulty();
+
+    float[]      queryX = new float[QUERIES];
+    float[]      queryY = new float[QUERIES];
+    RandomSource source = new RandomSource(SEED);
+    for (int i = 0; i < QUERIES; ++i) {
+      queryX[i] = difficulty.getRandomFloat(source) * 20.0f;
+      queryY[i] = difficulty.getRandomFloat(source) * 20.0f;
+    }
+
+    for (int size : SIZES) {
+      Epochs         epochs  = new Epochs(difficulty, SEED, size);
+      VillageColumns columns =
+        VillageColumns.of(epochs.getVillageMap().getVillages());
+      SpatialIndex   index   = new SpatialIndex();
+
+      Benchmarks.measure("build index, " + size + " villages", size, () -> {
+        index.build(columns);
+        return index.getCount();
+      });
+
+      // the scan is linear, fewer queries keep the largest maps bearable
+      int scanned = size > 10_000 ? QUERIES / 100 : QUERIES;
+      Benchmarks.measure("scan, " + size + " villages", scanned, () -> {
+        long sum = 0;
+        for (int i = 0; i < scanned; ++i) {
+          sum += closestTo(columns, queryX[i], queryY[i]);
+        }
+        return sum;
+      });
+
+      Benchmarks.measure("index, " + size + " villages", QUERIES, () -> {
+        long sum = 0;
+        for (int i = 0; i < QUERIES; ++i) {
+          sum += index.nearest(queryX[i], queryY[i]);
+        }
+        return sum;
+      });
+    }
+  }
+
+  /**
+   * Internal, the village closest to a point by a linear scan of squared
+   * distances, what the index replaces.
+   * @param columns Columns holding the villages.
+   * @param fromX X coordinate of the point.
+   * @param fromY Y coordinate of the point.
+   * @return Row of the closest village, -1 if there are none.
+   */
+  private static int closestTo(
+    VillageColumns columns, float fromX, float fromY) {
+    int   best         = -1;
+    float bestDistance = Float.POSITIVE_INFINITY;
+
+    for (int i = 0; i < columns.getCount(); ++i) {
+      float dx       = columns.getX(i) - fromX;
+      float dy       = columns.getY(i) - fromY;
+      float distance = dx * dx + dy * dy;
+
+      if (distance < bestDistance) {
+        best         = i;
+        bestDistance = distance;
+      }
+    }
+
+    return best;
+  }
+}
@@ -0,0 +1,64 @@
+package bench;
+
+import io.arguments.Parser;
+import java.util.List;
+import simulation.environment.ChunkedWorld;
+import simulation.environment.Epochs;
+import simulation.environment.Position;
+import simulation.vilages.Village;
+
+/**
+ * Chunked world: a long walk away from the start, back and forth over the
+ * same chunks, and across regenerations.
+ */
+class WorldBenchmark {
+  private static final int STEPS = 10_000;
+
+  /**
+   * Run the benchmark.
+   */
+  static void run() {
+    System.out.println("== world: " + STEPS + " materializations ==");
+
+    Parser parser = new Parser();
+    parser.parse(new String[] { "3", "1.0", "--seed", "42", "--infinite" });
+    Epochs       epochs = new Epochs(parser.getDifficulty());
+    ChunkedWorld world  = epochs.getVillageMap().getWorld();
+
+    Benchmarks.measure("walk away, new chunks", STEPS, () -> {
+      long sum = 0;
+      for (int i = 0; i < STEPS; ++i) {
+        sum += walk(world, i).size();
+      }
+      return sum + world.getCachedChunks();
+    });
+
+    Benchmarks.measure("walk back and forth, cached", STEPS, () -> {
+      long sum = 0;
+      for (int i = 0; i < STEPS; ++i) {
+        sum += walk(world, i % 4).size();
+      }
+      return sum + world.getCachedChunks();
+    });
+
+    Benchmarks.measure("regenerate and stay", STEPS, () -> {
+      long sum = 0;
+      for (int i = 0; i < STEPS; ++i) {
+        world.regenerate();
+        sum += walk(world, 0).size();
+      }
+      return sum + world.getCachedChunks();
+    });
+  }
+
+  /**
+   * Materialize the chunks around a step of the walk.
+   * @param world World to walk through.
+   * @param step Count of chunks from the start.
+   * @return Villages around the step.
+   */
+  private static List<Village> walk(ChunkedWorld world, int step) {
+    float x = (step + 0.5f) * ChunkedWorld.CHUNK_SIZE;
+    return world.getAround(new Position(x, 0.0f));
+  }
+}
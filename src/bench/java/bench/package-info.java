@@ -0,0 +1,4 @@
+/**
+ * Throughput benchmarks, run with ./gradlew bench.
+ */
+package bench;
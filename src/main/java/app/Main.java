@@ -3,6 +3,15 @@ package app;
 import io.arguments.Difficulty;
 import io.arguments.Parser;
 import io.console.Controller;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.List;
+import jdk.jfr.Recording;
+import simulation.batch.BatchRunner;
+import simulation.batch.BatchStatistics;
+import simulation.batch.RunConfiguration;
+import simulation.batch.SharedMarket;
+import simulation.environment.SimulationEvents;
 
 /**
  * Application entry point.
@@ -19,17 +28,165 @@ public class Main {
       argParser.parse(Args);
     } catch (IllegalArgumentException err) {
       System.out.println("""
-          Usage: ./uni-proj-simulation <RNG> <StealMulti>
+          Usage: ./uni-proj-simulation <RNG> <StealMulti> [--seed SEED] [--batch RUNS EPOCH_CAP]
+            [--market MERCHANTS VILLAGES ROUNDS [--auction]] [--infinite] [--compact]
+            [--autosave FILE] [--jfr FILE]
           
           int RNG - the value of randomness in the simulation. (range <2, 6>)
           float StealMulti - The multiplier for amount lost during random theft event. (range <0.5, 2.0>)
+          --seed SEED - long seed, the same seed and arguments always give the same simulation.
+          --batch RUNS EPOCH_CAP - run RUNS headless simulations of every strategy and traversal,
+            each up to EPOCH_CAP epochs, and print statistics.
+          --market MERCHANTS VILLAGES ROUNDS - run MERCHANTS merchants of every strategy and traversal
+            on one map of VILLAGES villages in parallel for ROUNDS epochs, and print statistics.
+          --auction - settle the market's trades by a batch auction per village and epoch.
+          --infinite - unbounded world of chunks generated around the merchant.
+          --compact - save JSON without indentation.
+          --autosave FILE - snapshot to FILE in the background and journal every epoch,
+            resuming FILE recovers the epochs since the last snapshot.
+          --jfr FILE - record the epochs, their phases and the trades with Java Flight Recorder
+            to FILE, open it in JDK Mission Control or with the jfr tool.
       """);
 
       return;
     }
 
-    Difficulty difficulty        = argParser.getDifficulty();
-    Controller consoleController = new Controller(difficulty);
+    if (argParser.getJfr() == null) {
+      run(argParser);
+      return;
+    }
+
+    String    jfr = argParser.getJfr();
+    Recording recording;
+    try {
+      recording = SimulationEvents.startRecording(Paths.get(jfr));
+    } catch (IOException err) {
+      System.out.println("Can not record to " + jfr + ".");
+      return;
+    }
+
+    try {
+      run(argParser);
+    } finally {
+      // stopping writes the file
+      recording.stop();
+      recording.close();
+    }
+  }
+
+  /**
+   * Run what the arguments request: a batch, a market or the console.
+   * @param argParser Parsed arguments.
+   */
+  private static void run(Parser argParser) {
+    Difficulty difficulty = argParser.getDifficulty();
+
+    if (argParser.isBatch()) {
+      runBatch(
+        difficulty, argParser.getBatchRuns(), argParser.getBatchEpochCap());
+      return;
+    }
+
+    if (argParser.isMarket()) {
+      runMarket(
+        difficulty,
+        argParser.getMarketMerchants(),
+        argParser.getMarketVillages(),
+        argParser.getMarketRounds(),
+        argParser.isAuction());
+      return;
+    }
+
+    Controller consoleController = new Controller(
+      difficulty, argParser.isCompact(), argParser.getAutosave());
     consoleController.entry();
   }
+
+  /**
+   * Run every configuration headless and print the statistics.
+   * @param difficulty Parsed difficulty.
+   * @param runs Count of runs per configuration.
+   * @param epochCap Epoch cap of every run.
+   */
+  private static void runBatch(Difficulty difficulty, int runs, int epochCap) {
+    BatchRunner runner = new BatchRunner(difficulty, epochCap);
+
+    printHeader();
+    for (RunConfiguration configuration : RunConfiguration.all()) {
+      long            start      = System.nanoTime();
+      BatchStatistics statistics = runner.run(configuration, runs);
+      long            elapsed    = System.nanoTime() - start;
+
+      printRow(configuration.name(), statistics, elapsed);
+    }
+  }
+
+  /**
+   * Run merchants of every configuration on one shared map and print the
+   * statistics.
+   * @param difficulty Parsed difficulty.
+   * @param merchants Count of merchants, split evenly between configurations.
+   * @param villages Count of villages on the shared map.
+   * @param rounds Count of rounds to run.
+   * @param auction Whether trades are settled by batch auctions.
+   */
+  private static void runMarket(
+    Difficulty difficulty,
+    int        merchants,
+    int        villages,
+    int        rounds,
+    boolean    auction) {
+    List<RunConfiguration> configurations = RunConfiguration.all();
+
+    long         start  = System.nanoTime();
+    SharedMarket market = new SharedMarket(
+      difficulty,
+      villages,
+      merchants,
+      i -> configurations.get(i % configurations.size()));
+    market.setAuction(auction);
+    market.advanceBy(rounds);
+    long elapsed = System.nanoTime() - start;
+
+    printHeader();
+    for (RunConfiguration configuration : configurations) {
+      printRow(
+        configuration.name(), market.getStatistics(configuration), elapsed);
+    }
+  }
+
+  /**
+   * Print the header of the statistics table.
+   */
+  private static void printHeader() {
+    System.out.printf(
+      "%-22s|%10s|%10s|%14s|%14s|%14s|%10s%n",
+      "Configuration",
+      "Survived",
+      "Epochs",
+      "Money (mean)",
+      "Money (sd)",
+      "Money (max)",
+      "Attacks");
+  }
+
+  /**
+   * Print a row of the statistics table.
+   * @param name Name of the configuration.
+   * @param statistics Statistics of the configuration.
+   * @param elapsed Time it took in nanoseconds.
+   */
+  private static void printRow(
+    String name, BatchStatistics statistics, long elapsed) {
+    System.out.printf(
+      "%-22s|%10d|%10.2f|%14.2f|%14.2f|%14.2f|%10.2f  (%d ms)%n",
+      name,
+      statistics.getSurvivors(),
+      statistics.getMeanEpochs(),
+      statistics.getMeanMoney(),
+      statistics.getMoneyDeviation(),
+      statistics.getMaxMoney(),
+      statistics.getMeanAttacks(),
+      elapsed / 1_000_000);
+  }
 }
@@ -1,49 +1,64 @@
 package io.arguments;
 
-import java.util.Random;
+import simulation.computation.RandomSource;
 
 /**
  * Defines multipliers known at the start of the simulation. Single instance
  */
 public class Difficulty {
-  private final int   rng;
-  private final float stealMultiplier;
+  private final int     rng;
+  private final float   stealMultiplier;
+  private final long    seed;
+  private final boolean infiniteWorld;
 
   /**
-   * Constructor from parser.
+   * Constructor from parser or a snapshot.
    * @param rng rng param (1st param - reasonable range -> From 2 To 6
    * inclusive).
    * @param stealMultiplier sm param (2nd param - reasonable range -> From 0.5
    * To 2.0 inclusive).
+   * @param seed Root seed of the simulation.
+   * @param infiniteWorld Whether the map is an unbounded chunked world.
    */
-  Difficulty(int rng, float stealMultiplier) {
+  public Difficulty(
+    int rng, float stealMultiplier, long seed, boolean infiniteWorld) {
     this.rng             = rng;
     this.stealMultiplier = stealMultiplier;
+    this.seed            = seed;
+    this.infiniteWorld   = infiniteWorld;
   }
 
   /**
    * Gets random int from -rng to rng based on rng argument.
+   * @param randomSource Stream to draw from.
    * @return Random int based on rng argument and random engine.
    */
-  public int getRandomInt() {
-    Random randEngine = new Random();
-    return randEngine.nextInt() % rng;
+  public int getRandomInt(RandomSource randomSource) {
+    return randomSource.nextInt() % rng;
   }
 
   /**
    * Gets random float from -rng to rng based on rng argument.
+   * @param randomSource Stream to draw from.
    * @return Random float based on rng argument and random engine.
    */
-  public float getRandomFloat() {
-    float  range      = (float)rng;
-    Random randEngine = new Random();
-    float  generated  = randEngine.nextFloat() * range;
+  public float getRandomFloat(RandomSource randomSource) {
+    float range     = (float)rng;
+    float generated = randomSource.nextFloat() * range;
 
-    if (randEngine.nextBoolean()) generated *= -1.0f;
+    if (randomSource.nextBoolean()) generated *= -1.0f;
 
     return generated;
   }
 
+  /**
+   * Gets the randomness of the simulation.
+   * @return RNG parsed from args.
+   */
+  public int getRng() {
+    return rng;
+  }
+
   /**
    * Gets steal multiplier.
    * @return Steal Multiplier parsed from args.
@@ -51,4 +66,20 @@ public class Difficulty {
   public float getStealMultiplier() {
     return stealMultiplier;
   }
+
+  /**
+   * Gets the root seed, a run is fully determined by it.
+   * @return Seed parsed from args or picked at random.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Whether the map is an unbounded world of chunks around the merchant.
+   * @return true if --infinite was given.
+   */
+  public boolean isInfiniteWorld() {
+    return infiniteWorld;
+  }
 }
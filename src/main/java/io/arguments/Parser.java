@@ -1,10 +1,32 @@
 package io.arguments;
 
+import simulation.computation.RandomSource;
+
 /**
  * Used to parse console arguments from the user.
  */
 public class Parser {
+  private static final String BATCH_OPTION    = "--batch";
+  private static final String SEED_OPTION     = "--seed";
+  private static final String INFINITE_OPTION = "--infinite";
+  private static final String MARKET_OPTION   = "--market";
+  private static final String AUCTION_OPTION  = "--auction";
+  private static final String COMPACT_OPTION  = "--compact";
+  private static final String AUTOSAVE_OPTION = "--autosave";
+  private static final String JFR_OPTION      = "--jfr";
+
   private Difficulty difficulty;
+  private int        batchRuns     = 0;
+  private int        batchEpochCap = 0;
+  private long       seed          = RandomSource.randomSeed();
+  private boolean    infiniteWorld = false;
+  private int        merchants     = 0;
+  private int        villages      = 0;
+  private int        marketRounds  = 0;
+  private boolean    auction       = false;
+  private boolean    compact       = false;
+  private String     autosave      = null;
+  private String     jfr           = null;
 
   /**
    * Parsing method.
@@ -12,9 +34,10 @@ public class Parser {
    * @throws IllegalArgumentException Wrong number of program arguments.
    * @throws IllegalArgumentException Argument rng out of range.
    * @throws IllegalArgumentException Argument steal multiplier out of range.
+   * @throws IllegalArgumentException Unknown or incomplete option.
    */
   public void parse(String[] Args) {
-    if (Args.length != 2) {
+    if (Args.length < 2) {
       throw new IllegalArgumentException("Too few Arguments, expected 2.");
     }
 
@@ -30,7 +53,76 @@ public class Parser {
         "Steal multiplier out of range - allowed range <0.5, 2.0>.");
     }
 
-    difficulty = new Difficulty(rng, stealMulti);
+    int i = 2;
+    while (i < Args.length) {
+      switch (Args[i]) {
+        case BATCH_OPTION -> {
+          if (i + 2 >= Args.length) {
+            throw new IllegalArgumentException(
+              "Batch expects run count and epoch cap.");
+          }
+          batchRuns     = Integer.parseInt(Args[i + 1]);
+          batchEpochCap = Integer.parseInt(Args[i + 2]);
+          if (batchRuns <= 0 || batchEpochCap <= 0) {
+            throw new IllegalArgumentException(
+              "Batch run count and epoch cap must be positive.");
+          }
+          i += 3;
+        }
+        case SEED_OPTION -> {
+          if (i + 1 >= Args.length) {
+            throw new IllegalArgumentException("Seed expects a value.");
+          }
+          seed = Long.parseLong(Args[i + 1]);
+          i += 2;
+        }
+        case MARKET_OPTION -> {
+          if (i + 3 >= Args.length) {
+            throw new IllegalArgumentException(
+              "Market expects merchant count, village count and round count.");
+          }
+          merchants    = Integer.parseInt(Args[i + 1]);
+          villages     = Integer.parseInt(Args[i + 2]);
+          marketRounds = Integer.parseInt(Args[i + 3]);
+          if (merchants <= 0 || villages <= 0 || marketRounds <= 0) {
+            throw new IllegalArgumentException(
+              "Market merchant, village and round counts must be positive.");
+          }
+          i += 4;
+        }
+        case AUCTION_OPTION -> {
+          auction = true;
+          ++i;
+        }
+        case COMPACT_OPTION -> {
+          compact = true;
+          ++i;
+        }
+        case AUTOSAVE_OPTION -> {
+          if (i + 1 >= Args.length) {
+            throw new IllegalArgumentException("Autosave expects a file.");
+          }
+          autosave = Args[i + 1];
+          i += 2;
+        }
+        case JFR_OPTION -> {
+          if (i + 1 >= Args.length) {
+            throw new IllegalArgumentException("Jfr expects a file.");
+          }
+          jfr = Args[i + 1];
+          i += 2;
+        }
+        case INFINITE_OPTION -> {
+          infiniteWorld = true;
+          ++i;
+        }
+        default -> {
+          throw new IllegalArgumentException("Unknown option " + Args[i]);
+        }
+      }
+    }
+
+    difficulty = new Difficulty(rng, stealMulti, seed, infiniteWorld);
   }
 
   /**
@@ -40,4 +132,92 @@ public class Parser {
   public Difficulty getDifficulty() {
     return difficulty;
   }
+
+  /**
+   * Whether a headless batch was requested instead of the console.
+   * @return true if --batch was given.
+   */
+  public boolean isBatch() {
+    return batchRuns > 0;
+  }
+
+  /**
+   * Batch run count, per configuration.
+   * @return Count of runs or 0 if no batch was requested.
+   */
+  public int getBatchRuns() {
+    return batchRuns;
+  }
+
+  /**
+   * Batch epoch cap.
+   * @return Epoch cap or 0 if no batch was requested.
+   */
+  public int getBatchEpochCap() {
+    return batchEpochCap;
+  }
+
+  /**
+   * Whether a headless shared market was requested instead of the console.
+   * @return true if --market was given.
+   */
+  public boolean isMarket() {
+    return merchants > 0;
+  }
+
+  /**
+   * Count of merchants in the shared market.
+   * @return Count of merchants or 0 if no market was requested.
+   */
+  public int getMarketMerchants() {
+    return merchants;
+  }
+
+  /**
+   * Count of villages on the shared map.
+   * @return Count of villages or 0 if no market was requested.
+   */
+  public int getMarketVillages() {
+    return villages;
+  }
+
+  /**
+   * Count of rounds the shared market runs.
+   * @return Count of rounds or 0 if no market was requested.
+   */
+  public int getMarketRounds() {
+    return marketRounds;
+  }
+
+  /**
+   * Whether the shared market settles trades by batch auctions.
+   * @return true if --auction was given.
+   */
+  public boolean isAuction() {
+    return auction;
+  }
+
+  /**
+   * Whether the console saves compact JSON instead of pretty printed.
+   * @return true if --compact was given.
+   */
+  public boolean isCompact() {
+    return compact;
+  }
+
+  /**
+   * Snapshot file the console autosaves to.
+   * @return File or null if --autosave was not given.
+   */
+  public String getAutosave() {
+    return autosave;
+  }
+
+  /**
+   * File the flight recording of the run is written to.
+   * @return File or null if --jfr was not given.
+   */
+  public String getJfr() {
+    return jfr;
+  }
 }
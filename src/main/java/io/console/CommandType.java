@@ -33,6 +33,30 @@ enum CommandType {
    * Advance by n epochs. (user)
    */
   ADVANCE_BY,
+  /**
+   * Rewind by n epochs. (user)
+   */
+  REWIND,
+  /**
+   * Display the trade ledger. (user)
+   */
+  LEDGER,
+  /**
+   * Export the trade ledger. (user)
+   */
+  EXPORT,
+  /**
+   * Chart a metric of the whole run. (user)
+   */
+  CHART,
+  /**
+   * Display the latencies of the phases of the epochs. (user)
+   */
+  STATS,
+  /**
+   * Save the changes since the last checkpoint. (user)
+   */
+  CHECKPOINT,
   /**
    * Save and quit. (user)
    */
@@ -65,8 +89,26 @@ enum CommandType {
       case ADVANCE_BY -> {
         return "(ab COUNT<Enter>)    |Advance by| - advance by a fixed count of epochs.\n";
       }
+      case REWIND -> {
+        return "(rw COUNT<Enter>)    |Rewind|     - step back by a fixed count of epochs.\n";
+      }
+      case LEDGER -> {
+        return "(tl [GROUP]<Enter>)  |Trades|     - trades by p (product), v (village) or e (epoch).\n";
+      }
+      case EXPORT -> {
+        return "(te FILENAME<Enter>) |Export|     - export the trades to a CSV file.\n";
+      }
+      case CHART -> {
+        return "(hc [METRIC]<Enter>) |History|    - chart m (money), s/g/o/f (stock), x, y or v (vaults) over the run.\n";
+      }
+      case STATS -> {
+        return "(st<Enter>)          |Stats|      - p50, p99 and max latency of every phase of the epochs, and counters.\n";
+      }
+      case CHECKPOINT -> {
+        return "(cp FILENAME<Enter>) |Checkpoint| - save the changes since the last checkpoint to a .snap chain.\n";
+      }
       case SAVE_QUIT -> {
-        return "(sq FILENAME<Enter>) |Save Quit|  - save current state and exit.\n";
+        return "(sq FILENAME<Enter>) |Save Quit|  - save current state and exit, binary for .snap.\n";
       }
       case QUIT -> {
         return "(qq<Enter>)          |Quit|       - quit without saving.\n";
@@ -93,6 +135,24 @@ enum CommandType {
       case "ab" -> {
         return ADVANCE_BY;
       }
+      case "rw" -> {
+        return REWIND;
+      }
+      case "tl" -> {
+        return LEDGER;
+      }
+      case "te" -> {
+        return EXPORT;
+      }
+      case "hc" -> {
+        return CHART;
+      }
+      case "st", "stats" -> {
+        return STATS;
+      }
+      case "cp" -> {
+        return CHECKPOINT;
+      }
       case "sq" -> {
         return SAVE_QUIT;
       }
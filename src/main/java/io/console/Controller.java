@@ -2,30 +2,74 @@ package io.console;
 
 import io.arguments.Difficulty;
 import io.json.Converter;
+import java.nio.file.Paths;
 import simulation.computation.TraverseBase;
+import simulation.environment.Autosave;
+import simulation.environment.EpochHistory;
+import simulation.environment.EpochStats;
 import simulation.environment.Epochs;
+import simulation.environment.Metric;
+import simulation.environment.MetricHistory;
+import simulation.environment.Snapshot;
+import simulation.environment.SnapshotChain;
+import simulation.goods.LedgerGrouping;
+import simulation.goods.TradeLedger;
 import simulation.strategy.StrategyType;
 
 /**
  * Controls the program flow, executes commands.
  */
 public class Controller {
+  /**
+   * Mantissa bits of the recorded metrics, charts are far coarser than the
+   * 4000th of a value this keeps.
+   */
+  private static final int CHART_MANTISSA_BITS = 12;
+
   private Input           input;
   private Output          output;
   private Epochs          epochs;
+  private EpochHistory    history;
+  private MetricHistory   metrics;
+  private TradeLedger     ledger;
+  private SnapshotChain   chain;
+  private Autosave        autosave;
   private Command         nextCommand;
   private final Converter converter;
+  private final String    autosaveFile;
 
   /**
    * Constructor, creates io, grabs Epochs (main simulation class) instance.
+   * Saves pretty printed JSON.
    * @param difficulty Difficulty.
    */
   public Controller(Difficulty difficulty) {
-    this.epochs      = new Epochs(difficulty);
-    this.input       = new Input(epochs);
-    this.output      = new Output(epochs);
-    this.nextCommand = new Command(CommandType.ENTRY);
-    this.converter   = new Converter();
+    this(difficulty, false);
+  }
+
+  /**
+   * Constructor, creates io, grabs Epochs (main simulation class) instance.
+   * @param difficulty Difficulty.
+   * @param compactSaves Save JSON without indentation.
+   */
+  public Controller(Difficulty difficulty, boolean compactSaves) {
+    this(difficulty, compactSaves, null);
+  }
+
+  /**
+   * Constructor, creates io, grabs Epochs (main simulation class) instance.
+   * @param difficulty Difficulty.
+   * @param compactSaves Save JSON without indentation.
+   * @param autosaveFile Snapshot file to autosave to, null for none.
+   */
+  public Controller(
+    Difficulty difficulty, boolean compactSaves, String autosaveFile) {
+    this.epochs       = new Epochs(difficulty);
+    this.input        = new Input(epochs);
+    this.output       = new Output(epochs);
+    this.nextCommand  = new Command(CommandType.ENTRY);
+    this.converter    = new Converter(!compactSaves);
+    this.autosaveFile = autosaveFile;
   }
 
   /**
@@ -86,6 +130,54 @@ public class Controller {
         }
         handleAdvanceBy(by);
       }
+      case REWIND -> {
+        Integer by;
+        try {
+          by = (Integer)param.getValue();
+        } catch (Throwable err) {
+          throw new IllegalArgumentException("Wrong argument type for command Rewind.");
+        }
+        handleRewind(by);
+      }
+      case LEDGER -> {
+        String code;
+        try {
+          code = param != null ? (String)param.getValue() : "p";
+        } catch (Throwable err) {
+          throw new IllegalArgumentException("Wrong argument type for command Ledger.");
+        }
+        handleLedger(code);
+      }
+      case CHART -> {
+        String code;
+        try {
+          code = param != null ? (String)param.getValue() : "m";
+        } catch (Throwable err) {
+          throw new IllegalArgumentException("Wrong argument type for command Chart.");
+        }
+        handleChart(code);
+      }
+      case EXPORT -> {
+        String filename;
+        try {
+          filename = (String)param.getValue();
+        } catch (Throwable err) {
+          throw new IllegalArgumentException("Wrong argument type for command Export.");
+        }
+        handleExport(filename);
+      }
+      case STATS -> {
+        handleStats();
+      }
+      case CHECKPOINT -> {
+        String filename;
+        try {
+          filename = (String)param.getValue();
+        } catch (Throwable err) {
+          throw new IllegalArgumentException("Wrong argument type for command Checkpoint.");
+        }
+        handleCheckpoint(filename);
+      }
       case SAVE_QUIT -> {
         String filename;
         try {
@@ -146,12 +238,16 @@ public class Controller {
   }
 
   /**
-   * Internal RESUME handler.
+   * Internal RESUME handler, a .snap file is a binary snapshot recovered with
+   * its autosave journal, anything else JSON.
    */
   private void handleResume(String filename) {
     try {
-      String fileRead = input.readFile(filename);
-      epochs = converter.fromJSON(fileRead);
+      if (filename.endsWith(Snapshot.EXTENSION)) {
+        epochs = Autosave.recover(Paths.get(filename));
+      } else {
+        epochs = converter.read(Paths.get(filename));
+      }
     } catch (Throwable err) {
       output.setError(ErrorMsg.INVALID_FILE);
       nextCommand = new Command(CommandType.ENTRY);
@@ -159,6 +255,7 @@ public class Controller {
     }
     output = new Output(epochs);
     input = new Input(epochs);
+    startRecording();
     nextCommand = new Command(CommandType.GET_COMMAND);
   }
 
@@ -196,6 +293,7 @@ public class Controller {
     } while (selectedAlgorithm == null);
 
     epochs.setTraverseAlgorithm(selectedAlgorithm);
+    startRecording();
 
     nextCommand = new Command(CommandType.GET_COMMAND);
   }
@@ -217,8 +315,9 @@ public class Controller {
    * Internal ADVANCE_BY handler.
    */
   private void handleAdvanceBy(int by) {
-    epochs.advanceBy(by);
+    int executed = epochs.advanceBy(by);
     if (epochs.isSimulationFinished()) {
+      output.emitDiedAfter(executed, by);
       finalSequence();
       return;
     }
@@ -227,12 +326,132 @@ public class Controller {
   }
 
   /**
-   * Internal SAVE_QUIT handler.
+   * Internal REWIND handler.
+   */
+  private void handleRewind(int by) {
+    int rewound = history != null ? history.rewind(by) : 0;
+    if (rewound < by) {
+      output.setError(ErrorMsg.INVALID_REWIND);
+    }
+
+    // the journal replays epochs, not rewinds
+    if (autosave != null && rewound > 0) {
+      try {
+        autosave.saveNow();
+      } catch (Throwable err) {
+        output.setError(ErrorMsg.ERROR_SAVE);
+      }
+    }
+
+    nextCommand = new Command(CommandType.GET_COMMAND);
+  }
+
+  /**
+   * Internal LEDGER handler.
+   */
+  private void handleLedger(String code) {
+    LedgerGrouping grouping = LedgerGrouping.byCode(code);
+    if (grouping == null) {
+      throw new IllegalArgumentException("Unknown grouping.");
+    }
+
+    output.clearScreen();
+    output.emitLedger(ledger.summarize(grouping));
+    input.getStringEntered();
+    nextCommand = new Command(CommandType.GET_COMMAND);
+  }
+
+  /**
+   * Internal CHART handler.
+   */
+  private void handleChart(String code) {
+    Metric metric = Metric.byCode(code);
+    if (metric == null) {
+      throw new IllegalArgumentException("Unknown metric.");
+    }
+
+    output.clearScreen();
+    output.emitChart(metrics, metric);
+    input.getStringEntered();
+    nextCommand = new Command(CommandType.GET_COMMAND);
+  }
+
+  /**
+   * Internal STATS handler.
+   */
+  private void handleStats() {
+    output.clearScreen();
+    output.emitStats(epochs.getStats());
+    input.getStringEntered();
+    nextCommand = new Command(CommandType.GET_COMMAND);
+  }
+
+  /**
+   * Internal EXPORT handler.
+   */
+  private void handleExport(String filename) {
+    try {
+      ledger.exportCsv(Paths.get(filename));
+    } catch (Throwable err) {
+      output.setError(ErrorMsg.ERROR_EXPORT);
+    }
+    nextCommand = new Command(CommandType.GET_COMMAND);
+  }
+
+  /**
+   * Internal CHECKPOINT handler, continues the chain of the file or starts a
+   * new one by a full snapshot.
+   */
+  private void handleCheckpoint(String filename) {
+    if (!filename.endsWith(Snapshot.EXTENSION)) {
+      throw new IllegalArgumentException("Checkpoints are .snap files.");
+    }
+
+    try {
+      if (chain == null || !chain.getBase().equals(Paths.get(filename))) {
+        chain = new SnapshotChain(epochs, Paths.get(filename));
+      }
+      chain.checkpoint();
+    } catch (Throwable err) {
+      chain = null;
+      output.setError(ErrorMsg.ERROR_SAVE);
+    }
+    nextCommand = new Command(CommandType.GET_COMMAND);
+  }
+
+  /**
+   * Internal, start recording the trades, the metrics, the latencies of the
+   * phases, the simulation for rewinding if it can be, and autosaving if
+   * requested.
+   */
+  private void startRecording() {
+    epochs.setStats(new EpochStats());
+    ledger  = new TradeLedger(epochs);
+    metrics = new MetricHistory(
+      epochs, null, MetricHistory.DEFAULT_RESIDENT_BLOCKS, CHART_MANTISSA_BITS);
+    history = EpochHistory.isSupported(epochs)
+              ? new EpochHistory(epochs, EpochHistory.DEFAULT_CAPACITY)
+              : null;
+
+    if (autosaveFile == null) return;
+    try {
+      autosave = new Autosave(epochs, Paths.get(autosaveFile));
+    } catch (Throwable err) {
+      output.setError(ErrorMsg.ERROR_SAVE);
+    }
+  }
+
+  /**
+   * Internal SAVE_QUIT handler, a .snap file is a binary snapshot, anything else
+   * JSON.
    */
   private void handleSaveQuit(String filename) {
     try {
-      String epochsJson = converter.toJSON(epochs);
-      output.writeFile(epochsJson, filename);
+      if (filename.endsWith(Snapshot.EXTENSION)) {
+        Snapshot.write(epochs, Paths.get(filename));
+      } else {
+        converter.write(epochs, Paths.get(filename));
+      }
     } catch (Throwable err) {
       output.setError(ErrorMsg.ERROR_SAVE);
       nextCommand = new Command(CommandType.GET_COMMAND);
@@ -245,6 +464,20 @@ public class Controller {
    * Internal QUIT handler.
    */
   private void handleQuit() {
+    if (metrics != null) {
+      try {
+        metrics.close();
+      } catch (Throwable err) {
+        // the temporary spill file is deleted on exit anyway
+      }
+    }
+    if (autosave != null) {
+      try {
+        autosave.close();
+      } catch (Throwable err) {
+        // nothing left to report to, the last snapshot stays on disk
+      }
+    }
     nextCommand = null;
   }
 
@@ -23,7 +23,15 @@ public enum ErrorMsg {
   /**
    * Error while saving to a file.
    */
-  ERROR_SAVE;
+  ERROR_SAVE,
+  /**
+   * Rewind further back than the history reaches.
+   */
+  INVALID_REWIND,
+  /**
+   * Error while exporting the trades.
+   */
+  ERROR_EXPORT;
 
   /**
    * get String representation.
@@ -47,6 +55,12 @@ public enum ErrorMsg {
       case ERROR_SAVE -> {
         return "Problems saving to a file. Try again.";
       }
+      case INVALID_REWIND -> {
+        return "History does not reach that far back!";
+      }
+      case ERROR_EXPORT -> {
+        return "Problems exporting the trades. Try again.";
+      }
     }
     return "";
   }
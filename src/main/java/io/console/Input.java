@@ -1,12 +1,9 @@
 package io.console;
 
 import java.io.Console;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import simulation.computation.TraverseBase;
 import simulation.computation.TraverseDistance;
+import simulation.computation.TraverseMarket;
 import simulation.computation.TraversePrices;
 import simulation.environment.Epochs;
 import simulation.strategy.AggressiveStrategy;
@@ -84,6 +81,9 @@ public class Input {
       case "d" -> {
         return new TraverseDistance(epochs);
       }
+      case "m" -> {
+        return new TraverseMarket(epochs);
+      }
       default -> {
         return null;
       }
@@ -107,7 +107,8 @@ public class Input {
     if (split.length > 1) {
       String rawParam = split[1];
 
-      if (commandType == CommandType.ADVANCE_BY) {
+      if (commandType == CommandType.ADVANCE_BY
+          || commandType == CommandType.REWIND) {
         try {
           int parsedRawParam = Integer.parseInt(rawParam);
           Param<?> param = new Param<>(parsedRawParam);
@@ -134,16 +135,4 @@ public class Input {
 
     return read;
   }
-
-  /**
-   * Read from a file.
-   * @param filename Filename to be read.
-   * @return Contents.
-   * @throws IOException Problems reading a file.
-   */
-  public String readFile(String filename) throws IOException {
-    Path path = Paths.get(filename);
-    byte[] read = Files.readAllBytes(path);
-    return new String(read);
-  }
 }
@@ -1,16 +1,17 @@
 package io.console;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.stream.IntStream;
+import simulation.environment.EpochStats;
 import simulation.environment.Epochs;
+import simulation.environment.LatencyHistogram;
+import simulation.environment.Metric;
+import simulation.environment.MetricHistory;
+import simulation.environment.Phase;
 import simulation.environment.Position;
 import simulation.environment.VillageMap;
-import simulation.goods.Product;
+import simulation.goods.LedgerSummary;
 import simulation.goods.ProductType;
 import simulation.player.PlayerState;
 import simulation.player.PlayerStorage;
@@ -26,12 +27,15 @@ public class Output {
   private static final String PROMPT_TEXT = "Command (h<Enter> for help): ";
 
   private static final String VILLAGE_SPACING = "25";
+  private static final int    VILLAGES_SHOWN  = 10;
+  private static final int    CHART_WIDTH     = 64;
+  private static final int    CHART_HEIGHT    = 16;
   private static final String HEADER          = "~~~ Merchant Simulation ~~~";
 
   private static final String FILENAME_MESSAGE = "Filename: ";
 
   private static final String TRAVERSE_MESSAGE =
-    "Traverse method?[p (price)/ d (distance)]: ";
+    "Traverse method?[p (price)/ d (distance)/ m (market)]: ";
   private static final String STRATEGY_MESSAGE =
     "Strategy Type?[a (aggressive)/ b (balanced)/ c (conservative)]: ";
 
@@ -134,6 +138,147 @@ public class Output {
     draw(message);
   }
 
+  /**
+   * Print how far an advance by several epochs got before the merchant died.
+   * @param executed Count of epochs completed before the one it died in.
+   * @param requested Count of epochs requested.
+   */
+  public void emitDiedAfter(int executed, int requested) {
+    draw(String.format(
+      "\nThe merchant died after %d of %d epochs.", executed, requested));
+  }
+
+  /**
+   * Print a chart of a metric over every recorded epoch, downsampled to
+   * CHART_WIDTH columns: the range of a column as |, its mean as *.
+   * @param history History of the metrics.
+   * @param metric Metric to chart.
+   */
+  public void emitChart(MetricHistory history, Metric metric) {
+    StringBuilder builder = new StringBuilder();
+    int           from    = history.getFirstEpoch();
+    int           to      = history.getEndEpoch();
+
+    if (to == from) {
+      builder.append(metric).append("\n\nNo epochs recorded yet.\n");
+    } else {
+      builder.append(String.format(
+        "%s, epochs %d to %d\n\n", metric, from, to - 1));
+
+      int     columns = Math.min(CHART_WIDTH, to - from);
+      float[] min     = new float[columns];
+      float[] mean    = new float[columns];
+      float[] max     = new float[columns];
+      history.downsample(metric, from, to, min, mean, max);
+
+      float bottom = Float.POSITIVE_INFINITY;
+      float top    = Float.NEGATIVE_INFINITY;
+      for (int c = 0; c < columns; ++c) {
+        bottom = Math.min(bottom, min[c]);
+        top    = Math.max(top, max[c]);
+      }
+      float step = top > bottom ? (top - bottom) / (CHART_HEIGHT - 1) : 1.0f;
+
+      for (int row = CHART_HEIGHT - 1; row >= 0; --row) {
+        builder.append(String.format("%12.2f |", bottom + row * step));
+        for (int c = 0; c < columns; ++c) {
+          int low  = Math.round((min[c] - bottom) / step);
+          int high = Math.round((max[c] - bottom) / step);
+          if (Math.round((mean[c] - bottom) / step) == row) {
+            builder.append('*');
+          } else if (row >= low && row <= high) {
+            builder.append('|');
+          } else {
+            builder.append(' ');
+          }
+        }
+        builder.append('\n');
+      }
+      builder.append(" ".repeat(13)).append('+')
+        .append("-".repeat(columns)).append('\n');
+    }
+    builder.append("\nPress Enter to close the chart.");
+
+    draw(builder.toString());
+  }
+
+  /**
+   * Print the latencies of the phases of the epochs, in microseconds, and the
+   * counters.
+   * @param stats Statistics of the epochs.
+   */
+  public void emitStats(EpochStats stats) {
+    StringBuilder builder = new StringBuilder();
+
+    builder.append(String.format(
+      "%-16s|%10s|%12s|%12s|%12s\n",
+      "Phase",
+      "Count",
+      "p50 (us)",
+      "p99 (us)",
+      "max (us)"));
+    for (int p = 0; p < Phase.COUNT; ++p) {
+      Phase            phase   = Phase.byOrdinal(p);
+      LatencyHistogram latency = stats.getLatency(phase);
+
+      builder.append(String.format(
+        "%-16s|%10d|%12.1f|%12.1f|%12.1f\n",
+        phase,
+        latency.getCount(),
+        latency.getValueAtPercentile(50.0) / 1e3,
+        latency.getValueAtPercentile(99.0) / 1e3,
+        latency.getMax() / 1e3));
+    }
+
+    builder.append(String.format(
+      "\nTransactions generated: %d\n", stats.getTransactionsGenerated()));
+    builder.append(String.format(
+      "Transactions rejected:  %d\n", stats.getTransactionsRejected()));
+    builder.append(String.format(
+      "Attacks:                %d\n", stats.getAttacks()));
+    builder.append(String.format(
+      "Regenerations:          %d\n", stats.getRegenerations()));
+    builder.append("\nPress Enter to close the statistics.");
+
+    draw(builder.toString());
+  }
+
+  /**
+   * Print a summary of the trades, groups without trades are left out.
+   * @param summary Summary of the trade ledger.
+   */
+  public void emitLedger(LedgerSummary summary) {
+    StringBuilder builder = new StringBuilder();
+
+    builder.append(String.format(
+      "%-16s|%10s|%12s|%12s|%12s|%12s|%12s|%10s\n",
+      "Group",
+      "Trades",
+      "Bought",
+      "Sold",
+      "Spent",
+      "Earned",
+      "Profit",
+      "Avg price"));
+    for (int g = 0; g < summary.getGroupCount(); ++g) {
+      if (summary.getTrades(g) == 0) continue;
+
+      builder.append(String.format(
+        "%-16s|%10d|%12.2f|%12.2f|%12.2f|%12.2f|%12.2f|%10.2f\n",
+        generateGroupName(summary, g),
+        summary.getTrades(g),
+        summary.getBought(g),
+        summary.getSold(g),
+        summary.getSpent(g),
+        summary.getEarned(g),
+        summary.getProfit(g),
+        summary.getAveragePrice(g)));
+    }
+    builder.append("\nPress Enter to close the trades.");
+
+    draw(builder.toString());
+  }
+
   /**
    * Print current villages, player, and info.
    */
@@ -187,19 +332,21 @@ public class Output {
   }
 
   /**
-   * Internal villages representation generator.
+   * Internal villages representation generator, the first VILLAGES_SHOWN
+   * villages of a larger map.
    * @return Villages representation.
    */
   private String generateVillagesRepresentation() {
     VillageMap    map      = epochs.getVillageMap();
     List<Village> villages = map.getVillages();
+    int           shown    = Math.min(villages.size(), VILLAGES_SHOWN);
 
     StringBuilder rowNames        = new StringBuilder();
     StringBuilder rowPositions    = new StringBuilder();
     StringBuilder rowPriceIndex   = new StringBuilder();
     StringBuilder rowVillageMoney = new StringBuilder();
 
-    IntStream.range(0, villages.size()).forEachOrdered(i -> {
+    IntStream.range(0, shown).forEachOrdered(i -> {
       Village currentVillage = villages.get(i);
 
       String villageNameStr = String.format(
@@ -241,12 +388,40 @@ public class Output {
     villagesBuilder.append(rowPriceIndex);
     villagesBuilder.append(rowVillageMoney);
     villagesBuilder.append(spacer);
+    if (shown < villages.size()) {
+      villagesBuilder.append(
+        String.format("... and %d more villages\n", villages.size() - shown));
+    }
 
     String villagesRepresentation = villagesBuilder.toString();
 
     return villagesRepresentation;
   }
 
+  /**
+   * Internal ledger group name generator.
+   * @param summary Summary of the trade ledger.
+   * @param group Number of the group.
+   * @return Name of the group.
+   */
+  private String generateGroupName(LedgerSummary summary, int group) {
+    int key = summary.getKey(group);
+
+    switch (summary.getGrouping()) {
+      case PRODUCT -> {
+        return ProductType.byOrdinal(key).toString();
+      }
+      case VILLAGE -> {
+        return String.format("Village no. %d", key);
+      }
+      case EPOCH -> {
+        return String.format("Epoch %d", key);
+      }
+    }
+
+    return "";
+  }
+
   /**
    * Internal player representation generator.
    * @return Player representation.
@@ -266,11 +441,11 @@ public class Output {
       position.getY());
     playerBuilder.append(rowPosition);
 
-    Product foodStock        = storage.getProduct(ProductType.FOOD);
-    float   dailyConsumption = strategy.getFoodConsumption();
-    String  rowFood          = String.format(
+    float  foodStock        = storage.getWeight(ProductType.FOOD);
+    float  dailyConsumption = strategy.getFoodConsumption();
+    String rowFood          = String.format(
       "Food                     -> Stock: %.2f, Consumption: %.2f\n",
-      foodStock.getWeight(),
+      foodStock,
       dailyConsumption);
     playerBuilder.append(rowFood);
 
@@ -287,12 +462,12 @@ public class Output {
     StringBuilder stockBuilder = new StringBuilder();
     stockBuilder.append("Stock:\n");
 
-    Product gems     = storage.getProduct(ProductType.GEM);
-    Product spice    = storage.getProduct(ProductType.SPICE);
-    Product soap     = storage.getProduct(ProductType.SOAP);
-    String  gemRow   = String.format("  .Gem   -> %.2f\n", gems.getWeight());
-    String  spiceRow = String.format("  .Spice -> %.2f\n", spice.getWeight());
-    String  soapRow  = String.format("  .Soap  -> %.2f\n", soap.getWeight());
+    float  gems     = storage.getWeight(ProductType.GEM);
+    float  spice    = storage.getWeight(ProductType.SPICE);
+    float  soap     = storage.getWeight(ProductType.SOAP);
+    String gemRow   = String.format("  .Gem   -> %.2f\n", gems);
+    String spiceRow = String.format("  .Spice -> %.2f\n", spice);
+    String soapRow  = String.format("  .Soap  -> %.2f\n", soap);
     stockBuilder.append(gemRow);
     stockBuilder.append(spiceRow);
     stockBuilder.append(soapRow);
@@ -303,18 +478,6 @@ public class Output {
     return playerRepresentation;
   }
 
-  /**
-   * Write to a file.
-   * @param contents Contents to be written.
-   * @param filename Filename to be written.
-   * @throws IOException Problems writing to a file.
-   */
-  public void writeFile(String contents, String filename) throws IOException {
-    Path path         = Paths.get(filename);
-    byte[] strToBytes = contents.getBytes();
-    Files.write(path, strToBytes);
-  }
-
   /**
    * Set error to be printed on next prompt.
    * @param error Error.
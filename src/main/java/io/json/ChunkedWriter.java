@@ -0,0 +1,110 @@
+package io.json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Buffer between a JsonWriter and its destination. JsonWriter writes every
+ * name, value and indent as a short string, BufferedWriter takes its lock for
+ * each of them; this buffer is used by one thread and hands the destination
+ * whole chunks. Flushing flushes the destination, closing closes it.
+ */
+class ChunkedWriter extends Writer {
+  private final Writer destination;
+  private final char[] chunk;
+  private int          length;
+
+  /**
+   * Constructor.
+   * @param destination Receives the chunks.
+   * @param size Size of a chunk in characters.
+   */
+  ChunkedWriter(Writer destination, int size) {
+    this.destination = destination;
+    this.chunk       = new char[size];
+  }
+
+  /**
+   * Buffer a character.
+   * @param c Character.
+   * @throws IOException When a full chunk can not be written.
+   */
+  @Override
+  public void write(int c) throws IOException {
+    if (length == chunk.length) flushChunk();
+    chunk[length++] = (char)c;
+  }
+
+  /**
+   * Buffer a part of a string.
+   * @param string Characters.
+   * @param offset Index of the first character.
+   * @param count Count of characters.
+   * @throws IOException When a full chunk can not be written.
+   */
+  @Override
+  public void write(String string, int offset, int count) throws IOException {
+    while (count > 0) {
+      if (length == chunk.length) flushChunk();
+      int part = Math.min(count, chunk.length - length);
+      string.getChars(offset, offset + part, chunk, length);
+      length += part;
+      offset += part;
+      count  -= part;
+    }
+  }
+
+  /**
+   * Buffer a part of an array.
+   * @param characters Characters.
+   * @param offset Index of the first character.
+   * @param count Count of characters.
+   * @throws IOException When a full chunk can not be written.
+   */
+  @Override
+  public void write(char[] characters, int offset, int count)
+    throws IOException {
+    if (count >= chunk.length) {
+      flushChunk();
+      destination.write(characters, offset, count);
+      return;
+    }
+
+    if (count > chunk.length - length) flushChunk();
+    System.arraycopy(characters, offset, chunk, length, count);
+    length += count;
+  }
+
+  /**
+   * Write the buffered characters and flush the destination.
+   * @throws IOException When writing fails.
+   */
+  @Override
+  public void flush() throws IOException {
+    flushChunk();
+    destination.flush();
+  }
+
+  /**
+   * Write the buffered characters and close the destination.
+   * @throws IOException When writing fails.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flushChunk();
+    } finally {
+      destination.close();
+    }
+  }
+
+  /**
+   * Internal, hand the buffered characters to the destination.
+   * @throws IOException When writing fails.
+   */
+  private void flushChunk() throws IOException {
+    if (length == 0) return;
+    destination.write(chunk, 0, length);
+    length = 0;
+  }
+}
@@ -1,67 +1,80 @@
 package io.json;
 
-import com.google.gson.*;
-import com.google.gson.graph.*;
-import com.google.gson.typeadapters.RuntimeTypeAdapterFactory;
-import io.arguments.Difficulty;
-import simulation.computation.*;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import simulation.environment.Epochs;
-import simulation.environment.VillageMap;
-import simulation.player.PlayerState;
-import simulation.player.PlayerStorage;
-import simulation.strategy.AggressiveStrategy;
-import simulation.strategy.BalancedStrategy;
-import simulation.strategy.ConservativeStrategy;
-import simulation.strategy.StrategyType;
 
 /**
- * JSON Epochs class Serializer/Deserializer.
+ * JSON Epochs class Serializer/Deserializer. Files are streamed through Gson's
+ * JsonWriter and JsonReader, so the document is never held as one String.
+ * Saves are written by EpochsAdapter, hand written adapters without
+ * reflection. Saves of the first release, Gson object graphs, are migrated
+ * by GraphMigration.
  */
 public class Converter {
-  private final Gson gson;
+  /**
+   * Size of the buffers between a file and the JSON stream.
+   */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Characters looked at to tell the format, the graph format starts with
+   * the id of the first object.
+   */
+  private static final int    FORMAT_PEEK  = 64;
+  private static final String GRAPH_PREFIX = "\"0x";
+
+  private final EpochsAdapter adapter;
+  private final boolean       prettyPrinting;
 
   /**
-   * Set up Gson Object to interpret Epochs class with Traverse and StrategyType
-   * inheritance and recursive dependencies.
+   * Constructor, pretty printed.
    */
   public Converter() {
-    RuntimeTypeAdapterFactory<TraverseBase> traverseTypeAdapter =
-      RuntimeTypeAdapterFactory.of(TraverseBase.class)
-        .registerSubtype(TraversePrices.class)
-        .registerSubtype(TraverseDistance.class);
-
-    RuntimeTypeAdapterFactory<StrategyType> strategyTypeAdapter =
-      RuntimeTypeAdapterFactory.of(StrategyType.class)
-        .registerSubtype(AggressiveStrategy.class)
-        .registerSubtype(BalancedStrategy.class)
-        .registerSubtype(ConservativeStrategy.class);
-
-    GsonBuilder builder = new GsonBuilder();
-
-    builder.setPrettyPrinting()
-      .registerTypeAdapterFactory(strategyTypeAdapter)
-      .registerTypeAdapterFactory(traverseTypeAdapter);
-
-    new GraphAdapterBuilder()
-      .addType(Epochs.class)
-      .addType(BuyingAlgorithm.class)
-      .addType(SellingAlgorithm.class)
-      .addType(PlayerStorage.class)
-      .addType(PlayerState.class)
-      .addType(VillageMap.class)
-      .addType(Difficulty.class)
-      .registerOn(builder);
-
-    this.gson = builder.create();
+    this(true);
+  }
+
+  /**
+   * Constructor.
+   * @param prettyPrinting Indent the output, false for compact JSON.
+   */
+  public Converter(boolean prettyPrinting) {
+    this.adapter        = new EpochsAdapter();
+    this.prettyPrinting = prettyPrinting;
   }
 
   /**
    * Convert Epochs to JSON
    * @param game Epochs object.
    * @return JSON of Epochs.
+   * @throws IllegalStateException See EpochsAdapter.write.
    */
   public String toJSON(Epochs game) {
-    return gson.toJson(game);
+    StringWriter writer = new StringWriter();
+    try {
+      toJSON(game, writer);
+    } catch (IOException err) {
+      throw new JsonIOException(err);
+    }
+    return writer.toString();
   }
 
   /**
@@ -71,6 +84,130 @@ public class Converter {
    * @throws JsonSyntaxException bad json.
    */
   public Epochs fromJSON(String game) {
-    return gson.fromJson(game, Epochs.class);
+    try {
+      return fromJSON(new StringReader(game));
+    } catch (IOException err) {
+      throw new JsonIOException(err);
+    }
+  }
+
+  /**
+   * Stream Epochs as JSON to a writer in chunks of BUFFER_SIZE characters,
+   * flushed but not closed.
+   * @param game Epochs object.
+   * @param writer Receives the JSON.
+   * @throws IOException When writing fails.
+   * @throws IllegalStateException See EpochsAdapter.write.
+   */
+  public void toJSON(Epochs game, Writer writer) throws IOException {
+    JsonWriter jsonWriter =
+      new JsonWriter(new ChunkedWriter(writer, BUFFER_SIZE));
+    if (prettyPrinting) { jsonWriter.setIndent("  "); }
+    adapter.write(jsonWriter, game);
+    jsonWriter.flush();
+  }
+
+  /**
+   * Parse Epochs from a stream of JSON, the reader is not closed.
+   * @param reader JSON of Epochs.
+   * @return Epochs object.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException bad json or data after it.
+   */
+  public Epochs fromJSON(Reader reader) throws IOException {
+    BufferedReader buffered = reader instanceof BufferedReader
+                              ? (BufferedReader)reader
+                              : new BufferedReader(reader, BUFFER_SIZE);
+    if (isGraph(buffered)) {
+      return fromGraph(buffered);
+    }
+
+    JsonReader jsonReader = new JsonReader(buffered);
+    Epochs     game;
+    try {
+      game = adapter.read(jsonReader);
+      if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonSyntaxException("JSON document was not fully consumed.");
+      }
+    } catch (MalformedJsonException | EOFException | IllegalStateException
+             | NumberFormatException err) {
+      throw new JsonSyntaxException(err);
+    }
+    return game;
+  }
+
+  /**
+   * Save Epochs as a JSON file, replacing it.
+   * @param game Epochs object.
+   * @param path File to write.
+   * @throws IOException When writing fails.
+   * @throws IllegalStateException See EpochsAdapter.write.
+   */
+  public void write(Epochs game, Path path) throws IOException {
+    // toJSON buffers in chunks of its own
+    try (Writer writer = new OutputStreamWriter(
+           Files.newOutputStream(path), StandardCharsets.UTF_8)) {
+      toJSON(game, writer);
+    }
+  }
+
+  /**
+   * Load Epochs from a JSON file.
+   * @param path File to read.
+   * @return Epochs object.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException bad json.
+   */
+  public Epochs read(Path path) throws IOException {
+    try (Reader reader = new BufferedReader(
+           new InputStreamReader(
+             Files.newInputStream(path), StandardCharsets.UTF_8),
+           BUFFER_SIZE)) {
+      return fromJSON(reader);
+    }
+  }
+
+  /**
+   * Internal, whether a save is in the Gson object graph format, the reader
+   * is reset to where it was.
+   * @param reader JSON of Epochs.
+   * @return true if the first name is an object id.
+   * @throws IOException When reading fails.
+   */
+  private static boolean isGraph(BufferedReader reader) throws IOException {
+    char[] prefix = new char[FORMAT_PEEK];
+
+    reader.mark(FORMAT_PEEK);
+    int length = Math.max(reader.read(prefix, 0, FORMAT_PEEK), 0);
+    reader.reset();
+
+    String start = new String(prefix, 0, length).strip();
+    return start.startsWith("{")
+           && start.substring(1).strip().startsWith(GRAPH_PREFIX);
+  }
+
+  /**
+   * Internal, parse a save in the Gson object graph format, small enough to
+   * be migrated as a tree.
+   * @param reader JSON of Epochs.
+   * @return Epochs object.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException bad json or data after it.
+   */
+  private Epochs fromGraph(Reader reader) throws IOException {
+    JsonReader jsonReader = new JsonReader(reader);
+    try {
+      JsonElement graph =
+        new Gson().getAdapter(JsonElement.class).read(jsonReader);
+      if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonSyntaxException("JSON document was not fully consumed.");
+      }
+      return adapter.fromJsonTree(GraphMigration.migrate(graph));
+    } catch (MalformedJsonException | EOFException | IllegalStateException
+             | ClassCastException | UnsupportedOperationException
+             | NumberFormatException err) {
+      // a value of the wrong kind somewhere in the graph
+      throw new JsonSyntaxException(err);
+    }
   }
 }
@@ -0,0 +1,67 @@
+package io.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import io.arguments.Difficulty;
+import java.io.IOException;
+
+/**
+ * Difficulty as an object of its four settings.
+ */
+class DifficultyAdapter extends TypeAdapter<Difficulty> {
+  /**
+   * Write the settings.
+   * @param out Writer positioned at a value.
+   * @param difficulty Difficulty, not null.
+   * @throws IOException When writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, Difficulty difficulty) throws IOException {
+    out.beginObject();
+    out.name("rng").value(difficulty.getRng());
+    out.name("stealMultiplier");
+    JsonValues.writeFloat(out, difficulty.getStealMultiplier());
+    out.name("seed").value(difficulty.getSeed());
+    out.name("infiniteWorld").value(difficulty.isInfiniteWorld());
+    out.endObject();
+  }
+
+  /**
+   * Read a difficulty written by write, missing settings are 0 or false.
+   * @param in Reader positioned at the object.
+   * @return Difficulty.
+   * @throws IOException When reading fails.
+   */
+  @Override
+  public Difficulty read(JsonReader in) throws IOException {
+    int     rng             = 0;
+    float   stealMultiplier = 0.0f;
+    long    seed            = 0;
+    boolean infiniteWorld   = false;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "rng" -> {
+          rng = in.nextInt();
+        }
+        case "stealMultiplier" -> {
+          stealMultiplier = JsonValues.readFloat(in);
+        }
+        case "seed" -> {
+          seed = in.nextLong();
+        }
+        case "infiniteWorld" -> {
+          infiniteWorld = in.nextBoolean();
+        }
+        default -> {
+          in.skipValue();
+        }
+      }
+    }
+    in.endObject();
+
+    return new Difficulty(rng, stealMultiplier, seed, infiniteWorld);
+  }
+}
@@ -0,0 +1,391 @@
+package io.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.arguments.Difficulty;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import simulation.computation.Dice;
+import simulation.computation.RandomSource;
+import simulation.computation.TraverseBase;
+import simulation.environment.Epochs;
+import simulation.environment.Position;
+import simulation.environment.VillageMap;
+import simulation.goods.ProductType;
+import simulation.player.PlayerState;
+import simulation.player.PlayerStorage;
+import simulation.strategy.StrategyType;
+import simulation.vilages.Village;
+
+/**
+ * Epochs as a versioned document: what the simulation is constructed from,
+ * then the map, then the merchant, the current village, the strategy and the
+ * traversal. Everything after the map refers back to the simulation, so the
+ * simulation is constructed when the map is reached and the rest is read into
+ * it. The current village is its row on the map, or the village itself when
+ * the merchant left its chunk behind. Listeners and indexes are not saved.
+ */
+class EpochsAdapter extends TypeAdapter<Epochs> {
+  /**
+   * Version of the document, saves without it are Gson object
+   * graphs of the first release, see GraphMigration.
+   */
+  static final int VERSION = 1;
+
+  private final DifficultyAdapter   difficultyAdapter;
+  private final RandomSourceAdapter randomSourceAdapter;
+  private final PositionAdapter     positionAdapter;
+  private final VillageMapAdapter   villageMapAdapter;
+  private final VillageAdapter      villageAdapter;
+  private final StrategyAdapter     strategyAdapter;
+  private final TraversalAdapter    traversalAdapter;
+
+  /**
+   * Constructor.
+   */
+  EpochsAdapter() {
+    difficultyAdapter   = new DifficultyAdapter();
+    randomSourceAdapter = new RandomSourceAdapter();
+    positionAdapter     = new PositionAdapter();
+    villageMapAdapter   = new VillageMapAdapter();
+    villageAdapter      = new VillageAdapter();
+    strategyAdapter     = new StrategyAdapter();
+    traversalAdapter    = new TraversalAdapter();
+  }
+
+  /**
+   * Write the whole simulation.
+   * @param out Writer positioned at a value.
+   * @param epochs Simulation with a map of its own or null.
+   * @throws IOException When writing fails.
+   * @throws IllegalStateException When the map is shared, or the strategy or
+   *   traversal is not one of the built in ones.
+   */
+  @Override
+  public void write(JsonWriter out, Epochs epochs) throws IOException {
+    if (epochs == null) {
+      out.nullValue();
+      return;
+    }
+    if (epochs.isMapShared()) {
+      throw new IllegalStateException("Can not save a shared map.");
+    }
+
+    VillageMap   map            = epochs.getVillageMap();
+    Village      currentVillage = epochs.getCurrentVillage();
+    StrategyType strategyType   = epochs.getStrategyType();
+    TraverseBase traversal      = epochs.getTraverseAlgorithm();
+
+    out.beginObject();
+    out.name("version").value(VERSION);
+    out.name("difficulty");
+    difficultyAdapter.write(out, epochs.getDifficulty());
+    out.name("seed").value(epochs.getSeed());
+    out.name("randomSource");
+    randomSourceAdapter.write(out, epochs.getRandomSource());
+    out.name("dice");
+    randomSourceAdapter.write(out, epochs.getDice().getRandomSource());
+    out.name("villageMap");
+    villageMapAdapter.write(out, map);
+
+    out.name("count").value(epochs.getCount());
+    out.name("finished").value(epochs.isSimulationFinished());
+    out.name("playerStorage");
+    writeStorage(out, epochs.getPlayerStorage());
+    out.name("playerState");
+    writeState(out, epochs.getPlayerState());
+
+    out.name("currentVillage");
+    int row = currentVillage != null ? map.rowOf(currentVillage) : -1;
+    if (currentVillage == null) {
+      out.nullValue();
+    } else if (row >= 0) {
+      out.value(row);
+    } else {
+      // a village the merchant left behind in an evicted chunk
+      villageAdapter.write(out, currentVillage);
+    }
+
+    out.name("strategy");
+    if (strategyType == null) {
+      out.nullValue();
+    } else {
+      strategyAdapter.write(out, strategyType);
+    }
+    out.name("traversal");
+    if (traversal == null) {
+      out.nullValue();
+    } else {
+      traversalAdapter.write(out, traversal);
+    }
+    out.endObject();
+  }
+
+  /**
+   * Read a simulation written by write.
+   * @param in Reader positioned at the document.
+   * @return Simulation or null.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException When the version is unknown, something the
+   *   simulation is constructed from is missing, or a property referring to
+   *   the simulation comes before the map.
+   */
+  @Override
+  public Epochs read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    Difficulty   difficulty     = null;
+    long         seed           = 0;
+    RandomSource randomSource   = null;
+    RandomSource dice           = null;
+    Epochs       epochs         = null;
+    int          count          = 0;
+    boolean      finished       = false;
+    Village      currentVillage = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      String name = in.nextName();
+      switch (name) {
+        case "version" -> {
+          int version = in.nextInt();
+          if (version != VERSION) {
+            throw new JsonSyntaxException(
+              "Unsupported save version " + version + ".");
+          }
+        }
+        case "difficulty" -> {
+          difficulty = difficultyAdapter.read(in);
+        }
+        case "seed" -> {
+          seed = in.nextLong();
+        }
+        case "randomSource" -> {
+          randomSource = randomSourceAdapter.read(in);
+        }
+        case "dice" -> {
+          dice = randomSourceAdapter.read(in);
+        }
+        case "villageMap" -> {
+          if (difficulty == null || randomSource == null || dice == null) {
+            throw new JsonSyntaxException(
+              "Difficulty and random streams must come before the map.");
+          }
+          epochs = readEpochs(in, difficulty, seed, randomSource, dice);
+        }
+        case "count" -> {
+          count = in.nextInt();
+        }
+        case "finished" -> {
+          finished = in.nextBoolean();
+        }
+        case "playerStorage" -> {
+          readStorage(in, owner(epochs, name).getPlayerStorage());
+        }
+        case "playerState" -> {
+          readState(in, owner(epochs, name).getPlayerState());
+        }
+        case "currentVillage" -> {
+          currentVillage = readCurrentVillage(in, owner(epochs, name));
+        }
+        case "strategy" -> {
+          if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+          } else {
+            owner(epochs, name)
+              .setStrategyType(strategyAdapter.read(in, epochs));
+          }
+        }
+        case "traversal" -> {
+          if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+          } else {
+            owner(epochs, name)
+              .setTraverseAlgorithm(traversalAdapter.read(in, epochs));
+          }
+        }
+        default -> {
+          in.skipValue();
+        }
+      }
+    }
+    in.endObject();
+
+    if (epochs == null) {
+      throw new JsonSyntaxException("Save without a map.");
+    }
+    epochs.restore(count, finished, currentVillage);
+    return epochs;
+  }
+
+  /**
+   * Internal, construct the simulation, its map read for it.
+   * @param in Reader positioned at the map.
+   * @param difficulty Difficulty.
+   * @param seed Seed of the saved simulation.
+   * @param randomSource Random stream of the simulation.
+   * @param dice Random stream of the dice.
+   * @return Simulation with its map.
+   * @throws IOException When reading fails.
+   */
+  private Epochs readEpochs(
+    JsonReader   in,
+    Difficulty   difficulty,
+    long         seed,
+    RandomSource randomSource,
+    RandomSource dice) throws IOException {
+    try {
+      return new Epochs(difficulty, seed, randomSource, new Dice(dice), e -> {
+        try {
+          return villageMapAdapter.read(in, e);
+        } catch (IOException err) {
+          throw new UncheckedIOException(err);
+        }
+      });
+    } catch (UncheckedIOException err) {
+      throw err.getCause();
+    }
+  }
+
+  /**
+   * Internal, read the current village written by write.
+   * @param in Reader positioned at the row, the village or null.
+   * @param epochs Simulation with its map.
+   * @return Village or null.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException When the row is not on the map.
+   */
+  private Village readCurrentVillage(JsonReader in, Epochs epochs)
+    throws IOException {
+    switch (in.peek()) {
+      case NULL -> {
+        in.nextNull();
+        return null;
+      }
+      case NUMBER -> {
+        int row = in.nextInt();
+        if (row < 0 || row >= epochs.getVillageMap().getVillages().size()) {
+          throw new JsonSyntaxException("Current village is not on the map.");
+        }
+        return epochs.getVillageMap().getVillages().get(row);
+      }
+      default -> {
+        return villageAdapter.read(in, epochs);
+      }
+    }
+  }
+
+  /**
+   * Internal, write the stock and money of the merchant.
+   * @param out Writer positioned at a value.
+   * @param playerStorage Storage of the merchant.
+   * @throws IOException When writing fails.
+   */
+  private static void writeStorage(
+    JsonWriter out, PlayerStorage playerStorage) throws IOException {
+    float[] values = new float[ProductType.COUNT + 1];
+    playerStorage.writeTo(values, 0);
+
+    out.beginObject();
+    out.name("stock");
+    JsonValues.writeProducts(out, values, 0);
+    out.name("money");
+    JsonValues.writeFloat(out, values[ProductType.COUNT]);
+    out.endObject();
+  }
+
+  /**
+   * Internal, read the storage written by writeStorage into the merchant's.
+   * @param in Reader positioned at the object.
+   * @param playerStorage Storage of the merchant, replaced.
+   * @throws IOException When reading fails.
+   */
+  private static void readStorage(JsonReader in, PlayerStorage playerStorage)
+    throws IOException {
+    float[] values = new float[ProductType.COUNT + 1];
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "stock" -> {
+          JsonValues.readProducts(in, values, 0);
+        }
+        case "money" -> {
+          values[ProductType.COUNT] = JsonValues.readFloat(in);
+        }
+        default -> {
+          in.skipValue();
+        }
+      }
+    }
+    in.endObject();
+
+    playerStorage.readFrom(values, 0);
+  }
+
+  /**
+   * Internal, write the position and the flags of the merchant.
+   * @param out Writer positioned at a value.
+   * @param playerState State of the merchant.
+   * @throws IOException When writing fails.
+   */
+  private void writeState(JsonWriter out, PlayerState playerState)
+    throws IOException {
+    out.beginObject();
+    out.name("position");
+    positionAdapter.write(out, playerState.getCurrentPosition());
+    out.name("attacked").value(playerState.isAttacked());
+    out.name("dead").value(playerState.isDead());
+    out.endObject();
+  }
+
+  /**
+   * Internal, read the state written by writeState into the merchant's.
+   * @param in Reader positioned at the object.
+   * @param playerState State of the merchant, updated.
+   * @throws IOException When reading fails.
+   */
+  private void readState(JsonReader in, PlayerState playerState)
+    throws IOException {
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "position" -> {
+          Position position = positionAdapter.read(in);
+          playerState.setCurrentPosition(position);
+        }
+        case "attacked" -> {
+          playerState.setAttacked(in.nextBoolean());
+        }
+        case "dead" -> {
+          if (in.nextBoolean()) playerState.die();
+        }
+        default -> {
+          in.skipValue();
+        }
+      }
+    }
+    in.endObject();
+  }
+
+  /**
+   * Internal, the simulation a property refers back to, constructed when the
+   * map was read.
+   * @param epochs Simulation or null before the map.
+   * @param name Name of the property.
+   * @return The simulation.
+   * @throws JsonSyntaxException When the map was not read yet.
+   */
+  private static Epochs owner(Epochs epochs, String name) {
+    if (epochs == null) {
+      throw new JsonSyntaxException(name + " must come after the map.");
+    }
+    return epochs;
+  }
+}
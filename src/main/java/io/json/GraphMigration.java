@@ -0,0 +1,316 @@
+package io.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import java.util.Map;
+import simulation.computation.RandomSource;
+
+/**
+ * Migration of saves of the first release, Gson object graphs: the
+ * simulation, the merchant, the map and the difficulty are objects keyed by
+ * their id, the simulation being 0x1, and are referred to by it. Stock is an
+ * object by product name of the product's type and weight. The document is
+ * rewritten as a version 1 document for EpochsAdapter. The release drew from
+ * unseeded random streams, so the migrated simulation continues with streams
+ * split from a new random seed.
+ */
+class GraphMigration {
+  private static final String ROOT = "0x1";
+
+  private static final String AGGRESSIVE_TYPE   = "AggressiveStrategy";
+  private static final String BALANCED_TYPE     = "BalancedStrategy";
+  private static final String CONSERVATIVE_TYPE = "ConservativeStrategy";
+  private static final String PRICES_TYPE       = "TraversePrices";
+  private static final String DISTANCE_TYPE     = "TraverseDistance";
+
+  private final JsonObject          graph;
+  private final long                seed;
+  private final RandomSource        randomSource;
+  private final RandomSourceAdapter randomSourceAdapter;
+
+  /**
+   * Internal, constructor.
+   * @param graph Document of the save.
+   * @param seed Seed of the migrated simulation.
+   */
+  private GraphMigration(JsonObject graph, long seed) {
+    this.graph               = graph;
+    this.seed                = seed;
+    this.randomSource        = new RandomSource(seed);
+    this.randomSourceAdapter = new RandomSourceAdapter();
+  }
+
+  /**
+   * Rewrite an object graph as a version 1 document.
+   * @param graph Document of the save.
+   * @return Version 1 document.
+   * @throws JsonSyntaxException When it is not an object, a reference is
+   *   broken or something the simulation is constructed from is missing.
+   */
+  static JsonObject migrate(JsonElement graph) {
+    if (!graph.isJsonObject()) {
+      throw new JsonSyntaxException("Save is not an object.");
+    }
+
+    long seed = RandomSource.randomSeed();
+    return new GraphMigration(graph.getAsJsonObject(), seed).rewrite();
+  }
+
+  /**
+   * Internal, rewrite the simulation in the order EpochsAdapter reads it.
+   * @return Version 1 document.
+   */
+  private JsonObject rewrite() {
+    JsonObject epochs     = resolve(graph.get(ROOT), ROOT);
+    JsonObject difficulty = resolve(epochs.get("difficulty"), "difficulty");
+    JsonObject map        = resolve(epochs.get("villageMap"), "villageMap");
+    JsonArray  villages   = required(map, "villages").getAsJsonArray();
+
+    JsonObject document = new JsonObject();
+    document.addProperty("version", EpochsAdapter.VERSION);
+
+    JsonObject settings = new JsonObject();
+    settings.add("rng", required(difficulty, "rng"));
+    settings.add("stealMultiplier", required(difficulty, "stealMultiplier"));
+    settings.addProperty("seed", seed);
+    settings.addProperty("infiniteWorld", false);
+    document.add("difficulty", settings);
+
+    document.addProperty("seed", seed);
+    document.add("randomSource", randomSourceAdapter.toJsonTree(randomSource));
+    document.add("dice", stream());
+    document.add("villageMap", migrateMap(villages));
+
+    document.add("count", required(epochs, "count"));
+    document.add("finished", required(epochs, "finishTheSimulation"));
+    document.add(
+      "playerStorage",
+      migrateStorage(resolve(epochs.get("playerStorage"), "playerStorage")));
+    document.add(
+      "playerState",
+      migrateState(resolve(epochs.get("playerState"), "playerState")));
+    document.add(
+      "currentVillage", migrateCurrent(epochs.get("currentVillage"), villages));
+    document.add("strategy", migrateStrategy(epochs.get("strategyType")));
+    document.add(
+      "traversal", migrateTraversal(epochs.get("traverseAlgorithm")));
+    return document;
+  }
+
+  /**
+   * Internal, rewrite the map, its size is the count of its villages.
+   * @param villages Villages of the graph.
+   * @return Map.
+   */
+  private JsonObject migrateMap(JsonArray villages) {
+    JsonObject map = new JsonObject();
+    map.addProperty("villageCount", villages.size());
+    map.add("randomSource", stream());
+    map.add("world", null);
+
+    JsonArray rows = new JsonArray();
+    for (JsonElement village : villages) {
+      rows.add(migrateVillage(resolve(village, "village")));
+    }
+    map.add("villages", rows);
+    return map;
+  }
+
+  /**
+   * Internal, rewrite a village with a new random stream.
+   * @param village Village of the graph.
+   * @return Village.
+   */
+  private JsonObject migrateVillage(JsonObject village) {
+    JsonObject migrated = new JsonObject();
+    migrated.add("position", migratePosition(required(village, "position")));
+    migrated.add("stock", migrateStock(village.get("stock")));
+    migrated.add("money", required(village, "money"));
+    migrated.add("prices", required(village, "prices"));
+    migrated.add("priceIndex", required(village, "priceIndex"));
+    migrated.add("randomSource", stream());
+    return migrated;
+  }
+
+  /**
+   * Internal, rewrite the stock and money of the merchant.
+   * @param storage Storage of the graph.
+   * @return Storage.
+   */
+  private static JsonObject migrateStorage(JsonObject storage) {
+    JsonObject migrated = new JsonObject();
+    migrated.add("stock", migrateStock(storage.get("stock")));
+    migrated.add("money", required(storage, "money"));
+    return migrated;
+  }
+
+  /**
+   * Internal, rewrite the position and the flags of the merchant.
+   * @param state State of the graph.
+   * @return State.
+   */
+  private static JsonObject migrateState(JsonObject state) {
+    JsonObject migrated = new JsonObject();
+    migrated.add(
+      "position", migratePosition(required(state, "currentPosition")));
+    migrated.add("attacked", required(state, "isAttacked"));
+    migrated.add("dead", required(state, "isDead"));
+    return migrated;
+  }
+
+  /**
+   * Internal, the current village as its row. The graph holds a copy of it,
+   * found on the map by its position, a copy not on the map is kept as a
+   * village of its own.
+   * @param current Current village of the graph or null.
+   * @param villages Villages of the graph.
+   * @return Row, village or JSON null.
+   */
+  private JsonElement migrateCurrent(JsonElement current, JsonArray villages) {
+    if (current == null || current.isJsonNull()) return null;
+
+    JsonObject village  = resolve(current, "currentVillage");
+    JsonObject position = required(village, "position").getAsJsonObject();
+    for (int row = 0; row < villages.size(); ++row) {
+      JsonObject other = resolve(villages.get(row), "village");
+      if (position.equals(required(other, "position"))) {
+        return new JsonPrimitive(row);
+      }
+    }
+
+    return migrateVillage(village);
+  }
+
+  /**
+   * Internal, rewrite a strategy, random ones get a new random stream.
+   * @param strategy Strategy of the graph or null.
+   * @return Strategy or JSON null.
+   * @throws JsonSyntaxException When the type is unknown.
+   */
+  private JsonElement migrateStrategy(JsonElement strategy) {
+    if (strategy == null || strategy.isJsonNull()) return null;
+
+    JsonObject saved    = resolve(strategy, "strategyType");
+    JsonObject migrated = new JsonObject();
+    String     type     = required(saved, "type").getAsString();
+    switch (type) {
+      case AGGRESSIVE_TYPE -> {
+        migrated.addProperty("type", StrategyAdapter.AGGRESSIVE);
+        migrated.add("foodConsumption", required(saved, "foodConsumption"));
+        migrated.add("priceMultiplier", required(saved, "priceMultiplier"));
+        migrated.add("randomSource", stream());
+      }
+      case BALANCED_TYPE -> {
+        migrated.addProperty("type", StrategyAdapter.BALANCED);
+        migrated.add("foodConsumption", required(saved, "foodConsumption"));
+        migrated.add("randomSource", stream());
+      }
+      case CONSERVATIVE_TYPE -> {
+        migrated.addProperty("type", StrategyAdapter.CONSERVATIVE);
+      }
+      default -> {
+        throw new JsonSyntaxException("Unknown strategy " + type + ".");
+      }
+    }
+    return migrated;
+  }
+
+  /**
+   * Internal, rewrite a traversal as its type.
+   * @param traversal Traversal of the graph or null.
+   * @return Type or JSON null.
+   * @throws JsonSyntaxException When the type is unknown.
+   */
+  private JsonElement migrateTraversal(JsonElement traversal) {
+    if (traversal == null || traversal.isJsonNull()) return null;
+
+    String type =
+      required(resolve(traversal, "traverseAlgorithm"), "type").getAsString();
+    switch (type) {
+      case PRICES_TYPE -> {
+        return new JsonPrimitive(TraversalAdapter.PRICES);
+      }
+      case DISTANCE_TYPE -> {
+        return new JsonPrimitive(TraversalAdapter.DISTANCE);
+      }
+      default -> {
+        throw new JsonSyntaxException("Unknown traversal " + type + ".");
+      }
+    }
+  }
+
+  /**
+   * Internal, rewrite stock by product of type and weight as weights by
+   * product.
+   * @param stock Stock of the graph or null for none.
+   * @return Weights by product name.
+   */
+  private static JsonObject migrateStock(JsonElement stock) {
+    JsonObject weights = new JsonObject();
+    if (stock == null || stock.isJsonNull()) return weights;
+
+    for (Map.Entry<String, JsonElement> product :
+         stock.getAsJsonObject().entrySet()) {
+      weights.add(
+        product.getKey(),
+        required(product.getValue().getAsJsonObject(), "weight"));
+    }
+    return weights;
+  }
+
+  /**
+   * Internal, rewrite a position as its pair of coordinates.
+   * @param position Position of the graph.
+   * @return Pair.
+   */
+  private static JsonArray migratePosition(JsonElement position) {
+    JsonObject coordinates = position.getAsJsonObject();
+    JsonArray  pair        = new JsonArray();
+    pair.add(required(coordinates, "x"));
+    pair.add(required(coordinates, "y"));
+    return pair;
+  }
+
+  /**
+   * Internal, a new random stream split from the one of the simulation.
+   * @return Stream as written by RandomSourceAdapter.
+   */
+  private JsonElement stream() {
+    return randomSourceAdapter.toJsonTree(randomSource.split());
+  }
+
+  /**
+   * Internal, an object given inline or by the id of its entry in the graph.
+   * @param element Object or id.
+   * @param name Name of the property, for the error.
+   * @return Object.
+   * @throws JsonSyntaxException When the id is not in the graph.
+   */
+  private JsonObject resolve(JsonElement element, String name) {
+    if (element != null && element.isJsonPrimitive()) {
+      element = graph.get(element.getAsString());
+    }
+    if (element == null || !element.isJsonObject()) {
+      throw new JsonSyntaxException("Broken reference of " + name + ".");
+    }
+    return element.getAsJsonObject();
+  }
+
+  /**
+   * Internal, a property that must be present.
+   * @param object Object holding it.
+   * @param name Name of the property.
+   * @return Value.
+   * @throws JsonSyntaxException When it is missing.
+   */
+  private static JsonElement required(JsonObject object, String name) {
+    JsonElement value = object.get(name);
+    if (value == null || value.isJsonNull()) {
+      throw new JsonSyntaxException("Save without " + name + ".");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,81 @@
+package io.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import simulation.goods.ProductType;
+
+/**
+ * Values shared by the adapters: floats written by their shortest exact
+ * decimal, and tables of values by product keyed by the product name.
+ */
+class JsonValues {
+  /**
+   * Write a float by its shortest decimal, read back exactly by readFloat.
+   * @param out Writer positioned at a value.
+   * @param value Finite value.
+   * @throws IOException When writing fails.
+   */
+  static void writeFloat(JsonWriter out, float value) throws IOException {
+    out.value(Float.valueOf(value));
+  }
+
+  /**
+   * Read a float written by writeFloat, without rounding through a double.
+   * @param in Reader positioned at a number.
+   * @return Value.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException When the value is not a number.
+   */
+  static float readFloat(JsonReader in) throws IOException {
+    if (in.peek() != JsonToken.NUMBER) {
+      throw new JsonSyntaxException(
+        "Expected a number but was " + in.peek() + " at " + in.getPath());
+    }
+    return Float.parseFloat(in.nextString());
+  }
+
+  /**
+   * Write values by product ordinal as an object keyed by product name.
+   * @param out Writer positioned at a value.
+   * @param values Holds ProductType.COUNT values.
+   * @param offset Index of the first value.
+   * @throws IOException When writing fails.
+   */
+  static void writeProducts(JsonWriter out, float[] values, int offset)
+    throws IOException {
+    out.beginObject();
+    for (int i = 0; i < ProductType.COUNT; ++i) {
+      out.name(ProductType.byOrdinal(i).name());
+      writeFloat(out, values[offset + i]);
+    }
+    out.endObject();
+  }
+
+  /**
+   * Read values written by writeProducts, missing products are left as they
+   * are.
+   * @param in Reader positioned at the object.
+   * @param values Receives ProductType.COUNT values.
+   * @param offset Index of the first value.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException When a product is unknown.
+   */
+  static void readProducts(JsonReader in, float[] values, int offset)
+    throws IOException {
+    in.beginObject();
+    while (in.hasNext()) {
+      String      name = in.nextName();
+      ProductType type;
+      try {
+        type = ProductType.valueOf(name);
+      } catch (IllegalArgumentException err) {
+        throw new JsonSyntaxException("Unknown product " + name + ".", err);
+      }
+      values[offset + type.ordinal()] = readFloat(in);
+    }
+    in.endObject();
+  }
+}
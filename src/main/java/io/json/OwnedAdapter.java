@@ -0,0 +1,31 @@
+package io.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import simulation.environment.Epochs;
+
+/**
+ * Adapter of a type referring back to the simulation it belongs to. A Gson
+ * TypeAdapter reads without context, this one is given the simulation, so
+ * back-references are set explicitly instead of being tracked as a graph.
+ * @param <T> Adapted type.
+ */
+abstract class OwnedAdapter<T> {
+  /**
+   * Write a value, the back-reference to the simulation is left out.
+   * @param out Writer positioned at a value.
+   * @param value Value, not null.
+   * @throws IOException When writing fails.
+   */
+  abstract void write(JsonWriter out, T value) throws IOException;
+
+  /**
+   * Read a value written by write.
+   * @param in Reader positioned at the value.
+   * @param epochs Simulation the value belongs to.
+   * @return Value referring back to the simulation.
+   * @throws IOException When reading fails.
+   */
+  abstract T read(JsonReader in, Epochs epochs) throws IOException;
+}
@@ -0,0 +1,41 @@
+package io.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import simulation.environment.Position;
+
+/**
+ * Position as the pair [x, y].
+ */
+class PositionAdapter extends TypeAdapter<Position> {
+  /**
+   * Write the coordinates.
+   * @param out Writer positioned at a value.
+   * @param position Position, not null.
+   * @throws IOException When writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, Position position) throws IOException {
+    out.beginArray();
+    JsonValues.writeFloat(out, position.getX());
+    JsonValues.writeFloat(out, position.getY());
+    out.endArray();
+  }
+
+  /**
+   * Read a position written by write.
+   * @param in Reader positioned at the pair.
+   * @return Position.
+   * @throws IOException When reading fails.
+   */
+  @Override
+  public Position read(JsonReader in) throws IOException {
+    in.beginArray();
+    float x = JsonValues.readFloat(in);
+    float y = JsonValues.readFloat(in);
+    in.endArray();
+    return new Position(x, y);
+  }
+}
@@ -0,0 +1,43 @@
+package io.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import simulation.computation.RandomSource;
+
+/**
+ * RandomSource as the pair [seed, gamma], the stream continues where it was
+ * saved.
+ */
+class RandomSourceAdapter extends TypeAdapter<RandomSource> {
+  /**
+   * Write the state of a stream.
+   * @param out Writer positioned at a value.
+   * @param randomSource Stream, not null.
+   * @throws IOException When writing fails.
+   */
+  @Override
+  public void write(JsonWriter out, RandomSource randomSource)
+    throws IOException {
+    out.beginArray();
+    out.value(randomSource.getSeed());
+    out.value(randomSource.getGamma());
+    out.endArray();
+  }
+
+  /**
+   * Read a stream written by write.
+   * @param in Reader positioned at the pair.
+   * @return New stream.
+   * @throws IOException When reading fails.
+   */
+  @Override
+  public RandomSource read(JsonReader in) throws IOException {
+    in.beginArray();
+    long seed  = in.nextLong();
+    long gamma = in.nextLong();
+    in.endArray();
+    return new RandomSource(seed, gamma);
+  }
+}
@@ -0,0 +1,122 @@
+package io.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import simulation.computation.RandomSource;
+import simulation.environment.Epochs;
+import simulation.strategy.AggressiveStrategy;
+import simulation.strategy.BalancedStrategy;
+import simulation.strategy.ConservativeStrategy;
+import simulation.strategy.StrategyType;
+
+/**
+ * StrategyType as its type name and the state of the built in strategies:
+ * fluctuating values and random stream.
+ */
+class StrategyAdapter extends OwnedAdapter<StrategyType> {
+  static final String AGGRESSIVE   = "aggressive";
+  static final String BALANCED     = "balanced";
+  static final String CONSERVATIVE = "conservative";
+
+  private final RandomSourceAdapter randomSourceAdapter;
+
+  /**
+   * Constructor.
+   */
+  StrategyAdapter() {
+    randomSourceAdapter = new RandomSourceAdapter();
+  }
+
+  /**
+   * Write the type and the state of a strategy.
+   * @param out Writer positioned at a value.
+   * @param strategyType Strategy, not null.
+   * @throws IOException When writing fails.
+   * @throws IllegalStateException When the strategy is not a built in one.
+   */
+  @Override
+  void write(JsonWriter out, StrategyType strategyType) throws IOException {
+    out.beginObject();
+    if (strategyType instanceof AggressiveStrategy) {
+      AggressiveStrategy aggressive = (AggressiveStrategy)strategyType;
+      out.name("type").value(AGGRESSIVE);
+      out.name("foodConsumption");
+      JsonValues.writeFloat(out, aggressive.getFoodConsumption());
+      out.name("priceMultiplier");
+      JsonValues.writeFloat(out, aggressive.getPriceMultiplier());
+      out.name("randomSource");
+      randomSourceAdapter.write(out, aggressive.getRandomSource());
+    } else if (strategyType instanceof BalancedStrategy) {
+      BalancedStrategy balanced = (BalancedStrategy)strategyType;
+      out.name("type").value(BALANCED);
+      out.name("foodConsumption");
+      JsonValues.writeFloat(out, balanced.getFoodConsumption());
+      out.name("randomSource");
+      randomSourceAdapter.write(out, balanced.getRandomSource());
+    } else if (strategyType instanceof ConservativeStrategy) {
+      out.name("type").value(CONSERVATIVE);
+    } else {
+      throw new IllegalStateException("Strategy can not be saved.");
+    }
+    out.endObject();
+  }
+
+  /**
+   * Read a strategy written by write.
+   * @param in Reader positioned at the object.
+   * @param epochs Simulation using the strategy.
+   * @return Strategy.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException When the type is unknown or the random stream
+   *   of a random strategy is missing.
+   */
+  @Override
+  StrategyType read(JsonReader in, Epochs epochs) throws IOException {
+    String       type            = null;
+    float        foodConsumption = 0.0f;
+    float        priceMultiplier = 0.0f;
+    RandomSource randomSource    = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "type" -> {
+          type = in.nextString();
+        }
+        case "foodConsumption" -> {
+          foodConsumption = JsonValues.readFloat(in);
+        }
+        case "priceMultiplier" -> {
+          priceMultiplier = JsonValues.readFloat(in);
+        }
+        case "randomSource" -> {
+          randomSource = randomSourceAdapter.read(in);
+        }
+        default -> {
+          in.skipValue();
+        }
+      }
+    }
+    in.endObject();
+
+    if (CONSERVATIVE.equals(type)) return new ConservativeStrategy();
+    if (type == null || randomSource == null) {
+      throw new JsonSyntaxException(
+        "Strategy " + type + " unknown or without a random stream.");
+    }
+
+    switch (type) {
+      case AGGRESSIVE -> {
+        return new AggressiveStrategy(
+          epochs, foodConsumption, priceMultiplier, randomSource);
+      }
+      case BALANCED -> {
+        return new BalancedStrategy(epochs, foodConsumption, randomSource);
+      }
+    }
+
+    throw new JsonSyntaxException("Unknown strategy " + type + ".");
+  }
+}
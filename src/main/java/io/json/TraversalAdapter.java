@@ -0,0 +1,68 @@
+package io.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import simulation.computation.TraverseBase;
+import simulation.computation.TraverseDistance;
+import simulation.computation.TraverseMarket;
+import simulation.computation.TraversePrices;
+import simulation.environment.Epochs;
+
+/**
+ * TraverseBase as the name of its type, traversals have no state of their
+ * own and are constructed again on the map of the simulation.
+ */
+class TraversalAdapter extends OwnedAdapter<TraverseBase> {
+  static final String PRICES   = "prices";
+  static final String DISTANCE = "distance";
+  static final String MARKET   = "market";
+
+  /**
+   * Write the type of a traversal.
+   * @param out Writer positioned at a value.
+   * @param traverseAlgorithm Traversal, not null.
+   * @throws IOException When writing fails.
+   * @throws IllegalStateException When the traversal is not a built in one.
+   */
+  @Override
+  void write(JsonWriter out, TraverseBase traverseAlgorithm)
+    throws IOException {
+    if (traverseAlgorithm instanceof TraversePrices) {
+      out.value(PRICES);
+    } else if (traverseAlgorithm instanceof TraverseDistance) {
+      out.value(DISTANCE);
+    } else if (traverseAlgorithm instanceof TraverseMarket) {
+      out.value(MARKET);
+    } else {
+      throw new IllegalStateException("Traversal can not be saved.");
+    }
+  }
+
+  /**
+   * Read a traversal written by write.
+   * @param in Reader positioned at the name.
+   * @param epochs Simulation using the traversal, its map already read.
+   * @return Traversal.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException When the type is unknown.
+   */
+  @Override
+  TraverseBase read(JsonReader in, Epochs epochs) throws IOException {
+    String type = in.nextString();
+    switch (type) {
+      case PRICES -> {
+        return new TraversePrices(epochs);
+      }
+      case DISTANCE -> {
+        return new TraverseDistance(epochs);
+      }
+      case MARKET -> {
+        return new TraverseMarket(epochs);
+      }
+    }
+
+    throw new JsonSyntaxException("Unknown traversal " + type + ".");
+  }
+}
@@ -0,0 +1,108 @@
+package io.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import simulation.computation.RandomSource;
+import simulation.environment.Epochs;
+import simulation.environment.Position;
+import simulation.goods.ProductType;
+import simulation.vilages.Village;
+
+/**
+ * Village as its position, stock, money, prices, price index and random
+ * stream. The difficulty it draws with is taken from the simulation.
+ */
+class VillageAdapter extends OwnedAdapter<Village> {
+  private final PositionAdapter     positionAdapter;
+  private final RandomSourceAdapter randomSourceAdapter;
+
+  /**
+   * Constructor.
+   */
+  VillageAdapter() {
+    positionAdapter     = new PositionAdapter();
+    randomSourceAdapter = new RandomSourceAdapter();
+  }
+
+  /**
+   * Write the whole village.
+   * @param out Writer positioned at a value.
+   * @param village Village, not null.
+   * @throws IOException When writing fails.
+   */
+  @Override
+  void write(JsonWriter out, Village village) throws IOException {
+    float[] values = new float[2 * ProductType.COUNT + 1];
+    village.writeTo(values, 0);
+    village.writePrices(values, ProductType.COUNT + 1);
+
+    out.beginObject();
+    out.name("position");
+    positionAdapter.write(out, village.getPosition());
+    out.name("stock");
+    JsonValues.writeProducts(out, values, 0);
+    out.name("money");
+    JsonValues.writeFloat(out, values[ProductType.COUNT]);
+    out.name("prices");
+    JsonValues.writeProducts(out, values, ProductType.COUNT + 1);
+    out.name("priceIndex");
+    JsonValues.writeFloat(out, village.getPriceIndex());
+    out.name("randomSource");
+    randomSourceAdapter.write(out, village.getRandomSource());
+    out.endObject();
+  }
+
+  /**
+   * Read a village written by write.
+   * @param in Reader positioned at the object.
+   * @param epochs Simulation the village belongs to.
+   * @return Village.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException When the position or the stream is missing.
+   */
+  @Override
+  Village read(JsonReader in, Epochs epochs) throws IOException {
+    float[]      stock        = new float[ProductType.COUNT + 1];
+    float[]      prices       = new float[ProductType.COUNT];
+    float        priceIndex   = 0.0f;
+    Position     position     = null;
+    RandomSource randomSource = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "position" -> {
+          position = positionAdapter.read(in);
+        }
+        case "stock" -> {
+          JsonValues.readProducts(in, stock, 0);
+        }
+        case "money" -> {
+          stock[ProductType.COUNT] = JsonValues.readFloat(in);
+        }
+        case "prices" -> {
+          JsonValues.readProducts(in, prices, 0);
+        }
+        case "priceIndex" -> {
+          priceIndex = JsonValues.readFloat(in);
+        }
+        case "randomSource" -> {
+          randomSource = randomSourceAdapter.read(in);
+        }
+        default -> {
+          in.skipValue();
+        }
+      }
+    }
+    in.endObject();
+
+    if (position == null || randomSource == null) {
+      throw new JsonSyntaxException(
+        "Village without a position or a random stream at " + in.getPath());
+    }
+    return new Village(
+      epochs, position, stock, prices, priceIndex, randomSource);
+  }
+}
@@ -0,0 +1,146 @@
+package io.json;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import simulation.computation.RandomSource;
+import simulation.environment.ChunkedWorld;
+import simulation.environment.Epochs;
+import simulation.environment.VillageMap;
+import simulation.vilages.Village;
+
+/**
+ * VillageMap as its size, random stream, infinite world and villages. The
+ * world is its seed and generation, its cache is derived again. Indexes are
+ * rebuilt when first needed, like after any resume.
+ */
+class VillageMapAdapter extends OwnedAdapter<VillageMap> {
+  private final RandomSourceAdapter randomSourceAdapter;
+  private final VillageAdapter      villageAdapter;
+
+  /**
+   * Constructor.
+   */
+  VillageMapAdapter() {
+    randomSourceAdapter = new RandomSourceAdapter();
+    villageAdapter      = new VillageAdapter();
+  }
+
+  /**
+   * Write the map and every village in the order of rows.
+   * @param out Writer positioned at a value.
+   * @param map Map, not null.
+   * @throws IOException When writing fails.
+   */
+  @Override
+  void write(JsonWriter out, VillageMap map) throws IOException {
+    ChunkedWorld world = map.getWorld();
+
+    out.beginObject();
+    out.name("villageCount").value(map.getVillageCount());
+    out.name("randomSource");
+    randomSourceAdapter.write(out, map.getRandomSource());
+    out.name("world");
+    if (world == null) {
+      out.nullValue();
+    } else {
+      out.beginObject();
+      out.name("seed").value(world.getSeed());
+      out.name("generation").value(world.getGeneration());
+      out.endObject();
+    }
+    out.name("villages");
+    out.beginArray();
+    for (Village village : map.getVillages()) {
+      villageAdapter.write(out, village);
+    }
+    out.endArray();
+    out.endObject();
+  }
+
+  /**
+   * Read a map written by write.
+   * @param in Reader positioned at the object.
+   * @param epochs Simulation owning the map and its villages.
+   * @return Map.
+   * @throws IOException When reading fails.
+   * @throws JsonSyntaxException When the stream or the villages are missing.
+   */
+  @Override
+  VillageMap read(JsonReader in, Epochs epochs) throws IOException {
+    int                villageCount = 0;
+    RandomSource       randomSource = null;
+    ChunkedWorld       world        = null;
+    ArrayList<Village> villages     = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "villageCount" -> {
+          villageCount = in.nextInt();
+        }
+        case "randomSource" -> {
+          randomSource = randomSourceAdapter.read(in);
+        }
+        case "world" -> {
+          world = readWorld(in, epochs);
+        }
+        case "villages" -> {
+          villages = new ArrayList<>();
+          in.beginArray();
+          while (in.hasNext()) villages.add(villageAdapter.read(in, epochs));
+          in.endArray();
+        }
+        default -> {
+          in.skipValue();
+        }
+      }
+    }
+    in.endObject();
+
+    if (randomSource == null || villages == null) {
+      throw new JsonSyntaxException(
+        "Map without a random stream or villages at " + in.getPath());
+    }
+    return new VillageMap(epochs, villageCount, randomSource, world, villages);
+  }
+
+  /**
+   * Internal, read the world written by write.
+   * @param in Reader positioned at the object or null.
+   * @param epochs Simulation owning the world.
+   * @return World or null on a bounded map.
+   * @throws IOException When reading fails.
+   */
+  private static ChunkedWorld readWorld(JsonReader in, Epochs epochs)
+    throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+
+    long seed       = 0;
+    int  generation = 0;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "seed" -> {
+          seed = in.nextLong();
+        }
+        case "generation" -> {
+          generation = in.nextInt();
+        }
+        default -> {
+          in.skipValue();
+        }
+      }
+    }
+    in.endObject();
+
+    return new ChunkedWorld(epochs, seed, generation);
+  }
+}
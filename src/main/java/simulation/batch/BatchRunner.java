@@ -0,0 +1,147 @@
+package simulation.batch;
+
+import io.arguments.Difficulty;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+import simulation.computation.RandomSource;
+import simulation.environment.Epochs;
+import simulation.player.PlayerState;
+import simulation.player.PlayerStorage;
+
+/**
+ * Runs many independent simulations on a fork-join pool without any console
+ * interaction. Run n is seeded from the difficulty seed and n alone, so a batch
+ * gives identical results at any parallelism.
+ */
+public class BatchRunner {
+  private static final int RUNS_PER_TASK = 16;
+
+  private final Difficulty   difficulty;
+  private final int          epochCap;
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructor, runs on the common fork-join pool.
+   * @param difficulty Difficulty shared by every run.
+   * @param epochCap Epoch count after which a living merchant is stopped.
+   */
+  public BatchRunner(Difficulty difficulty, int epochCap) {
+    this(difficulty, epochCap, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructor with an explicit pool.
+   * @param difficulty Difficulty shared by every run.
+   * @param epochCap Epoch count after which a living merchant is stopped.
+   * @param pool Pool to run on.
+   * @throws IllegalArgumentException When the epoch cap is not positive.
+   */
+  public BatchRunner(Difficulty difficulty, int epochCap, ForkJoinPool pool) {
+    if (epochCap <= 0) {
+      throw new IllegalArgumentException("Epoch cap must be positive.");
+    }
+
+    this.difficulty = difficulty;
+    this.epochCap   = epochCap;
+    this.pool       = pool;
+  }
+
+  /**
+   * Run a batch where every run uses the same configuration.
+   * @param configuration Configuration of every run.
+   * @param runs Count of runs.
+   * @return Aggregated statistics.
+   */
+  public BatchStatistics run(RunConfiguration configuration, int runs) {
+    return run(i -> configuration, runs);
+  }
+
+  /**
+   * Run a batch where each run picks its own configuration.
+   * @param configurations Maps run number to the configuration of that run.
+   * @param runs Count of runs.
+   * @return Aggregated statistics.
+   */
+  public BatchStatistics run(
+    IntFunction<RunConfiguration> configurations, int runs) {
+    BatchStatistics statistics = new BatchStatistics();
+    pool.invoke(new RunTask(configurations, statistics, 0, runs));
+    return statistics;
+  }
+
+  /**
+   * Internal, run one simulation to death or the epoch cap and record it.
+   * @param run Run number, selects the random stream of the run.
+   * @param configuration Configuration of the run.
+   * @param statistics Statistics to record into.
+   */
+  private void runSingle(
+    int run, RunConfiguration configuration, BatchStatistics statistics) {
+    long   seed   = RandomSource.forIndex(difficulty.getSeed(), run).nextLong();
+    Epochs epochs = new Epochs(difficulty, seed);
+    configuration.apply(epochs);
+
+    PlayerState playerState = epochs.getPlayerState();
+    int         attackCount = 0;
+
+    while (!epochs.isSimulationFinished() && epochs.getCount() < epochCap) {
+      epochs.advance();
+      if (playerState.isAttacked()) ++attackCount;
+    }
+
+    PlayerStorage playerStorage = epochs.getPlayerStorage();
+    boolean       survived      = !epochs.isSimulationFinished();
+
+    statistics.record(
+      epochs.getCount(), playerStorage.getMoney(), attackCount, survived);
+  }
+
+  /**
+   * Splits a range of runs in halves until it is small enough to run directly.
+   */
+  private class RunTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final IntFunction<RunConfiguration> configurations;
+    private final BatchStatistics               statistics;
+    private final int                           from;
+    private final int                           to;
+
+    /**
+     * Constructor.
+     * @param configurations Maps run number to its configuration.
+     * @param statistics Statistics to record into.
+     * @param from First run number, inclusive.
+     * @param to Last run number, exclusive.
+     */
+    RunTask(
+      IntFunction<RunConfiguration> configurations,
+      BatchStatistics               statistics,
+      int                           from,
+      int                           to) {
+      this.configurations = configurations;
+      this.statistics     = statistics;
+      this.from           = from;
+      this.to             = to;
+    }
+
+    /**
+     * Run directly or split in halves.
+     */
+    @Override
+    protected void compute() {
+      if (to - from <= RUNS_PER_TASK) {
+        for (int i = from; i < to; ++i) {
+          runSingle(i, configurations.apply(i), statistics);
+        }
+        return;
+      }
+
+      int middle = (from + to) >>> 1;
+      invokeAll(
+        new RunTask(configurations, statistics, from, middle),
+        new RunTask(configurations, statistics, middle, to));
+    }
+  }
+}
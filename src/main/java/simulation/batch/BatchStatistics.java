@@ -0,0 +1,145 @@
+package simulation.batch;
+
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregate results of a batch. Every accumulator is striped, so workers
+ * recording results never contend on a single lock.
+ */
+public class BatchStatistics {
+  private final LongAdder         runs         = new LongAdder();
+  private final LongAdder         survivors    = new LongAdder();
+  private final LongAdder         epochs       = new LongAdder();
+  private final LongAdder         attacks      = new LongAdder();
+  private final DoubleAdder       money        = new DoubleAdder();
+  private final DoubleAdder       moneySquares = new DoubleAdder();
+  private final LongAccumulator   minEpochs =
+    new LongAccumulator(Math::min, Long.MAX_VALUE);
+  private final LongAccumulator maxEpochs =
+    new LongAccumulator(Math::max, Long.MIN_VALUE);
+  private final DoubleAccumulator minMoney =
+    new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+  private final DoubleAccumulator maxMoney =
+    new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+
+  /**
+   * Record the result of one finished run. Safe to call from many threads.
+   * @param survivedEpochs Epochs elapsed before death or the cap.
+   * @param finalMoney Money held at the end of the run.
+   * @param attackCount Number of theft events during the run.
+   * @param survived True if the run reached the cap alive.
+   */
+  void record(
+    int survivedEpochs, float finalMoney, int attackCount, boolean survived) {
+    runs.increment();
+    if (survived) survivors.increment();
+    epochs.add(survivedEpochs);
+    attacks.add(attackCount);
+    money.add(finalMoney);
+    moneySquares.add((double)finalMoney * finalMoney);
+    minEpochs.accumulate(survivedEpochs);
+    maxEpochs.accumulate(survivedEpochs);
+    minMoney.accumulate(finalMoney);
+    maxMoney.accumulate(finalMoney);
+  }
+
+  /**
+   * Count of recorded runs.
+   * @return Count of recorded runs.
+   */
+  public long getRuns() {
+    return runs.sum();
+  }
+
+  /**
+   * Count of runs that reached the epoch cap alive.
+   * @return Count of surviving runs.
+   */
+  public long getSurvivors() {
+    return survivors.sum();
+  }
+
+  /**
+   * Mean count of epochs survived.
+   * @return Mean survival in epochs, 0 if nothing was recorded.
+   */
+  public double getMeanEpochs() {
+    long count = getRuns();
+    return count == 0 ? 0.0 : (double)epochs.sum() / count;
+  }
+
+  /**
+   * Fewest epochs survived by any run.
+   * @return Minimum survival in epochs, 0 if nothing was recorded.
+   */
+  public long getMinEpochs() {
+    return getRuns() == 0 ? 0 : minEpochs.get();
+  }
+
+  /**
+   * Most epochs survived by any run.
+   * @return Maximum survival in epochs, 0 if nothing was recorded.
+   */
+  public long getMaxEpochs() {
+    return getRuns() == 0 ? 0 : maxEpochs.get();
+  }
+
+  /**
+   * Mean final money.
+   * @return Mean final money, 0 if nothing was recorded.
+   */
+  public double getMeanMoney() {
+    long count = getRuns();
+    return count == 0 ? 0.0 : money.sum() / count;
+  }
+
+  /**
+   * Standard deviation of the final money.
+   * @return Population standard deviation, 0 if nothing was recorded.
+   */
+  public double getMoneyDeviation() {
+    long count = getRuns();
+    if (count == 0) return 0.0;
+
+    double mean     = money.sum() / count;
+    double variance = moneySquares.sum() / count - mean * mean;
+
+    return Math.sqrt(Math.max(variance, 0.0));
+  }
+
+  /**
+   * Lowest final money of any run.
+   * @return Minimum final money, 0 if nothing was recorded.
+   */
+  public double getMinMoney() {
+    return getRuns() == 0 ? 0.0 : minMoney.get();
+  }
+
+  /**
+   * Highest final money of any run.
+   * @return Maximum final money, 0 if nothing was recorded.
+   */
+  public double getMaxMoney() {
+    return getRuns() == 0 ? 0.0 : maxMoney.get();
+  }
+
+  /**
+   * Mean count of theft events per run.
+   * @return Mean attacks per run, 0 if nothing was recorded.
+   */
+  public double getMeanAttacks() {
+    long count = getRuns();
+    return count == 0 ? 0.0 : (double)attacks.sum() / count;
+  }
+
+  /**
+   * Total count of theft events.
+   * @return Sum of attacks over all runs.
+   */
+  public long getTotalAttacks() {
+    return attacks.sum();
+  }
+}
@@ -0,0 +1,66 @@
+package simulation.batch;
+
+import java.util.List;
+import java.util.function.Function;
+import simulation.computation.TraverseBase;
+import simulation.computation.TraverseDistance;
+import simulation.computation.TraverseMarket;
+import simulation.computation.TraversePrices;
+import simulation.environment.Epochs;
+import simulation.strategy.AggressiveStrategy;
+import simulation.strategy.BalancedStrategy;
+import simulation.strategy.ConservativeStrategy;
+import simulation.strategy.StrategyType;
+
+/**
+ * Describes how a single batch run is set up. Strategy and traversal need the
+ * Epochs they belong to, so they are given as factories.
+ * @param name Human-readable name of the configuration.
+ * @param strategyFactory Creates the strategy for a fresh Epochs.
+ * @param traverseFactory Creates the traversal for a fresh Epochs.
+ */
+public record RunConfiguration(
+  String                         name,
+  Function<Epochs, StrategyType> strategyFactory,
+  Function<Epochs, TraverseBase> traverseFactory) {
+  /**
+   * Set up a fresh Epochs with this configuration.
+   * @param epochs Epochs to configure.
+   */
+  public void apply(Epochs epochs) {
+    epochs.setStrategyType(strategyFactory.apply(epochs));
+    epochs.setTraverseAlgorithm(traverseFactory.apply(epochs));
+  }
+
+  /**
+   * Every strategy combined with every traversal algorithm.
+   * @return List of all available configurations.
+   */
+  public static List<RunConfiguration> all() {
+    return List.of(
+      new RunConfiguration(
+        "aggressive/prices", AggressiveStrategy::new, TraversePrices::new),
+      new RunConfiguration(
+        "aggressive/distance", AggressiveStrategy::new, TraverseDistance::new),
+      new RunConfiguration(
+        "aggressive/market", AggressiveStrategy::new, TraverseMarket::new),
+      new RunConfiguration(
+        "balanced/prices", BalancedStrategy::new, TraversePrices::new),
+      new RunConfiguration(
+        "balanced/distance", BalancedStrategy::new, TraverseDistance::new),
+      new RunConfiguration(
+        "balanced/market", BalancedStrategy::new, TraverseMarket::new),
+      new RunConfiguration(
+        "conservative/prices",
+        epochs -> new ConservativeStrategy(),
+        TraversePrices::new),
+      new RunConfiguration(
+        "conservative/distance",
+        epochs -> new ConservativeStrategy(),
+        TraverseDistance::new),
+      new RunConfiguration(
+        "conservative/market",
+        epochs -> new ConservativeStrategy(),
+        TraverseMarket::new));
+  }
+}
@@ -0,0 +1,309 @@
+package simulation.batch;
+
+import io.arguments.Difficulty;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import simulation.computation.RandomSource;
+import simulation.environment.Epochs;
+import simulation.environment.VillageMap;
+import simulation.player.PlayerStorage;
+import simulation.vilages.Village;
+
+/**
+ * Many merchants trading against the same villages at the same time. Every
+ * round the merchants advance one epoch in parallel on a fork-join pool, every
+ * third round the shared map is regenerated between them. Trades lock the
+ * village, so the villages' stock and vaults stay consistent, but which of
+ * two merchants gets the last goods of a village depends on scheduling.
+ * With auctions, merchants first travel, then the orders of everyone in a
+ * village are cleared together at uniform prices, villages in parallel. The
+ * result does not depend on scheduling then.
+ */
+public class SharedMarket {
+  private static final int MERCHANTS_PER_TASK = 64;
+  private static final int VILLAGES_PER_TASK  = 8;
+
+  private final Epochs             owner;
+  private final Epochs[]           merchants;
+  private final RunConfiguration[] configurations;
+  private final int[]              attacks;
+  private final ForkJoinPool       pool;
+  private int                      rounds  = 0;
+  private boolean                  auction = false;
+
+  private final ThreadLocal<VillageAuction> auctions =
+    ThreadLocal.withInitial(VillageAuction::new);
+  private final boolean[]                   arrived;
+  private final int[]                       members;
+  private Map<Village, Integer>             rows;
+  private int[]                             groupStarts;
+
+  /**
+   * Constructor, runs on the common fork-join pool.
+   * @param difficulty Difficulty shared by every merchant.
+   * @param villageCount Count of villages on the shared map.
+   * @param merchantCount Count of merchants.
+   * @param configurations Maps merchant number to its configuration.
+   */
+  public SharedMarket(
+    Difficulty                    difficulty,
+    int                           villageCount,
+    int                           merchantCount,
+    IntFunction<RunConfiguration> configurations) {
+    this(
+      difficulty,
+      villageCount,
+      merchantCount,
+      configurations,
+      ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructor with an explicit pool. Merchant n is seeded from the
+   * difficulty seed and n alone.
+   * @param difficulty Difficulty shared by every merchant.
+   * @param villageCount Count of villages on the shared map.
+   * @param merchantCount Count of merchants.
+   * @param configurations Maps merchant number to its configuration.
+   * @param pool Pool to run on.
+   * @throws IllegalArgumentException When the merchant count is not positive.
+   */
+  public SharedMarket(
+    Difficulty                    difficulty,
+    int                           villageCount,
+    int                           merchantCount,
+    IntFunction<RunConfiguration> configurations,
+    ForkJoinPool                  pool) {
+    if (merchantCount <= 0) {
+      throw new IllegalArgumentException("Merchant count must be positive.");
+    }
+
+    final long seed = difficulty.getSeed();
+
+    this.pool           = pool;
+    this.owner          = new Epochs(difficulty, seed, villageCount);
+    this.merchants      = new Epochs[merchantCount];
+    this.configurations = new RunConfiguration[merchantCount];
+    this.attacks        = new int[merchantCount];
+    this.arrived        = new boolean[merchantCount];
+    this.members        = new int[merchantCount];
+
+    VillageMap map = owner.getVillageMap();
+    for (int i = 0; i < merchantCount; ++i) {
+      RandomSource     stream        = RandomSource.forIndex(seed, i);
+      long             merchantSeed  = stream.nextLong();
+      RunConfiguration configuration = configurations.apply(i);
+
+      merchants[i]           = new Epochs(difficulty, merchantSeed, map);
+      this.configurations[i] = configuration;
+      configuration.apply(merchants[i]);
+    }
+  }
+
+  /**
+   * Whether trades are settled by batch auctions per village instead of
+   * trading directly.
+   * @param auction true to clear the orders of a village together.
+   */
+  public void setAuction(boolean auction) {
+    this.auction = auction;
+  }
+
+  /**
+   * Advance one round: regenerate the map every third round, then advance
+   * every living merchant one epoch in parallel.
+   */
+  public void advance() {
+    if (rounds % 3 == 0) {
+      owner.getVillageMap().regenerateMap();
+      rows = null;
+    }
+
+    if (auction) {
+      advanceAuction();
+    } else {
+      pool.invoke(new RangeTask(
+        0, merchants.length, MERCHANTS_PER_TASK, this::advanceSingle));
+    }
+    ++rounds;
+  }
+
+  /**
+   * Advance several rounds.
+   * @param count the number of rounds to advance.
+   */
+  public void advanceBy(int count) {
+    for (int i = 0; i < count; ++i) advance();
+  }
+
+  /**
+   * Count of merchants still alive.
+   * @return Living merchants.
+   */
+  public int getAlive() {
+    int alive = 0;
+    for (Epochs merchant : merchants) {
+      if (!merchant.isSimulationFinished()) ++alive;
+    }
+    return alive;
+  }
+
+  /**
+   * Statistics of the merchants using a configuration, every merchant counts
+   * as a run.
+   * @param configuration Configuration of the merchants.
+   * @return Aggregated statistics.
+   */
+  public BatchStatistics getStatistics(RunConfiguration configuration) {
+    BatchStatistics statistics = new BatchStatistics();
+
+    for (int i = 0; i < merchants.length; ++i) {
+      if (configurations[i] != configuration) continue;
+
+      PlayerStorage playerStorage = merchants[i].getPlayerStorage();
+      statistics.record(
+        merchants[i].getCount(),
+        playerStorage.getMoney(),
+        attacks[i],
+        !merchants[i].isSimulationFinished());
+    }
+
+    return statistics;
+  }
+
+  /**
+   * Elapsed rounds.
+   * @return Rounds advanced up to this point.
+   */
+  public int getRounds() {
+    return rounds;
+  }
+
+  /**
+   * Shared map.
+   * @return Map every merchant trades on.
+   */
+  public VillageMap getVillageMap() {
+    return owner.getVillageMap();
+  }
+
+  /**
+   * Internal, advance one round settled by auctions: travel in parallel, group
+   * the arrived merchants by village in merchant order, then run the auctions
+   * of the villages in parallel.
+   */
+  private void advanceAuction() {
+    pool.invoke(new RangeTask(
+      0, merchants.length, MERCHANTS_PER_TASK, this::travelSingle));
+
+    List<Village> villages = owner.getVillageMap().getVillages();
+    if (rows == null) {
+      rows = new IdentityHashMap<>(villages.size());
+      for (int i = 0; i < villages.size(); ++i) rows.put(villages.get(i), i);
+      groupStarts = new int[villages.size() + 1];
+    }
+
+    // counting sort of the arrived merchants by the row of their village
+    int[] starts = groupStarts;
+    Arrays.fill(starts, 0);
+    for (int i = 0; i < merchants.length; ++i) {
+      if (arrived[i]) ++starts[rowOf(i) + 1];
+    }
+    for (int row = 0; row < villages.size(); ++row) {
+      starts[row + 1] += starts[row];
+    }
+    int[] next = starts.clone();
+    for (int i = 0; i < merchants.length; ++i) {
+      if (arrived[i]) members[next[rowOf(i)]++] = i;
+    }
+
+    pool.invoke(new RangeTask(0, villages.size(), VILLAGES_PER_TASK, row -> {
+      if (starts[row] == starts[row + 1]) return;
+      auctions.get().run(
+        villages.get(row), merchants, members, starts[row], starts[row + 1]);
+    }));
+  }
+
+  /**
+   * Internal, row of the village a merchant is in.
+   * @param merchant Merchant number.
+   * @return Row on the shared map.
+   */
+  private int rowOf(int merchant) {
+    return rows.get(merchants[merchant].getCurrentVillage());
+  }
+
+  /**
+   * Internal, travel part of one merchant's epoch unless it is dead.
+   * @param merchant Merchant number.
+   */
+  private void travelSingle(int merchant) {
+    Epochs epochs = merchants[merchant];
+
+    arrived[merchant] = epochs.travel();
+    if (arrived[merchant] && epochs.getPlayerState().isAttacked()) {
+      ++attacks[merchant];
+    }
+  }
+
+  /**
+   * Internal, advance one merchant one epoch unless it is dead.
+   * @param merchant Merchant number.
+   */
+  private void advanceSingle(int merchant) {
+    Epochs epochs = merchants[merchant];
+    if (epochs.isSimulationFinished()) return;
+
+    epochs.advance();
+    if (epochs.getPlayerState().isAttacked()) ++attacks[merchant];
+  }
+
+  /**
+   * Splits a range of merchants or villages in halves until it is small
+   * enough to process directly.
+   */
+  private static class RangeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int         from;
+    private final int         to;
+    private final int         grain;
+    private final IntConsumer body;
+
+    /**
+     * Constructor.
+     * @param from First number, inclusive.
+     * @param to Last number, exclusive.
+     * @param grain Largest range processed directly.
+     * @param body Processes one number.
+     */
+    RangeTask(int from, int to, int grain, IntConsumer body) {
+      this.from  = from;
+      this.to    = to;
+      this.grain = grain;
+      this.body  = body;
+    }
+
+    /**
+     * Process directly or split in halves.
+     */
+    @Override
+    protected void compute() {
+      if (to - from <= grain) {
+        for (int i = from; i < to; ++i) body.accept(i);
+        return;
+      }
+
+      int middle = (from + to) >>> 1;
+      invokeAll(
+        new RangeTask(from, middle, grain, body),
+        new RangeTask(middle, to, grain, body));
+    }
+  }
+}
@@ -0,0 +1,200 @@
+package simulation.batch;
+
+import simulation.environment.Epochs;
+import simulation.goods.OrderBook;
+import simulation.goods.ProductType;
+import simulation.goods.TransactionBatch;
+import simulation.goods.TransactionType;
+import simulation.player.PlayerStorage;
+import simulation.vilages.Village;
+
+/**
+ * Batch auction of the merchants standing in one village. The village quotes
+ * its stock and an even share of its vault for every product at its prices,
+ * merchants bid at the village price and ask at the village price times their
+ * price multiplier, so undercutting sells first. Every order is limited to
+ * what its owner holds, so settling the fills never fails. Reusable, one
+ * instance per worker thread.
+ */
+class VillageAuction {
+  private final OrderBook        book    = new OrderBook();
+  private final TransactionBatch planned = new TransactionBatch();
+
+  /**
+   * Collect the orders, clear the book and settle the fills, then finish the
+   * merchants' epochs. Nothing else may trade with the village meanwhile.
+   * @param village Village of the auction.
+   * @param merchants Every merchant of the market.
+   * @param members Numbers of the merchants grouped by village.
+   * @param from First member in the village, inclusive.
+   * @param to Last member in the village, exclusive.
+   */
+  void run(
+    Village  village,
+    Epochs[] merchants,
+    int[]    members,
+    int      from,
+    int      to) {
+    book.clear();
+    placeVillageOrders(village);
+    for (int m = from; m < to; ++m) {
+      placeMerchantOrders(merchants[members[m]], members[m]);
+    }
+
+    book.match();
+
+    settle(village, merchants, true);
+    settle(village, merchants, false);
+
+    for (int m = from; m < to; ++m) merchants[members[m]].finishEpoch();
+  }
+
+  /**
+   * Internal, the village sells its stock and buys with its vault at its
+   * prices.
+   * @param village Village of the auction.
+   */
+  private void placeVillageOrders(Village village) {
+    float vaultShare = village.getMoney() / ProductType.COUNT;
+
+    for (int p = 0; p < ProductType.COUNT; ++p) {
+      ProductType type  = ProductType.byOrdinal(p);
+      float       price = village.getPrice(type);
+
+      book.add(
+        OrderBook.VILLAGE,
+        TransactionType.SELL,
+        type,
+        village.getWeight(type),
+        price);
+      if (price > 0.0f) {
+        book.add(
+          OrderBook.VILLAGE,
+          TransactionType.BUY,
+          type,
+          vaultShare / price,
+          price);
+      }
+    }
+  }
+
+  /**
+   * Internal, place the merchant's plan as orders it can always pay for.
+   * @param epochs Merchant.
+   * @param owner Number of the merchant.
+   */
+  private void placeMerchantOrders(Epochs epochs, int owner) {
+    PlayerStorage playerStorage = epochs.getPlayerStorage();
+    float         multiplier    = epochs.getStrategyType().getPriceMultiplier();
+    float         budget        = playerStorage.getMoney();
+
+    epochs.planTrades(planned);
+    for (int i = 0; i < planned.size(); ++i) {
+      ProductType type   = planned.getProductType(i);
+      float       weight = planned.getWeight(i);
+      float       price  = planned.getPrice(i);
+
+      switch (planned.getTransactionType(i)) {
+        case SELL -> {
+          weight = Math.min(weight, playerStorage.getWeight(type));
+          book.add(
+            owner, TransactionType.SELL, type, weight, price * multiplier);
+        }
+        case BUY -> {
+          if (price <= 0.0f) continue;
+          weight  = Math.min(weight, budget / price);
+          budget -= weight * price;
+          book.add(owner, TransactionType.BUY, type, weight, price);
+        }
+      }
+    }
+  }
+
+  /**
+   * Internal, settle the merchants' fills through the village. Paying in
+   * first leaves the village enough goods and money to pay out after.
+   * @param village Village of the auction.
+   * @param merchants Every merchant of the market.
+   * @param payIn true to collect money and goods, false to hand them out.
+   */
+  private void settle(Village village, Epochs[] merchants, boolean payIn) {
+    for (int i = 0; i < book.size(); ++i) {
+      int   owner  = book.getOwner(i);
+      float weight = book.getFilled(i);
+      if (owner == OrderBook.VILLAGE || weight <= 0.0f) continue;
+
+      PlayerStorage   playerStorage = merchants[owner].getPlayerStorage();
+      ProductType     type          = book.getProductType(i);
+      TransactionType side          = book.getTransactionType(i);
+      float           value         = weight * book.getClearingPrice(type);
+
+      if (payIn) {
+        payIn(village, playerStorage, side, type, weight, value);
+      } else {
+        payOut(village, playerStorage, side, type, weight, value);
+      }
+    }
+  }
+
+  /**
+   * Internal, buyers pay and sellers deliver to the village, clamped to what
+   * they hold against rounding.
+   * @param village Village of the auction.
+   * @param playerStorage Merchant's storage.
+   * @param side Side of the merchant.
+   * @param type Traded product.
+   * @param weight Filled weight.
+   * @param value Money changing hands.
+   */
+  private static void payIn(
+    Village         village,
+    PlayerStorage   playerStorage,
+    TransactionType side,
+    ProductType     type,
+    float           weight,
+    float           value) {
+    switch (side) {
+      case BUY -> {
+        float paid = Math.min(value, playerStorage.getMoney());
+        playerStorage.subtractMoney(paid);
+        village.addMoney(paid);
+      }
+      case SELL -> {
+        float delivered = Math.min(weight, playerStorage.getWeight(type));
+        playerStorage.subtractWeight(type, delivered);
+        village.addWeight(type, delivered);
+      }
+    }
+  }
+
+  /**
+   * Internal, buyers get goods and sellers money from the village, clamped to
+   * what it holds against rounding.
+   * @param village Village of the auction.
+   * @param playerStorage Merchant's storage.
+   * @param side Side of the merchant.
+   * @param type Traded product.
+   * @param weight Filled weight.
+   * @param value Money changing hands.
+   */
+  private static void payOut(
+    Village         village,
+    PlayerStorage   playerStorage,
+    TransactionType side,
+    ProductType     type,
+    float           weight,
+    float           value) {
+    switch (side) {
+      case BUY -> {
+        float delivered = Math.min(weight, village.getWeight(type));
+        village.subtractWeight(type, delivered);
+        playerStorage.addWeight(type, delivered);
+      }
+      case SELL -> {
+        float paid = Math.min(value, village.getMoney());
+        village.subtractMoney(paid);
+        playerStorage.addMoney(paid);
+      }
+    }
+  }
+}
@@ -0,0 +1,4 @@
+/**
+ * Headless execution of many independent simulations.
+ */
+package simulation.batch;
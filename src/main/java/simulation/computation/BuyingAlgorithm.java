@@ -1,17 +1,15 @@
 package simulation.computation;
 
-import java.util.*;
 import simulation.environment.Epochs;
-import simulation.goods.Product;
 import simulation.goods.ProductType;
-import simulation.goods.Transaction;
+import simulation.goods.TransactionBatch;
 import simulation.goods.TransactionType;
 import simulation.player.PlayerStorage;
-import simulation.strategy.StrategyType;
 import simulation.vilages.Village;
 
 /**
- * Algorithm used to buy goods at a village.
+ * Algorithm used to buy goods at a village. Plans into buffers owned by the
+ * algorithm, so planning does not allocate.
  */
 public class BuyingAlgorithm {
   private static final float FOOD_THRESHOLD          = 30.0f;
@@ -19,112 +17,94 @@ public class BuyingAlgorithm {
   private static final float[] TRANSACTION_RATIOS = { 0.4f, 0.3f, 0.2f, 0.1f };
 
   private final PlayerStorage playerStorage;
-  private final StrategyType  strategyType;
-  private final Epochs        epochs;
+  private transient float[]   prices;
+  private transient float[]   stock;
+  private transient int[]     ranking;
 
   /**
-   * Grabs strategy and player storage ref.
+   * Grabs player storage ref.
    * @param epochs Epochs.
    */
   public BuyingAlgorithm(Epochs epochs) {
-    this.epochs       = epochs;
-    this.strategyType = epochs.getStrategyType();
-    playerStorage     = epochs.getPlayerStorage();
+    playerStorage = epochs.getPlayerStorage();
   }
 
   /**
-   * Generates a List of Transaction based on the algorithm.
+   * Plans the purchases at a village.
    * @param village Village transaction partner.
-   * @return List of Transactions to be made.
+   * @param batch Batch to fill with the Transactions to be made, cleared first.
    */
-  public List<Transaction> generateTransactions(Village village) {
-    List<Transaction> ret = new ArrayList<>(ProductType.values().length);
+  public void generateTransactions(Village village, TransactionBatch batch) {
+    ensureBuffers();
 
-    Map<ProductType, Float> weights = generateWeights(village);
-
-    for (ProductType type : weights.keySet()) {
-      float   weightToBuy  = weights.get(type);
-      Product productToBuy = new Product(type, weightToBuy);
-      float   price        = village.getPrice(type);
-
-      Transaction toAdd = new Transaction(
-        price, productToBuy, TransactionType.BUY, strategyType, epochs);
-      ret.add(toAdd);
+    for (int p = 0; p < ProductType.COUNT; ++p) {
+      ProductType type = ProductType.byOrdinal(p);
+      prices[p]        = village.getPrice(type);
+      stock[p]         = village.getWeight(type);
     }
 
-    return ret;
+    plan(batch);
   }
 
   /**
-   * Internal, grabs prices form village in ascending order.
-   * @param village village partner.
-   * @return Set of Price-Type pairs.
+   * Internal, emits either the stock or whatever the player can afford of each
+   * ranked product.
+   * @param batch Batch to fill, cleared first.
    */
-  private Set<Map.Entry<Float, ProductType>> getAscendingPricesSet(
-    Village village) {
-    Map<Float, ProductType> prices = new TreeMap<>();
-    for (ProductType type : ProductType.values()) {
-      float price = village.getPrice(type);
-      prices.put(price, type);
+  private void plan(TransactionBatch batch) {
+    batch.clear();
+
+    int   ranked      = rankProducts();
+    float playerMoney = playerStorage.getMoney();
+
+    for (int rank = 0; rank < ranked; ++rank) {
+      int   p = ranking[rank];
+      float canSpend =
+        playerMoney * MAX_PERCENT_MONEY_SPENT * TRANSACTION_RATIOS[rank];
+      float targetWeight = canSpend / prices[p];
+
+      batch.add(
+        TransactionType.BUY,
+        ProductType.byOrdinal(p),
+        Math.min(targetWeight, stock[p]),
+        prices[p]);
     }
-    return prices.entrySet();
   }
 
   /**
-   * Internal, generates of products to buy.
-   * @param village Village partner.
-   * @return Map of types and percentages.
+   * Internal, ranks product ordinals from the cheapest. Only food is ranked
+   * when food is below the threshold. Equal prices keep ordinal order, so no product
+   * is ever dropped.
+   * @return Count of ranked products.
    */
-  private Map<ProductType, Float> generatePercentages(Village village) {
-    Map<ProductType, Float> ret = new HashMap<>();
-
-    final Product foodStock       = playerStorage.getProduct(ProductType.FOOD);
-    final float   foodStockWeight = foodStock.getWeight();
-
-    // if food below threshold buy only food
-    if (foodStockWeight <= FOOD_THRESHOLD) {
-      ret.put(ProductType.FOOD, 1.0f);
-      return ret;
+  private int rankProducts() {
+    if (playerStorage.getWeight(ProductType.FOOD) <= FOOD_THRESHOLD) {
+      ranking[0] = ProductType.FOOD.ordinal();
+      return 1;
     }
 
-    // insert into returning map with generated ascending prices set
-    int i = 0;
-    for (Map.Entry<Float, ProductType> entry : getAscendingPricesSet(village)) {
-      float       percentage = TRANSACTION_RATIOS[i];
-      ProductType type       = entry.getValue();
-      ret.put(type, percentage);
-      ++i;
+    int ranked = 0;
+    for (int p = 0; p < ProductType.COUNT; ++p) {
+      int slot = ranked;
+      while (slot > 0 && prices[ranking[slot - 1]] > prices[p]) {
+        ranking[slot] = ranking[slot - 1];
+        --slot;
+      }
+      ranking[slot] = p;
+      ++ranked;
     }
 
-    return ret;
+    return ranked;
   }
 
   /**
-   * Internal, generates exact weights of products to buy.
-   * @param village Village partner.
-   * @return Map of ProductTypes mapped to weights.
+   * Internal, allocates the buffers once, also after resume.
    */
-  private Map<ProductType, Float> generateWeights(Village village) {
-    Map<ProductType, Float> ret = new HashMap<>();
-
-    Map<ProductType, Float>   percentages  = generatePercentages(village);
-    Map<ProductType, Product> villageStock = village.getStock();
-    float                     playerMoney  = playerStorage.getMoney();
-
-    // put into return either the stock or whatever player can afford
-    int i = 0;
-    for (var entry : percentages.entrySet()) {
-      ProductType type        = entry.getKey();
-      Product     stock       = villageStock.get(type);
-      float       stockWeight = stock.getWeight();
-      float       price       = village.getPrice(type);
-      float       canSpend =
-        playerMoney * MAX_PERCENT_MONEY_SPENT * TRANSACTION_RATIOS[i];
-      float targetWeight = canSpend / price;
-      ret.put(type, Math.min(targetWeight, stockWeight));
-      ++i;
-    }
+  private void ensureBuffers() {
+    if (prices != null) return;
 
-    return ret;
+    prices  = new float[ProductType.COUNT];
+    stock   = new float[ProductType.COUNT];
+    ranking = new int[ProductType.COUNT];
   }
 }
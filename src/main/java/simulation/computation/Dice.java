@@ -1,20 +1,61 @@
 package simulation.computation;
 
-import java.util.Random;
+import java.nio.ByteBuffer;
 
 /**
  * Dice class for rolling random events.
  */
 public class Dice {
+  private final RandomSource randomSource;
+
+  /**
+   * Constructor.
+   * @param randomSource Stream the dice rolls from.
+   */
+  public Dice(RandomSource randomSource) {
+    this.randomSource = randomSource;
+  }
+
+  /**
+   * Copy of the dice, rolling the same results from now on.
+   * @return New dice.
+   */
+  public Dice copy() {
+    return new Dice(randomSource.copy());
+  }
+
+  /**
+   * Dice written by writeTo, rolling the same results as the written one.
+   * @param buffer Positioned at the dice, advanced past it.
+   * @return New dice.
+   */
+  public static Dice readFrom(ByteBuffer buffer) {
+    return new Dice(RandomSource.readFrom(buffer));
+  }
+
+  /**
+   * Write the state of the dice, RandomSource.BYTES bytes.
+   * @param buffer Receives the state.
+   */
+  public void writeTo(ByteBuffer buffer) {
+    randomSource.writeTo(buffer);
+  }
+
+  /**
+   * Stream the dice rolls from, its state is the state of the dice.
+   * @return Random stream.
+   */
+  public RandomSource getRandomSource() {
+    return randomSource;
+  }
+
   /**
    * Rolling method.
    * @param chance Chance for an event to happen.
    * @return True if the event ought to happen.
    */
   public boolean roll(float chance) {
-    Random generator = new Random();
-
-    float rollResult = generator.nextFloat();
+    float rollResult = randomSource.nextFloat();
 
     return rollResult <= chance;
   }
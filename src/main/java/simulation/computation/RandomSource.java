@@ -0,0 +1,185 @@
+package simulation.computation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Seedable, splittable stream of pseudo-random numbers (SplitMix64). The whole
+ * state is two longs, so a stream survives a save and continues where it left
+ * off after resume. Not thread-safe, every thread or owner should split its
+ * own stream.
+ */
+public class RandomSource {
+  /**
+   * Size of a stream written by writeTo.
+   */
+  public static final int BYTES = 2 * Long.BYTES;
+
+  private static final long  GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final float FLOAT_UNIT   = 0x1.0p-24f;
+
+  private long       seed;
+  private final long gamma;
+
+  /**
+   * Constructor, the stream is fully determined by the seed.
+   * @param seed Initial seed.
+   */
+  public RandomSource(long seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  /**
+   * Constructor of a stream in a saved state, see getSeed and getGamma.
+   * @param seed Current seed.
+   * @param gamma Odd increment of the seed.
+   */
+  public RandomSource(long seed, long gamma) {
+    this.seed  = seed;
+    this.gamma = gamma;
+  }
+
+  /**
+   * Stream for the n-th of many parallel workers or runs. Depends only on the
+   * seed and the index, never on the order in which streams are requested.
+   * @param seed Root seed.
+   * @param index Index of the worker or run.
+   * @return Independent stream.
+   */
+  public static RandomSource forIndex(long seed, long index) {
+    long mixed = mix64(seed + (index + 1) * GOLDEN_GAMMA);
+    return new RandomSource(mixed, mixGamma(mixed + GOLDEN_GAMMA));
+  }
+
+  /**
+   * Seed for runs where the user gave none.
+   * @return Seed derived from the clock.
+   */
+  public static long randomSeed() {
+    return mix64(System.nanoTime() ^ System.currentTimeMillis() << 32);
+  }
+
+  /**
+   * Split off a new stream, statistically independent of this one.
+   * @return New stream.
+   */
+  public RandomSource split() {
+    return new RandomSource(nextLong(), mixGamma(nextSeed()));
+  }
+
+  /**
+   * Copy of the stream at its current state, both continue with the same
+   * numbers.
+   * @return New stream.
+   */
+  public RandomSource copy() {
+    return new RandomSource(seed, gamma);
+  }
+
+  /**
+   * Stream written by writeTo, continues where the written one stopped.
+   * @param buffer Positioned at the stream, advanced past it.
+   * @return New stream.
+   */
+  public static RandomSource readFrom(ByteBuffer buffer) {
+    long seed = buffer.getLong();
+    return new RandomSource(seed, buffer.getLong());
+  }
+
+  /**
+   * Write the state of the stream, BYTES bytes.
+   * @param buffer Receives the state.
+   */
+  public void writeTo(ByteBuffer buffer) {
+    buffer.putLong(seed).putLong(gamma);
+  }
+
+  /**
+   * Current seed, the state advanced by every draw.
+   * @return Seed.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Increment of the seed, fixed for the life of the stream.
+   * @return Gamma.
+   */
+  public long getGamma() {
+    return gamma;
+  }
+
+  /**
+   * Next long from the whole range.
+   * @return Random long.
+   */
+  public long nextLong() {
+    return mix64(nextSeed());
+  }
+
+  /**
+   * Next int from the whole range.
+   * @return Random int.
+   */
+  public int nextInt() {
+    return mix32(nextSeed());
+  }
+
+  /**
+   * Next float from 0 inclusive to 1 exclusive.
+   * @return Random float.
+   */
+  public float nextFloat() {
+    return (nextInt() >>> 8) * FLOAT_UNIT;
+  }
+
+  /**
+   * Next boolean.
+   * @return Random boolean.
+   */
+  public boolean nextBoolean() {
+    return nextInt() < 0;
+  }
+
+  /**
+   * Internal, advance the seed.
+   * @return Advanced seed.
+   */
+  private long nextSeed() {
+    return seed += gamma;
+  }
+
+  /**
+   * Internal, 64-bit finalizer.
+   * @param z Value to mix.
+   * @return Mixed value.
+   */
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Internal, 32-bit finalizer.
+   * @param z Value to mix.
+   * @return Mixed value.
+   */
+  private static int mix32(long z) {
+    z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+    return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+  }
+
+  /**
+   * Internal, turn a value into an odd gamma with enough bit transitions.
+   * @param z Value to mix.
+   * @return Gamma.
+   */
+  private static long mixGamma(long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    int transitions = Long.bitCount(z ^ (z >>> 1));
+    return (transitions < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+}
@@ -1,122 +1,104 @@
 package simulation.computation;
 
-import java.util.*;
 import simulation.environment.Epochs;
-import simulation.goods.Product;
 import simulation.goods.ProductType;
-import simulation.goods.Transaction;
+import simulation.goods.TransactionBatch;
 import simulation.goods.TransactionType;
 import simulation.player.PlayerStorage;
-import simulation.strategy.StrategyType;
 import simulation.vilages.Village;
 
 /**
- * Selling algorithm used in the simulation.
+ * Selling algorithm used in the simulation. Plans into buffers owned by the
+ * algorithm, so planning does not allocate.
  */
 public class SellingAlgorithm {
   private static final float PERCENT_TO_SELL_OFF  = 0.9f;
   private static final float[] TRANSACTION_RATIOS = { 0.4f, 0.3f, 0.2f, 0.1f };
 
   private final PlayerStorage playerStorage;
-  private final StrategyType  strategyType;
-  private final Epochs        epochs;
+  private transient float[]   prices;
+  private transient int[]     ranking;
 
   /**
-   * Grabs strategy and player storage ref.
+   * Grabs player storage ref.
    * @param epochs Epochs.
    */
   public SellingAlgorithm(Epochs epochs) {
-    this.epochs       = epochs;
-    this.strategyType = epochs.getStrategyType();
-    playerStorage     = epochs.getPlayerStorage();
+    playerStorage = epochs.getPlayerStorage();
   }
 
   /**
-   * Generates a List of Transaction based on the algorithm.
+   * Plans the sales at a village.
    * @param village Village transaction partner.
-   * @return List of Transactions to be made.
+   * @param batch Batch to fill with the Transactions to be made, cleared first.
    */
-  public List<Transaction> generateTransactions(Village village) {
-    List<Transaction> ret = new ArrayList<>(ProductType.values().length);
+  public void generateTransactions(Village village, TransactionBatch batch) {
+    ensureBuffers();
 
-    Map<ProductType, Float> weights = generateWeights(village);
-
-    for (var entry : weights.entrySet()) {
-      ProductType type          = entry.getKey();
-      float       weightToSell  = weights.get(type);
-      Product     productToSell = new Product(type, weightToSell);
-      float       price         = village.getPrice(type);
-
-      Transaction toAdd = new Transaction(
-        price, productToSell, TransactionType.SELL, strategyType, epochs);
-      ret.add(toAdd);
+    for (int p = 0; p < ProductType.COUNT; ++p) {
+      prices[p] = village.getPrice(ProductType.byOrdinal(p));
     }
 
-    return ret;
+    plan(village.getMoney(), batch);
   }
 
   /**
-   * Internal, grabs prices form village in descending order.
-   * @param village village partner.
-   * @return Set of Price-Type pairs.
+   * Internal, emits either the target to sell or whatever the village can
+   * afford of each ranked product.
+   * @param villageMoney Partner's money.
+   * @param batch Batch to fill, cleared first.
    */
-  private Set<Map.Entry<Float, ProductType>> getDescendingPricesSet(
-    Village village) {
-    Map<Float, ProductType> prices = new TreeMap<>(Comparator.reverseOrder());
-    for (ProductType type : ProductType.values()) {
-      if (type == ProductType.FOOD) { continue; }
-      float price = village.getPrice(type);
-      prices.put(price, type);
+  private void plan(float villageMoney, TransactionBatch batch) {
+    batch.clear();
+
+    int ranked = rankProducts();
+
+    for (int rank = 0; rank < ranked; ++rank) {
+      int         p          = ranking[rank];
+      ProductType type       = ProductType.byOrdinal(p);
+      float       price      = prices[p];
+      float       toSellFraq = PERCENT_TO_SELL_OFF * TRANSACTION_RATIOS[rank];
+      float targetWeightToSell = playerStorage.getWeight(type) * toSellFraq;
+      float villageCanAfford =
+        (villageMoney / price) * TRANSACTION_RATIOS[rank];
+
+      batch.add(
+        TransactionType.SELL,
+        type,
+        Math.min(targetWeightToSell, villageCanAfford),
+        price);
     }
-
-    return prices.entrySet();
   }
 
   /**
-   * Internal, generates of products to sell.
-   * @param village Village partner.
-   * @return Map of types and percentages.
+   * Internal, ranks product ordinals, food excluded, from the most expensive.
+   * Equal prices keep ordinal order, so no product is ever dropped.
+   * @return Count of ranked products.
    */
-  private Map<ProductType, Float> generatePercentages(Village village) {
-    Map<ProductType, Float> ret = new HashMap<>();
-
-    // insert into returning map with generated descending prices set
-    int i = 0;
-    for (var entry : getDescendingPricesSet(village)) {
-      float       percentage = PERCENT_TO_SELL_OFF * TRANSACTION_RATIOS[i];
-      ProductType type       = entry.getValue();
-      ret.put(type, percentage);
-      ++i;
+  private int rankProducts() {
+    int ranked = 0;
+    for (int p = 0; p < ProductType.COUNT; ++p) {
+      if (p == ProductType.FOOD.ordinal()) { continue; }
+
+      int slot = ranked;
+      while (slot > 0 && prices[ranking[slot - 1]] < prices[p]) {
+        ranking[slot] = ranking[slot - 1];
+        --slot;
+      }
+      ranking[slot] = p;
+      ++ranked;
     }
 
-    return ret;
+    return ranked;
   }
 
   /**
-   * Internal, generates exact weights of products to sell.
-   * @param village Village partner.
-   * @return Map of ProductTypes mapped to weights.
+   * Internal, allocates the buffers once, also after resume.
    */
-  private Map<ProductType, Float> generateWeights(Village village) {
-    Map<ProductType, Float> ret = new HashMap<>();
-
-    Map<ProductType, Float>   percentages  = generatePercentages(village);
-    Map<ProductType, Product> playerStock  = playerStorage.getStock();
-    float                     villageMoney = village.getMoney();
-
-    // put into return either the target to sell or whatever village can afford
-    int i = 0;
-    for (var entry : percentages.entrySet()) {
-      ProductType type               = entry.getKey();
-      Product     stock              = playerStock.get(type);
-      float       toSellFraq         = entry.getValue();
-      float       price              = village.getPrice(type);
-      float       targetWeightToSell = stock.getWeight() * toSellFraq;
-      float villageCanAfford = (villageMoney / price) * TRANSACTION_RATIOS[i];
-      ret.put(type, Math.min(targetWeightToSell, villageCanAfford));
-      ++i;
-    }
+  private void ensureBuffers() {
+    if (prices != null) return;
 
-    return ret;
+    prices  = new float[ProductType.COUNT];
+    ranking = new int[ProductType.COUNT];
   }
 }
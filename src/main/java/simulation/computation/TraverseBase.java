@@ -26,4 +26,11 @@ public abstract class TraverseBase {
    * @return Next Village based on traversal strategy.
    */
   public abstract Village getNext();
+
+  /**
+   * Same traversal for a fork of the simulation.
+   * @param epochs Fork to traverse in.
+   * @return New traversal bound to the fork.
+   */
+  public abstract TraverseBase fork(Epochs epochs);
 }
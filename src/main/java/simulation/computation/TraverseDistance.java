@@ -1,18 +1,24 @@
 package simulation.computation;
 
 import simulation.environment.Epochs;
+import simulation.player.PlayerState;
 import simulation.vilages.Village;
 
 /**
- * Traversal based on distance from the player.
+ * Traversal based on distance from the player, answered by the map's spatial
+ * index.
  */
 public class TraverseDistance extends TraverseBase {
+  private final PlayerState playerState;
+
   /**
-   * Constructor, grabs map.
+   * Constructor, grabs map and player state, the map may be shared by other
+   * merchants.
    * @param epochs Epochs.
    */
   public TraverseDistance(Epochs epochs) {
     super(epochs);
+    playerState = epochs.getPlayerState();
   }
 
   /**
@@ -21,7 +27,17 @@ public class TraverseDistance extends TraverseBase {
    */
   @Override
   public Village getNext() {
-    Village next = map.getClosestToPlayer();
+    Village next = map.getClosestTo(playerState.getCurrentPosition());
     return next;
   }
+
+  /**
+   * Same traversal for a fork of the simulation.
+   * @param epochs Fork to traverse in.
+   * @return New traversal bound to the fork.
+   */
+  @Override
+  public TraverseBase fork(Epochs epochs) {
+    return new TraverseDistance(epochs);
+  }
 }
@@ -0,0 +1,65 @@
+package simulation.computation;
+
+import simulation.environment.Epochs;
+import simulation.goods.ProductType;
+import simulation.player.PlayerStorage;
+import simulation.vilages.Village;
+
+/**
+ * Traversal based on the merchant's goods: restock food where it is cheapest
+ * when running low, otherwise sell the largest holding where it pays the most,
+ * or go shopping at the best price index with nothing to sell.
+ */
+public class TraverseMarket extends TraverseBase {
+  private static final float FOOD_THRESHOLD = 30.0f;
+
+  private final PlayerStorage playerStorage;
+
+  /**
+   * Constructor, grabs map and player storage.
+   * @param epochs Epochs.
+   */
+  public TraverseMarket(Epochs epochs) {
+    super(epochs);
+    playerStorage = epochs.getPlayerStorage();
+  }
+
+  /**
+   * Get the next village to travel to.
+   * @return Next Village based on traversal strategy.
+   */
+  @Override
+  public Village getNext() {
+    if (playerStorage.getWeight(ProductType.FOOD) <= FOOD_THRESHOLD) {
+      return map.getCheapest(ProductType.FOOD);
+    }
+
+    ProductType largestHolding = null;
+    float       largestWeight  = 0.0f;
+    for (int i = 0; i < ProductType.COUNT; ++i) {
+      ProductType type   = ProductType.byOrdinal(i);
+      float       weight = playerStorage.getWeight(type);
+
+      if (type != ProductType.FOOD && weight > largestWeight) {
+        largestHolding = type;
+        largestWeight  = weight;
+      }
+    }
+
+    if (largestHolding == null) {
+      return map.getBestPrices();
+    }
+
+    return map.getMostExpensive(largestHolding);
+  }
+
+  /**
+   * Same traversal for a fork of the simulation.
+   * @param epochs Fork to traverse in.
+   * @return New traversal bound to the fork.
+   */
+  @Override
+  public TraverseBase fork(Epochs epochs) {
+    return new TraverseMarket(epochs);
+  }
+}
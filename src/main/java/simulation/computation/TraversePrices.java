@@ -24,4 +24,14 @@ public class TraversePrices extends TraverseBase {
     Village next = map.getBestPrices();
     return next;
   }
+
+  /**
+   * Same traversal for a fork of the simulation.
+   * @param epochs Fork to traverse in.
+   * @return New traversal bound to the fork.
+   */
+  @Override
+  public TraverseBase fork(Epochs epochs) {
+    return new TraversePrices(epochs);
+  }
 }
@@ -0,0 +1,345 @@
+package simulation.environment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic background autosave of a simulation. Every interval the simulation
+ * is forked at the end of an epoch, in constant time, and the fork is written
+ * as a binary snapshot on a background thread while the simulation goes on.
+ * Between snapshots a Journal records the result of every epoch, group
+ * committed to disk by another background thread. A crash loses at most the
+ * epochs since the last group commit: recover reads the last snapshot and
+ * replays the journal segments following it.
+ */
+public class Autosave implements EpochListener, Closeable {
+  /**
+   * Milliseconds between snapshots used by the console.
+   */
+  public static final long DEFAULT_INTERVAL = 30_000;
+
+  /**
+   * Milliseconds between group commits of the journal used by the console.
+   */
+  public static final long DEFAULT_COMMIT = 50;
+
+  private static final String SEGMENT   = ".journal.";
+  private static final String TEMPORARY = ".tmp";
+
+  private final Epochs                   epochs;
+  private final Path                     base;
+  private final long                     interval;
+  private final Journal                  journal;
+  private final ScheduledExecutorService committer;
+  private final ExecutorService          saver;
+  private final List<Path>               segments;
+  private int                            checksum;
+  private int                            start;
+  private long                           nextSave;
+  private Future<?>                      pendingSave;
+  private volatile IOException           failure;
+
+  /**
+   * Constructor, uses DEFAULT_INTERVAL and DEFAULT_COMMIT.
+   * @param epochs Simulation with a map of its own.
+   * @param base Snapshot file, journal segments are written next to it.
+   * @throws IOException When the journal can not be created.
+   * @throws IllegalStateException When the map is shared.
+   */
+  public Autosave(Epochs epochs, Path base) throws IOException {
+    this(epochs, base, DEFAULT_INTERVAL, DEFAULT_COMMIT);
+  }
+
+  /**
+   * Constructor, starts the journal and writes the first snapshot in the
+   * background.
+   * @param epochs Simulation with a map of its own.
+   * @param base Snapshot file, journal segments are written next to it.
+   * @param interval Milliseconds between snapshots.
+   * @param commit Milliseconds between group commits of the journal.
+   * @throws IOException When the journal can not be created.
+   * @throws IllegalArgumentException When an interval is not positive.
+   * @throws IllegalStateException When the map is shared.
+   */
+  public Autosave(Epochs epochs, Path base, long interval, long commit)
+    throws IOException {
+    if (interval <= 0 || commit <= 0) {
+      throw new IllegalArgumentException("Intervals must be positive.");
+    }
+
+    Epochs fork = epochs.fork();
+
+    this.epochs   = epochs;
+    this.base     = base.toAbsolutePath();
+    this.interval = TimeUnit.MILLISECONDS.toNanos(interval);
+    this.segments = new ArrayList<>();
+    this.checksum = Snapshot.checksum(fork);
+
+    Path segment = segmentPath(this.base, checksum);
+    journal = new Journal(segment, checksum);
+    segments.add(segment);
+
+    committer = Executors.newSingleThreadScheduledExecutor(
+      daemon("autosave-journal"));
+    saver     = Executors.newSingleThreadExecutor(daemon("autosave"));
+
+    committer.scheduleWithFixedDelay(
+      this::commit, commit, commit, TimeUnit.MILLISECONDS);
+    pendingSave = saver.submit(() -> save(fork, segment));
+    nextSave    = System.nanoTime() + this.interval;
+
+    epochs.addListener(this);
+  }
+
+  /**
+   * Read the last snapshot and replay the journal segments following it. A
+   * snapshot without a journal is read as is.
+   * @param base Snapshot file.
+   * @return Simulation as of the last group commit.
+   * @throws IOException When a file can not be read, or the journal does not
+   *   match the snapshot.
+   */
+  public static Epochs recover(Path base) throws IOException {
+    Path   path   = base.toAbsolutePath();
+    Epochs epochs = Snapshot.read(path);
+
+    // a segment ends where the snapshot of the next one was taken
+    while (true) {
+      int  sum     = Snapshot.checksum(epochs);
+      Path segment = segmentPath(path, sum);
+      if (!Files.exists(segment) || Journal.replay(epochs, segment, sum) == 0) {
+        break;
+      }
+    }
+
+    return epochs;
+  }
+
+  /**
+   * Take a snapshot now and wait until it is on disk, after changes the
+   * journal can not replay, like rewinding.
+   * @throws IOException When the snapshot or the journal failed.
+   */
+  public void saveNow() throws IOException {
+    waitForSave();
+    snapshot();
+    waitForSave();
+    checkFailure();
+  }
+
+  /**
+   * Count of epochs before the epoch.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void epochStarted(Epochs epochs) {
+    start = epochs.getCount();
+  }
+
+  /**
+   * Journal the result of the epoch, and start a snapshot when it is due and
+   * the last one is done.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void epochFinished(Epochs epochs) {
+    journal.append(epochs, start);
+
+    if (System.nanoTime() - nextSave >= 0 && pendingSave.isDone()) {
+      snapshot();
+    }
+  }
+
+  /**
+   * The first failure of a background write, autosave goes on after it.
+   * @return Failure or null.
+   */
+  public IOException getFailure() {
+    return failure;
+  }
+
+  /**
+   * Stop autosaving, wait for the running snapshot and commit the journal.
+   * @throws IOException When the snapshot or the journal failed.
+   */
+  @Override
+  public void close() throws IOException {
+    epochs.removeListener(this);
+    committer.shutdown();
+    saver.shutdown();
+    await(committer);
+    await(saver);
+    journal.close();
+    checkFailure();
+  }
+
+  /**
+   * Internal, fork the simulation, continue the journal in a new segment and
+   * write the fork in the background. Does nothing if nothing changed.
+   */
+  private void snapshot() {
+    nextSave = System.nanoTime() + interval;
+
+    Epochs fork = epochs.fork();
+    int    sum  = Snapshot.checksum(fork);
+    if (sum == checksum) return;
+
+    Path segment = segmentPath(base, sum);
+    try {
+      journal.startSegment(segment, sum);
+    } catch (IOException err) {
+      fail(err);
+      return;
+    }
+
+    checksum = sum;
+    synchronized (segments) {
+      segments.add(segment);
+    }
+    pendingSave = saver.submit(() -> save(fork, segment));
+  }
+
+  /**
+   * Internal, write a fork as the snapshot, on the saver thread, then delete
+   * the segments it makes obsolete.
+   * @param fork Fork taken at the start of the segment.
+   * @param segment Segment following the fork.
+   */
+  private void save(Epochs fork, Path segment) {
+    Path temporary = base.resolveSibling(base.getFileName() + TEMPORARY);
+    try {
+      Snapshot.writeBase(fork, temporary);
+      try (FileChannel channel =
+             FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+      Files.move(
+        temporary,
+        base,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+
+      deleteSegmentsBefore(segment);
+    } catch (IOException err) {
+      fail(err);
+    }
+  }
+
+  /**
+   * Internal, group commit on the committer thread.
+   */
+  private void commit() {
+    try {
+      journal.commit();
+    } catch (IOException err) {
+      fail(err);
+    }
+  }
+
+  /**
+   * Internal, delete the segments older than one, also those left by earlier
+   * sessions.
+   * @param segment Segment following the snapshot on disk.
+   * @throws IOException When the directory can not be listed.
+   */
+  private void deleteSegmentsBefore(Path segment) throws IOException {
+    String prefix = base.getFileName() + SEGMENT;
+
+    synchronized (segments) {
+      segments.subList(0, segments.indexOf(segment)).clear();
+
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(
+             base.getParent(),
+             path -> path.getFileName().toString().startsWith(prefix))) {
+        for (Path path : stream) {
+          if (!segments.contains(path)) Files.deleteIfExists(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Internal, wait for the running snapshot.
+   * @throws IOException When interrupted.
+   */
+  private void waitForSave() throws IOException {
+    try {
+      pendingSave.get();
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while saving.", err);
+    } catch (ExecutionException err) {
+      throw new IOException(err.getCause());
+    }
+  }
+
+  /**
+   * Internal, remember the first failure.
+   * @param err Failure of a background write.
+   */
+  private void fail(IOException err) {
+    if (failure == null) failure = err;
+  }
+
+  /**
+   * Internal, throw the first failure.
+   * @throws IOException When a background write failed.
+   */
+  private void checkFailure() throws IOException {
+    if (failure != null) throw failure;
+  }
+
+  /**
+   * Internal, wait for an executor to finish its tasks.
+   * @param executor Executor shut down.
+   * @throws IOException When interrupted.
+   */
+  private static void await(ExecutorService executor) throws IOException {
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException err) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while saving.", err);
+    }
+  }
+
+  /**
+   * Internal, path of the segment following a snapshot.
+   * @param base Snapshot file.
+   * @param checksum Checksum of the snapshot's header.
+   * @return Path next to the snapshot.
+   */
+  private static Path segmentPath(Path base, int checksum) {
+    return base.resolveSibling(
+      base.getFileName() + SEGMENT + Integer.toHexString(checksum));
+  }
+
+  /**
+   * Internal, factory of named daemon threads, autosave never keeps the
+   * program alive.
+   * @param name Name of the thread.
+   * @return Thread factory.
+   */
+  private static ThreadFactory daemon(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
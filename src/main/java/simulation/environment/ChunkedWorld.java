@@ -0,0 +1,280 @@
+package simulation.environment;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import simulation.computation.RandomSource;
+import simulation.vilages.Village;
+
+/**
+ * Unbounded world split into square chunks. Positions of a chunk's villages
+ * depend only on the world seed and the chunk coordinates, their stock and
+ * prices also on the generation, so any chunk can be derived again after it
+ * was evicted. Only the chunks around the merchant are kept in a bounded LRU
+ * cache, regeneration just starts a new generation and stale chunks are
+ * derived again when they are next needed.
+ */
+public class ChunkedWorld {
+  /**
+   * Side of a chunk.
+   */
+  public static final float CHUNK_SIZE         = VillageMap.POS_RAND_MULTI;
+  /**
+   * Count of villages in every chunk.
+   */
+  public static final int   VILLAGES_PER_CHUNK = 5;
+  /**
+   * Chunks materialized in every direction from the merchant's chunk.
+   */
+  public static final int   RADIUS             = 1;
+  /**
+   * Count of chunks kept in the cache, the rest is evicted least recently used
+   * first.
+   */
+  public static final int   CACHE_CAPACITY     = 64;
+
+  private final long                 seed;
+  private int                        generation;
+  private transient Epochs           epochs;
+  private transient Map<Long, Chunk> cache;
+
+  /**
+   * Constructor, empty cache.
+   * @param epochs Epochs.
+   * @param seed World seed.
+   */
+  public ChunkedWorld(Epochs epochs, long seed) {
+    this.epochs = epochs;
+    this.seed   = seed;
+    generation  = 0;
+  }
+
+  /**
+   * Copy for a fork of the simulation, same seed and generation, empty cache.
+   * @param epochs Fork owning the copy.
+   * @param other World to copy.
+   */
+  public ChunkedWorld(Epochs epochs, ChunkedWorld other) {
+    this.epochs = epochs;
+    this.seed   = other.seed;
+    generation  = other.generation;
+  }
+
+  /**
+   * World in a saved state, empty cache.
+   * @param epochs Epochs.
+   * @param seed World seed.
+   * @param generation Generation, see getGeneration.
+   */
+  public ChunkedWorld(Epochs epochs, long seed, int generation) {
+    this.epochs     = epochs;
+    this.seed       = seed;
+    this.generation = generation;
+  }
+
+  /**
+   * World written by writeTo, empty cache.
+   * @param epochs Epochs.
+   * @param buffer Positioned at the world, advanced past it.
+   */
+  ChunkedWorld(Epochs epochs, ByteBuffer buffer) {
+    this.epochs = epochs;
+    this.seed   = buffer.getLong();
+    generation  = buffer.getInt();
+  }
+
+  /**
+   * Write the seed and the generation, the cache is derived again.
+   * @param buffer Receives the world.
+   */
+  void writeTo(ByteBuffer buffer) {
+    buffer.putLong(seed).putInt(generation);
+  }
+
+  /**
+   * Start a new generation, every chunk gets new stock and prices the next
+   * time it is needed.
+   */
+  public void regenerate() {
+    ++generation;
+  }
+
+  /**
+   * Get the villages of every chunk around a position, chunk by chunk.
+   * @param position Position in the center chunk.
+   * @return Villages of (2 * RADIUS + 1)^2 chunks.
+   */
+  public ArrayList<Village> getAround(Position position) {
+    int centerX = chunkCoordinate(position.getX());
+    int centerY = chunkCoordinate(position.getY());
+    int side    = 2 * RADIUS + 1;
+
+    ArrayList<Village> around =
+      new ArrayList<>(side * side * VILLAGES_PER_CHUNK);
+    for (int chunkY = centerY - RADIUS; chunkY <= centerY + RADIUS; ++chunkY) {
+      for (int chunkX = centerX - RADIUS; chunkX <= centerX + RADIUS;
+           ++chunkX) {
+        for (Village village : getChunk(chunkX, chunkY).villages) {
+          around.add(village);
+        }
+      }
+    }
+
+    return around;
+  }
+
+  /**
+   * Key of the chunk holding a position, equal keys mean the same chunk.
+   * @param position Position in the chunk.
+   * @return Packed chunk coordinates.
+   */
+  public static long chunkKey(Position position) {
+    int chunkX = chunkCoordinate(position.getX());
+    int chunkY = chunkCoordinate(position.getY());
+    return key(chunkX, chunkY);
+  }
+
+  /**
+   * Put villages of current generation back into the cache after resume, so
+   * the trades made with them are kept.
+   * @param epochs Epochs.
+   * @param villages Villages grouped by chunk, as returned from getAround.
+   */
+  public void restore(Epochs epochs, List<Village> villages) {
+    this.epochs = epochs;
+
+    Map<Long, List<Village>> chunks = new LinkedHashMap<>();
+    for (Village village : villages) {
+      long key = chunkKey(village.getPosition());
+      chunks.computeIfAbsent(key, k -> new ArrayList<>()).add(village);
+    }
+
+    chunks.forEach((key, chunkVillages) -> getCache().put(
+      key, new Chunk(generation, chunkVillages.toArray(new Village[0]))));
+  }
+
+  /**
+   * Count of materialized chunks.
+   * @return Chunks in the cache, at most CACHE_CAPACITY.
+   */
+  public int getCachedChunks() {
+    return getCache().size();
+  }
+
+  /**
+   * Seed every chunk is derived from.
+   * @return World seed.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Generation of the world, incremented on every regeneration.
+   * @return Current generation.
+   */
+  public int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Internal, get a chunk of current generation, deriving it when missing or
+   * stale.
+   * @param chunkX X coordinate of the chunk.
+   * @param chunkY Y coordinate of the chunk.
+   * @return Chunk of current generation.
+   */
+  private Chunk getChunk(int chunkX, int chunkY) {
+    long  key   = key(chunkX, chunkY);
+    Chunk chunk = getCache().get(key);
+
+    if (chunk == null || chunk.generation != generation) {
+      chunk = derive(chunkX, chunkY, key);
+      cache.put(key, chunk);
+    }
+
+    return chunk;
+  }
+
+  /**
+   * Internal, derive a chunk from the seed, its coordinates and the
+   * generation.
+   * @param chunkX X coordinate of the chunk.
+   * @param chunkY Y coordinate of the chunk.
+   * @param key Packed chunk coordinates.
+   * @return New chunk of current generation.
+   */
+  private Chunk derive(int chunkX, int chunkY, long key) {
+    RandomSource placement = RandomSource.forIndex(seed, key);
+    RandomSource market    = RandomSource.forIndex(
+      RandomSource.forIndex(seed, ~(long)generation).nextLong(), key);
+
+    Village[] villages = new Village[VILLAGES_PER_CHUNK];
+    for (int i = 0; i < VILLAGES_PER_CHUNK; ++i) {
+      float x = place(chunkX, placement.nextFloat());
+      float y = place(chunkY, placement.nextFloat());
+      villages[i] = new Village(new Position(x, y), epochs, market.split());
+    }
+
+    return new Chunk(generation, villages);
+  }
+
+  /**
+   * Internal, LRU cache of chunks, created after resume.
+   * @return Cache bounded by CACHE_CAPACITY.
+   */
+  private Map<Long, Chunk> getCache() {
+    if (cache == null) {
+      cache = new LinkedHashMap<>(CACHE_CAPACITY * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+          return size() > CACHE_CAPACITY;
+        }
+      };
+    }
+    return cache;
+  }
+
+  /**
+   * Internal, chunk coordinate of a position coordinate.
+   * @param coordinate Position coordinate.
+   * @return Coordinate of the chunk holding it.
+   */
+  private static int chunkCoordinate(float coordinate) {
+    return (int)Math.floor(coordinate / CHUNK_SIZE);
+  }
+
+  /**
+   * Internal, coordinate at an offset in a chunk, kept inside the chunk when
+   * rounding would push it to the next one.
+   * @param chunk Coordinate of the chunk.
+   * @param offset Offset from 0 inclusive to 1 exclusive.
+   * @return Position coordinate.
+   */
+  private static float place(int chunk, float offset) {
+    float coordinate = (chunk + offset) * CHUNK_SIZE;
+    while (chunkCoordinate(coordinate) > chunk) {
+      coordinate = Math.nextDown(coordinate);
+    }
+    return coordinate;
+  }
+
+  /**
+   * Internal, pack chunk coordinates.
+   * @param chunkX X coordinate of the chunk.
+   * @param chunkY Y coordinate of the chunk.
+   * @return Packed coordinates.
+   */
+  private static long key(int chunkX, int chunkY) {
+    return (long)chunkX << 32 | chunkY & 0xffffffffL;
+  }
+
+  /**
+   * Villages of one chunk and the generation they were derived in.
+   * @param generation Generation of the stock and prices.
+   * @param villages Villages of the chunk.
+   */
+  private record Chunk(int generation, Village[] villages) {}
+}
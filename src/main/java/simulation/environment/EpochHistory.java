@@ -0,0 +1,313 @@
+package simulation.environment;
+
+import java.util.List;
+import simulation.goods.ProductType;
+import simulation.player.PlayerState;
+import simulation.vilages.Village;
+
+/**
+ * Bounded history of a simulation for rewinding epochs. Every epoch stores a
+ * fixed size delta in primitive ring buffers: the merchant's stock, money,
+ * position and flags before the epoch, and the stock and vault of the village
+ * it traded with before the trades. Regeneration changes every village, so a
+ * full keyframe of the map is stored before it, once every three epochs.
+ * Memory is bounded by the capacity, the oldest epochs are forgotten, and the
+ * keyframes by KEYFRAME_BUDGET: on large maps fewer epochs are kept, and maps
+ * whose keyframes do not fit at all can not be rewound. Keyframes are
+ * allocated by the regenerations that fill them. Rewinding
+ * restores the deltas from the newest, in time proportional to the count of
+ * epochs rewound plus the size of the map per regeneration crossed. Random
+ * streams are not rewound, advancing again takes new random turns.
+ */
+public class EpochHistory implements EpochListener {
+  /**
+   * Count of epochs kept by the console.
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  /**
+   * Bytes the keyframes of the map may take, 64 MiB.
+   */
+  public static final long KEYFRAME_BUDGET = 64L << 20;
+
+  private static final int STOCK = ProductType.COUNT + 1;
+
+  // delta layout: player stock and money, player x and y, village stock
+  private static final int PLAYER_X      = STOCK;
+  private static final int PLAYER_Y      = STOCK + 1;
+  private static final int VILLAGE_STOCK = STOCK + 2;
+  private static final int FLOATS        = VILLAGE_STOCK + STOCK;
+
+  private static final int COUNT    = 0;
+  private static final int FLAGS    = 1;
+  private static final int CURRENT  = 2;
+  private static final int TOUCHED  = 3;
+  private static final int KEYFRAME = 4;
+  private static final int INTS     = 5;
+
+  private static final int ATTACKED = 1;
+  private static final int DEAD     = 2;
+  private static final int FINISHED = 4;
+
+  // keyframe layout per village: x, y, stock and money, prices
+  private static final int VILLAGE_X      = 0;
+  private static final int VILLAGE_Y      = 1;
+  private static final int VILLAGE_VALUES = 2;
+  private static final int VILLAGE_PRICES = VILLAGE_VALUES + STOCK;
+  private static final int VILLAGE_FLOATS =
+    VILLAGE_PRICES + ProductType.COUNT;
+
+  private final Epochs  epochs;
+  private final int     capacity;
+  private final float[] floats;
+  private final int[]   ints;
+  private int           head;
+  private int           size;
+  private boolean       recording;
+
+  private final int       villageCount;
+  private final float[][] keyframes;
+  private final int       keyframeSlots;
+  private int             keyframeHead;
+
+  /**
+   * Constructor, starts recording the simulation.
+   * @param epochs Simulation to record, with a bounded map of its own.
+   * @param capacity Count of epochs kept, fewer when the keyframes of that
+   *   many would not fit KEYFRAME_BUDGET.
+   * @throws IllegalArgumentException When the capacity is not positive.
+   * @throws IllegalStateException When the map is shared, unbounded or too
+   *   large for the budget.
+   */
+  public EpochHistory(Epochs epochs, int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    }
+    if (!isSupported(epochs)) {
+      throw new IllegalStateException(
+        "Rewind needs a bounded map of its own within the keyframe budget.");
+    }
+
+    villageCount = epochs.getVillageMap().getVillages().size();
+
+    // at most one regeneration every three epochs, so c epochs need
+    // c / 3 + 2 keyframes and s keyframes cover 3 * (s - 2) + 2 epochs
+    long budgetSlots  = KEYFRAME_BUDGET / keyframeBytes(villageCount);
+    long budgetEpochs = 3 * (budgetSlots - 2) + 2;
+
+    this.epochs   = epochs;
+    this.capacity = (int)Math.min(capacity, budgetEpochs);
+    this.floats   = new float[Math.multiplyExact(this.capacity, FLOATS)];
+    this.ints     = new int[Math.multiplyExact(this.capacity, INTS)];
+
+    keyframeSlots = this.capacity / 3 + 2;
+    keyframes     = new float[keyframeSlots][];
+
+    epochs.addListener(this);
+  }
+
+  /**
+   * Whether a simulation can be rewound.
+   * @param epochs Simulation.
+   * @return true if its map is bounded, not shared, and two keyframes of it
+   *   fit KEYFRAME_BUDGET.
+   */
+  public static boolean isSupported(Epochs epochs) {
+    if (epochs.isMapShared() || epochs.getDifficulty().isInfiniteWorld()) {
+      return false;
+    }
+
+    int villageCount = epochs.getVillageMap().getVillages().size();
+    return 2 * keyframeBytes(villageCount) <= KEYFRAME_BUDGET;
+  }
+
+  /**
+   * Internal, size of a keyframe.
+   * @param villageCount Count of villages on the map.
+   * @return Bytes, at least one.
+   */
+  private static long keyframeBytes(int villageCount) {
+    return Math.max(1L, (long)villageCount * VILLAGE_FLOATS * Float.BYTES);
+  }
+
+  /**
+   * Rewind the simulation to the state before earlier epochs.
+   * @param count Count of epochs to rewind.
+   * @return Count of epochs rewound, fewer than count when the history does
+   *   not reach back that far.
+   * @throws IllegalArgumentException When the count is negative.
+   */
+  public int rewind(int count) {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count must not be negative.");
+    }
+
+    int rewound = Math.min(count, size);
+    for (int i = 0; i < rewound; ++i) {
+      head = (head + capacity - 1) % capacity;
+      --size;
+      restore(head);
+    }
+    if (rewound > 0) epochs.fireRewound();
+
+    return rewound;
+  }
+
+  /**
+   * Count of epochs that can be rewound.
+   * @return Recorded epochs.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Largest count of epochs kept, the constructor's unless the keyframe
+   * budget shrank it.
+   * @return Capacity in epochs.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Record the merchant before the epoch.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void epochStarted(Epochs epochs) {
+    PlayerState playerState = epochs.getPlayerState();
+    Position    position    = playerState.getCurrentPosition();
+    Village     current     = epochs.getCurrentVillage();
+    int         f           = head * FLOATS;
+    int         n           = head * INTS;
+
+    epochs.getPlayerStorage().writeTo(floats, f);
+    floats[f + PLAYER_X] = position.getX();
+    floats[f + PLAYER_Y] = position.getY();
+
+    ints[n + COUNT]    = epochs.getCount();
+    ints[n + FLAGS]    = (playerState.isAttacked() ? ATTACKED : 0)
+                         | (playerState.isDead() ? DEAD : 0)
+                         | (epochs.isSimulationFinished() ? FINISHED : 0);
+    ints[n + CURRENT]  =
+      current != null ? epochs.getVillageMap().rowOf(current) : -1;
+    ints[n + TOUCHED]  = -1;
+    ints[n + KEYFRAME] = -1;
+    recording          = true;
+  }
+
+  /**
+   * Record every village before the regeneration.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void mapRegenerating(Epochs epochs) {
+    List<Village> villages = epochs.getVillageMap().getVillages();
+    int           slot     = keyframeHead;
+
+    if (keyframes[slot] == null) {
+      keyframes[slot] = new float[villageCount * VILLAGE_FLOATS];
+    }
+    float[] keyframe = keyframes[slot];
+
+    for (int row = 0; row < villageCount; ++row) {
+      Village  village  = villages.get(row);
+      Position position = village.getPosition();
+      int      k        = row * VILLAGE_FLOATS;
+
+      keyframe[k + VILLAGE_X] = position.getX();
+      keyframe[k + VILLAGE_Y] = position.getY();
+      village.writeTo(keyframe, k + VILLAGE_VALUES);
+      village.writePrices(keyframe, k + VILLAGE_PRICES);
+    }
+
+    keyframeHead                 = (keyframeHead + 1) % keyframeSlots;
+    ints[head * INTS + KEYFRAME] = slot;
+  }
+
+  /**
+   * Record the village before the trades.
+   * @param epochs Simulation.
+   * @param village Village the merchant arrived in.
+   */
+  @Override
+  public void arrived(Epochs epochs, Village village) {
+    village.writeTo(floats, head * FLOATS + VILLAGE_STOCK);
+    ints[head * INTS + TOUCHED] = epochs.getVillageMap().rowOf(village);
+  }
+
+  /**
+   * Keep the recorded epoch, forgetting the oldest when full.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void epochFinished(Epochs epochs) {
+    if (!recording) return;
+
+    recording = false;
+    head      = (head + 1) % capacity;
+    size      = Math.min(size + 1, capacity);
+  }
+
+  /**
+   * Internal, undo one epoch: the trades, then the regeneration, then the
+   * merchant.
+   * @param slot Slot of the epoch.
+   */
+  private void restore(int slot) {
+    VillageMap map = epochs.getVillageMap();
+    int        f   = slot * FLOATS;
+    int        n   = slot * INTS;
+
+    if (ints[n + TOUCHED] >= 0) {
+      map.own(ints[n + TOUCHED]).readFrom(floats, f + VILLAGE_STOCK);
+    }
+
+    if (ints[n + KEYFRAME] >= 0) {
+      restoreKeyframe(map, ints[n + KEYFRAME]);
+      keyframeHead = ints[n + KEYFRAME];
+    }
+
+    PlayerState playerState = epochs.getPlayerState();
+    int         flags       = ints[n + FLAGS];
+
+    epochs.getPlayerStorage().readFrom(floats, f);
+    playerState.setCurrentPosition(
+      new Position(floats[f + PLAYER_X], floats[f + PLAYER_Y]));
+    playerState.setAttacked((flags & ATTACKED) != 0);
+    if ((flags & DEAD) != 0) {
+      playerState.die();
+    } else {
+      playerState.revive();
+    }
+
+    int current = ints[n + CURRENT];
+    epochs.restore(
+      ints[n + COUNT],
+      (flags & FINISHED) != 0,
+      current >= 0 ? map.getVillages().get(current) : null);
+  }
+
+  /**
+   * Internal, restore every village of a keyframe and rebuild the indexes.
+   * @param map Map of the simulation.
+   * @param slot Slot of the keyframe.
+   */
+  private void restoreKeyframe(VillageMap map, int slot) {
+    float[] keyframe = keyframes[slot];
+
+    for (int row = 0; row < villageCount; ++row) {
+      Village village = map.own(row);
+      int     k       = row * VILLAGE_FLOATS;
+
+      village.readFrom(keyframe, k + VILLAGE_VALUES);
+      village.restore(
+        new Position(keyframe[k + VILLAGE_X], keyframe[k + VILLAGE_Y]),
+        keyframe,
+        k + VILLAGE_PRICES);
+    }
+
+    map.reindex();
+  }
+}
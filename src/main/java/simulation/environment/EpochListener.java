@@ -0,0 +1,75 @@
+package simulation.environment;
+
+import simulation.goods.ProductType;
+import simulation.goods.TransactionType;
+import simulation.vilages.Village;
+
+/**
+ * Observer of the epochs of a simulation, every callback does nothing by
+ * default. Called on the thread advancing the simulation.
+ */
+public interface EpochListener {
+  /**
+   * An epoch starts, nothing has changed yet.
+   * @param epochs Simulation.
+   */
+  default void epochStarted(Epochs epochs) {}
+
+  /**
+   * The map is about to be regenerated at the start of an epoch.
+   * @param epochs Simulation.
+   */
+  default void mapRegenerating(Epochs epochs) {}
+
+  /**
+   * The merchant ate and paid for the travel, it may have died of hunger.
+   * @param epochs Simulation.
+   * @param destination Village chosen by the traversal, on the map as it was
+   *   before the merchant moved.
+   * @param food Food eaten, 0 when the merchant starved.
+   * @param travelCost Money paid for the road.
+   */
+  default void travelled(
+    Epochs epochs, Village destination, float food, float travelCost) {}
+
+  /**
+   * Thugs robbed the merchant on the road.
+   * @param epochs Simulation.
+   */
+  default void attacked(Epochs epochs) {}
+
+  /**
+   * The merchant survived the travel and is about to trade.
+   * @param epochs Simulation.
+   * @param village Village the merchant arrived in.
+   */
+  default void arrived(Epochs epochs, Village village) {}
+
+  /**
+   * A transaction was executed with the current village.
+   * @param epochs Simulation.
+   * @param transactionType Type of the transaction, from the merchant's view.
+   * @param productType Traded product.
+   * @param weight Traded weight.
+   * @param value Money changing hands, price multiplier included.
+   */
+  default void traded(
+    Epochs          epochs,
+    TransactionType transactionType,
+    ProductType     productType,
+    float           weight,
+    float           value) {}
+
+  /**
+   * An epoch has ended, also when the merchant died travelling.
+   * @param epochs Simulation.
+   */
+  default void epochFinished(Epochs epochs) {}
+
+  /**
+   * Epochs were rewound, the simulation is back at the start of the epoch of
+   * its count. Whatever was recorded from that epoch on was undone.
+   * @param epochs Simulation.
+   */
+  default void rewound(Epochs epochs) {}
+}
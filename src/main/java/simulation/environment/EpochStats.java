@@ -0,0 +1,109 @@
+package simulation.environment;
+
+/**
+ * Latencies of the phases of the epochs of a simulation and counters of what
+ * happened in them, see Epochs.setStats. Recorded on the thread advancing the
+ * simulation, read it from there too.
+ */
+public class EpochStats {
+  private final LatencyHistogram[] latencies;
+  private long                     generated;
+  private long                     rejected;
+  private long                     attacks;
+
+  /**
+   * Constructor, nothing recorded.
+   */
+  public EpochStats() {
+    latencies = new LatencyHistogram[Phase.COUNT];
+    for (int i = 0; i < Phase.COUNT; ++i) {
+      latencies[i] = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * Latencies of a phase.
+   * @param phase Phase.
+   * @return Histogram in nanoseconds.
+   */
+  public LatencyHistogram getLatency(Phase phase) {
+    return latencies[phase.ordinal()];
+  }
+
+  /**
+   * Count of transactions planned by the strategies.
+   * @return Count.
+   */
+  public long getTransactionsGenerated() {
+    return generated;
+  }
+
+  /**
+   * Count of planned transactions the village or the merchant could not
+   * fulfil.
+   * @return Count.
+   */
+  public long getTransactionsRejected() {
+    return rejected;
+  }
+
+  /**
+   * Count of attacks of thugs.
+   * @return Count.
+   */
+  public long getAttacks() {
+    return attacks;
+  }
+
+  /**
+   * Count of regenerations of the map.
+   * @return Count.
+   */
+  public long getRegenerations() {
+    return latencies[Phase.REGENERATION.ordinal()].getCount();
+  }
+
+  /**
+   * Forget everything recorded.
+   */
+  public void clear() {
+    for (LatencyHistogram latency : latencies) latency.clear();
+    generated = 0;
+    rejected  = 0;
+    attacks   = 0;
+  }
+
+  /**
+   * Record a phase that has just ended.
+   * @param phase Phase.
+   * @param start System.nanoTime when the phase started.
+   * @return System.nanoTime now, the start of the next phase.
+   */
+  long record(Phase phase, long start) {
+    long now = System.nanoTime();
+    latencies[phase.ordinal()].record(now - start);
+    return now;
+  }
+
+  /**
+   * Count planned transactions.
+   * @param count Count of transactions planned.
+   */
+  void countGenerated(int count) {
+    generated += count;
+  }
+
+  /**
+   * Count a planned transaction that could not be fulfilled.
+   */
+  void countRejected() {
+    ++rejected;
+  }
+
+  /**
+   * Count an attack.
+   */
+  void countAttack() {
+    ++attacks;
+  }
+}
@@ -1,11 +1,24 @@
 package simulation.environment;
 
 import io.arguments.Difficulty;
-import java.util.stream.IntStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import simulation.computation.BuyingAlgorithm;
 import simulation.computation.Dice;
+import simulation.computation.RandomSource;
 import simulation.computation.SellingAlgorithm;
 import simulation.computation.TraverseBase;
+import simulation.environment.SimulationEvents.EpochEvent;
+import simulation.environment.SimulationEvents.PhaseEvent;
+import simulation.environment.SimulationEvents.StealEvent;
+import simulation.environment.SimulationEvents.TradeEvent;
+import simulation.goods.ProductType;
+import simulation.goods.Transaction;
+import simulation.goods.TransactionBatch;
+import simulation.goods.TransactionType;
 import simulation.player.PlayerState;
 import simulation.player.PlayerStorage;
 import simulation.strategy.StrategyType;
@@ -17,33 +30,246 @@ import simulation.vilages.Village;
  * Simulation execution class
  */
 public class Epochs {
-  private int                 count = 0;
-  private BuyingAlgorithm     buyingAlgorithm;
-  private SellingAlgorithm    sellingAlgorithm;
-  private final PlayerStorage playerStorage;
-  private final PlayerState   playerState;
-  private StrategyType        strategyType;
-  private TraverseBase        traverseAlgorithm;
-  private final Dice          dice;
-  private final VillageMap    villageMap;
-  private boolean             finishTheSimulation;
-  private Village             currentVillage;
-  private final Difficulty    difficulty;
-
-  /**
-   * Constructor, construct using setters in controller.
+  private int                        count = 0;
+  private BuyingAlgorithm            buyingAlgorithm;
+  private SellingAlgorithm           sellingAlgorithm;
+  private final PlayerStorage        playerStorage;
+  private final PlayerState          playerState;
+  private StrategyType               strategyType;
+  private TraverseBase               traverseAlgorithm;
+  private final Dice                 dice;
+  private final VillageMap           villageMap;
+  private boolean                    finishTheSimulation;
+  private Village                    currentVillage;
+  private final Difficulty           difficulty;
+  private final RandomSource         randomSource;
+  private final long                 seed;
+  private final boolean              sharedMap;
+  private transient TransactionBatch transactionBatch;
+  private transient EpochListener[]  listeners;
+  private transient EpochStats       stats;
+  private transient EpochEvent       pendingEpoch;
+  private transient boolean          settingsChanged;
+
+  /**
+   * Constructor, construct using setters in controller. Seeded from the
+   * difficulty.
    * @param difficulty Difficulty.
    */
   public Epochs(Difficulty difficulty) {
+    this(difficulty, difficulty.getSeed());
+  }
+
+  /**
+   * Constructor with an explicit seed, construct using setters in controller.
+   * @param difficulty Difficulty.
+   * @param seed Seed, the simulation is fully determined by it.
+   */
+  public Epochs(Difficulty difficulty, long seed) {
+    this(difficulty, seed, null, VillageMap.COUNT_OF_VILLAGES);
+  }
+
+  /**
+   * Constructor with an explicit seed and map size, construct using setters in
+   * controller.
+   * @param difficulty Difficulty.
+   * @param seed Seed, the simulation is fully determined by it.
+   * @param villageCount Count of villages on the map.
+   */
+  public Epochs(Difficulty difficulty, long seed, int villageCount) {
+    this(difficulty, seed, null, villageCount);
+  }
+
+  /**
+   * Constructor of a merchant trading on the map of another simulation. The
+   * map is never regenerated or moved by this simulation, its owner does that
+   * while no merchant advances.
+   * @param difficulty Difficulty.
+   * @param seed Seed of this merchant's random stream.
+   * @param sharedMap Map shared with other merchants.
+   */
+  public Epochs(Difficulty difficulty, long seed, VillageMap sharedMap) {
+    this(difficulty, seed, sharedMap, 0);
+  }
+
+  /**
+   * Internal, constructor creating own map when none is shared.
+   * @param difficulty Difficulty.
+   * @param seed Seed of the random stream.
+   * @param sharedMap Map shared with other merchants or null.
+   * @param villageCount Count of villages on own map.
+   */
+  private Epochs(
+    Difficulty difficulty, long seed, VillageMap sharedMap, int villageCount) {
+    this.difficulty          = difficulty;
+    this.randomSource        = new RandomSource(seed);
+    this.seed                = seed;
+    this.playerStorage       = new PlayerStorage(this);
+    this.playerState         = new PlayerState();
+    this.dice                = new Dice(randomSource.split());
+    this.villageMap          = sharedMap != null
+                               ? sharedMap
+                               : new VillageMap(this, villageCount);
+    this.sharedMap           = sharedMap != null;
+    this.finishTheSimulation = false;
+    currentVillage           = null;
+  }
+
+  /**
+   * Internal, copy constructor of a fork.
+   * @param parent Simulation to fork.
+   */
+  private Epochs(Epochs parent) {
+    this.count               = parent.count;
+    this.difficulty          = parent.difficulty;
+    this.randomSource        = parent.randomSource.copy();
+    this.seed                = parent.seed;
+    this.playerStorage       = new PlayerStorage(this, parent.playerStorage);
+    this.playerState         = new PlayerState(parent.playerState);
+    this.dice                = parent.dice.copy();
+    this.villageMap          = new VillageMap(this, parent.villageMap);
+    this.sharedMap           = false;
+    this.finishTheSimulation = parent.finishTheSimulation;
+    currentVillage           = parent.currentVillage;
+
+    if (parent.strategyType != null) {
+      strategyType     = parent.strategyType.fork(this);
+      buyingAlgorithm  = new BuyingAlgorithm(this);
+      sellingAlgorithm = new SellingAlgorithm(this);
+    }
+    if (parent.traverseAlgorithm != null) {
+      traverseAlgorithm = parent.traverseAlgorithm.fork(this);
+    }
+  }
+
+  /**
+   * Constructor of a simulation in a saved state, counter, merchant, strategy
+   * and traversal are restored afterwards by restore, the getters and the
+   * setters. The map is built for the simulation under construction, so the
+   * map and its villages refer back to it.
+   * @param difficulty Difficulty.
+   * @param seed Seed given at construction of the saved simulation.
+   * @param randomSource Random stream of the simulation.
+   * @param dice Dice of the simulation.
+   * @param villageMap Builds the map of the simulation passed to it.
+   */
+  public Epochs(
+    Difficulty                   difficulty,
+    long                         seed,
+    RandomSource                 randomSource,
+    Dice                         dice,
+    Function<Epochs, VillageMap> villageMap) {
     this.difficulty          = difficulty;
+    this.randomSource        = randomSource;
+    this.seed                = seed;
     this.playerStorage       = new PlayerStorage(this);
     this.playerState         = new PlayerState();
-    this.dice                = new Dice();
-    this.villageMap          = new VillageMap(this);
+    this.dice                = dice;
+    this.villageMap          = villageMap.apply(this);
+    this.sharedMap           = false;
     this.finishTheSimulation = false;
     currentVillage           = null;
   }
 
+  /**
+   * Internal, constructor of a simulation read from a snapshot, see writeTo.
+   * @param snapshot Snapshot positioned after the difficulty.
+   * @throws IOException When the snapshot can not be read.
+   */
+  Epochs(Snapshot snapshot) throws IOException {
+    ByteBuffer header = snapshot.getHeader();
+
+    this.difficulty          = snapshot.getDifficulty();
+    this.count               = header.getInt();
+    byte flags               = header.get();
+    this.seed                = header.getLong();
+    this.randomSource        = RandomSource.readFrom(header);
+    this.dice                = Dice.readFrom(header);
+    this.playerStorage       = new PlayerStorage(this);
+    this.playerState         = new PlayerState();
+    this.sharedMap           = false;
+    this.finishTheSimulation = (flags & Snapshot.FINISHED) != 0;
+
+    playerStorage.readFrom(header);
+    playerState.setCurrentPosition(
+      new Position(header.getFloat(), header.getFloat()));
+    playerState.setAttacked((flags & Snapshot.ATTACKED) != 0);
+    if ((flags & Snapshot.DEAD) != 0) playerState.die();
+
+    this.villageMap = new VillageMap(this, snapshot);
+
+    switch (header.get()) {
+      case Snapshot.VILLAGE_ROW -> {
+        currentVillage = villageMap.getVillages().get(header.getInt());
+      }
+      case Snapshot.DETACHED_VILLAGE -> {
+        currentVillage = new Village(this, header);
+      }
+      default -> {
+        currentVillage = null;
+      }
+    }
+
+    StrategyType strategy = Snapshot.readStrategy(this, header);
+    if (strategy != null) { setStrategyType(strategy); }
+    traverseAlgorithm = Snapshot.readTraversal(this, header);
+  }
+
+  /**
+   * Write everything but the villages to the header of a snapshot: counter,
+   * flags, streams, the merchant, the map, the current village, the strategy
+   * and the traversal.
+   * @param buffer Receives the simulation.
+   * @throws IllegalStateException When the strategy or the traversal can not
+   *   be saved.
+   */
+  void writeTo(ByteBuffer buffer) {
+    int flags = (finishTheSimulation ? Snapshot.FINISHED : 0)
+                | (playerState.isAttacked() ? Snapshot.ATTACKED : 0)
+                | (playerState.isDead() ? Snapshot.DEAD : 0);
+
+    buffer.putInt(count).put((byte)flags).putLong(seed);
+    randomSource.writeTo(buffer);
+    dice.writeTo(buffer);
+    playerStorage.writeTo(buffer);
+
+    Position position = playerState.getCurrentPosition();
+    buffer.putFloat(position.getX()).putFloat(position.getY());
+
+    villageMap.writeTo(buffer);
+
+    int row = currentVillage != null ? villageMap.rowOf(currentVillage) : -1;
+    if (currentVillage == null) {
+      buffer.put(Snapshot.NO_VILLAGE);
+    } else if (row >= 0) {
+      buffer.put(Snapshot.VILLAGE_ROW).putInt(row);
+    } else {
+      // a village the merchant left behind in an evicted chunk
+      buffer.put(Snapshot.DETACHED_VILLAGE);
+      currentVillage.writeSnapshot(buffer);
+    }
+
+    Snapshot.writeStrategy(buffer, strategyType);
+    Snapshot.writeTraversal(buffer, traverseAlgorithm);
+  }
+
+  /**
+   * Fork the simulation for a what-if branch, in constant time. The fork
+   * continues exactly like this simulation would, from then on both advance
+   * independently. Villages are shared until either side changes one, then
+   * that side gets its own copy. A simulation trading on a shared map can not
+   * be forked.
+   * @return Independent copy of the simulation.
+   * @throws IllegalStateException When the map is shared.
+   */
+  public Epochs fork() {
+    if (sharedMap) {
+      throw new IllegalStateException("Can not fork a shared map.");
+    }
+
+    return new Epochs(this);
+  }
+
   /**
    * Strategy type setter, init algorithms now, remember to call before
    * advancing an epoch.
@@ -53,6 +279,7 @@ public class Epochs {
     this.strategyType     = strategyType;
     this.buyingAlgorithm  = new BuyingAlgorithm(this);
     this.sellingAlgorithm = new SellingAlgorithm(this);
+    this.settingsChanged  = true;
   }
 
   /**
@@ -61,29 +288,186 @@ public class Epochs {
    */
   public void setTraverseAlgorithm(TraverseBase traverseAlgorithm) {
     this.traverseAlgorithm = traverseAlgorithm;
+    this.settingsChanged   = true;
   }
 
   /**
-   * Advance one epoch: Travel, Sell, Buy, Increment count
+   * Register an observer of the epochs. Listeners are not saved or forked.
+   * @param listener Observer to add.
    */
-  public void advance() {
-    if (count % 3 == 0) { villageMap.regenerateMap(); }
+  public void addListener(EpochListener listener) {
+    if (listeners == null) {
+      listeners = new EpochListener[] { listener };
+      return;
+    }
+
+    listeners = Arrays.copyOf(listeners, listeners.length + 1);
+    listeners[listeners.length - 1] = listener;
+  }
+
+  /**
+   * Unregister an observer of the epochs.
+   * @param listener Observer to remove.
+   */
+  public void removeListener(EpochListener listener) {
+    if (listeners == null) return;
+
+    EpochListener[] kept = Arrays.stream(listeners)
+                             .filter(registered -> registered != listener)
+                             .toArray(EpochListener[]::new);
+    listeners = kept.length > 0 ? kept : null;
+  }
+
+  /**
+   * Time the phases of the epochs and count what happens in them from now on.
+   * Not saved or forked, the epochs only check for null when there are none.
+   * @param stats Statistics to record to, null to stop recording.
+   */
+  public void setStats(EpochStats stats) {
+    this.stats = stats;
+  }
 
+  /**
+   * Statistics the epochs record to.
+   * @return Statistics or null when not recorded.
+   */
+  public EpochStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Advance one epoch: Travel, Sell, Buy, Increment count. Does nothing once
+   * the merchant is dead.
+   */
+  public void advance() {
     if (finishTheSimulation) return;
+    runEpoch(getTransactionBatch(), stats);
+  }
+
+  /**
+   * Travel part of an epoch whose trades are settled by someone else, like an
+   * auction of merchants sharing the map. Finish it with finishEpoch.
+   * @return true if the merchant arrived alive.
+   */
+  public boolean travel() {
+    if (finishTheSimulation) return false;
+    EpochEvent epochEvent = startEpochEvent();
+    fireEpochStarted();
+
+    PhaseEvent phaseEvent = PhaseEvent.start(Phase.TRAVEL, count);
     travelingSequence();
-    if (finishTheSimulation) return;
+    phaseEvent.commit();
+    if (finishTheSimulation) {
+      fireEpochFinished();
+      commitEpochEvent(epochEvent);
+      return false;
+    }
 
-    sellingSequence();
-    buyingSequence();
+    // spans the settlement too, committed by finishEpoch
+    pendingEpoch = epochEvent;
+    return true;
+  }
+
+  /**
+   * Plan the sales and then the purchases in the current village without
+   * executing them.
+   * @param orders Batch to fill, cleared first.
+   */
+  public void planTrades(TransactionBatch orders) {
+    TransactionBatch batch = getTransactionBatch();
+    orders.clear();
+
+    sellingAlgorithm.generateTransactions(currentVillage, batch);
+    append(batch, orders);
+
+    buyingAlgorithm.generateTransactions(currentVillage, batch);
+    append(batch, orders);
+  }
+
+  /**
+   * Finish an epoch started by travel after its trades were settled.
+   */
+  public void finishEpoch() {
     ++count;
+    fireEpochFinished();
+    if (pendingEpoch != null) {
+      commitEpochEvent(pendingEpoch);
+      pendingEpoch = null;
+    }
   }
 
   /**
-   * Advance several epochs.
+   * Advance several epochs, stops as soon as the merchant dies.
    * @param count the number of epochs to advance.
+   * @return Count of epochs executed, fewer than count if the merchant died.
    */
-  public void advanceBy(int count) {
-    IntStream.range(0, count).forEach(i -> advance());
+  public int advanceBy(int count) {
+    return advanceUntil(count, null);
+  }
+
+  /**
+   * Advance several epochs in a tight loop, stops as soon as the merchant dies
+   * or the condition holds after an epoch.
+   * @param count the largest number of epochs to advance.
+   * @param stop Checked after every epoch, null to never stop early.
+   * @return Count of epochs executed.
+   */
+  public int advanceUntil(int count, Predicate<Epochs> stop) {
+    final TransactionBatch batch = getTransactionBatch();
+    final EpochStats       stats = this.stats;
+    final int              first = this.count;
+
+    for (int i = 0; i < count && !finishTheSimulation; ++i) {
+      runEpoch(batch, stats);
+      if (finishTheSimulation) break;
+      if (stop != null && stop.test(this)) break;
+    }
+
+    return this.count - first;
+  }
+
+  /**
+   * Internal, run an epoch of a living merchant: regenerate the map every
+   * third epoch, travel, then sell and buy unless the merchant died on the
+   * road. Notifies the listeners, times the phases and emits the flight
+   * recorder events.
+   * @param batch Reusable batch of planned transactions.
+   * @param stats Statistics to record to or null.
+   */
+  private void runEpoch(TransactionBatch batch, EpochStats stats) {
+    EpochEvent epochEvent = startEpochEvent();
+    fireEpochStarted();
+
+    long start = stats != null ? System.nanoTime() : 0L;
+    if (!sharedMap && count % 3 == 0) {
+      fireMapRegenerating();
+      villageMap.regenerateMap();
+      if (stats != null) start = stats.record(Phase.REGENERATION, start);
+    }
+
+    PhaseEvent phaseEvent = PhaseEvent.start(Phase.TRAVEL, count);
+    travelingSequence();
+    phaseEvent.commit();
+    if (stats != null) start = stats.record(Phase.TRAVEL, start);
+    if (finishTheSimulation) {
+      fireEpochFinished();
+      commitEpochEvent(epochEvent);
+      return;
+    }
+
+    phaseEvent = PhaseEvent.start(Phase.SELLING, count);
+    sellingAlgorithm.generateTransactions(currentVillage, batch);
+    executeTransactions(batch);
+    phaseEvent.commit();
+    if (stats != null) start = stats.record(Phase.SELLING, start);
+    phaseEvent = PhaseEvent.start(Phase.BUYING, count);
+    buyingAlgorithm.generateTransactions(currentVillage, batch);
+    executeTransactions(batch);
+    phaseEvent.commit();
+    if (stats != null) stats.record(Phase.BUYING, start);
+    ++count;
+    fireEpochFinished();
+    commitEpochEvent(epochEvent);
   }
 
   /**
@@ -103,12 +487,20 @@ public class Epochs {
 
     strategyType.fluctuateFoodConsumption();
     strategyType.fluctuatePriceMultiplier();
+    float food = strategyType.getFoodConsumption();
     playerStorage.consumeDailyFood();
 
     float travelCost =
       Math.min(distance * costPerUnitOfRoad, playerStorage.getMoney());
     playerStorage.subtractMoney(travelCost);
 
+    if (listeners != null) {
+      if (playerState.isDead()) food = 0.0f;
+      for (EpochListener listener : listeners) {
+        listener.travelled(this, nextVillage, food, travelCost);
+      }
+    }
+
     if (playerState.isDead()) {
       finishTheSimulation = true;
       return;
@@ -116,47 +508,242 @@ public class Epochs {
 
     playerState.setAttacked(false);
     if (toBeAttacked) {
-      Thugs thugs = new Thugs(this);
+      Thugs      thugs      = new Thugs(this);
+      StealEvent stealEvent = new StealEvent();
+      float      money      = playerStorage.getMoney();
+      stealEvent.begin();
       thugs.steal();
+      if (stealEvent.shouldCommit()) {
+        stealEvent.epoch = count;
+        stealEvent.money = money - playerStorage.getMoney();
+        stealEvent.commit();
+      }
       playerState.setAttacked(true);
+      if (stats != null) stats.countAttack();
+      if (listeners != null) {
+        for (EpochListener listener : listeners) listener.attacked(this);
+      }
     }
 
     playerState.setCurrentPosition(nextVillagePosition);
     currentVillage = nextVillage;
+    if (!sharedMap) { villageMap.followPlayer(); }
+
+    if (listeners != null) {
+      for (EpochListener listener : listeners) {
+        listener.arrived(this, currentVillage);
+      }
+    }
   }
 
   /**
-   * Execute the selling sequence: generate Transactions and execute them
+   * Internal, begin the flight recorder event of an epoch.
+   * @return Begun event.
    */
-  private void sellingSequence() {
-    var transactions = sellingAlgorithm.generateTransactions(currentVillage);
-    transactions.forEach(transaction -> {
-      boolean villageCanFulfil =
-        currentVillage.isTransactionPossible(transaction);
-      boolean playerCanFulfil =
-        playerStorage.isTransactionPossible(transaction);
+  private EpochEvent startEpochEvent() {
+    EpochEvent event = new EpochEvent();
+    event.begin();
+    event.epoch = count;
+    return event;
+  }
 
-      if (villageCanFulfil && playerCanFulfil) {
-        transaction.execute(currentVillage);
-      }
-    });
+  /**
+   * Internal, commit the flight recorder event of an epoch that has ended.
+   * @param event Event begun by startEpochEvent.
+   */
+  private void commitEpochEvent(EpochEvent event) {
+    if (!event.shouldCommit()) return;
+    event.money = playerStorage.getMoney();
+    event.died  = finishTheSimulation;
+    event.commit();
+  }
+
+  /**
+   * Internal, commit the flight recorder event of an executed transaction,
+   * empty ones are skipped like the trade ledger skips them.
+   * @param transactionType Type of the transaction.
+   * @param productType Traded product.
+   * @param weight Traded weight.
+   * @param value Money changing hands.
+   */
+  private void commitTradeEvent(
+    TransactionType transactionType,
+    ProductType     productType,
+    float           weight,
+    float           value) {
+    if (weight <= 0.0f) return;
+
+    TradeEvent event = new TradeEvent();
+    if (!event.shouldCommit()) return;
+
+    event.epoch           = count;
+    event.village         = villageMap.rowOf(currentVillage);
+    event.transactionType = transactionType.name();
+    event.product         = productType.name();
+    event.weight          = weight;
+    event.value           = value;
+    event.commit();
+  }
+
+  /**
+   * Internal, notify the listeners of a starting epoch.
+   */
+  private void fireEpochStarted() {
+    if (listeners == null) return;
+    for (EpochListener listener : listeners) listener.epochStarted(this);
+  }
+
+  /**
+   * Internal, notify the listeners of an upcoming regeneration.
+   */
+  private void fireMapRegenerating() {
+    if (listeners == null) return;
+    for (EpochListener listener : listeners) listener.mapRegenerating(this);
+  }
+
+  /**
+   * Internal, notify the listeners of an executed transaction.
+   * @param transactionType Type of the transaction.
+   * @param productType Traded product.
+   * @param weight Traded weight.
+   * @param value Money changing hands.
+   */
+  private void fireTraded(
+    TransactionType transactionType,
+    ProductType     productType,
+    float           weight,
+    float           value) {
+    for (EpochListener listener : listeners) {
+      listener.traded(this, transactionType, productType, weight, value);
+    }
+  }
+
+  /**
+   * Internal, notify the listeners of a finished epoch.
+   */
+  private void fireEpochFinished() {
+    if (listeners == null) return;
+    for (EpochListener listener : listeners) listener.epochFinished(this);
+  }
+
+  /**
+   * Whether anything but the villages changed since the last markClean: the
+   * merchant, the map or the settings. Every epoch moves the merchant.
+   * @return true if changed.
+   */
+  boolean isDirty() {
+    return settingsChanged
+           || playerStorage.isDirty()
+           || playerState.isDirty()
+           || villageMap.isDirty();
+  }
+
+  /**
+   * Forget the changes of the merchant, the map and the villages, after they
+   * were saved.
+   */
+  void markClean() {
+    settingsChanged = false;
+    playerStorage.markClean();
+    playerState.markClean();
+    villageMap.markClean();
+  }
+
+  /**
+   * Restore the counter and the flags of an earlier epoch, used by rewinding
+   * and by reading saves.
+   * @param count Count of finished epochs.
+   * @param finished Whether the simulation was finished.
+   * @param currentVillage Village the merchant was in, null before the first.
+   */
+  public void restore(int count, boolean finished, Village currentVillage) {
+    this.count               = count;
+    this.finishTheSimulation = finished;
+    this.currentVillage      = currentVillage;
+  }
+
+  /**
+   * Notify the listeners that epochs were rewound, used by EpochHistory once
+   * it restored the earliest of them.
+   */
+  void fireRewound() {
+    if (listeners == null) return;
+    for (EpochListener listener : listeners) listener.rewound(this);
   }
 
   /**
-   * Execute the buying sequence: generate Transactions and execute them
+   * Execute every planned transaction both partners can fulfil. Holds the
+   * village's monitor, so merchants sharing the map can never oversell its
+   * stock or overdraw its vault.
+   * @param batch Planned transactions.
    */
-  private void buyingSequence() {
-    var transactions = buyingAlgorithm.generateTransactions(currentVillage);
-    transactions.forEach(transaction -> {
-      boolean villageCanFulfil =
-        currentVillage.isTransactionPossible(transaction);
-      boolean playerCanFulfil =
-        playerStorage.isTransactionPossible(transaction);
+  private void executeTransactions(TransactionBatch batch) {
+    currentVillage = villageMap.own(currentVillage);
+    synchronized (currentVillage) {
+      executeLocked(batch);
+    }
+  }
+
+  /**
+   * Internal, execute the planned transactions, the village must be locked.
+   * @param batch Planned transactions.
+   */
+  private void executeLocked(TransactionBatch batch) {
+    final float priceMultiplier = strategyType.getPriceMultiplier();
+
+    if (stats != null) stats.countGenerated(batch.size());
+    for (int i = 0; i < batch.size(); ++i) {
+      TransactionType transactionType = batch.getTransactionType(i);
+      ProductType     productType     = batch.getProductType(i);
+      float           weight          = batch.getWeight(i);
+      float           total           = batch.getTotal(i);
+
+      boolean villageCanFulfil = currentVillage.isTransactionPossible(
+        transactionType, productType, weight, total);
+      boolean playerCanFulfil = playerStorage.isTransactionPossible(
+        transactionType, productType, weight, total);
 
       if (villageCanFulfil && playerCanFulfil) {
-        transaction.execute(currentVillage);
+        float value = total * priceMultiplier;
+        Transaction.settle(
+          transactionType,
+          productType,
+          weight,
+          value,
+          currentVillage,
+          playerStorage);
+        if (listeners != null) {
+          fireTraded(transactionType, productType, weight, value);
+        }
+        commitTradeEvent(transactionType, productType, weight, value);
+      } else if (stats != null) {
+        stats.countRejected();
       }
-    });
+    }
+  }
+
+  /**
+   * Internal, append planned transactions to another batch.
+   * @param batch Planned transactions.
+   * @param orders Batch to append to.
+   */
+  private static void append(TransactionBatch batch, TransactionBatch orders) {
+    for (int i = 0; i < batch.size(); ++i) {
+      orders.add(
+        batch.getTransactionType(i),
+        batch.getProductType(i),
+        batch.getWeight(i),
+        batch.getPrice(i));
+    }
+  }
+
+  /**
+   * Internal, reusable batch of planned transactions, created after resume.
+   * @return Transaction batch.
+   */
+  private TransactionBatch getTransactionBatch() {
+    if (transactionBatch == null) { transactionBatch = new TransactionBatch(); }
+    return transactionBatch;
   }
 
   /**
@@ -167,6 +754,14 @@ public class Epochs {
     return strategyType;
   }
 
+  /**
+   * Traverse algorithm getter.
+   * @return Selected traversal algorithm.
+   */
+  public TraverseBase getTraverseAlgorithm() {
+    return traverseAlgorithm;
+  }
+
   /**
    * Get elapsed epochs.
    * @return elapsed epochs up to this point.
@@ -207,6 +802,38 @@ public class Epochs {
     return villageMap;
   }
 
+  /**
+   * Village the merchant is in.
+   * @return Current village or null before the first travel.
+   */
+  public Village getCurrentVillage() {
+    return currentVillage;
+  }
+
+  /**
+   * Whether the map is shared with other merchants and managed by its owner.
+   * @return true if constructed with a shared map.
+   */
+  public boolean isMapShared() {
+    return sharedMap;
+  }
+
+  /**
+   * Seed of this simulation's random stream.
+   * @return Seed given at construction, 0 in saves older than the field.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+  /**
+   * Dice getter.
+   * @return Dice rolling the random events.
+   */
+  public Dice getDice() {
+    return dice;
+  }
+
   /**
    * Difficulty getter.
    * @return Parsed difficulty.
@@ -214,4 +841,12 @@ public class Epochs {
   public Difficulty getDifficulty() {
     return difficulty;
   }
+
+  /**
+   * Random stream of this simulation, split it for anything that needs its own.
+   * @return Root random stream.
+   */
+  public RandomSource getRandomSource() {
+    return randomSource;
+  }
 }
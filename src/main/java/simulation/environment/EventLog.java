@@ -0,0 +1,199 @@
+package simulation.environment;
+
+import io.arguments.Difficulty;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import simulation.goods.ProductType;
+import simulation.goods.TransactionType;
+import simulation.vilages.Village;
+
+/**
+ * Append-only binary log of the events of a simulation: regenerations,
+ * travels with the food eaten and the fare paid, deaths, thefts, arrivals,
+ * executed transactions and ends of epochs. Together with the seed and the
+ * village count in its header it rebuilds any epoch, see EventReplay. Events
+ * are a tag byte and a few little endian fields, batched in a direct buffer
+ * and written to the file channel when it fills up.
+ */
+public class EventLog implements EpochListener, Closeable {
+  static final int MAGIC       = 0x47_4c_4d_53; // "SMLG" little endian
+  static final int VERSION     = 1;
+  static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 4 + 1;
+
+  static final byte REGENERATE = 1;
+  static final byte TRAVEL     = 2;
+  static final byte DEATH      = 3;
+  static final byte THEFT      = 4;
+  static final byte ARRIVE     = 5;
+  static final byte TRADE      = 6;
+  static final byte EPOCH      = 7;
+
+  /**
+   * Largest event in bytes, a travel.
+   */
+  static final int MAX_EVENT = 1 + 4 + 4 + 4;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Epochs      epochs;
+  private final FileChannel channel;
+  private final ByteBuffer  buffer;
+
+  /**
+   * Constructor, creates or truncates the file and starts logging.
+   * @param epochs Simulation that has not advanced yet.
+   * @param path File to write.
+   * @throws IOException When the file can not be opened.
+   * @throws IllegalStateException When the simulation has already advanced.
+   */
+  public EventLog(Epochs epochs, Path path) throws IOException {
+    if (epochs.getCount() != 0 || epochs.isSimulationFinished()) {
+      throw new IllegalStateException("Log must start with the simulation.");
+    }
+
+    this.epochs  = epochs;
+    this.channel = FileChannel.open(
+      path,
+      StandardOpenOption.CREATE,
+      StandardOpenOption.TRUNCATE_EXISTING,
+      StandardOpenOption.WRITE);
+    this.buffer  =
+      ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    Difficulty difficulty = epochs.getDifficulty();
+    buffer.putInt(MAGIC)
+      .putInt(VERSION)
+      .putLong(epochs.getSeed())
+      .putInt(epochs.getVillageMap().getVillageCount())
+      .putInt(difficulty.getRng())
+      .putFloat(difficulty.getStealMultiplier())
+      .put((byte)(difficulty.isInfiniteWorld() ? 1 : 0));
+
+    epochs.addListener(this);
+  }
+
+  /**
+   * Log a regeneration.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void mapRegenerating(Epochs epochs) {
+    reserve().put(REGENERATE);
+  }
+
+  /**
+   * Log a travel by the row of the destination, and a death.
+   * @param epochs Simulation.
+   * @param destination Village chosen by the traversal.
+   * @param food Food eaten.
+   * @param travelCost Money paid for the road.
+   */
+  @Override
+  public void travelled(
+    Epochs epochs, Village destination, float food, float travelCost) {
+    reserve()
+      .put(TRAVEL)
+      .putInt(epochs.getVillageMap().rowOf(destination))
+      .putFloat(food)
+      .putFloat(travelCost);
+    if (epochs.getPlayerState().isDead()) reserve().put(DEATH);
+  }
+
+  /**
+   * Log a theft.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void attacked(Epochs epochs) {
+    reserve().put(THEFT);
+  }
+
+  /**
+   * Log an arrival.
+   * @param epochs Simulation.
+   * @param village Village the merchant arrived in.
+   */
+  @Override
+  public void arrived(Epochs epochs, Village village) {
+    reserve().put(ARRIVE);
+  }
+
+  /**
+   * Log an executed transaction.
+   * @param epochs Simulation.
+   * @param transactionType Type of the transaction.
+   * @param productType Traded product.
+   * @param weight Traded weight.
+   * @param value Money changing hands.
+   */
+  @Override
+  public void traded(
+    Epochs          epochs,
+    TransactionType transactionType,
+    ProductType     productType,
+    float           weight,
+    float           value) {
+    reserve()
+      .put(TRADE)
+      .put((byte)transactionType.ordinal())
+      .put((byte)productType.ordinal())
+      .putFloat(weight)
+      .putFloat(value);
+  }
+
+  /**
+   * Log the end of an epoch.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void epochFinished(Epochs epochs) {
+    reserve().put(EPOCH);
+  }
+
+  /**
+   * Write the buffered events to the file.
+   * @throws IOException When writing fails.
+   */
+  public void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) channel.write(buffer);
+    buffer.clear();
+  }
+
+  /**
+   * Stop logging, write the buffered events and close the file.
+   * @throws IOException When writing fails.
+   */
+  @Override
+  public void close() throws IOException {
+    epochs.removeListener(this);
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Internal, make room for the largest event.
+   * @return Buffer to put the event into.
+   * @throws UncheckedIOException When writing a full buffer fails.
+   */
+  private ByteBuffer reserve() {
+    if (buffer.remaining() < MAX_EVENT) {
+      try {
+        flush();
+      } catch (IOException err) {
+        throw new UncheckedIOException(err);
+      }
+    }
+
+    return buffer;
+  }
+}
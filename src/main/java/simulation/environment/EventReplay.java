@@ -0,0 +1,215 @@
+package simulation.environment;
+
+import io.arguments.Difficulty;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import simulation.goods.ProductType;
+import simulation.goods.Transaction;
+import simulation.goods.TransactionType;
+import simulation.player.PlayerState;
+import simulation.player.PlayerStorage;
+import simulation.vilages.Thugs;
+import simulation.vilages.Village;
+
+/**
+ * Rebuilds a simulation from an EventLog. Regenerations are recomputed from
+ * the seed, everything the merchant did is applied as logged, so neither the
+ * strategy nor the traversal runs and no random number is drawn for them. A
+ * truncated last event is ignored. The rebuilt simulation has no strategy or
+ * traversal, set them to advance it further.
+ */
+public class EventReplay {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Epochs        epochs;
+  private final VillageMap    villageMap;
+  private final PlayerStorage playerStorage;
+  private final PlayerState   playerState;
+  private Village             destination;
+  private boolean             robbed;
+
+  /**
+   * Internal, constructor.
+   * @param epochs Simulation to replay into.
+   */
+  private EventReplay(Epochs epochs) {
+    this.epochs        = epochs;
+    this.villageMap    = epochs.getVillageMap();
+    this.playerStorage = epochs.getPlayerStorage();
+    this.playerState   = epochs.getPlayerState();
+  }
+
+  /**
+   * Rebuild the simulation at the end of the log.
+   * @param path Log to replay.
+   * @param difficulty Difficulty the log was written with.
+   * @return Rebuilt simulation.
+   * @throws IOException When the file can not be read or is not a log.
+   * @throws IllegalArgumentException When the difficulty does not match.
+   */
+  public static Epochs replay(Path path, Difficulty difficulty)
+    throws IOException {
+    return replay(path, difficulty, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Rebuild the simulation after a count of epochs.
+   * @param path Log to replay.
+   * @param difficulty Difficulty the log was written with.
+   * @param epochCount Count of epochs to replay, fewer if the log ends.
+   * @return Rebuilt simulation.
+   * @throws IOException When the file can not be read or is not a log.
+   * @throws IllegalArgumentException When the difficulty does not match.
+   */
+  public static Epochs replay(Path path, Difficulty difficulty, int epochCount)
+    throws IOException {
+    try (FileChannel channel =
+           FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer =
+        ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      buffer.flip();
+
+      if (!fill(channel, buffer, EventLog.HEADER_SIZE)
+          || buffer.getInt() != EventLog.MAGIC
+          || buffer.getInt() != EventLog.VERSION) {
+        throw new IOException("Not an event log.");
+      }
+
+      long    seed            = buffer.getLong();
+      int     villageCount    = buffer.getInt();
+      int     rng             = buffer.getInt();
+      float   stealMultiplier = buffer.getFloat();
+      boolean infiniteWorld   = buffer.get() != 0;
+
+      if (rng != difficulty.getRng()
+          || stealMultiplier != difficulty.getStealMultiplier()
+          || infiniteWorld != difficulty.isInfiniteWorld()) {
+        throw new IllegalArgumentException(
+          "Log was written with another difficulty.");
+      }
+
+      EventReplay replay =
+        new EventReplay(new Epochs(difficulty, seed, villageCount));
+      while (replay.epochs.getCount() < epochCount
+             && fill(channel, buffer, EventLog.MAX_EVENT)
+             && buffer.remaining() >= size(buffer.get(buffer.position()))) {
+        replay.apply(buffer);
+      }
+
+      return replay.epochs;
+    }
+  }
+
+  /**
+   * Internal, apply one event.
+   * @param buffer Positioned at the tag of the event.
+   * @throws IOException When the tag is unknown.
+   */
+  private void apply(ByteBuffer buffer) throws IOException {
+    byte tag = buffer.get();
+    switch (tag) {
+      case EventLog.REGENERATE -> {
+        villageMap.regenerateMap();
+      }
+      case EventLog.TRAVEL -> {
+        destination = villageMap.getVillages().get(buffer.getInt());
+        float food  = buffer.getFloat();
+        float fare  = buffer.getFloat();
+        robbed      = false;
+
+        if (food > 0.0f) playerStorage.subtractWeight(ProductType.FOOD, food);
+        playerStorage.subtractMoney(fare);
+      }
+      case EventLog.DEATH -> {
+        playerState.die();
+        epochs.restore(epochs.getCount(), true, epochs.getCurrentVillage());
+      }
+      case EventLog.THEFT -> {
+        new Thugs(epochs).steal();
+        robbed = true;
+      }
+      case EventLog.ARRIVE -> {
+        playerState.setAttacked(robbed);
+        playerState.setCurrentPosition(destination.getPosition());
+        epochs.restore(epochs.getCount(), false, destination);
+        villageMap.followPlayer();
+      }
+      case EventLog.TRADE -> {
+        TransactionType transactionType =
+          TransactionType.values()[buffer.get()];
+        ProductType productType = ProductType.byOrdinal(buffer.get());
+        float       weight      = buffer.getFloat();
+        float       value       = buffer.getFloat();
+
+        Transaction.settle(
+          transactionType,
+          productType,
+          weight,
+          value,
+          epochs.getCurrentVillage(),
+          playerStorage);
+      }
+      case EventLog.EPOCH -> {
+        // a merchant dying on the road does not finish the epoch
+        if (!epochs.isSimulationFinished()) {
+          epochs.restore(
+            epochs.getCount() + 1, false, epochs.getCurrentVillage());
+        }
+      }
+      default -> {
+        throw new IOException("Unknown event " + tag + ".");
+      }
+    }
+  }
+
+  /**
+   * Internal, size of an event.
+   * @param tag Tag of the event.
+   * @return Size in bytes with the tag.
+   * @throws IOException When the tag is unknown.
+   */
+  private static int size(byte tag) throws IOException {
+    switch (tag) {
+      case EventLog.TRAVEL -> {
+        return EventLog.MAX_EVENT;
+      }
+      case EventLog.TRADE -> {
+        return 1 + 1 + 1 + 4 + 4;
+      }
+      case EventLog.REGENERATE,
+        EventLog.DEATH,
+        EventLog.THEFT,
+        EventLog.ARRIVE,
+        EventLog.EPOCH -> {
+        return 1;
+      }
+      default -> {
+        throw new IOException("Unknown event " + tag + ".");
+      }
+    }
+  }
+
+  /**
+   * Internal, make sure the buffer holds enough bytes for an event, or all
+   * that is left of the file.
+   * @param channel File to read.
+   * @param buffer Buffer in read mode.
+   * @param needed Bytes wanted.
+   * @return false if the file has ended.
+   * @throws IOException When reading fails.
+   */
+  private static boolean fill(
+    FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+    if (buffer.remaining() >= needed) return true;
+
+    buffer.compact();
+    while (buffer.position() < needed && channel.read(buffer) >= 0) {}
+    buffer.flip();
+
+    return buffer.hasRemaining();
+  }
+}
@@ -0,0 +1,205 @@
+package simulation.environment;
+
+import java.util.Arrays;
+
+/**
+ * Float samples compressed like in Gorilla: the first sample as it is, every
+ * next one as the XOR of its bits with the bits of the previous one. An equal
+ * sample costs a bit; otherwise the meaningful bits of the XOR are stored,
+ * within the leading and trailing zeros of the previous XOR when they fit,
+ * else with a new window of 5 bits of leading zeros and 5 bits of length.
+ * Slowly changing values keep their sign and exponent, so only part of the
+ * mantissa is stored. Bits are packed into longs from the highest bit.
+ */
+class FloatSeries {
+  private static final int INITIAL_WORDS = 16;
+  private static final int WINDOW_BITS   = 5;
+
+  private long[] words;
+  private long   bits;
+  private int    size;
+  private int    previous;
+  private int    leading = -1;
+  private int    trailing;
+
+  /**
+   * Constructor, empty series.
+   */
+  FloatSeries() {
+    words = new long[INITIAL_WORDS];
+  }
+
+  /**
+   * Append a sample.
+   * @param value Sample.
+   */
+  void append(float value) {
+    int current = Float.floatToRawIntBits(value);
+    if (size++ == 0) {
+      write(current, Integer.SIZE);
+      previous = current;
+      return;
+    }
+
+    int xor  = current ^ previous;
+    previous = current;
+    if (xor == 0) {
+      write(0, 1);
+      return;
+    }
+
+    int zerosBefore = Integer.numberOfLeadingZeros(xor);
+    int zerosAfter  = Integer.numberOfTrailingZeros(xor);
+    if (leading >= 0 && zerosBefore >= leading && zerosAfter >= trailing) {
+      // inside the previous window
+      write(0b10, 2);
+      write(xor >>> trailing, Integer.SIZE - leading - trailing);
+      return;
+    }
+
+    int meaningful = Integer.SIZE - zerosBefore - zerosAfter;
+    write(0b11, 2);
+    write(zerosBefore, WINDOW_BITS);
+    write(meaningful - 1, WINDOW_BITS);
+    write(xor >>> zerosAfter, meaningful);
+    leading  = zerosBefore;
+    trailing = zerosAfter;
+  }
+
+  /**
+   * Count of samples.
+   * @return Size.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Words holding the samples, for a cursor or to be stored.
+   * @return Copy trimmed to the used words.
+   */
+  long[] toWords() {
+    return Arrays.copyOf(words, (int)((bits + Long.SIZE - 1) / Long.SIZE));
+  }
+
+  /**
+   * Size of the compressed samples.
+   * @return Bytes of the used words.
+   */
+  long getBytes() {
+    return (bits + Long.SIZE - 1) / Long.SIZE * Long.BYTES;
+  }
+
+  /**
+   * Series of the first samples of this one, it can be appended to.
+   * @param count Count of samples kept.
+   * @return New series.
+   */
+  FloatSeries prefix(int count) {
+    return prefix(new Cursor(words), count);
+  }
+
+  /**
+   * Series of the first samples read by a cursor, it can be appended to.
+   * @param cursor Cursor at the first sample.
+   * @param count Count of samples kept.
+   * @return New series.
+   */
+  static FloatSeries prefix(Cursor cursor, int count) {
+    FloatSeries series = new FloatSeries();
+    for (int i = 0; i < count; ++i) series.append(cursor.next());
+    return series;
+  }
+
+  /**
+   * Internal, append the lowest bits of a value.
+   * @param value Bits to append.
+   * @param length Count of bits, at most 32.
+   */
+  private void write(int value, int length) {
+    int needed = (int)((bits + length + Long.SIZE - 1) / Long.SIZE);
+    if (needed > words.length) {
+      words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
+    }
+
+    long field = value & (-1L >>> (Long.SIZE - length));
+    int  word  = (int)(bits / Long.SIZE);
+    int  free  = Long.SIZE - (int)(bits % Long.SIZE);
+    if (length <= free) {
+      words[word] |= field << (free - length);
+    } else {
+      words[word]     |= field >>> (length - free);
+      words[word + 1] |= field << (Long.SIZE - (length - free));
+    }
+    bits += length;
+  }
+
+  /**
+   * Reads the samples of a series in order. Reading past the samples written
+   * is not checked.
+   */
+  static class Cursor {
+    private final long[] words;
+    private long         bits;
+    private int          count;
+    private int          previous;
+    private int          leading;
+    private int          trailing;
+
+    /**
+     * Constructor.
+     * @param words Words of a series, see toWords.
+     */
+    Cursor(long[] words) {
+      this.words = words;
+    }
+
+    /**
+     * Read the next sample.
+     * @return Sample.
+     */
+    float next() {
+      if (count++ == 0) {
+        previous = read(Integer.SIZE);
+        return Float.intBitsToFloat(previous);
+      }
+
+      if (read(1) == 0) return Float.intBitsToFloat(previous);
+      if (read(1) == 1) {
+        leading  = read(WINDOW_BITS);
+        trailing = Integer.SIZE - leading - read(WINDOW_BITS) - 1;
+      }
+
+      int xor  = read(Integer.SIZE - leading - trailing) << trailing;
+      previous ^= xor;
+      return Float.intBitsToFloat(previous);
+    }
+
+    /**
+     * Skip samples.
+     * @param count Count of samples to skip.
+     */
+    void skip(int count) {
+      for (int i = 0; i < count; ++i) next();
+    }
+
+    /**
+     * Internal, read bits.
+     * @param length Count of bits, at most 32.
+     * @return The bits as the lowest bits of the result.
+     */
+    private int read(int length) {
+      int  word  = (int)(bits / Long.SIZE);
+      int  free  = Long.SIZE - (int)(bits % Long.SIZE);
+      long field;
+      if (length <= free) {
+        field = words[word] >>> (free - length);
+      } else {
+        field = (words[word] << (length - free))
+                | (words[word + 1] >>> (Long.SIZE - (length - free)));
+      }
+      bits += length;
+      return (int)(field & (-1L >>> (Long.SIZE - length)));
+    }
+  }
+}
@@ -0,0 +1,283 @@
+package simulation.environment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import simulation.goods.StockBase;
+import simulation.player.PlayerState;
+
+/**
+ * Write-ahead journal of epoch results for Autosave. The simulation thread
+ * appends fixed size records to a buffer under a short lock, a commit thread
+ * writes the filled buffers and forces them to disk in groups, so a crash
+ * loses at most the epochs since the last group commit. The journal is split
+ * into segments, each following the snapshot it was started with. Epochs are
+ * deterministic, so replay advances the snapshot again and checks every
+ * result against its record.
+ */
+class Journal implements Closeable {
+  static final int MAGIC   = 0x4e_4a_4d_53; // "SMJN" little endian
+  static final int VERSION = 1;
+
+  static final int HEADER_SIZE = 4 + 4 + 4;
+
+  // record layout: count before and after, flags, storage, position, CRC-32
+  static final int RECORD_SIZE =
+    4 + 4 + 1 + StockBase.BYTES + 4 + 4 + 4;
+
+  private static final byte FINISHED = 1;
+  private static final byte ATTACKED = 2;
+  private static final byte DEAD     = 4;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final Object            lock;
+  private final ArrayDeque<Batch> sealed;
+  private final List<ByteBuffer>  free;
+  private final CRC32             crc;
+  private ByteBuffer              current;
+  private FileChannel             channel;
+
+  /**
+   * Constructor, creates or truncates the first segment.
+   * @param segment File of the segment.
+   * @param baseChecksum Checksum of the snapshot the segment follows.
+   * @throws IOException When the file can not be opened.
+   */
+  Journal(Path segment, int baseChecksum) throws IOException {
+    lock    = new Object();
+    sealed  = new ArrayDeque<>();
+    free    = new ArrayList<>();
+    crc     = new CRC32();
+    channel = open(segment);
+    current = take().putInt(MAGIC).putInt(VERSION).putInt(baseChecksum);
+  }
+
+  /**
+   * Append the result of an epoch, does not block on the disk.
+   * @param epochs Simulation after the epoch.
+   * @param start Count of epochs before the epoch.
+   */
+  void append(Epochs epochs, int start) {
+    PlayerState playerState = epochs.getPlayerState();
+    Position    position    = playerState.getCurrentPosition();
+    int         flags       = (epochs.isSimulationFinished() ? FINISHED : 0)
+                              | (playerState.isAttacked() ? ATTACKED : 0)
+                              | (playerState.isDead() ? DEAD : 0);
+
+    synchronized (lock) {
+      if (current.remaining() < RECORD_SIZE) {
+        sealed.add(new Batch(current, channel, false));
+        current = take();
+      }
+
+      int from = current.position();
+      current.putInt(start).putInt(epochs.getCount()).put((byte)flags);
+      epochs.getPlayerStorage().writeTo(current);
+      current.putFloat(position.getX()).putFloat(position.getY());
+      current.putInt(checksum(crc, current, from));
+    }
+  }
+
+  /**
+   * Continue in a new segment, the records so far stay in the old one, which
+   * is closed by the next commit.
+   * @param segment File of the new segment.
+   * @param baseChecksum Checksum of the snapshot the new segment follows.
+   * @throws IOException When the file can not be opened.
+   */
+  void startSegment(Path segment, int baseChecksum) throws IOException {
+    FileChannel next = open(segment);
+
+    synchronized (lock) {
+      sealed.add(new Batch(current, channel, true));
+      channel = next;
+      current = take().putInt(MAGIC).putInt(VERSION).putInt(baseChecksum);
+    }
+  }
+
+  /**
+   * Group commit: write every appended record and force it to disk. Called by
+   * one thread at a time.
+   * @throws IOException When writing fails.
+   */
+  synchronized void commit() throws IOException {
+    List<Batch> batches;
+    synchronized (lock) {
+      if (current.position() > 0) {
+        sealed.add(new Batch(current, channel, false));
+        current = take();
+      }
+      batches = new ArrayList<>(sealed);
+      sealed.clear();
+    }
+
+    Set<FileChannel> written = new LinkedHashSet<>();
+    for (Batch batch : batches) {
+      ByteBuffer buffer = batch.buffer().flip();
+      while (buffer.hasRemaining()) batch.channel().write(buffer);
+      written.add(batch.channel());
+
+      if (batch.last()) {
+        batch.channel().force(false);
+        batch.channel().close();
+        written.remove(batch.channel());
+      }
+    }
+    for (FileChannel forced : written) forced.force(false);
+
+    synchronized (lock) {
+      for (Batch batch : batches) free.add(batch.buffer().clear());
+    }
+  }
+
+  /**
+   * Commit the remaining records and close the segment.
+   * @throws IOException When writing fails.
+   */
+  @Override
+  public void close() throws IOException {
+    commit();
+    synchronized (lock) {
+      channel.close();
+    }
+  }
+
+  /**
+   * Advance a simulation by the records of a segment, checking every result.
+   * Stops at a torn record, or at one that does not continue the simulation.
+   * @param epochs Simulation at the snapshot the segment follows.
+   * @param segment File of the segment.
+   * @param baseChecksum Checksum of that snapshot.
+   * @return Count of records replayed.
+   * @throws IOException When the file can not be read, follows another
+   *   snapshot, or a result differs from its record.
+   */
+  static int replay(Epochs epochs, Path segment, int baseChecksum)
+    throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel segmentChannel =
+           FileChannel.open(segment, StandardOpenOption.READ)) {
+      buffer = segmentChannel
+        .map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size())
+        .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    if (buffer.remaining() < HEADER_SIZE
+        || buffer.getInt() != MAGIC
+        || buffer.getInt() != VERSION) {
+      throw new IOException("Not a journal.");
+    }
+    if (buffer.getInt() != baseChecksum) {
+      throw new IOException("Journal follows another snapshot.");
+    }
+
+    CRC32   crc      = new CRC32();
+    float[] storage  = new float[StockBase.BYTES / Float.BYTES];
+    int     replayed = 0;
+
+    while (buffer.remaining() >= RECORD_SIZE) {
+      int from = buffer.position();
+      buffer.position(from + RECORD_SIZE - Integer.BYTES);
+      if (buffer.getInt() != checksum(crc, buffer, from)) break;
+
+      buffer.position(from);
+      int  start = buffer.getInt();
+      int  count = buffer.getInt();
+      byte flags = buffer.get();
+      if (start != epochs.getCount() || epochs.isSimulationFinished()) break;
+
+      epochs.advance();
+      epochs.getPlayerStorage().writeTo(storage, 0);
+
+      PlayerState playerState = epochs.getPlayerState();
+      Position    position    = playerState.getCurrentPosition();
+      boolean     same        =
+        count == epochs.getCount()
+        && ((flags & FINISHED) != 0) == epochs.isSimulationFinished()
+        && ((flags & ATTACKED) != 0) == playerState.isAttacked()
+        && ((flags & DEAD) != 0) == playerState.isDead();
+      for (float value : storage) same &= sameBits(value, buffer.getFloat());
+      same &= sameBits(position.getX(), buffer.getFloat());
+      same &= sameBits(position.getY(), buffer.getFloat());
+      if (!same) {
+        throw new IOException(
+          "Journal does not match the simulation at epoch " + start + ".");
+      }
+
+      buffer.getInt();
+      ++replayed;
+    }
+
+    return replayed;
+  }
+
+  /**
+   * Internal, CRC-32 of a record up to its checksum.
+   * @param crc Reused checksum.
+   * @param buffer Holds the record, its position is kept.
+   * @param from Position of the record.
+   * @return Checksum.
+   */
+  private static int checksum(CRC32 crc, ByteBuffer buffer, int from) {
+    ByteBuffer record = buffer.duplicate();
+    record.position(from).limit(from + RECORD_SIZE - Integer.BYTES);
+
+    crc.reset();
+    crc.update(record);
+    return (int)crc.getValue();
+  }
+
+  /**
+   * Internal, an empty buffer, reused when a commit returned one.
+   * @return Little endian buffer.
+   */
+  private ByteBuffer take() {
+    if (!free.isEmpty()) return free.remove(free.size() - 1);
+
+    return ByteBuffer.allocateDirect(BUFFER_SIZE)
+      .order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  /**
+   * Internal, create or truncate a segment.
+   * @param segment File of the segment.
+   * @return Channel open for writing.
+   * @throws IOException When the file can not be opened.
+   */
+  private static FileChannel open(Path segment) throws IOException {
+    return FileChannel.open(
+      segment,
+      StandardOpenOption.CREATE,
+      StandardOpenOption.TRUNCATE_EXISTING,
+      StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Internal, compare floats by their bits.
+   * @param a First value.
+   * @param b Second value.
+   * @return true if equal bit for bit.
+   */
+  private static boolean sameBits(float a, float b) {
+    return Float.floatToRawIntBits(a) == Float.floatToRawIntBits(b);
+  }
+
+  /**
+   * Records waiting for a commit, and the segment they belong to.
+   * @param buffer Records, not flipped yet.
+   * @param channel Segment to write them to.
+   * @param last Whether the segment is closed after them.
+   */
+  private record Batch(ByteBuffer buffer, FileChannel channel, boolean last) {}
+}
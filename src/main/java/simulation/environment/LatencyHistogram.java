@@ -0,0 +1,101 @@
+package simulation.environment;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies in nanoseconds with log-linear buckets: values below
+ * 64 have a bucket each, every next power of two is split into 32 buckets. A
+ * percentile is off by at most 1/32 of its value, recording is a few shifts
+ * and an increment, and the buckets of any latency fit in 15 kB.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS         =
+    (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final long[] counts = new long[BUCKETS];
+  private long         count;
+  private long         max;
+
+  /**
+   * Record a latency.
+   * @param nanos Latency, negative ones are recorded as 0.
+   */
+  public void record(long nanos) {
+    long value = Math.max(0L, nanos);
+    ++counts[bucketOf(value)];
+    ++count;
+    if (value > max) max = value;
+  }
+
+  /**
+   * Count of latencies recorded.
+   * @return Count.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Largest latency recorded.
+   * @return Latency in nanoseconds, 0 when empty.
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * Latency that the percentage of the recorded ones does not exceed, the
+   * highest value of its bucket.
+   * @param percentile Percentage between 0 and 100.
+   * @return Latency in nanoseconds, 0 when empty.
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (count == 0) return 0L;
+
+    long rank = Math.max(1L, (long)Math.ceil(percentile / 100.0 * count));
+    long seen = 0;
+    for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+      seen += counts[bucket];
+      if (seen >= rank) return Math.min(highestOf(bucket), max);
+    }
+
+    return max;
+  }
+
+  /**
+   * Forget every latency recorded.
+   */
+  public void clear() {
+    Arrays.fill(counts, 0L);
+    count = 0;
+    max   = 0;
+  }
+
+  /**
+   * Internal, bucket of a latency.
+   * @param value Latency, not negative.
+   * @return Index of the bucket.
+   */
+  private static int bucketOf(long value) {
+    if (value < 2 * SUB_BUCKETS) return (int)value;
+
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value)
+                - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int)(value >>> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Internal, highest latency of a bucket.
+   * @param bucket Index of the bucket.
+   * @return Latency in nanoseconds.
+   */
+  private static long highestOf(int bucket) {
+    if (bucket < 2 * SUB_BUCKETS) return bucket;
+
+    int shift = bucket / SUB_BUCKETS - 1;
+    return ((long)(bucket % SUB_BUCKETS + SUB_BUCKETS) << shift)
+           + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,252 @@
+package simulation.environment;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import simulation.goods.ProductType;
+import simulation.vilages.Village;
+
+/**
+ * Villages of a snapshot, materialized on first access. The records stay in
+ * the mapped shards of the file; get reads the village of a row from its
+ * record the first time the row is touched and returns the same village
+ * afterwards, also when threads race for it. Rows never touched hold what the
+ * snapshot holds, so saves copy their records and the indexes are filled
+ * from them without materializing anything.
+ */
+class LazyVillages extends AbstractList<Village> implements RandomAccess {
+  private final Epochs                                              epochs;
+  private final ByteBuffer[]                                        shards;
+  private final int                                                 size;
+  private final AtomicReferenceArray<AtomicReferenceArray<Village>> loaded;
+
+  /**
+   * Constructor, nothing is materialized.
+   * @param epochs Simulation owning the villages.
+   * @param shards Records of Snapshot.VILLAGES_PER_SHARD rows each, the last
+   *   one shorter, not changed afterwards.
+   * @param size Count of rows.
+   */
+  LazyVillages(Epochs epochs, ByteBuffer[] shards, int size) {
+    this.epochs = epochs;
+    this.shards = shards;
+    this.size   = size;
+    this.loaded = new AtomicReferenceArray<>(shards.length);
+  }
+
+  /**
+   * Internal, copy constructor, the copy shares the records and the villages
+   * materialized so far.
+   * @param other Villages to copy.
+   */
+  private LazyVillages(LazyVillages other) {
+    this(other.epochs, other.shards, other.size);
+
+    for (int shard = 0; shard < shards.length; ++shard) {
+      AtomicReferenceArray<Village> villages = other.loaded.get(shard);
+      if (villages == null) continue;
+
+      AtomicReferenceArray<Village> copy =
+        new AtomicReferenceArray<>(villages.length());
+      for (int i = 0; i < villages.length(); ++i) copy.set(i, villages.get(i));
+      loaded.set(shard, copy);
+    }
+  }
+
+  /**
+   * Village of a row, materialized from its record on first access. The
+   * village is clean, it holds what the snapshot holds.
+   * @param row Row of the village.
+   * @return Village.
+   * @throws IndexOutOfBoundsException When the row is not on the list.
+   */
+  @Override
+  public Village get(int row) {
+    Village village = peek(row);
+    if (village != null) return village;
+
+    village = new Village(epochs, record(row));
+    village.markClean();
+
+    // another thread may have materialized the row meanwhile
+    Village other = shard(row)
+      .compareAndExchange(row % Snapshot.VILLAGES_PER_SHARD, null, village);
+    return other != null ? other : village;
+  }
+
+  /**
+   * Replace the village of a row.
+   * @param row Row of the village.
+   * @param village New village.
+   * @return Village replaced, null when the row was never materialized.
+   * @throws IndexOutOfBoundsException When the row is not on the list.
+   */
+  @Override
+  public Village set(int row, Village village) {
+    return shard(row).getAndSet(row % Snapshot.VILLAGES_PER_SHARD, village);
+  }
+
+  /**
+   * Count of rows, materialized or not.
+   * @return Size.
+   */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * First row of a village, looked up among the materialized ones only, a
+   * village can not be on a row never touched.
+   * @param object Village to find.
+   * @return Row or -1.
+   */
+  @Override
+  public int indexOf(Object object) {
+    for (int shard = 0; shard < shards.length; ++shard) {
+      AtomicReferenceArray<Village> villages = loaded.get(shard);
+      if (villages == null) continue;
+
+      for (int i = 0; i < villages.length(); ++i) {
+        Village village = villages.get(i);
+        if (village != null && village.equals(object)) {
+          return shard * Snapshot.VILLAGES_PER_SHARD + i;
+        }
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * Whether a village is on the list, see indexOf.
+   * @param object Village to find.
+   * @return true if it is.
+   */
+  @Override
+  public boolean contains(Object object) {
+    return indexOf(object) >= 0;
+  }
+
+  /**
+   * Village of a row if it was materialized.
+   * @param row Row of the village.
+   * @return Village or null.
+   * @throws IndexOutOfBoundsException When the row is not on the list.
+   */
+  Village peek(int row) {
+    checkRow(row);
+
+    AtomicReferenceArray<Village> villages =
+      loaded.get(row / Snapshot.VILLAGES_PER_SHARD);
+    return villages != null
+           ? villages.get(row % Snapshot.VILLAGES_PER_SHARD)
+           : null;
+  }
+
+  /**
+   * Copy the list, see the copy constructor.
+   * @return New list.
+   */
+  LazyVillages copy() {
+    return new LazyVillages(this);
+  }
+
+  /**
+   * Write a row like Village.writeSnapshot, the record is copied as it is
+   * when the row was never materialized.
+   * @param row Row of the village.
+   * @param buffer Receives SNAPSHOT_BYTES bytes.
+   * @throws IndexOutOfBoundsException When the row is not on the list.
+   */
+  void writeSnapshot(int row, ByteBuffer buffer) {
+    Village village = peek(row);
+    if (village != null) {
+      village.writeSnapshot(buffer);
+    } else {
+      buffer.put(record(row));
+    }
+  }
+
+  /**
+   * Money of a row, read from its record when it was never materialized.
+   * @param row Row of the village.
+   * @return Money in the vault.
+   * @throws IndexOutOfBoundsException When the row is not on the list.
+   */
+  float getMoney(int row) {
+    Village village = peek(row);
+    if (village != null) return village.getMoney();
+
+    // the money follows the position and the stock
+    return shards[row / Snapshot.VILLAGES_PER_SHARD].getFloat(
+      row % Snapshot.VILLAGES_PER_SHARD * Village.SNAPSHOT_BYTES
+      + (2 + ProductType.COUNT) * Float.BYTES);
+  }
+
+  /**
+   * Overwrite the columns by the rows, from the records of rows never
+   * materialized.
+   * @param columns Columns sized for the rows.
+   */
+  void copyTo(VillageColumns columns) {
+    for (int row = 0; row < size; ++row) {
+      Village village = peek(row);
+      if (village != null) {
+        columns.set(row, village);
+      } else {
+        columns.set(
+          row,
+          shards[row / Snapshot.VILLAGES_PER_SHARD],
+          row % Snapshot.VILLAGES_PER_SHARD * Village.SNAPSHOT_BYTES);
+      }
+    }
+  }
+
+  /**
+   * Internal, villages materialized in the shard of a row, allocated on
+   * first access.
+   * @param row Row of the village.
+   * @return Villages of the shard by row in the shard.
+   * @throws IndexOutOfBoundsException When the row is not on the list.
+   */
+  private AtomicReferenceArray<Village> shard(int row) {
+    checkRow(row);
+
+    int                           shard    = row / Snapshot.VILLAGES_PER_SHARD;
+    AtomicReferenceArray<Village> villages = loaded.get(shard);
+    if (villages != null) return villages;
+
+    villages = new AtomicReferenceArray<>(
+      shards[shard].capacity() / Village.SNAPSHOT_BYTES);
+    AtomicReferenceArray<Village> other =
+      loaded.compareAndExchange(shard, null, villages);
+    return other != null ? other : villages;
+  }
+
+  /**
+   * Internal, check a row.
+   * @param row Row of a village.
+   * @throws IndexOutOfBoundsException When the row is not on the list.
+   */
+  private void checkRow(int row) {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " of " + size + ".");
+    }
+  }
+
+  /**
+   * Internal, record of a row.
+   * @param row Row of the village.
+   * @return Little endian buffer over SNAPSHOT_BYTES bytes.
+   */
+  private ByteBuffer record(int row) {
+    return shards[row / Snapshot.VILLAGES_PER_SHARD]
+      .slice(
+        row % Snapshot.VILLAGES_PER_SHARD * Village.SNAPSHOT_BYTES,
+        Village.SNAPSHOT_BYTES)
+      .order(ByteOrder.LITTLE_ENDIAN);
+  }
+}
@@ -0,0 +1,113 @@
+package simulation.environment;
+
+import simulation.goods.ProductType;
+
+/**
+ * Metrics recorded by MetricHistory after every epoch.
+ */
+public enum Metric {
+  /**
+   * Money of the merchant.
+   */
+  MONEY(null),
+  /**
+   * Spice carried by the merchant.
+   */
+  SPICE(ProductType.SPICE),
+  /**
+   * Gems carried by the merchant.
+   */
+  GEM(ProductType.GEM),
+  /**
+   * Soap carried by the merchant.
+   */
+  SOAP(ProductType.SOAP),
+  /**
+   * Food carried by the merchant.
+   */
+  FOOD(ProductType.FOOD),
+  /**
+   * X coordinate of the merchant.
+   */
+  X(null),
+  /**
+   * Y coordinate of the merchant.
+   */
+  Y(null),
+  /**
+   * Money of every village on the map together.
+   */
+  VAULTS(null);
+
+  private static final Metric[] VALUES = values();
+
+  /**
+   * Count of metrics, the size of ordinal-indexed arrays.
+   */
+  public static final int COUNT = VALUES.length;
+
+  private final ProductType productType;
+
+  /**
+   * Internal, constructor.
+   * @param productType Product of a stock metric or null.
+   */
+  Metric(ProductType productType) {
+    this.productType = productType;
+  }
+
+  /**
+   * Product whose stock the metric is.
+   * @return Product type or null for other metrics.
+   */
+  public ProductType getProductType() {
+    return productType;
+  }
+
+  /**
+   * Get a metric by ordinal without cloning values().
+   * @param ordinal Ordinal of the metric.
+   * @return Metric with the ordinal.
+   */
+  public static Metric byOrdinal(int ordinal) {
+    return VALUES[ordinal];
+  }
+
+  /**
+   * Get a metric by code.
+   * @param code m (money), s (spice), g (gem), o (soap), f (food), x, y or
+   *   v (vaults).
+   * @return Metric of the code or null.
+   */
+  public static Metric byCode(String code) {
+    switch (code) {
+      case "m" -> {
+        return MONEY;
+      }
+      case "s" -> {
+        return SPICE;
+      }
+      case "g" -> {
+        return GEM;
+      }
+      case "o" -> {
+        return SOAP;
+      }
+      case "f" -> {
+        return FOOD;
+      }
+      case "x" -> {
+        return X;
+      }
+      case "y" -> {
+        return Y;
+      }
+      case "v" -> {
+        return VAULTS;
+      }
+      default -> {
+        return null;
+      }
+    }
+  }
+}
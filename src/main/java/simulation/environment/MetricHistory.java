@@ -0,0 +1,602 @@
+package simulation.environment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import simulation.goods.ProductType;
+import simulation.goods.TransactionType;
+import simulation.player.PlayerStorage;
+import simulation.vilages.Village;
+
+/**
+ * Every Metric of a whole run, one sample per epoch, each metric compressed
+ * as a FloatSeries. Samples are kept in blocks of BLOCK_EPOCHS epochs; a full
+ * block is sealed, and sealed blocks beyond a count of resident ones spill
+ * to a file, so a run of millions of epochs keeps a few blocks on the heap.
+ * Epochs are implicit, the samples of a block follow each other. Ranges are
+ * decoded block by block, a spilled block reads the series of its metric
+ * only. Samples of noisy metrics change most of their mantissa every epoch,
+ * so they can be rounded to fewer mantissa bits before compression, which
+ * shortens their XORs. The vaults are summed when the map was regenerated or
+ * replaced, and otherwise follow the trades of the merchant. After a rewind
+ * the samples of the abandoned epochs are forgotten.
+ */
+public class MetricHistory implements EpochListener, Closeable {
+  /**
+   * Count of epochs in a block.
+   */
+  public static final int BLOCK_EPOCHS = 1024;
+  /**
+   * Count of sealed blocks kept on the heap by default.
+   */
+  public static final int DEFAULT_RESIDENT_BLOCKS = 16;
+  /**
+   * Mantissa bits of a float, samples kept as they are.
+   */
+  public static final int LOSSLESS = 23;
+
+  private final Epochs      epochs;
+  private final Path        spillPath;
+  private final boolean     temporary;
+  private final int         residentBlocks;
+  private final int         mantissaMask;
+  private final int         roundingBit;
+  private final List<Block> sealed;
+  private final float[]     samples;
+  private FloatSeries[]     open;
+  private Path              temporaryPath;
+  private FileChannel       spill;
+  private long              spillSize;
+  private int               spilledBlocks;
+  private int               firstEpoch;
+  private int               size;
+  private int               started;
+  private double            vaults;
+  private boolean           vaultsStale;
+  private List<Village>     summedVillages;
+
+  /**
+   * Constructor, starts recording the simulation losslessly. Blocks spill to
+   * a temporary file deleted by close, DEFAULT_RESIDENT_BLOCKS stay on the
+   * heap.
+   * @param epochs Simulation to record.
+   */
+  public MetricHistory(Epochs epochs) {
+    this(epochs, null, DEFAULT_RESIDENT_BLOCKS, LOSSLESS);
+  }
+
+  /**
+   * Constructor, starts recording the simulation.
+   * @param epochs Simulation to record.
+   * @param spillPath File sealed blocks spill to, replaced when the first
+   *   one does, null for a temporary file deleted by close.
+   * @param residentBlocks Count of sealed blocks kept on the heap.
+   * @param mantissaBits Mantissa bits samples are rounded to, from 1 to
+   *   LOSSLESS; the relative error is at most 2 to the power of -bits.
+   * @throws IllegalArgumentException When the count is negative or the bits
+   *   out of range.
+   */
+  public MetricHistory(
+    Epochs epochs, Path spillPath, int residentBlocks, int mantissaBits) {
+    if (residentBlocks < 0) {
+      throw new IllegalArgumentException(
+        "Resident blocks must not be negative.");
+    }
+    if (mantissaBits < 1 || mantissaBits > LOSSLESS) {
+      throw new IllegalArgumentException(
+        "Mantissa bits must be from 1 to " + LOSSLESS + ".");
+    }
+
+    this.epochs         = epochs;
+    this.spillPath      = spillPath;
+    this.temporary      = spillPath == null;
+    this.residentBlocks = residentBlocks;
+    this.mantissaMask   = -1 << (LOSSLESS - mantissaBits);
+    this.roundingBit    = mantissaBits < LOSSLESS
+                          ? 1 << (LOSSLESS - mantissaBits - 1)
+                          : 0;
+    this.sealed         = new ArrayList<>();
+    this.samples        = new float[Metric.COUNT];
+
+    clear(epochs.getCount());
+    epochs.addListener(this);
+  }
+
+  /**
+   * Epoch of the first sample.
+   * @return First epoch recorded.
+   */
+  public int getFirstEpoch() {
+    return firstEpoch;
+  }
+
+  /**
+   * Epoch after the last sample.
+   * @return End of the recorded epochs, exclusive.
+   */
+  public int getEndEpoch() {
+    return firstEpoch + size;
+  }
+
+  /**
+   * Count of samples of every metric.
+   * @return Recorded epochs.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Size of the compressed samples, on the heap and spilled.
+   * @return Bytes.
+   */
+  public long getCompressedBytes() {
+    long bytes = spillSize;
+    for (Block block : sealed) {
+      if (block.words() == null) continue;
+      for (long[] words : block.words()) {
+        bytes += (long)words.length * Long.BYTES;
+      }
+    }
+    for (FloatSeries series : open) bytes += series.getBytes();
+    return bytes;
+  }
+
+  /**
+   * Size of the sealed blocks spilled to the file.
+   * @return Bytes of the file.
+   */
+  public long getSpilledBytes() {
+    return spillSize;
+  }
+
+  /**
+   * Samples of a metric, as they were after each epoch, rounded to the kept
+   * mantissa bits.
+   * @param metric Metric.
+   * @param from First epoch.
+   * @param to Epoch after the last.
+   * @return A sample per epoch.
+   * @throws IllegalArgumentException When the epochs were not recorded.
+   * @throws UncheckedIOException When a spilled block can not be read.
+   */
+  public float[] range(Metric metric, int from, int to) {
+    float[] range = new float[checkRange(from, to)];
+    scan(metric, from, to, (epoch, value) -> range[epoch - from] = value);
+    return range;
+  }
+
+  /**
+   * Downsample a metric to buckets of consecutive epochs, for charts. The
+   * epochs are split as evenly as possible, a bucket without epochs gets
+   * NaN.
+   * @param metric Metric.
+   * @param from First epoch.
+   * @param to Epoch after the last.
+   * @param min Receives the smallest sample of each bucket.
+   * @param mean Receives the mean of each bucket.
+   * @param max Receives the largest sample of each bucket, all three of the
+   *   length of the count of buckets.
+   * @throws IllegalArgumentException When the epochs were not recorded or
+   *   the arrays differ in length.
+   * @throws UncheckedIOException When a spilled block can not be read.
+   */
+  public void downsample(
+    Metric metric, int from, int to, float[] min, float[] mean, float[] max) {
+    int      epochCount = checkRange(from, to);
+    int      buckets    = mean.length;
+    int[]    counts     = new int[buckets];
+    double[] sums       = new double[buckets];
+    if (min.length != buckets || max.length != buckets) {
+      throw new IllegalArgumentException("Buckets differ in length.");
+    }
+
+    Arrays.fill(min, Float.NaN);
+    Arrays.fill(max, Float.NaN);
+    scan(metric, from, to, (epoch, value) -> {
+      int bucket = (int)((long)(epoch - from) * buckets / epochCount);
+      if (counts[bucket]++ == 0 || value < min[bucket]) min[bucket] = value;
+      if (counts[bucket] == 1 || value > max[bucket]) max[bucket] = value;
+      sums[bucket] += value;
+    });
+    for (int b = 0; b < buckets; ++b) {
+      mean[b] = counts[b] > 0 ? (float)(sums[b] / counts[b]) : Float.NaN;
+    }
+  }
+
+  /**
+   * Stop recording and close the spill file, a temporary one is deleted.
+   * @throws IOException When closing fails.
+   */
+  @Override
+  public void close() throws IOException {
+    epochs.removeListener(this);
+    if (spill == null) return;
+
+    spill.close();
+    spill = null;
+    if (temporary) Files.deleteIfExists(temporaryPath);
+  }
+
+  /**
+   * Start recording an epoch, forgetting any the simulation was moved back
+   * over.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void epochStarted(Epochs epochs) {
+    int count = epochs.getCount();
+    if (count != getEndEpoch()) forgetFrom(count);
+    started = count;
+  }
+
+  /**
+   * Forget the epochs the rewind undid.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void rewound(Epochs epochs) {
+    int count = epochs.getCount();
+    if (count != getEndEpoch()) forgetFrom(count);
+  }
+
+  /**
+   * Sum the vaults again after the regeneration.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void mapRegenerating(Epochs epochs) {
+    vaultsStale = true;
+  }
+
+  /**
+   * Follow the vault of the village traded with.
+   * @param epochs Simulation.
+   * @param transactionType Type of the transaction, from the merchant's view.
+   * @param productType Traded product.
+   * @param weight Traded weight.
+   * @param value Money changing hands.
+   */
+  @Override
+  public void traded(
+    Epochs          epochs,
+    TransactionType transactionType,
+    ProductType     productType,
+    float           weight,
+    float           value) {
+    vaults += transactionType == TransactionType.BUY ? value : -value;
+  }
+
+  /**
+   * Record every metric after the epoch.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void epochFinished(Epochs epochs) {
+    if (started != getEndEpoch()) return;
+
+    PlayerStorage playerStorage = epochs.getPlayerStorage();
+    Position      position      =
+      epochs.getPlayerState().getCurrentPosition();
+
+    for (int m = 0; m < Metric.COUNT; ++m) {
+      ProductType productType = Metric.byOrdinal(m).getProductType();
+      if (productType != null) {
+        samples[m] = playerStorage.getWeight(productType);
+      }
+    }
+    samples[Metric.MONEY.ordinal()]  = playerStorage.getMoney();
+    samples[Metric.X.ordinal()]      = position.getX();
+    samples[Metric.Y.ordinal()]      = position.getY();
+    samples[Metric.VAULTS.ordinal()] = (float)sumVaults(epochs);
+
+    for (int m = 0; m < Metric.COUNT; ++m) open[m].append(round(samples[m]));
+    if (++size % BLOCK_EPOCHS == 0) seal();
+  }
+
+  /**
+   * Internal, round a sample to the kept mantissa bits, to nearest.
+   * @param value Sample.
+   * @return Rounded sample, infinities and NaN as they are.
+   */
+  private float round(float value) {
+    if (roundingBit == 0 || !Float.isFinite(value)) return value;
+
+    int bits = Float.floatToRawIntBits(value);
+    return Float.intBitsToFloat((bits + roundingBit) & mantissaMask);
+  }
+
+  /**
+   * Internal, the vaults, summed again when the map was regenerated or its
+   * villages replaced, or when other merchants share it.
+   * @param epochs Simulation.
+   * @return Money of every village together.
+   */
+  private double sumVaults(Epochs epochs) {
+    VillageMap map = epochs.getVillageMap();
+    if (vaultsStale || epochs.isMapShared()
+        || map.getVillages() != summedVillages) {
+      vaults         = map.getTotalMoney();
+      vaultsStale    = false;
+      summedVillages = map.getVillages();
+    }
+    return vaults;
+  }
+
+  /**
+   * Internal, forget everything and start recording at an epoch.
+   * @param epoch First epoch to record.
+   */
+  private void clear(int epoch) {
+    truncateSpill(0);
+    sealed.clear();
+    open          = newSeries();
+    spilledBlocks = 0;
+    firstEpoch    = epoch;
+    size          = 0;
+    started       = -1;
+    vaultsStale   = true;
+  }
+
+  /**
+   * Internal, forget the samples from an epoch on, or everything when the
+   * epoch is not in the history.
+   * @param epoch First epoch to forget.
+   */
+  private void forgetFrom(int epoch) {
+    if (epoch >= firstEpoch && epoch < getEndEpoch()) {
+      truncate(epoch - firstEpoch);
+    } else {
+      clear(epoch);
+    }
+    vaultsStale = true;
+  }
+
+  /**
+   * Internal, forget the samples after a count of them. The block holding
+   * the last one kept is opened again.
+   * @param count Count of samples kept.
+   */
+  private void truncate(int count) {
+    int block  = count / BLOCK_EPOCHS;
+    int within = count % BLOCK_EPOCHS;
+
+    FloatSeries[] reopened = new FloatSeries[Metric.COUNT];
+    for (int m = 0; m < Metric.COUNT; ++m) {
+      reopened[m] = block < sealed.size()
+                    ? FloatSeries.prefix(cursor(block, m), within)
+                    : open[m].prefix(within);
+    }
+
+    // spilled blocks are the oldest, the file ends with the first one kept
+    if (block < spilledBlocks) {
+      truncateSpill(sealed.get(block).offset());
+      spilledBlocks = block;
+    }
+    while (sealed.size() > block) sealed.remove(sealed.size() - 1);
+
+    open = reopened;
+    size = count;
+  }
+
+  /**
+   * Internal, seal the open block and spill the oldest resident one when
+   * there are too many.
+   */
+  private void seal() {
+    long[][] words = new long[Metric.COUNT][];
+    for (int m = 0; m < Metric.COUNT; ++m) words[m] = open[m].toWords();
+    sealed.add(new Block(words, -1));
+    open = newSeries();
+
+    if (sealed.size() - spilledBlocks > residentBlocks) {
+      try {
+        spill(spilledBlocks);
+      } catch (IOException err) {
+        // the block stays on the heap, spilling is tried again next time
+        return;
+      }
+      ++spilledBlocks;
+    }
+  }
+
+  /**
+   * Internal, write a sealed block to the end of the spill file: the count
+   * of words of each metric, then the words metric by metric.
+   * @param block Index of the block.
+   * @throws IOException When writing fails.
+   */
+  private void spill(int block) throws IOException {
+    long[][] words = sealed.get(block).words();
+    int      bytes = Metric.COUNT * Integer.BYTES;
+    for (long[] series : words) bytes += series.length * Long.BYTES;
+
+    ByteBuffer buffer =
+      ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    for (long[] series : words) buffer.putInt(series.length);
+    for (long[] series : words) {
+      for (long word : series) buffer.putLong(word);
+    }
+    buffer.flip();
+
+    FileChannel channel = getSpill();
+    long        offset  = spillSize;
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, offset + buffer.position());
+    }
+
+    sealed.set(block, new Block(null, offset));
+    spillSize += bytes;
+  }
+
+  /**
+   * Internal, cursor over the series of a metric in a sealed block, a
+   * spilled one is read from the file.
+   * @param block Index of the block.
+   * @param metric Ordinal of the metric.
+   * @return Cursor at the first sample of the block.
+   * @throws UncheckedIOException When the spilled block can not be read.
+   */
+  private FloatSeries.Cursor cursor(int block, int metric) {
+    Block sealedBlock = sealed.get(block);
+    if (sealedBlock.words() != null) {
+      return new FloatSeries.Cursor(sealedBlock.words()[metric]);
+    }
+
+    try {
+      ByteBuffer lengths = read(
+        sealedBlock.offset(), Metric.COUNT * Integer.BYTES);
+      long offset = sealedBlock.offset() + Metric.COUNT * Integer.BYTES;
+      for (int m = 0; m < metric; ++m) {
+        offset += (long)lengths.getInt() * Long.BYTES;
+      }
+
+      long[]     words  = new long[lengths.getInt()];
+      ByteBuffer buffer = read(offset, words.length * Long.BYTES);
+      buffer.asLongBuffer().get(words);
+      return new FloatSeries.Cursor(words);
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Internal, visit the samples of a metric in order of epochs.
+   * @param metric Metric.
+   * @param from First epoch, recorded.
+   * @param to Epoch after the last, recorded.
+   * @param visitor Called for every sample.
+   */
+  private void scan(Metric metric, int from, int to, SampleVisitor visitor) {
+    int m = metric.ordinal();
+    for (int index = from - firstEpoch; index < to - firstEpoch; ) {
+      int block = index / BLOCK_EPOCHS;
+      int end   = Math.min((block + 1) * BLOCK_EPOCHS, to - firstEpoch);
+
+      FloatSeries.Cursor cursor = block < sealed.size()
+                                  ? cursor(block, m)
+                                  : new FloatSeries.Cursor(open[m].toWords());
+      cursor.skip(index - block * BLOCK_EPOCHS);
+      for (; index < end; ++index) {
+        visitor.visit(firstEpoch + index, cursor.next());
+      }
+    }
+  }
+
+  /**
+   * Internal, check a range of epochs.
+   * @param from First epoch.
+   * @param to Epoch after the last.
+   * @return Count of epochs.
+   * @throws IllegalArgumentException When the epochs were not recorded.
+   */
+  private int checkRange(int from, int to) {
+    if (from < firstEpoch || to > getEndEpoch() || from > to) {
+      throw new IllegalArgumentException(
+        "Epochs " + from + " to " + to + " were not recorded.");
+    }
+    return to - from;
+  }
+
+  /**
+   * Internal, read from the spill file.
+   * @param offset Position in the file.
+   * @param length Count of bytes.
+   * @return Little endian buffer of the bytes.
+   * @throws IOException When reading fails or the file is too short.
+   */
+  private ByteBuffer read(long offset, int length) throws IOException {
+    ByteBuffer buffer =
+      ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (spill.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException("Spilled history is truncated.");
+      }
+    }
+    return buffer.flip();
+  }
+
+  /**
+   * Internal, the spill file, created on first use.
+   * @return Channel open for reading and writing.
+   * @throws IOException When the file can not be created.
+   */
+  private FileChannel getSpill() throws IOException {
+    if (spill == null) {
+      spill = FileChannel.open(
+        getSpillPath(),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    }
+    return spill;
+  }
+
+  /**
+   * Internal, path of the spill file, a temporary one is created once.
+   * @return Path.
+   * @throws IOException When the temporary file can not be created.
+   */
+  private Path getSpillPath() throws IOException {
+    if (!temporary) return spillPath;
+    if (temporaryPath == null) {
+      temporaryPath = Files.createTempFile("history", ".bin");
+      temporaryPath.toFile().deleteOnExit();
+    }
+    return temporaryPath;
+  }
+
+  /**
+   * Internal, cut the spill file.
+   * @param size Bytes kept.
+   */
+  private void truncateSpill(long size) {
+    spillSize = size;
+    if (spill == null) return;
+    try {
+      spill.truncate(size);
+    } catch (IOException err) {
+      // later blocks overwrite what is left, reads never go past spillSize
+    }
+  }
+
+  /**
+   * Internal, an empty series for every metric.
+   * @return Series by metric ordinal.
+   */
+  private static FloatSeries[] newSeries() {
+    FloatSeries[] series = new FloatSeries[Metric.COUNT];
+    for (int m = 0; m < Metric.COUNT; ++m) series[m] = new FloatSeries();
+    return series;
+  }
+
+  /**
+   * Sealed block of BLOCK_EPOCHS samples of every metric.
+   * @param words Words of the series by metric ordinal, null when spilled.
+   * @param offset Position in the spill file, -1 when on the heap.
+   */
+  private record Block(long[][] words, long offset) {}
+
+  /**
+   * Receives the samples of a scan.
+   */
+  @FunctionalInterface
+  private interface SampleVisitor {
+    /**
+     * Visit a sample.
+     * @param epoch Epoch of the sample.
+     * @param value Sample.
+     */
+    void visit(int epoch, float value);
+  }
+}
@@ -0,0 +1,39 @@
+package simulation.environment;
+
+/**
+ * Phases of an epoch timed by EpochStats.
+ */
+public enum Phase {
+  /**
+   * Regeneration of the map, every third epoch.
+   */
+  REGENERATION,
+  /**
+   * Travel to the next village, attacks included.
+   */
+  TRAVEL,
+  /**
+   * Generation and execution of the sales.
+   */
+  SELLING,
+  /**
+   * Generation and execution of the purchases.
+   */
+  BUYING;
+
+  private static final Phase[] VALUES = values();
+
+  /**
+   * Count of phases, the size of ordinal-indexed arrays.
+   */
+  public static final int COUNT = VALUES.length;
+
+  /**
+   * Get a phase by ordinal without cloning values().
+   * @param ordinal Ordinal of the phase.
+   * @return Phase with the ordinal.
+   */
+  public static Phase byOrdinal(int ordinal) {
+    return VALUES[ordinal];
+  }
+}
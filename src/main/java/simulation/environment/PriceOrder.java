@@ -0,0 +1,206 @@
+package simulation.environment;
+
+import java.util.Arrays;
+import simulation.goods.ProductType;
+
+/**
+ * Villages ordered by price, one order per product type plus one on the price
+ * index. Each order is a sorted array of rows with its inverse, so minimum and
+ * maximum are O(1), the top k are O(k), and repricing a village is a binary
+ * search plus one array shift.
+ */
+public class PriceOrder {
+  private static final int KEYS      = VillageColumns.PRODUCTS + 1;
+  private static final int INDEX_KEY = VillageColumns.PRODUCTS;
+
+  private int       count;
+  private int[][]   orders;
+  private int[][]   ranks;
+  private float[][] values;
+  private long[]    sortBuffer;
+
+  /**
+   * Constructor, empty orders.
+   */
+  public PriceOrder() {
+    count      = 0;
+    orders     = new int[KEYS][0];
+    ranks      = new int[KEYS][0];
+    values     = new float[KEYS][0];
+    sortBuffer = new long[0];
+  }
+
+  /**
+   * Rebuild every order from the columns, O(n log n).
+   * @param columns Columns holding the villages.
+   */
+  public void build(VillageColumns columns) {
+    count = columns.getCount();
+    if (sortBuffer.length < count) {
+      orders     = new int[KEYS][count];
+      ranks      = new int[KEYS][count];
+      values     = new float[KEYS][count];
+      sortBuffer = new long[count];
+    }
+
+    for (int key = 0; key < KEYS; ++key) {
+      float[] keyValues = values[key];
+      for (int i = 0; i < count; ++i) {
+        keyValues[i]  = valueOf(columns, i, key);
+        sortBuffer[i] = (long)sortable(keyValues[i]) << 32 | i;
+      }
+
+      Arrays.sort(sortBuffer, 0, count);
+
+      int[] order = orders[key];
+      int[] rank  = ranks[key];
+      for (int i = 0; i < count; ++i) {
+        order[i]       = (int)sortBuffer[i];
+        rank[order[i]] = i;
+      }
+    }
+  }
+
+  /**
+   * Move a repriced village to its new place in every order.
+   * @param columns Columns holding the updated village.
+   * @param row Row of the repriced village.
+   */
+  public void update(VillageColumns columns, int row) {
+    for (int key = 0; key < KEYS; ++key) {
+      float value = valueOf(columns, row, key);
+      if (value != values[key][row]) move(key, row, value);
+    }
+  }
+
+  /**
+   * Village with the lowest price of a product.
+   * @param productType Type of the product.
+   * @return Row of the village, -1 if there are none.
+   */
+  public int getCheapest(ProductType productType) {
+    return count == 0 ? -1 : orders[productType.ordinal()][0];
+  }
+
+  /**
+   * Village with the highest price of a product.
+   * @param productType Type of the product.
+   * @return Row of the village, -1 if there are none.
+   */
+  public int getMostExpensive(ProductType productType) {
+    return count == 0 ? -1 : orders[productType.ordinal()][count - 1];
+  }
+
+  /**
+   * Village with the lowest price index.
+   * @return Row of the village, -1 if there are none.
+   */
+  public int getBestPriceIndex() {
+    return count == 0 ? -1 : orders[INDEX_KEY][0];
+  }
+
+  /**
+   * Villages with the lowest prices of a product, from the cheapest.
+   * @param productType Type of the product.
+   * @param found Receives the rows, its length is k.
+   * @return Count of rows written.
+   */
+  public int getCheapest(ProductType productType, int[] found) {
+    return lowest(productType.ordinal(), found);
+  }
+
+  /**
+   * Villages with the highest prices of a product, from the most expensive.
+   * @param productType Type of the product.
+   * @param found Receives the rows, its length is k.
+   * @return Count of rows written.
+   */
+  public int getMostExpensive(ProductType productType, int[] found) {
+    int[] order = orders[productType.ordinal()];
+    int   size  = Math.min(found.length, count);
+
+    for (int i = 0; i < size; ++i) found[i] = order[count - 1 - i];
+
+    return size;
+  }
+
+  /**
+   * Villages with the lowest price indexes, from the best.
+   * @param found Receives the rows, its length is k.
+   * @return Count of rows written.
+   */
+  public int getBestPriceIndexes(int[] found) {
+    return lowest(INDEX_KEY, found);
+  }
+
+  /**
+   * Internal, first rows of an order.
+   * @param key Order.
+   * @param found Receives the rows.
+   * @return Count of rows written.
+   */
+  private int lowest(int key, int[] found) {
+    int size = Math.min(found.length, count);
+    System.arraycopy(orders[key], 0, found, 0, size);
+    return size;
+  }
+
+  /**
+   * Internal, move a row to the place of its new value, ties ordered by row.
+   * @param key Order.
+   * @param row Row that changed.
+   * @param value New value.
+   */
+  private void move(int key, int row, float value) {
+    int[]   order     = orders[key];
+    int[]   rank      = ranks[key];
+    float[] keyValues = values[key];
+    int     from      = rank[row];
+
+    System.arraycopy(order, from + 1, order, from, count - from - 1);
+    keyValues[row] = value;
+
+    int low  = 0;
+    int high = count - 1;
+    while (low < high) {
+      int   middle     = (low + high) >>> 1;
+      int   other      = order[middle];
+      float otherValue = keyValues[other];
+
+      if (otherValue < value || otherValue == value && other < row) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    System.arraycopy(order, low, order, low + 1, count - low - 1);
+    order[low] = row;
+
+    int first = Math.min(from, low);
+    int last  = Math.max(from, low);
+    for (int i = first; i <= last; ++i) rank[order[i]] = i;
+  }
+
+  /**
+   * Internal, value of a village under an order.
+   * @param columns Columns holding the village.
+   * @param row Row of the village.
+   * @param key Order.
+   * @return Price of the product or the price index.
+   */
+  private static float valueOf(VillageColumns columns, int row, int key) {
+    if (key == INDEX_KEY) return columns.getPriceIndex(row);
+    return columns.getPrice(row, ProductType.byOrdinal(key));
+  }
+
+  /**
+   * Internal, map float bits to ints that compare like the floats.
+   * @param value Value.
+   * @return Order preserving int.
+   */
+  private static int sortable(float value) {
+    int bits = Float.floatToIntBits(value);
+    return bits ^ ((bits >> 31) & 0x7fffffff);
+  }
+}
@@ -0,0 +1,165 @@
+package simulation.environment;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the simulation: epochs, their phases, map
+ * regenerations, thefts and executed transactions. The events are emitted
+ * whether a recording runs or not; without one JFR leaves their methods
+ * empty and the JIT removes them, so fields costing more than a store are
+ * only filled after shouldCommit. Stack traces are off, the events are far
+ * too frequent for them.
+ */
+public final class SimulationEvents {
+  private static final String CATEGORY      = "Simulation";
+  private static final String CONFIGURATION = "default";
+
+  /**
+   * Internal, not instantiated.
+   */
+  private SimulationEvents() {}
+
+  /**
+   * Start recording the events of the simulation, along with the JDK's
+   * default ones, to a file. The file is written when the recording is
+   * stopped, or when the JVM exits before that.
+   * @param file File to record to, .jfr by convention.
+   * @return Running recording, stop and close it when done.
+   * @throws IOException When the file can not be written.
+   */
+  public static Recording startRecording(Path file) throws IOException {
+    Configuration configuration;
+    try {
+      configuration = Configuration.getConfiguration(CONFIGURATION);
+    } catch (ParseException err) {
+      throw new IllegalStateException("JDK recording settings broken.", err);
+    }
+
+    Recording recording = new Recording(configuration);
+    recording.setName(CATEGORY);
+    recording.setDestination(file);
+    recording.setDumpOnExit(true);
+    recording.start();
+    return recording;
+  }
+
+  /**
+   * An epoch from its start to its end, also when the merchant died in it.
+   */
+  @Name("simulation.Epoch")
+  @Label("Epoch")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class EpochEvent extends Event {
+    @Label("Epoch")
+    @Description("Count of epochs finished before this one.")
+    int epoch;
+
+    @Label("Money")
+    @Description("Money of the merchant at the end of the epoch.")
+    float money;
+
+    @Label("Died")
+    boolean died;
+  }
+
+  /**
+   * A phase of an epoch, regenerations are recorded by RegenerationEvent.
+   */
+  @Name("simulation.Phase")
+  @Label("Epoch Phase")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class PhaseEvent extends Event {
+    @Label("Epoch")
+    int epoch;
+
+    @Label("Phase")
+    String phase;
+
+    /**
+     * Begin a phase.
+     * @param phase Phase.
+     * @param epoch Count of epochs finished before.
+     * @return Begun event, commit it at the end of the phase.
+     */
+    static PhaseEvent start(Phase phase, int epoch) {
+      PhaseEvent event = new PhaseEvent();
+      event.begin();
+      event.phase = phase.name();
+      event.epoch = epoch;
+      return event;
+    }
+  }
+
+  /**
+   * A regeneration of the map, by an epoch or by the owner of a shared map.
+   */
+  @Name("simulation.MapRegeneration")
+  @Label("Map Regeneration")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class RegenerationEvent extends Event {
+    @Label("Epoch")
+    int epoch;
+
+    @Label("Villages")
+    @Description("Villages on the map after the regeneration.")
+    int villages;
+  }
+
+  /**
+   * Thugs robbing the merchant, Thugs.steal.
+   */
+  @Name("simulation.ThugsSteal")
+  @Label("Thugs Steal")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class StealEvent extends Event {
+    @Label("Epoch")
+    int epoch;
+
+    @Label("Money Stolen")
+    float money;
+  }
+
+  /**
+   * A transaction executed between the merchant and the current village.
+   */
+  @Name("simulation.Transaction")
+  @Label("Transaction")
+  @Category(CATEGORY)
+  @StackTrace(false)
+  static final class TradeEvent extends Event {
+    @Label("Epoch")
+    int epoch;
+
+    @Label("Village")
+    @Description("Row of the village on the map, -1 when it is not on it.")
+    int village;
+
+    @Label("Type")
+    @Description("BUY or SELL, from the merchant's view.")
+    String transactionType;
+
+    @Label("Product")
+    String product;
+
+    @Label("Weight")
+    float weight;
+
+    @Label("Value")
+    @Description("Money changing hands, price multiplier included.")
+    float value;
+  }
+}
@@ -0,0 +1,593 @@
+package simulation.environment;
+
+import io.arguments.Difficulty;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import simulation.computation.TraverseBase;
+import simulation.computation.TraverseDistance;
+import simulation.computation.TraverseMarket;
+import simulation.computation.TraversePrices;
+import simulation.strategy.AggressiveStrategy;
+import simulation.strategy.BalancedStrategy;
+import simulation.strategy.ConservativeStrategy;
+import simulation.strategy.StrategyType;
+import simulation.vilages.Village;
+
+/**
+ * Versioned binary snapshot of a simulation, the compact alternative to the
+ * JSON save. A little endian header holds the difficulty, the merchant, the
+ * map without its villages, the current village, the strategy and the
+ * traversal. Villages follow as fixed size records, so shards of them are
+ * memory-mapped and written in parallel without intermediate strings or
+ * copies of the file. Reading maps them and materializes a village when its
+ * row is first touched, so resuming costs the header whatever the size of the
+ * map; files are therefore replaced by moving a new one in place, never
+ * rewritten. Listeners and indexes are not saved, like in JSON. Deltas
+ * written by SnapshotChain next to the file hold a newer header and the
+ * records of the changed villages only, reading applies them in order.
+ */
+public class Snapshot {
+  /**
+   * Extension of snapshot files, the console saves anything else as JSON.
+   */
+  public static final String EXTENSION = ".snap";
+
+  static final int MAGIC       = 0x4e_53_4d_53; // "SMSN" little endian
+  static final int DELTA_MAGIC = 0x4c_44_4d_53; // "SMDL" little endian
+  static final int VERSION     = 1;
+
+  static final byte FINISHED = 1;
+  static final byte ATTACKED = 2;
+  static final byte DEAD     = 4;
+
+  static final byte NO_VILLAGE       = 0;
+  static final byte VILLAGE_ROW      = 1;
+  static final byte DETACHED_VILLAGE = 2;
+
+  /**
+   * Count of village records mapped together.
+   */
+  static final int VILLAGES_PER_SHARD = 1 << 16;
+
+  private static final int    HEADER_SIZE_OFFSET = 8;
+  private static final int    MAX_HEADER         = 4096;
+  private static final String TEMPORARY          = ".tmp";
+
+  private static final byte NONE         = 0;
+  private static final byte AGGRESSIVE   = 1;
+  private static final byte BALANCED     = 2;
+  private static final byte CONSERVATIVE = 3;
+  private static final byte PRICES       = 1;
+  private static final byte DISTANCE     = 2;
+  private static final byte MARKET       = 3;
+
+  /**
+   * Size of a changed village in a delta, its row and its record.
+   */
+  static final int DELTA_RECORD_BYTES = Integer.BYTES + Village.SNAPSHOT_BYTES;
+
+  private final FileChannel      channel;
+  private final Difficulty       difficulty;
+  private final long             villagesOffset;
+  private final int              checksum;
+  private final List<ByteBuffer> patches;
+  private ByteBuffer             header;
+
+  /**
+   * Internal, constructor, maps and checks the header.
+   * @param channel Channel of the snapshot file.
+   * @throws IOException When the file is not a snapshot of this version.
+   */
+  private Snapshot(FileChannel channel) throws IOException {
+    this.channel = channel;
+    this.patches = new ArrayList<>();
+    this.header  = channel
+      .map(MapMode.READ_ONLY, 0, Math.min(channel.size(), MAX_HEADER))
+      .order(ByteOrder.LITTLE_ENDIAN);
+
+    if (header.remaining() < HEADER_SIZE_OFFSET + Integer.BYTES
+        || header.getInt() != MAGIC
+        || header.getInt() != VERSION) {
+      throw new IOException("Not a snapshot.");
+    }
+
+    int headerSize = header.getInt();
+    if (headerSize > header.limit()) {
+      throw new IOException("Snapshot is truncated.");
+    }
+    header.limit(headerSize);
+    villagesOffset = headerSize;
+    checksum       = checksum(header.duplicate().position(0));
+    difficulty     = readDifficulty(header);
+  }
+
+  /**
+   * Write a simulation to a file, replacing it. The file is written under a
+   * temporary name and moved in place, simulations resumed from the old one
+   * keep reading it.
+   * @param epochs Simulation with a map of its own.
+   * @param path File to write.
+   * @throws IOException When writing fails.
+   * @throws IllegalStateException When the map is shared, or the strategy or
+   *   traversal is not one of the built in ones.
+   */
+  public static void write(Epochs epochs, Path path) throws IOException {
+    Path temporary = temporaryPath(path);
+    writeBase(epochs, temporary);
+    Files.move(
+      temporary,
+      path,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Read a simulation written by write, with the deltas chained to it by
+   * SnapshotChain applied. Deltas of an older base are ignored.
+   * @param path File to read.
+   * @return Simulation as it was saved last.
+   * @throws IOException When a file can not be read or is not a snapshot.
+   */
+  public static Epochs read(Path path) throws IOException {
+    try (FileChannel channel =
+           FileChannel.open(path, StandardOpenOption.READ)) {
+      Snapshot snapshot = new Snapshot(channel);
+      for (int sequence = 1; ; ++sequence) {
+        Path delta = deltaPath(path, sequence);
+        if (!Files.exists(delta) || !snapshot.chain(delta, sequence)) break;
+      }
+
+      return new Epochs(snapshot);
+    }
+  }
+
+  /**
+   * Write a simulation like write, as the base of a chain of deltas. The file
+   * is created or truncated, it must not be one a simulation was read from.
+   * @param epochs Simulation with a map of its own.
+   * @param path File to write.
+   * @return Checksum of the header, deltas refer to the base by it.
+   * @throws IOException When writing fails.
+   * @throws IllegalStateException See write.
+   */
+  static int writeBase(Epochs epochs, Path path) throws IOException {
+    ByteBuffer header = finishHeader(newHeader(MAGIC), epochs);
+    int        sum    = checksum(header.duplicate());
+
+    VillageMap map    = epochs.getVillageMap();
+    int        rows   = map.getVillages().size();
+    long       offset = header.remaining();
+    long       size   = offset + (long)rows * Village.SNAPSHOT_BYTES;
+
+    try (FileChannel channel = create(path)) {
+      // full size first, so the shards never grow the file concurrently
+      channel.write(ByteBuffer.allocate(1), size - 1);
+      while (header.hasRemaining()) {
+        channel.write(header, header.position());
+      }
+
+      forEachShard(rows, (from, to) -> {
+        ByteBuffer shard = map(channel, MapMode.READ_WRITE, offset, from, to);
+        for (int i = from; i < to; ++i) map.writeSnapshot(i, shard);
+      });
+    }
+
+    return sum;
+  }
+
+  /**
+   * Checksum of the header a base of a simulation would have now, see
+   * writeBase. Equal simulations have equal checksums.
+   * @param epochs Simulation with a map of its own.
+   * @return Checksum of the header.
+   * @throws IllegalStateException See write.
+   */
+  static int checksum(Epochs epochs) {
+    return checksum(finishHeader(newHeader(MAGIC), epochs));
+  }
+
+  /**
+   * Write a delta: the whole header, then the count of changed villages and
+   * each of them as its row followed by its record.
+   * @param epochs Simulation with a map of its own, its rows unchanged since
+   *   the base.
+   * @param path File to write.
+   * @param baseChecksum Checksum of the base, see writeBase.
+   * @param sequence Position of the delta in the chain, from 1.
+   * @param rows Rows of the changed villages.
+   * @throws IOException When writing fails.
+   * @throws IllegalStateException See write.
+   */
+  static void writeDelta(
+    Epochs epochs, Path path, int baseChecksum, int sequence, int[] rows)
+    throws IOException {
+    ByteBuffer header = finishHeader(
+      newHeader(DELTA_MAGIC).putInt(baseChecksum).putInt(sequence), epochs);
+
+    VillageMap map    = epochs.getVillageMap();
+    long       offset = header.remaining();
+    long       size   =
+      Integer.BYTES + (long)rows.length * DELTA_RECORD_BYTES;
+
+    try (FileChannel channel = create(path)) {
+      while (header.hasRemaining()) {
+        channel.write(header, header.position());
+      }
+
+      ByteBuffer records = channel
+        .map(MapMode.READ_WRITE, offset, size)
+        .order(ByteOrder.LITTLE_ENDIAN);
+      records.putInt(rows.length);
+      for (int row : rows) {
+        records.putInt(row);
+        map.writeSnapshot(row, records);
+      }
+    }
+  }
+
+  /**
+   * Path of a delta, the base path followed by the sequence.
+   * @param base Path of the base.
+   * @param sequence Position of the delta in the chain, from 1.
+   * @return Path next to the base.
+   */
+  static Path deltaPath(Path base, int sequence) {
+    return base.resolveSibling(base.getFileName() + "." + sequence);
+  }
+
+  /**
+   * Temporary path next to a file, written first and moved in place.
+   * @param path File to write.
+   * @return Path to write first.
+   */
+  static Path temporaryPath(Path path) {
+    return path.resolveSibling(path.getFileName() + TEMPORARY);
+  }
+
+  /**
+   * Header after the part read so far, read by the snapshot constructors.
+   * @return Header buffer.
+   */
+  ByteBuffer getHeader() {
+    return header;
+  }
+
+  /**
+   * Difficulty of the saved simulation.
+   * @return Difficulty read from the header.
+   */
+  Difficulty getDifficulty() {
+    return difficulty;
+  }
+
+  /**
+   * Map the village records and apply the deltas. Villages are materialized
+   * when first touched, the changed ones of the deltas right away.
+   * @param epochs Simulation owning the villages.
+   * @param rows Count of villages.
+   * @return Villages in the order of rows.
+   * @throws IOException When the file is too short or can not be read.
+   */
+  List<Village> readVillages(Epochs epochs, int rows) throws IOException {
+    long size = (long)rows * Village.SNAPSHOT_BYTES;
+    if (rows < 0 || channel.size() < villagesOffset + size) {
+      throw new IOException("Snapshot is truncated.");
+    }
+
+    ByteBuffer[] shards =
+      new ByteBuffer[(rows + VILLAGES_PER_SHARD - 1) / VILLAGES_PER_SHARD];
+    try {
+      for (int shard = 0; shard < shards.length; ++shard) {
+        int from = shard * VILLAGES_PER_SHARD;
+        int to   = Math.min(from + VILLAGES_PER_SHARD, rows);
+        shards[shard] =
+          map(channel, MapMode.READ_ONLY, villagesOffset, from, to);
+      }
+    } catch (UncheckedIOException err) {
+      throw err.getCause();
+    }
+    LazyVillages villages = new LazyVillages(epochs, shards, rows);
+
+    // newer deltas replace what older ones changed
+    for (ByteBuffer patch : patches) {
+      int count = patch.getInt();
+      if (count < 0
+          || patch.remaining() < (long)count * DELTA_RECORD_BYTES) {
+        throw new IOException("Snapshot delta is truncated.");
+      }
+
+      for (int i = 0; i < count; ++i) {
+        int row = patch.getInt();
+        if (row < 0 || row >= rows) {
+          throw new IOException("Snapshot delta does not match its base.");
+        }
+        Village village = new Village(epochs, patch);
+        village.markClean();
+        villages.set(row, village);
+      }
+    }
+
+    return villages;
+  }
+
+  /**
+   * Write the type and the state of a strategy.
+   * @param buffer Receives the strategy.
+   * @param strategyType Strategy or null.
+   * @throws IllegalStateException When the strategy is not a built in one.
+   */
+  static void writeStrategy(ByteBuffer buffer, StrategyType strategyType) {
+    if (strategyType == null) {
+      buffer.put(NONE);
+    } else if (strategyType instanceof AggressiveStrategy) {
+      buffer.put(AGGRESSIVE);
+    } else if (strategyType instanceof BalancedStrategy) {
+      buffer.put(BALANCED);
+    } else if (strategyType instanceof ConservativeStrategy) {
+      buffer.put(CONSERVATIVE);
+    } else {
+      throw new IllegalStateException("Strategy can not be saved.");
+    }
+
+    if (strategyType != null) strategyType.writeTo(buffer);
+  }
+
+  /**
+   * Read a strategy written by writeStrategy.
+   * @param epochs Simulation using the strategy.
+   * @param buffer Positioned at the strategy, advanced past it.
+   * @return Strategy or null.
+   * @throws IOException When the type is unknown.
+   */
+  static StrategyType readStrategy(Epochs epochs, ByteBuffer buffer)
+    throws IOException {
+    byte tag = buffer.get();
+    switch (tag) {
+      case NONE -> {
+        return null;
+      }
+      case AGGRESSIVE -> {
+        return new AggressiveStrategy(epochs, buffer);
+      }
+      case BALANCED -> {
+        return new BalancedStrategy(epochs, buffer);
+      }
+      case CONSERVATIVE -> {
+        return new ConservativeStrategy();
+      }
+    }
+
+    throw new IOException("Unknown strategy " + tag + " in snapshot.");
+  }
+
+  /**
+   * Write the type of a traversal, traversals have no state of their own.
+   * @param buffer Receives the traversal.
+   * @param traverseAlgorithm Traversal or null.
+   * @throws IllegalStateException When the traversal is not a built in one.
+   */
+  static void writeTraversal(
+    ByteBuffer buffer, TraverseBase traverseAlgorithm) {
+    if (traverseAlgorithm == null) {
+      buffer.put(NONE);
+    } else if (traverseAlgorithm instanceof TraversePrices) {
+      buffer.put(PRICES);
+    } else if (traverseAlgorithm instanceof TraverseDistance) {
+      buffer.put(DISTANCE);
+    } else if (traverseAlgorithm instanceof TraverseMarket) {
+      buffer.put(MARKET);
+    } else {
+      throw new IllegalStateException("Traversal can not be saved.");
+    }
+  }
+
+  /**
+   * Read a traversal written by writeTraversal.
+   * @param epochs Simulation using the traversal, its map already read.
+   * @param buffer Positioned at the traversal, advanced past it.
+   * @return Traversal or null.
+   * @throws IOException When the type is unknown.
+   */
+  static TraverseBase readTraversal(Epochs epochs, ByteBuffer buffer)
+    throws IOException {
+    byte tag = buffer.get();
+    switch (tag) {
+      case NONE -> {
+        return null;
+      }
+      case PRICES -> {
+        return new TraversePrices(epochs);
+      }
+      case DISTANCE -> {
+        return new TraverseDistance(epochs);
+      }
+      case MARKET -> {
+        return new TraverseMarket(epochs);
+      }
+    }
+
+    throw new IOException("Unknown traversal " + tag + " in snapshot.");
+  }
+
+  /**
+   * Internal, continue the chain by a delta: its header replaces the one read
+   * so far, its records are applied after the villages of the base.
+   * @param path File of the delta.
+   * @param sequence Expected position in the chain.
+   * @return false when the delta belongs to another base or position.
+   * @throws IOException When the file can not be read or is not a delta.
+   */
+  private boolean chain(Path path, int sequence) throws IOException {
+    ByteBuffer delta;
+    try (FileChannel deltaChannel =
+           FileChannel.open(path, StandardOpenOption.READ)) {
+      delta = deltaChannel
+        .map(MapMode.READ_ONLY, 0, deltaChannel.size())
+        .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    if (delta.remaining() < HEADER_SIZE_OFFSET + 3 * Integer.BYTES
+        || delta.getInt() != DELTA_MAGIC
+        || delta.getInt() != VERSION) {
+      throw new IOException("Not a snapshot delta.");
+    }
+
+    int headerSize = delta.getInt();
+    if (headerSize > delta.limit() - Integer.BYTES) {
+      throw new IOException("Snapshot delta is truncated.");
+    }
+    if (delta.getInt() != checksum || delta.getInt() != sequence) {
+      return false;
+    }
+
+    patches.add(
+      delta.duplicate().position(headerSize).order(ByteOrder.LITTLE_ENDIAN));
+    delta.limit(headerSize);
+    readDifficulty(delta);
+    header = delta;
+    return true;
+  }
+
+  /**
+   * Internal, start a header: magic, version and room for its size.
+   * @param magic Magic of a snapshot or a delta.
+   * @return Little endian buffer of MAX_HEADER bytes.
+   */
+  private static ByteBuffer newHeader(int magic) {
+    return ByteBuffer.allocate(MAX_HEADER)
+      .order(ByteOrder.LITTLE_ENDIAN)
+      .putInt(magic)
+      .putInt(VERSION)
+      .putInt(0);
+  }
+
+  /**
+   * Internal, finish a header by the difficulty and the simulation, and patch
+   * its size.
+   * @param header Started by newHeader.
+   * @param epochs Simulation with a map of its own.
+   * @return The header flipped for writing.
+   * @throws IllegalStateException See write.
+   */
+  private static ByteBuffer finishHeader(ByteBuffer header, Epochs epochs) {
+    if (epochs.isMapShared()) {
+      throw new IllegalStateException("Can not save a shared map.");
+    }
+
+    Difficulty difficulty = epochs.getDifficulty();
+    header.putInt(difficulty.getRng())
+      .putFloat(difficulty.getStealMultiplier())
+      .putLong(difficulty.getSeed())
+      .put((byte)(difficulty.isInfiniteWorld() ? 1 : 0));
+    epochs.writeTo(header);
+    header.putInt(HEADER_SIZE_OFFSET, header.position());
+    return header.flip();
+  }
+
+  /**
+   * Internal, read the difficulty written by finishHeader.
+   * @param buffer Positioned at the difficulty, advanced past it.
+   * @return Difficulty.
+   */
+  private static Difficulty readDifficulty(ByteBuffer buffer) {
+    int     rng             = buffer.getInt();
+    float   stealMultiplier = buffer.getFloat();
+    long    seed            = buffer.getLong();
+    boolean infiniteWorld   = buffer.get() != 0;
+    return new Difficulty(rng, stealMultiplier, seed, infiniteWorld);
+  }
+
+  /**
+   * Internal, checksum of a header.
+   * @param header Buffer over the header, consumed.
+   * @return CRC-32 of the remaining bytes.
+   */
+  private static int checksum(ByteBuffer header) {
+    CRC32 crc = new CRC32();
+    crc.update(header);
+    return (int)crc.getValue();
+  }
+
+  /**
+   * Internal, create or truncate a file for writing and mapping.
+   * @param path File to create.
+   * @return Channel open for reading and writing.
+   * @throws IOException When the file can not be opened.
+   */
+  private static FileChannel create(Path path) throws IOException {
+    return FileChannel.open(
+      path,
+      StandardOpenOption.CREATE,
+      StandardOpenOption.TRUNCATE_EXISTING,
+      StandardOpenOption.READ,
+      StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Internal, run a task for every shard of rows in parallel.
+   * @param rows Count of rows.
+   * @param task Called with the first row and the row after the last.
+   * @throws IOException When a task fails to map its shard.
+   */
+  private static void forEachShard(int rows, ShardTask task)
+    throws IOException {
+    int shards = (rows + VILLAGES_PER_SHARD - 1) / VILLAGES_PER_SHARD;
+    try {
+      IntStream.range(0, shards).parallel().forEach(shard -> {
+        int from = shard * VILLAGES_PER_SHARD;
+        task.run(from, Math.min(from + VILLAGES_PER_SHARD, rows));
+      });
+    } catch (UncheckedIOException err) {
+      throw err.getCause();
+    }
+  }
+
+  /**
+   * Internal, map the records of a shard.
+   * @param channel Channel of the snapshot file.
+   * @param mode Read only or read write.
+   * @param offset Position of the first record in the file.
+   * @param from First row.
+   * @param to Row after the last.
+   * @return Little endian buffer over the records.
+   * @throws UncheckedIOException When mapping fails.
+   */
+  private static ByteBuffer map(
+    FileChannel channel, MapMode mode, long offset, int from, int to) {
+    try {
+      return channel
+        .map(
+          mode,
+          offset + (long)from * Village.SNAPSHOT_BYTES,
+          (long)(to - from) * Village.SNAPSHOT_BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    } catch (IOException err) {
+      throw new UncheckedIOException(err);
+    }
+  }
+
+  /**
+   * Work on one shard of rows.
+   */
+  @FunctionalInterface
+  private interface ShardTask {
+    /**
+     * Process the rows.
+     * @param from First row.
+     * @param to Row after the last.
+     */
+    void run(int from, int to);
+  }
+}
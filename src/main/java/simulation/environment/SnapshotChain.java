@@ -0,0 +1,135 @@
+package simulation.environment;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Incremental checkpoints of a simulation: a base snapshot followed by deltas
+ * of what changed since the previous checkpoint, found by the dirty flags of
+ * the villages, the merchant and the map. A delta costs the header and the
+ * records of the changed villages, so between regenerations checkpoints of a
+ * huge map stay small. The chain is compacted into a new base after a count
+ * of deltas, or when most villages changed or were replaced. Files are
+ * written under a temporary name and moved in place, a failed checkpoint
+ * leaves the chain as it was. Snapshot.read applies the chain.
+ */
+public class SnapshotChain {
+  /**
+   * Count of deltas before the chain is compacted.
+   */
+  public static final int DEFAULT_COMPACTION = 16;
+
+  private final Epochs epochs;
+  private final Path   base;
+  private final int    compaction;
+  private int          deltas = -1;
+  private int          checksum;
+
+  /**
+   * Constructor, compacts after DEFAULT_COMPACTION deltas. Nothing is written
+   * until the first checkpoint, which writes the base.
+   * @param epochs Simulation with a map of its own.
+   * @param base Path of the base snapshot, deltas are written next to it.
+   */
+  public SnapshotChain(Epochs epochs, Path base) {
+    this(epochs, base, DEFAULT_COMPACTION);
+  }
+
+  /**
+   * Constructor. Nothing is written until the first checkpoint, which writes
+   * the base.
+   * @param epochs Simulation with a map of its own.
+   * @param base Path of the base snapshot, deltas are written next to it.
+   * @param compaction Count of deltas before the chain is compacted.
+   * @throws IllegalArgumentException When the compaction is negative.
+   */
+  public SnapshotChain(Epochs epochs, Path base, int compaction) {
+    if (compaction < 0) {
+      throw new IllegalArgumentException("Compaction must not be negative.");
+    }
+
+    this.epochs     = epochs;
+    this.base       = base;
+    this.compaction = compaction;
+  }
+
+  /**
+   * Save the changes since the last checkpoint as a delta, or compact the
+   * chain into a new base when the delta would not pay off.
+   * @return false when nothing changed and nothing was written.
+   * @throws IOException When writing fails.
+   * @throws IllegalStateException When the map is shared, see Snapshot.write.
+   */
+  public boolean checkpoint() throws IOException {
+    VillageMap map = epochs.getVillageMap();
+    if (deltas < 0 || deltas >= compaction || map.isReplaced()) {
+      compact();
+      return true;
+    }
+
+    int[] rows = map.dirtyRows();
+    if (rows.length == 0 && !epochs.isDirty()) return false;
+
+    // regeneration changes every village, a delta would be a second base
+    if ((long)rows.length * 2 > map.getVillages().size()) {
+      compact();
+      return true;
+    }
+
+    Path delta     = Snapshot.deltaPath(base, deltas + 1);
+    Path temporary = Snapshot.temporaryPath(delta);
+    Snapshot.writeDelta(epochs, temporary, checksum, deltas + 1, rows);
+    Files.move(
+      temporary,
+      delta,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+
+    ++deltas;
+    epochs.markClean();
+    return true;
+  }
+
+  /**
+   * Write the whole simulation as a new base and delete the deltas of the
+   * old one.
+   * @throws IOException When writing fails.
+   * @throws IllegalStateException When the map is shared, see Snapshot.write.
+   */
+  public void compact() throws IOException {
+    Path temporary = Snapshot.temporaryPath(base);
+    int  sum       = Snapshot.writeBase(epochs, temporary);
+    Files.move(
+      temporary,
+      base,
+      StandardCopyOption.REPLACE_EXISTING,
+      StandardCopyOption.ATOMIC_MOVE);
+
+    checksum = sum;
+    deltas   = 0;
+    epochs.markClean();
+
+    // deltas of the old base would be ignored, they only take space
+    for (int sequence = 1; ; ++sequence) {
+      if (!Files.deleteIfExists(Snapshot.deltaPath(base, sequence))) break;
+    }
+  }
+
+  /**
+   * Count of deltas after the base.
+   * @return Deltas, -1 before the base was written.
+   */
+  public int getDeltaCount() {
+    return deltas;
+  }
+
+  /**
+   * Path of the base snapshot.
+   * @return Base path.
+   */
+  public Path getBase() {
+    return base;
+  }
+}
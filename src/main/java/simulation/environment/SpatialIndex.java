@@ -0,0 +1,247 @@
+package simulation.environment;
+
+/**
+ * Static 2-d tree over village positions, stored implicitly in flat arrays.
+ * The median of every range is its node, the left half holds smaller and the
+ * right half larger coordinates on the axis of the depth. Queries only read
+ * the tree, so they are safe to run from many threads.
+ */
+public class SpatialIndex {
+  private int     count;
+  private int[]   rows;
+  private float[] xs;
+  private float[] ys;
+
+  /**
+   * Constructor, empty index.
+   */
+  public SpatialIndex() {
+    count = 0;
+    rows  = new int[0];
+    xs    = new float[0];
+    ys    = new float[0];
+  }
+
+  /**
+   * Rebuild the index over the positions of the villages, O(n log n).
+   * @param columns Columns holding the villages.
+   */
+  public void build(VillageColumns columns) {
+    count = columns.getCount();
+    if (rows.length < count) {
+      rows = new int[count];
+      xs   = new float[count];
+      ys   = new float[count];
+    }
+
+    for (int i = 0; i < count; ++i) {
+      rows[i] = i;
+      xs[i]   = columns.getX(i);
+      ys[i]   = columns.getY(i);
+    }
+
+    buildRange(0, count, 0);
+  }
+
+  /**
+   * Count of indexed villages.
+   * @return Count of indexed villages.
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Find the village closest to a point. Ties go to the lower row, the same
+   * village a linear scan would pick.
+   * @param x X coordinate of the point.
+   * @param y Y coordinate of the point.
+   * @return Row of the closest village, -1 if the index is empty.
+   */
+  public int nearest(float x, float y) {
+    if (count == 0) return -1;
+
+    long best = nearestInRange(0, count, 0, x, y, Long.MAX_VALUE);
+
+    return (int)best;
+  }
+
+  /**
+   * Find the k villages closest to a point, ordered from the closest.
+   * @param x X coordinate of the point.
+   * @param y Y coordinate of the point.
+   * @param found Receives the rows, its length is k.
+   * @param distances Scratch buffer of the same length as found, receives the
+   *   squared distances.
+   * @return Count of villages found, less than k only for small maps.
+   */
+  public int nearest(float x, float y, int[] found, float[] distances) {
+    if (found.length == 0) return 0;
+
+    return nearestInRange(0, count, 0, x, y, found, distances, 0);
+  }
+
+  /**
+   * Internal, arrange a range into a subtree.
+   * @param from First node, inclusive.
+   * @param to Last node, exclusive.
+   * @param axis 0 splits on x, 1 on y.
+   */
+  private void buildRange(int from, int to, int axis) {
+    while (to - from > 1) {
+      int middle = (from + to) >>> 1;
+      select(from, to - 1, middle, axis);
+      buildRange(from, middle, axis ^ 1);
+      from = middle + 1;
+      axis ^= 1;
+    }
+  }
+
+  /**
+   * Internal, quickselect so the k-th node is in place on the axis.
+   * @param left First node, inclusive.
+   * @param right Last node, inclusive.
+   * @param k Node to put in place.
+   * @param axis 0 for x, 1 for y.
+   */
+  private void select(int left, int right, int k, int axis) {
+    float[] keys = axis == 0 ? xs : ys;
+
+    while (right > left) {
+      float pivot = keys[(left + right) >>> 1];
+      int   i     = left;
+      int   j     = right;
+
+      while (i <= j) {
+        while (keys[i] < pivot) ++i;
+        while (keys[j] > pivot) --j;
+        if (i <= j) swap(i++, j--);
+      }
+
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Internal, swap two nodes.
+   * @param a First node.
+   * @param b Second node.
+   */
+  private void swap(int a, int b) {
+    int   row = rows[a];
+    float x   = xs[a];
+    float y   = ys[a];
+    rows[a]   = rows[b];
+    xs[a]     = xs[b];
+    ys[a]     = ys[b];
+    rows[b]   = row;
+    xs[b]     = x;
+    ys[b]     = y;
+  }
+
+  /**
+   * Internal, nearest neighbour search in a subtree. The best candidate is
+   * packed as squared distance bits over the row, distances are never
+   * negative, so comparing the packed longs compares distance, then row.
+   * @param from First node, inclusive.
+   * @param to Last node, exclusive.
+   * @param axis Axis of the subtree.
+   * @param x X coordinate of the point.
+   * @param y Y coordinate of the point.
+   * @param best Best candidate so far.
+   * @return Best candidate including the subtree.
+   */
+  private long nearestInRange(
+    int from, int to, int axis, float x, float y, long best) {
+    if (from >= to) return best;
+
+    int   middle    = (from + to) >>> 1;
+    float dx        = xs[middle] - x;
+    float dy        = ys[middle] - y;
+    float distance  = dx * dx + dy * dy;
+    long  candidate =
+      (long)Float.floatToIntBits(distance) << 32 | rows[middle];
+
+    if (candidate < best) best = candidate;
+
+    float   split     = axis == 0 ? dx : dy;
+    boolean leftFirst = split > 0;
+    int     near      = leftFirst ? from : middle + 1;
+    int     nearTo    = leftFirst ? middle : to;
+    int     far       = leftFirst ? middle + 1 : from;
+    int     farTo     = leftFirst ? to : middle;
+
+    best = nearestInRange(near, nearTo, axis ^ 1, x, y, best);
+
+    float bestDistance = Float.intBitsToFloat((int)(best >>> 32));
+    if (split * split <= bestDistance) {
+      best = nearestInRange(far, farTo, axis ^ 1, x, y, best);
+    }
+
+    return best;
+  }
+
+  /**
+   * Internal, k nearest neighbours search in a subtree. Keeps the found rows
+   * sorted by distance.
+   * @param from First node, inclusive.
+   * @param to Last node, exclusive.
+   * @param axis Axis of the subtree.
+   * @param x X coordinate of the point.
+   * @param y Y coordinate of the point.
+   * @param found Rows found so far.
+   * @param distances Squared distances of the rows found so far.
+   * @param size Count of rows found so far.
+   * @return Count of rows found including the subtree.
+   */
+  private int nearestInRange(
+    int     from,
+    int     to,
+    int     axis,
+    float   x,
+    float   y,
+    int[]   found,
+    float[] distances,
+    int     size) {
+    if (from >= to) return size;
+
+    int   k        = found.length;
+    int   middle   = (from + to) >>> 1;
+    float dx       = xs[middle] - x;
+    float dy       = ys[middle] - y;
+    float distance = dx * dx + dy * dy;
+
+    if (size < k || distance < distances[k - 1]) {
+      int slot = Math.min(size, k - 1);
+      while (slot > 0 && distances[slot - 1] > distance) {
+        found[slot]     = found[slot - 1];
+        distances[slot] = distances[slot - 1];
+        --slot;
+      }
+      found[slot]     = rows[middle];
+      distances[slot] = distance;
+      if (size < k) ++size;
+    }
+
+    float   split     = axis == 0 ? dx : dy;
+    boolean leftFirst = split > 0;
+    int     near      = leftFirst ? from : middle + 1;
+    int     nearTo    = leftFirst ? middle : to;
+    int     far       = leftFirst ? middle + 1 : from;
+    int     farTo     = leftFirst ? to : middle;
+
+    size = nearestInRange(near, nearTo, axis ^ 1, x, y, found, distances, size);
+
+    if (size < k || split * split <= distances[k - 1]) {
+      size = nearestInRange(far, farTo, axis ^ 1, x, y, found, distances, size);
+    }
+
+    return size;
+  }
+}
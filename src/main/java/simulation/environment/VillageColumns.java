@@ -0,0 +1,159 @@
+package simulation.environment;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import simulation.goods.ProductType;
+import simulation.vilages.Village;
+
+/**
+ * Structure-of-arrays copy of what the indexes of many villages are built
+ * from: positions, prices and price indexes. Every attribute lives in its own
+ * flat primitive column, prices are stored village by village (row * PRODUCTS
+ * + ordinal), so builds never chase pointers or box. A copy, not the villages
+ * themselves: it holds what was copied last.
+ */
+public class VillageColumns {
+  /**
+   * Count of product columns per village.
+   */
+  public static final int PRODUCTS = ProductType.COUNT;
+
+  private int     count;
+  private float[] x;
+  private float[] y;
+  private float[] priceIndex;
+  private float[] prices;
+
+  /**
+   * Constructor, allocates the columns.
+   * @param capacity Count of villages the columns can hold without growing.
+   */
+  public VillageColumns(int capacity) {
+    count      = 0;
+    x          = new float[capacity];
+    y          = new float[capacity];
+    priceIndex = new float[capacity];
+    prices     = new float[capacity * PRODUCTS];
+  }
+
+  /**
+   * Copy the current state of the villages into new columns.
+   * @param villages Villages to copy.
+   * @return Columns holding the villages in the same order.
+   */
+  public static VillageColumns of(List<Village> villages) {
+    VillageColumns columns = new VillageColumns(villages.size());
+    columns.copyFrom(villages);
+    return columns;
+  }
+
+  /**
+   * Overwrite the columns with the current state of the villages.
+   * @param villages Villages to copy.
+   */
+  public void copyFrom(List<Village> villages) {
+    resize(villages.size());
+
+    if (villages instanceof LazyVillages) {
+      // villages of a snapshot are not materialized for the columns
+      ((LazyVillages)villages).copyTo(this);
+      return;
+    }
+    for (int i = 0; i < count; ++i) set(i, villages.get(i));
+  }
+
+  /**
+   * Overwrite one row with the current state of a village.
+   * @param i Row to overwrite.
+   * @param village Village to copy.
+   */
+  public void set(int i, Village village) {
+    Position position = village.getPosition();
+
+    x[i]          = position.getX();
+    y[i]          = position.getY();
+    priceIndex[i] = village.getPriceIndex();
+
+    for (int p = 0; p < PRODUCTS; ++p) {
+      prices[i * PRODUCTS + p] = village.getPrice(ProductType.byOrdinal(p));
+    }
+  }
+
+  /**
+   * Overwrite one row with a record written by Village.writeSnapshot.
+   * @param i Row to overwrite.
+   * @param records Little endian buffer holding the record.
+   * @param offset Position of the record, the buffer is not advanced.
+   */
+  void set(int i, ByteBuffer records, int offset) {
+    // position, stock, money, prices, price index
+    int pricesAt = offset + (2 + PRODUCTS + 1) * Float.BYTES;
+
+    x[i]          = records.getFloat(offset);
+    y[i]          = records.getFloat(offset + Float.BYTES);
+    priceIndex[i] = records.getFloat(pricesAt + PRODUCTS * Float.BYTES);
+
+    for (int p = 0; p < PRODUCTS; ++p) {
+      prices[i * PRODUCTS + p] = records.getFloat(pricesAt + p * Float.BYTES);
+    }
+  }
+
+  /**
+   * Internal, set the count of villages, growing the columns if needed.
+   * @param newCount New count of villages.
+   */
+  private void resize(int newCount) {
+    if (newCount > x.length) {
+      x          = new float[newCount];
+      y          = new float[newCount];
+      priceIndex = new float[newCount];
+      prices     = new float[newCount * PRODUCTS];
+    }
+    count = newCount;
+  }
+
+  /**
+   * Count of villages.
+   * @return Count of villages.
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * X coordinate getter.
+   * @param village Row of the village.
+   * @return X coordinate.
+   */
+  public float getX(int village) {
+    return x[village];
+  }
+
+  /**
+   * Y coordinate getter.
+   * @param village Row of the village.
+   * @return Y coordinate.
+   */
+  public float getY(int village) {
+    return y[village];
+  }
+
+  /**
+   * Price getter.
+   * @param village Row of the village.
+   * @param productType Type of the product.
+   * @return Price per unit of product.
+   */
+  public float getPrice(int village, ProductType productType) {
+    return prices[village * PRODUCTS + productType.ordinal()];
+  }
+
+  /**
+   * Price index getter.
+   * @param village Row of the village.
+   * @return Simple average of prices.
+   */
+  public float getPriceIndex(int village) {
+    return priceIndex[village];
+  }
+}
@@ -1,47 +1,274 @@
 package simulation.environment;
 
 import io.arguments.Difficulty;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.IntStream;
+import simulation.computation.RandomSource;
+import simulation.environment.SimulationEvents.RegenerationEvent;
+import simulation.goods.ProductType;
 import simulation.player.PlayerState;
-import simulation.vilages.Road;
 import simulation.vilages.Village;
 
 /**
  * Stores and manages simulation's map.
  */
 public class VillageMap {
-  private static final int   COUNT_OF_VILLAGES = 5;
-  private static final float POS_RAND_MULTI    = 20.0f;
+  /**
+   * Count of villages on a map of the default size.
+   */
+  public static final int COUNT_OF_VILLAGES = 5;
+  /**
+   * Scale of randomly generated coordinates.
+   */
+  static final float      POS_RAND_MULTI    = 20.0f;
+  /**
+   * Villages regenerated by one task, every task draws from its own stream.
+   */
+  private static final int VILLAGES_PER_TASK = 1024;
 
-  private ArrayList<Village> villages;
+  private List<Village>      villages;
   private final Difficulty   difficulty;
   private final Epochs       epochs;
+  private final RandomSource randomSource;
+  private final ChunkedWorld world;
+  private int                villageCount;
+
+  /**
+   * Columnar copy of the positions and prices of the villages, with the
+   * spatial index and price orders built from it for queries. Positions do
+   * not change until the next regeneration, prices only change there or
+   * through repriceVillage, which keeps them up to date.
+   */
+  private transient VillageColumns columns;
+  private transient SpatialIndex   spatialIndex;
+  private transient PriceOrder     priceOrder;
+
+  /**
+   * Key of the chunk the villages are materialized around and whether the
+   * world's cache was filled with them after resume, infinite world only.
+   */
+  private transient Long    centerKey;
+  private transient boolean worldRestored;
+
+  /**
+   * Copy-on-write state after a fork: villages this map may change, null when
+   * it owns all of them, and whether the list and the indexes are shared.
+   */
+  private transient Set<Village> ownedVillages;
+  private transient boolean      villagesShared;
+  private transient boolean      indexesShared;
+
+  /**
+   * Delta saves: whether the map itself changed since the last markClean, and
+   * whether its villages were replaced or shared, so rows no longer match the
+   * last save.
+   */
+  private transient boolean dirty;
+  private transient boolean replaced;
 
   /**
-   * Singleton constructor, initializes map, grabs difficulty instance.
+   * Singleton constructor, initializes map of the default size, grabs
+   * difficulty instance.
    * @param epochs Epochs.
    */
   public VillageMap(Epochs epochs) {
-    this.epochs = epochs;
+    this(epochs, COUNT_OF_VILLAGES);
+  }
+
+  /**
+   * Constructor, initializes map, grabs difficulty instance.
+   * @param epochs Epochs.
+   * @param villageCount Count of villages, ignored by an infinite world.
+   * @throws IllegalArgumentException When the village count is not positive.
+   */
+  public VillageMap(Epochs epochs, int villageCount) {
+    if (villageCount <= 0) {
+      throw new IllegalArgumentException("Village count must be positive.");
+    }
+
+    this.epochs       = epochs;
+    this.villageCount = villageCount;
 
-    difficulty = epochs.getDifficulty();
+    difficulty   = epochs.getDifficulty();
+    randomSource = epochs.getRandomSource().split();
+
+    world = difficulty.isInfiniteWorld()
+            ? new ChunkedWorld(epochs, randomSource.nextLong())
+            : null;
+    worldRestored = true;
 
     regenerateMap();
   }
 
   /**
-   * Randomly generate villages
+   * Copy-on-write fork for a fork of the simulation, in constant time. Both
+   * maps share the villages, their list and the indexes until one of them
+   * changes something; then only the changed village is copied, or every
+   * village on regeneration.
+   * @param epochs Fork owning the new map.
+   * @param parent Map to fork.
+   */
+  VillageMap(Epochs epochs, VillageMap parent) {
+    parent.getColumns();
+
+    this.epochs       = epochs;
+    this.villageCount = parent.villageCount;
+    this.villages     = parent.villages;
+    this.columns      = parent.columns;
+    this.spatialIndex = parent.spatialIndex;
+    this.priceOrder   = parent.priceOrder;
+    this.centerKey    = parent.centerKey;
+
+    difficulty   = parent.difficulty;
+    randomSource = parent.randomSource.copy();
+
+    world = parent.world != null
+            ? new ChunkedWorld(epochs, parent.world)
+            : null;
+    worldRestored = world == null;
+
+    share();
+    parent.share();
+  }
+
+  /**
+   * Map in a saved state. The villages must belong to the simulation, an
+   * infinite world puts them back into its cache when first needed.
+   * @param epochs Epochs owning the map.
+   * @param villageCount Count of villages, ignored by an infinite world.
+   * @param randomSource Map's own random stream.
+   * @param world Infinite world or null.
+   * @param villages Villages in the order of rows.
+   */
+  public VillageMap(
+    Epochs             epochs,
+    int                villageCount,
+    RandomSource       randomSource,
+    ChunkedWorld       world,
+    ArrayList<Village> villages) {
+    this.epochs       = epochs;
+    this.villageCount = villageCount;
+    this.randomSource = randomSource;
+    this.world        = world;
+    this.villages     = villages;
+
+    difficulty    = epochs.getDifficulty();
+    worldRestored = world == null;
+  }
+
+  /**
+   * Map read from a snapshot, see writeTo. Villages are materialized from the
+   * snapshot when first touched.
+   * @param epochs Epochs.
+   * @param snapshot Snapshot positioned at the map.
+   * @throws IOException When the villages can not be read.
+   */
+  VillageMap(Epochs epochs, Snapshot snapshot) throws IOException {
+    ByteBuffer header = snapshot.getHeader();
+
+    this.epochs       = epochs;
+    this.villageCount = header.getInt();
+
+    difficulty   = epochs.getDifficulty();
+    randomSource = RandomSource.readFrom(header);
+
+    world = header.get() != 0 ? new ChunkedWorld(epochs, header) : null;
+    worldRestored = world == null;
+
+    villages = snapshot.readVillages(epochs, header.getInt());
+  }
+
+  /**
+   * Write the map to the header of a snapshot: size, random stream, world
+   * and count of villages. The villages are written by the snapshot.
+   * @param buffer Receives the map.
+   */
+  void writeTo(ByteBuffer buffer) {
+    buffer.putInt(villageCount);
+    randomSource.writeTo(buffer);
+    buffer.put((byte)(world != null ? 1 : 0));
+    if (world != null) world.writeTo(buffer);
+    buffer.putInt(villages.size());
+  }
+
+  /**
+   * Randomly generate villages, in an infinite world only the chunks around
+   * the player. Existing villages are re-randomized in place in parallel
+   * blocks, block n always draws from stream n of this regeneration, so the
+   * result does not depend on thread count.
    */
   public void regenerateMap() {
-    villages = new ArrayList<>();
-    IntStream.range(0, COUNT_OF_VILLAGES).forEach(i -> {
-      float    randomX        = difficulty.getRandomFloat() * POS_RAND_MULTI;
-      float    randomY        = difficulty.getRandomFloat() * POS_RAND_MULTI;
-      Position randomPosition = new Position(randomX, randomY);
-      Village  newVillage     = new Village(randomPosition, epochs);
-      villages.add(i, newVillage);
+    RegenerationEvent event = new RegenerationEvent();
+    event.begin();
+    regenerateVillages();
+    if (event.shouldCommit()) {
+      event.epoch    = epochs.getCount();
+      event.villages = villages.size();
+      event.commit();
+    }
+  }
+
+  /**
+   * Internal, regenerate the villages, see regenerateMap.
+   */
+  private void regenerateVillages() {
+    dirty = true;
+    if (world != null) {
+      getWorld().regenerate();
+      materializeAroundPlayer();
+      return;
+    }
+
+    // saves made before the map size was configurable lack it
+    if (villageCount == 0) { villageCount = COUNT_OF_VILLAGES; }
+
+    // larger maps cover a larger area, so the density of villages is kept
+    final float scale = POS_RAND_MULTI
+                        * (float)Math.sqrt((double)villageCount
+                                           / COUNT_OF_VILLAGES);
+
+    if (villages == null || villages.size() != villageCount) {
+      createVillages();
+    }
+    ownAllVillages();
+
+    final long seed   = randomSource.nextLong();
+    final int  blocks = (villageCount + VILLAGES_PER_TASK - 1)
+                        / VILLAGES_PER_TASK;
+    IntStream.range(0, blocks).parallel().forEach(block -> {
+      RandomSource blockSource = RandomSource.forIndex(seed, block);
+      int          from        = block * VILLAGES_PER_TASK;
+      int          to          =
+        Math.min(from + VILLAGES_PER_TASK, villageCount);
+
+      for (int i = from; i < to; ++i) {
+        float randomX = difficulty.getRandomFloat(blockSource) * scale;
+        float randomY = difficulty.getRandomFloat(blockSource) * scale;
+        villages.get(i).regenerate(new Position(randomX, randomY), blockSource);
+      }
     });
+    rebuildIndexes();
+  }
+
+  /**
+   * Materialize the chunks around the player when they moved to another
+   * chunk, does nothing on a bounded map.
+   */
+  public void followPlayer() {
+    if (world == null) return;
+
+    Position playerPosition = epochs.getPlayerState().getCurrentPosition();
+    long     playerKey      = ChunkedWorld.chunkKey(playerPosition);
+    if (centerKey == null || centerKey != playerKey) {
+      materializeAroundPlayer();
+    }
   }
 
   /**
@@ -49,19 +276,78 @@ public class VillageMap {
    * @return A village with best prices.
    */
   public Village getBestPrices() {
-    Village currentBest           = villages.get(0);
-    float   currentBestPriceIndex = currentBest.getPriceIndex();
+    int best = getPriceOrder().getBestPriceIndex();
+    return villages.get(best);
+  }
 
-    for (Village village : villages) {
-      float thisVillagePriceIndex = village.getPriceIndex();
+  /**
+   * Get a village selling a product at the lowest price.
+   * @param productType Type of the product.
+   * @return A village with the cheapest product.
+   */
+  public Village getCheapest(ProductType productType) {
+    int cheapest = getPriceOrder().getCheapest(productType);
+    return villages.get(cheapest);
+  }
 
-      if (thisVillagePriceIndex < currentBestPriceIndex) {
-        currentBest           = village;
-        currentBestPriceIndex = thisVillagePriceIndex;
-      }
+  /**
+   * Get a village buying a product at the highest price.
+   * @param productType Type of the product.
+   * @return A village paying the most for the product.
+   */
+  public Village getMostExpensive(ProductType productType) {
+    int mostExpensive = getPriceOrder().getMostExpensive(productType);
+    return villages.get(mostExpensive);
+  }
+
+  /**
+   * Get the villages selling a product at the lowest prices, from the
+   * cheapest.
+   * @param productType Type of the product.
+   * @param count Count of villages to get.
+   * @return Up to count villages.
+   */
+  public List<Village> getCheapest(ProductType productType, int count) {
+    int[] found = new int[Math.min(count, villages.size())];
+    int   size  = getPriceOrder().getCheapest(productType, found);
+    return toVillages(found, size);
+  }
+
+  /**
+   * Get the villages buying a product at the highest prices, from the most
+   * expensive.
+   * @param productType Type of the product.
+   * @param count Count of villages to get.
+   * @return Up to count villages.
+   */
+  public List<Village> getMostExpensive(ProductType productType, int count) {
+    int[] found = new int[Math.min(count, villages.size())];
+    int   size  = getPriceOrder().getMostExpensive(productType, found);
+    return toVillages(found, size);
+  }
+
+  /**
+   * Randomly change the prices of a village and keep the price orders sorted.
+   * @param village Village to reprice, must be on this map.
+   * @throws IllegalArgumentException When the village is not on this map.
+   */
+  public void repriceVillage(Village village) {
+    int row = rowOf(village);
+    if (row < 0) {
+      throw new IllegalArgumentException("Village is not on this map.");
+    }
+
+    Village owned = own(village);
+    owned.randomizePrices();
+
+    if (indexesShared) {
+      rebuildIndexes();
+      return;
     }
 
-    return currentBest;
+    VillageColumns currentColumns = getColumns();
+    currentColumns.set(row, owned);
+    getPriceOrder().update(currentColumns, row);
   }
 
   /**
@@ -72,32 +358,346 @@ public class VillageMap {
     final PlayerState playerState    = epochs.getPlayerState();
     final Position    playerPosition = playerState.getCurrentPosition();
 
-    Village  currentBest         = villages.get(0);
-    Position currentBestPosition = currentBest.getPosition();
-    Road     currentBestRoad =
-      new Road(playerPosition, currentBestPosition, epochs);
-    float currentBestDistance = currentBestRoad.calculateDistance();
-
-    for (Village village : villages) {
-      Position thisVillagePosition = village.getPosition();
-      Road     thisVillageRoad =
-        new Road(playerPosition, thisVillagePosition, epochs);
-      float thisVillageDistance = thisVillageRoad.calculateDistance();
-
-      if (thisVillageDistance < currentBestDistance) {
-        currentBest         = village;
-        currentBestDistance = thisVillageDistance;
+    return getClosestTo(playerPosition);
+  }
+
+  /**
+   * Get a village closest to a position, in logarithmic time.
+   * @param position Position to measure from.
+   * @return A village closest to the position.
+   */
+  public Village getClosestTo(Position position) {
+    int closest = getSpatialIndex().nearest(position.getX(), position.getY());
+    return villages.get(closest);
+  }
+
+  /**
+   * Get the villages closest to a position, ordered from the closest.
+   * @param position Position to measure from.
+   * @param count Count of villages to get.
+   * @return Up to count villages closest to the position.
+   */
+  public List<Village> getClosestTo(Position position, int count) {
+    int[]   found     = new int[Math.min(count, villages.size())];
+    float[] distances = new float[found.length];
+    int     size      = getSpatialIndex().nearest(
+      position.getX(), position.getY(), found, distances);
+
+    return toVillages(found, size);
+  }
+
+  /**
+   * Get all villages, in the order of rows. Villages of a resumed snapshot
+   * are materialized when first got.
+   * @return List of villages.
+   */
+  public List<Village> getVillages() {
+    return villages;
+  }
+
+  /**
+   * Count of villages the map was created with, an infinite world holds the
+   * villages of the chunks around the merchant instead.
+   * @return Count of villages.
+   */
+  public int getVillageCount() {
+    return villageCount != 0 ? villageCount : COUNT_OF_VILLAGES;
+  }
+
+  /**
+   * Chunked world behind the map.
+   * @return World or null on a bounded map.
+   */
+  public ChunkedWorld getWorld() {
+    if (world != null && !worldRestored) {
+      world.restore(epochs, villages);
+      worldRestored = true;
+    }
+    return world;
+  }
+
+  /**
+   * Map's own random stream, its state is saved with the map.
+   * @return Random stream.
+   */
+  public RandomSource getRandomSource() {
+    return randomSource;
+  }
+
+  /**
+   * Village this map may change, copied first when it is shared with a fork.
+   * The copy replaces the village on this map.
+   * @param village Village to change.
+   * @return The village or its copy.
+   */
+  Village own(Village village) {
+    if (ownedVillages == null || ownedVillages.contains(village)) {
+      return village;
+    }
+
+    int row = rowOf(village);
+    if (row >= 0) return own(row);
+
+    Village copy = new Village(village);
+    ownedVillages.add(copy);
+    return copy;
+  }
+
+  /**
+   * Village of a row this map may change, see own.
+   * @param row Row of the village.
+   * @return The village or its copy.
+   */
+  Village own(int row) {
+    Village village = villages.get(row);
+    if (ownedVillages == null || ownedVillages.contains(village)) {
+      return village;
+    }
+
+    Village copy = new Village(village);
+    ownVillageList();
+    villages.set(row, copy);
+    ownedVillages.add(copy);
+
+    // the world's cache still holds the shared village
+    if (world != null) { worldRestored = false; }
+
+    return copy;
+  }
+
+  /**
+   * Rebuild the indexes after positions or prices were changed directly,
+   * like by rewinding.
+   */
+  void reindex() {
+    rebuildIndexes();
+  }
+
+  /**
+   * Whether the map changed since the last markClean, villages aside.
+   * @return true if regenerated.
+   */
+  boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Whether the villages were replaced or shared with a fork since the last
+   * markClean, so rows of the last save no longer hold the same villages.
+   * @return true if replaced.
+   */
+  boolean isReplaced() {
+    return replaced;
+  }
+
+  /**
+   * Rows of the villages changed since the last markClean.
+   * @return Rows in ascending order.
+   */
+  int[] dirtyRows() {
+    int[] rows = new int[villages.size()];
+    int   size = 0;
+    for (int i = 0; i < villages.size(); ++i) {
+      Village village = peek(i);
+      if (village != null && village.isDirty()) rows[size++] = i;
+    }
+
+    return Arrays.copyOf(rows, size);
+  }
+
+  /**
+   * Forget the changes of the map and of every village, after they were
+   * saved.
+   */
+  void markClean() {
+    dirty    = false;
+    replaced = false;
+    for (int i = 0; i < villages.size(); ++i) {
+      Village village = peek(i);
+      if (village != null) village.markClean();
+    }
+  }
+
+  /**
+   * Money of every village together, rows of a resumed snapshot never
+   * touched are read from it.
+   * @return Sum of the vaults.
+   */
+  double getTotalMoney() {
+    double total = 0.0;
+    if (villages instanceof LazyVillages) {
+      LazyVillages lazyVillages = (LazyVillages)villages;
+      for (int i = 0; i < villages.size(); ++i) {
+        total += lazyVillages.getMoney(i);
       }
+      return total;
     }
 
-    return currentBest;
+    for (Village village : villages) total += village.getMoney();
+    return total;
   }
 
   /**
-   * Get all villages as an ArrayList
-   * @return ArrayList of villages.
+   * Write a village to a snapshot, rows of a resumed snapshot never touched
+   * are copied from it.
+   * @param row Row of the village.
+   * @param buffer Receives Village.SNAPSHOT_BYTES bytes.
    */
-  public ArrayList<Village> getVillages() {
-    return villages;
+  void writeSnapshot(int row, ByteBuffer buffer) {
+    if (villages instanceof LazyVillages) {
+      ((LazyVillages)villages).writeSnapshot(row, buffer);
+    } else {
+      villages.get(row).writeSnapshot(buffer);
+    }
+  }
+
+  /**
+   * Internal, start sharing everything with a fork.
+   */
+  private void share() {
+    ownedVillages  = Collections.newSetFromMap(new IdentityHashMap<>());
+    villagesShared = true;
+    indexesShared  = true;
+    replaced       = true;
+  }
+
+  /**
+   * Internal, copy every village shared with a fork before changing all of
+   * them.
+   */
+  private void ownAllVillages() {
+    if (ownedVillages == null) return;
+
+    ownVillageList();
+    for (int i = 0; i < villages.size(); ++i) {
+      Village village = villages.get(i);
+      if (!ownedVillages.contains(village)) {
+        villages.set(i, new Village(village));
+      }
+    }
+    ownedVillages = null;
+  }
+
+  /**
+   * Internal, copy the list of villages when it is shared with a fork.
+   */
+  private void ownVillageList() {
+    if (!villagesShared) return;
+
+    villages       = villages instanceof LazyVillages
+                     ? ((LazyVillages)villages).copy()
+                     : new ArrayList<>(villages);
+    villagesShared = false;
+  }
+
+  /**
+   * Internal, village of a row if it was materialized, rows of a resumed
+   * snapshot never touched are clean.
+   * @param row Row of the village.
+   * @return Village or null.
+   */
+  private Village peek(int row) {
+    return villages instanceof LazyVillages
+           ? ((LazyVillages)villages).peek(row)
+           : villages.get(row);
+  }
+
+  /**
+   * Row of a village, found through the spatial index by its position.
+   * @param village Village to find.
+   * @return Row of the village, -1 if it is not on this map.
+   */
+  public int rowOf(Village village) {
+    Position position = village.getPosition();
+    int      row      =
+      getSpatialIndex().nearest(position.getX(), position.getY());
+
+    if (row >= 0 && villages.get(row) == village) return row;
+    return villages.indexOf(village);
+  }
+
+  /**
+   * Internal, replace the villages by the chunks around the player.
+   */
+  private void materializeAroundPlayer() {
+    Position playerPosition = epochs.getPlayerState().getCurrentPosition();
+
+    villages       = getWorld().getAround(playerPosition);
+    villagesShared = false;
+    replaced       = true;
+    centerKey      = ChunkedWorld.chunkKey(playerPosition);
+    rebuildIndexes();
+  }
+
+  /**
+   * Internal, create the villages once, regeneration then reuses them. Each
+   * gets its own stream for later repricing.
+   */
+  private void createVillages() {
+    Position origin = new Position(0, 0);
+
+    villages = new ArrayList<>(villageCount);
+    replaced = true;
+    for (int i = 0; i < villageCount; ++i) {
+      villages.add(new Village(origin, epochs, randomSource.split()));
+    }
+  }
+
+  /**
+   * Internal, map rows to villages.
+   * @param rows Rows of the villages.
+   * @param size Count of rows to map.
+   * @return Villages in the order of rows.
+   */
+  private List<Village> toVillages(int[] rows, int size) {
+    List<Village> ret = new ArrayList<>(size);
+    for (int i = 0; i < size; ++i) ret.add(villages.get(rows[i]));
+
+    return ret;
+  }
+
+  /**
+   * Internal, rebuild the columnar copy, the spatial index and price orders.
+   */
+  private void rebuildIndexes() {
+    if (indexesShared) {
+      columns       = null;
+      spatialIndex  = null;
+      priceOrder    = null;
+      indexesShared = false;
+    }
+    if (columns == null) { columns = new VillageColumns(villages.size()); }
+    if (spatialIndex == null) { spatialIndex = new SpatialIndex(); }
+    if (priceOrder == null) { priceOrder = new PriceOrder(); }
+    columns.copyFrom(villages);
+    spatialIndex.build(columns);
+    priceOrder.build(columns);
+  }
+
+  /**
+   * Internal, columnar copy of the villages, rebuilt after resume.
+   * @return Columns with current positions and price indexes.
+   */
+  private VillageColumns getColumns() {
+    if (columns == null) { rebuildIndexes(); }
+    return columns;
+  }
+
+  /**
+   * Internal, spatial index of the villages, rebuilt after resume.
+   * @return Spatial index over current positions.
+   */
+  private SpatialIndex getSpatialIndex() {
+    if (columns == null) { rebuildIndexes(); }
+    return spatialIndex;
+  }
+
+  /**
+   * Internal, price orders of the villages, rebuilt after resume.
+   * @return Price orders over current prices.
+   */
+  private PriceOrder getPriceOrder() {
+    if (columns == null) { rebuildIndexes(); }
+    return priceOrder;
   }
 }
@@ -0,0 +1,41 @@
+package simulation.goods;
+
+/**
+ * Groups of trade ledger queries.
+ */
+public enum LedgerGrouping {
+  /**
+   * One group per product.
+   */
+  PRODUCT,
+  /**
+   * One group per village row on the map.
+   */
+  VILLAGE,
+  /**
+   * One group per epoch.
+   */
+  EPOCH;
+
+  /**
+   * Get a grouping by code.
+   * @param code p (product), v (village) or e (epoch).
+   * @return Grouping of the code or null.
+   */
+  public static LedgerGrouping byCode(String code) {
+    switch (code) {
+      case "p" -> {
+        return PRODUCT;
+      }
+      case "v" -> {
+        return VILLAGE;
+      }
+      case "e" -> {
+        return EPOCH;
+      }
+      default -> {
+        return null;
+      }
+    }
+  }
+}
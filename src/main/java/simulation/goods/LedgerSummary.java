@@ -0,0 +1,147 @@
+package simulation.goods;
+
+/**
+ * Result of a trade ledger query: trades, volumes and money of every group,
+ * from the merchant's view. Groups are numbered from 0, see getKey.
+ */
+public class LedgerSummary {
+  private final LedgerGrouping grouping;
+  private final int            firstKey;
+  private final long[]         trades;
+  private final double[]       bought;
+  private final double[]       sold;
+  private final double[]       spent;
+  private final double[]       earned;
+
+  /**
+   * Constructor, every group starts empty.
+   * @param grouping Grouping of the query.
+   * @param firstKey Key of group 0.
+   * @param groupCount Count of groups.
+   */
+  LedgerSummary(LedgerGrouping grouping, int firstKey, int groupCount) {
+    this.grouping = grouping;
+    this.firstKey = firstKey;
+    this.trades   = new long[groupCount];
+    this.bought   = new double[groupCount];
+    this.sold     = new double[groupCount];
+    this.spent    = new double[groupCount];
+    this.earned   = new double[groupCount];
+  }
+
+  /**
+   * Internal, add a trade to a group.
+   * @param group Number of the group.
+   * @param buy true for a purchase of the merchant.
+   * @param weight Traded weight.
+   * @param value Money changing hands.
+   */
+  void add(int group, boolean buy, float weight, double value) {
+    ++trades[group];
+    if (buy) {
+      bought[group] += weight;
+      spent[group]  += value;
+    } else {
+      sold[group]   += weight;
+      earned[group] += value;
+    }
+  }
+
+  /**
+   * Grouping of the query.
+   * @return Grouping.
+   */
+  public LedgerGrouping getGrouping() {
+    return grouping;
+  }
+
+  /**
+   * Count of groups.
+   * @return Count of groups, empty ones included.
+   */
+  public int getGroupCount() {
+    return trades.length;
+  }
+
+  /**
+   * Key of a group.
+   * @param group Number of the group.
+   * @return Product ordinal, village row or epoch.
+   */
+  public int getKey(int group) {
+    return firstKey + group;
+  }
+
+  /**
+   * Count of trades in a group.
+   * @param group Number of the group.
+   * @return Count of trades.
+   */
+  public long getTrades(int group) {
+    return trades[group];
+  }
+
+  /**
+   * Weight bought by the merchant.
+   * @param group Number of the group.
+   * @return Bought weight.
+   */
+  public double getBought(int group) {
+    return bought[group];
+  }
+
+  /**
+   * Weight sold by the merchant.
+   * @param group Number of the group.
+   * @return Sold weight.
+   */
+  public double getSold(int group) {
+    return sold[group];
+  }
+
+  /**
+   * Money spent by the merchant.
+   * @param group Number of the group.
+   * @return Spent money.
+   */
+  public double getSpent(int group) {
+    return spent[group];
+  }
+
+  /**
+   * Money earned by the merchant.
+   * @param group Number of the group.
+   * @return Earned money.
+   */
+  public double getEarned(int group) {
+    return earned[group];
+  }
+
+  /**
+   * Profit of the merchant, earned minus spent.
+   * @param group Number of the group.
+   * @return Profit.
+   */
+  public double getProfit(int group) {
+    return earned[group] - spent[group];
+  }
+
+  /**
+   * Traded weight in both directions.
+   * @param group Number of the group.
+   * @return Volume.
+   */
+  public double getVolume(int group) {
+    return bought[group] + sold[group];
+  }
+
+  /**
+   * Average price per unit weighted by volume.
+   * @param group Number of the group.
+   * @return Average unit price, 0 without volume.
+   */
+  public double getAveragePrice(int group) {
+    double volume = getVolume(group);
+    return volume > 0.0 ? (spent[group] + earned[group]) / volume : 0.0;
+  }
+}
@@ -0,0 +1,299 @@
+package simulation.goods;
+
+import java.util.Arrays;
+
+/**
+ * Order book of one village cleared by a batch auction. Buy and sell orders
+ * with limit prices are collected, then every product is cleared at a single
+ * uniform price: the best bids are matched against the best asks while they
+ * cross, and every fill trades at the midpoint of the last matched bid and
+ * ask. Orders are kept in primitive arrays and sorted as packed longs, so
+ * clearing does not allocate once the book has grown to the largest round.
+ */
+public class OrderBook {
+  /**
+   * Owner of the orders placed by the village itself.
+   */
+  public static final int VILLAGE = -1;
+
+  private static final int  INDEX_BITS = 27;
+  private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+  private static final int  PRICE_BITS = 32;
+  private static final long PRICE_MASK = (1L << PRICE_BITS) - 1;
+
+  private int       size;
+  private int[]     owners;
+  private boolean[] buys;
+  private int[]     products;
+  private float[]   weights;
+  private float[]   limits;
+  private float[]   filled;
+  private long[]    bidKeys;
+  private long[]    askKeys;
+
+  private final float[] clearingPrices = new float[ProductType.COUNT];
+  private final float[] volumes        = new float[ProductType.COUNT];
+
+  /**
+   * Constructor, sized for a few orders of every product.
+   */
+  public OrderBook() {
+    this(4 * ProductType.COUNT);
+  }
+
+  /**
+   * Constructor.
+   * @param capacity Initial capacity in orders.
+   */
+  public OrderBook(int capacity) {
+    size     = 0;
+    owners   = new int[capacity];
+    buys     = new boolean[capacity];
+    products = new int[capacity];
+    weights  = new float[capacity];
+    limits   = new float[capacity];
+    filled   = new float[capacity];
+    bidKeys  = new long[capacity];
+    askKeys  = new long[capacity];
+  }
+
+  /**
+   * Remove all orders and results.
+   */
+  public void clear() {
+    size = 0;
+    Arrays.fill(clearingPrices, 0.0f);
+    Arrays.fill(volumes, 0.0f);
+  }
+
+  /**
+   * Place an order.
+   * @param owner Owner of the order, VILLAGE or any other number.
+   * @param transactionType BUY for a bid, SELL for an ask.
+   * @param productType Traded product.
+   * @param weight Weight to trade.
+   * @param limit Highest price of a bid, lowest price of an ask.
+   * @return Number of the order.
+   * @throws IllegalArgumentException When the book is full.
+   */
+  public int add(
+    int             owner,
+    TransactionType transactionType,
+    ProductType     productType,
+    float           weight,
+    float           limit) {
+    if (size > INDEX_MASK) {
+      throw new IllegalArgumentException("Order book is full.");
+    }
+    if (size == owners.length) grow();
+
+    owners[size]   = owner;
+    buys[size]     = transactionType == TransactionType.BUY;
+    products[size] = productType.ordinal();
+    weights[size]  = weight;
+    limits[size]   = limit;
+    filled[size]   = 0.0f;
+    return size++;
+  }
+
+  /**
+   * Clear every product: sort bids from the highest and asks from the lowest
+   * limit, equal limits in order of placement, then match them while they
+   * cross. O(n log n) in the count of orders.
+   */
+  public void match() {
+    int bidCount = 0;
+    int askCount = 0;
+    for (int i = 0; i < size; ++i) {
+      if (weights[i] <= 0.0f) continue;
+
+      if (buys[i]) {
+        bidKeys[bidCount++] = key(products[i], ~sortable(limits[i]), i);
+      } else {
+        askKeys[askCount++] = key(products[i], sortable(limits[i]), i);
+      }
+    }
+
+    Arrays.sort(bidKeys, 0, bidCount);
+    Arrays.sort(askKeys, 0, askCount);
+
+    int bid = 0;
+    int ask = 0;
+    for (int p = 0; p < ProductType.COUNT; ++p) {
+      int bidEnd = bid;
+      while (bidEnd < bidCount && product(bidKeys[bidEnd]) == p) ++bidEnd;
+      int askEnd = ask;
+      while (askEnd < askCount && product(askKeys[askEnd]) == p) ++askEnd;
+
+      clearProduct(p, bid, bidEnd, ask, askEnd);
+
+      bid = bidEnd;
+      ask = askEnd;
+    }
+  }
+
+  /**
+   * Count of placed orders.
+   * @return Count of orders.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Owner of an order.
+   * @param i Number of the order.
+   * @return Owner given when placing it.
+   */
+  public int getOwner(int i) {
+    return owners[i];
+  }
+
+  /**
+   * Type of an order.
+   * @param i Number of the order.
+   * @return BUY for a bid, SELL for an ask.
+   */
+  public TransactionType getTransactionType(int i) {
+    return buys[i] ? TransactionType.BUY : TransactionType.SELL;
+  }
+
+  /**
+   * Product of an order.
+   * @param i Number of the order.
+   * @return Traded product.
+   */
+  public ProductType getProductType(int i) {
+    return ProductType.byOrdinal(products[i]);
+  }
+
+  /**
+   * Filled weight of an order after matching.
+   * @param i Number of the order.
+   * @return Weight traded, at most the ordered weight.
+   */
+  public float getFilled(int i) {
+    return filled[i];
+  }
+
+  /**
+   * Uniform price of a product after matching.
+   * @param productType Product.
+   * @return Clearing price, 0 if nothing was traded.
+   */
+  public float getClearingPrice(ProductType productType) {
+    return clearingPrices[productType.ordinal()];
+  }
+
+  /**
+   * Traded weight of a product after matching.
+   * @param productType Product.
+   * @return Matched weight.
+   */
+  public float getVolume(ProductType productType) {
+    return volumes[productType.ordinal()];
+  }
+
+  /**
+   * Internal, match the sorted bids and asks of one product.
+   * @param p Product ordinal.
+   * @param bid First bid key, inclusive.
+   * @param bidEnd Last bid key, exclusive.
+   * @param ask First ask key, inclusive.
+   * @param askEnd Last ask key, exclusive.
+   */
+  private void clearProduct(int p, int bid, int bidEnd, int ask, int askEnd) {
+    float lastBid = 0.0f;
+    float lastAsk = 0.0f;
+    float volume  = 0.0f;
+
+    while (bid < bidEnd && ask < askEnd) {
+      int b = index(bidKeys[bid]);
+      int a = index(askKeys[ask]);
+      if (limits[b] < limits[a]) break;
+
+      float bidLeft = weights[b] - filled[b];
+      float askLeft = weights[a] - filled[a];
+      lastBid       = limits[b];
+      lastAsk       = limits[a];
+
+      // the smaller side is filled exactly, so rounding never leaves crumbs
+      if (bidLeft <= askLeft) {
+        volume    += bidLeft;
+        filled[b]  = weights[b];
+        filled[a]  = Math.min(weights[a], filled[a] + bidLeft);
+        ++bid;
+        if (bidLeft == askLeft) {
+          filled[a] = weights[a];
+          ++ask;
+        }
+      } else {
+        volume    += askLeft;
+        filled[a]  = weights[a];
+        filled[b]  = Math.min(weights[b], filled[b] + askLeft);
+        ++ask;
+      }
+    }
+
+    volumes[p]        = volume;
+    clearingPrices[p] = volume > 0.0f ? (lastBid + lastAsk) * 0.5f : 0.0f;
+  }
+
+  /**
+   * Internal, double the capacity.
+   */
+  private void grow() {
+    int capacity = Math.max(1, owners.length * 2);
+    owners       = Arrays.copyOf(owners, capacity);
+    buys         = Arrays.copyOf(buys, capacity);
+    products     = Arrays.copyOf(products, capacity);
+    weights      = Arrays.copyOf(weights, capacity);
+    limits       = Arrays.copyOf(limits, capacity);
+    filled       = Arrays.copyOf(filled, capacity);
+    bidKeys      = Arrays.copyOf(bidKeys, capacity);
+    askKeys      = Arrays.copyOf(askKeys, capacity);
+  }
+
+  /**
+   * Internal, float bits that compare like the floats when compared as signed
+   * ints.
+   * @param value Float value.
+   * @return Sortable bits.
+   */
+  private static int sortable(float value) {
+    int bits = Float.floatToIntBits(value);
+    return bits ^ (bits >> 31 & 0x7fffffff);
+  }
+
+  /**
+   * Internal, pack product, price and order number into a key sorted by
+   * product, then price, then order number.
+   * @param product Product ordinal.
+   * @param price Sortable price bits.
+   * @param index Number of the order.
+   * @return Packed key.
+   */
+  private static long key(int product, int price, int index) {
+    long unsignedPrice = (price ^ Integer.MIN_VALUE) & PRICE_MASK;
+    return (long)product << (PRICE_BITS + INDEX_BITS)
+           | unsignedPrice << INDEX_BITS | index;
+  }
+
+  /**
+   * Internal, product ordinal of a key.
+   * @param key Packed key.
+   * @return Product ordinal.
+   */
+  private static int product(long key) {
+    return (int)(key >>> (PRICE_BITS + INDEX_BITS));
+  }
+
+  /**
+   * Internal, order number of a key.
+   * @param key Packed key.
+   * @return Number of the order.
+   */
+  private static int index(long key) {
+    return (int)(key & INDEX_MASK);
+  }
+}
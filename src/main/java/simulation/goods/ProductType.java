@@ -19,5 +19,21 @@ public enum ProductType {
   /**
    * Food type.
    */
-  FOOD
+  FOOD;
+
+  private static final ProductType[] VALUES = values();
+
+  /**
+   * Count of product types, the size of ordinal-indexed arrays.
+   */
+  public static final int COUNT = VALUES.length;
+
+  /**
+   * Get a type by ordinal without cloning values().
+   * @param ordinal Ordinal of the type.
+   * @return Type with the ordinal.
+   */
+  public static ProductType byOrdinal(int ordinal) {
+    return VALUES[ordinal];
+  }
 }
@@ -1,29 +1,74 @@
 package simulation.goods;
 
-import java.util.Collection;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.Set;
 
 /**
- * Base class for storage.
+ * Base class for storage. Weights are kept in a primitive array indexed by
+ * ProductType ordinal, the primitive methods never allocate.
  */
 public abstract class StockBase {
-  private final Map<ProductType, Product> stock;
-  private float                           money;
+  /**
+   * Size of the stock and money written to a buffer.
+   */
+  public static final int BYTES = (ProductType.COUNT + 1) * Float.BYTES;
+
+  private final float[] stock;
+  private float         money;
 
   /**
-   * Constructor. Initializes stock HashMap.
+   * Whether the stock, money or anything of a subclass changed since the last
+   * markClean, read by delta saves.
+   */
+  private transient boolean dirty;
+
+  /**
+   * Constructor. Initializes stock array.
    */
   public StockBase() {
-    stock = new HashMap<>();
+    stock = new float[ProductType.COUNT];
+  }
+
+  /**
+   * Copy constructor.
+   * @param other Storage to copy the stock and money of.
+   */
+  protected StockBase(StockBase other) {
+    stock = other.stock.clone();
+    money = other.money;
+    dirty = true;
+  }
+
+  /**
+   * Whether anything changed since the last markClean.
+   * @return true if changed.
+   */
+  public boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Forget the changes, after they were saved.
+   */
+  public void markClean() {
+    dirty = false;
+  }
+
+  /**
+   * Remember a change, for subclasses changing state of their own.
+   */
+  protected void markDirty() {
+    dirty = true;
   }
 
   /**
    * Clear the stock.
    */
   public void clearStock() {
-    stock.clear();
+    Arrays.fill(stock, 0.0f);
+    dirty = true;
   }
 
   /**
@@ -31,62 +76,126 @@ public abstract class StockBase {
    */
   public void clearMoney() {
     money = 0.0f;
+    dirty = true;
   }
 
   /**
-   * Add Product to stock.
-   * @param toAdd The Product to add.
+   * Write the stock by product ordinal followed by the money.
+   * @param destination Receives ProductType.COUNT + 1 values.
+   * @param offset Index of the first value.
    */
-  public void addProduct(Product toAdd) {
-    ProductType typeToAdd   = toAdd.getType();
-    float       weightToAdd = toAdd.getWeight();
+  public void writeTo(float[] destination, int offset) {
+    System.arraycopy(stock, 0, destination, offset, stock.length);
+    destination[offset + stock.length] = money;
+  }
 
-    if (stock.containsKey(typeToAdd)) {
-      Product working = stock.get(typeToAdd);
-      working.addWeight(weightToAdd);
-      stock.put(typeToAdd, working);
-      return;
-    }
+  /**
+   * Replace the stock and money by values written by writeTo.
+   * @param source Holds ProductType.COUNT + 1 values.
+   * @param offset Index of the first value.
+   */
+  public void readFrom(float[] source, int offset) {
+    System.arraycopy(source, offset, stock, 0, stock.length);
+    money = source[offset + stock.length];
+    dirty = true;
+  }
 
-    stock.put(typeToAdd, new Product(typeToAdd, weightToAdd));
+  /**
+   * Write the stock by product ordinal followed by the money, BYTES bytes.
+   * @param buffer Receives the values.
+   */
+  public void writeTo(ByteBuffer buffer) {
+    for (float weight : stock) buffer.putFloat(weight);
+    buffer.putFloat(money);
   }
 
   /**
-   * Subtracts the Product from stock.
+   * Replace the stock and money by values written to a buffer by writeTo.
+   * @param buffer Positioned at the values, advanced past them.
+   */
+  public void readFrom(ByteBuffer buffer) {
+    for (int i = 0; i < stock.length; ++i) stock[i] = buffer.getFloat();
+    money = buffer.getFloat();
+    dirty = true;
+  }
+
+  /**
+   * Gets the weight in stock.
+   * @param type Product type to get.
+   * @return Current weight in stock.
+   */
+  public float getWeight(ProductType type) {
+    return stock[type.ordinal()];
+  }
+
+  /**
+   * Add weight of a product to stock.
+   * @param type Product type to add.
+   * @param weight Weight to be added.
+   */
+  public void addWeight(ProductType type, float weight) {
+    stock[type.ordinal()] += weight;
+    dirty = true;
+  }
+
+  /**
+   * Subtracts weight of a product from stock.
    * It is advised to check if the stock holds enough of the product to
    * subtract.
-   * @param toSubtract Product representation.
+   * @param type Product type to subtract.
+   * @param weight Weight to be subtracted.
    * @throws IllegalArgumentException When the stock isn't enough.
    */
-  public void subtractProduct(Product toSubtract) {
-    ProductType typeToSubtract   = toSubtract.getType();
-    float       weightToSubtract = toSubtract.getWeight();
-    Product     working =
-      stock.getOrDefault(typeToSubtract, new Product(typeToSubtract, 0.0f));
+  public void subtractWeight(ProductType type, float weight) {
+    int ordinal = type.ordinal();
 
-    if (working.getWeight() < toSubtract.getWeight()) {
+    if (stock[ordinal] < weight) {
       throw new IllegalArgumentException(
         "Weight After subtraction cannot be negative.");
     }
-    working.subtractWeight(weightToSubtract);
-    stock.put(typeToSubtract, working);
+    stock[ordinal] -= weight;
+    dirty = true;
   }
 
   /**
-   * Gets the product by type.
+   * Add Product to stock.
+   * @param toAdd The Product to add.
+   */
+  public void addProduct(Product toAdd) {
+    addWeight(toAdd.getType(), toAdd.getWeight());
+  }
+
+  /**
+   * Subtracts the Product from stock.
+   * It is advised to check if the stock holds enough of the product to
+   * subtract.
+   * @param toSubtract Product representation.
+   * @throws IllegalArgumentException When the stock isn't enough.
+   */
+  public void subtractProduct(Product toSubtract) {
+    subtractWeight(toSubtract.getType(), toSubtract.getWeight());
+  }
+
+  /**
+   * Gets the product by type. Allocates a copy, prefer getWeight.
    * @param type Product type to get.
    * @return Product current stock.
    */
   public Product getProduct(ProductType type) {
-    return stock.get(type);
+    return new Product(type, getWeight(type));
   }
 
   /**
-   * Get the stock
+   * Get a copy of the stock. Allocates, prefer getWeight.
    * @return Map of Products.
    */
   public Map<ProductType, Product> getStock() {
-    return stock;
+    Map<ProductType, Product> ret = new EnumMap<>(ProductType.class);
+    for (int i = 0; i < ProductType.COUNT; ++i) {
+      ProductType type = ProductType.byOrdinal(i);
+      ret.put(type, new Product(type, stock[i]));
+    }
+    return ret;
   }
 
   /**
@@ -103,6 +212,7 @@ public abstract class StockBase {
    */
   public void addMoney(float toAdd) {
     money += toAdd;
+    dirty = true;
   }
 
   /**
@@ -114,6 +224,7 @@ public abstract class StockBase {
   public void subtractMoney(float toSubtract) {
     if (money == toSubtract) {
       money = 0.0f;
+      dirty = true;
       return;
     }
 
@@ -122,5 +233,6 @@ public abstract class StockBase {
         "Money amount after subtraction cannot be negative.");
     }
     money -= toSubtract;
+    dirty = true;
   }
 }
@@ -0,0 +1,287 @@
+package simulation.goods;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import simulation.environment.EpochListener;
+import simulation.environment.Epochs;
+import simulation.vilages.Village;
+
+/**
+ * In-memory ledger of executed transactions kept in primitive columns: epoch,
+ * village row, product, type, weight and unit price. Rows are appended in
+ * order of epochs, so epoch ranges are found by binary search and queries scan
+ * the columns without touching an object. After a rewind the trades of the
+ * abandoned epochs are forgotten.
+ */
+public class TradeLedger implements EpochListener {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private int       size;
+  private int[]     epochNumbers;
+  private int[]     villageRows;
+  private byte[]    products;
+  private boolean[] buys;
+  private float[]   weights;
+  private float[]   unitPrices;
+  private int       villageBound;
+  private int       currentVillage = -1;
+
+  /**
+   * Constructor, records nothing until trades are added.
+   */
+  public TradeLedger() {
+    epochNumbers = new int[INITIAL_CAPACITY];
+    villageRows  = new int[INITIAL_CAPACITY];
+    products     = new byte[INITIAL_CAPACITY];
+    buys         = new boolean[INITIAL_CAPACITY];
+    weights      = new float[INITIAL_CAPACITY];
+    unitPrices   = new float[INITIAL_CAPACITY];
+  }
+
+  /**
+   * Constructor, records every transaction of a simulation from now on.
+   * @param epochs Simulation to record.
+   */
+  public TradeLedger(Epochs epochs) {
+    this();
+    epochs.addListener(this);
+  }
+
+  /**
+   * Append a trade.
+   * @param epoch Epoch of the trade, not before the last one.
+   * @param village Row of the village on the map, -1 if unknown.
+   * @param transactionType Type of the transaction, from the merchant's view.
+   * @param productType Traded product.
+   * @param weight Traded weight.
+   * @param unitPrice Money per unit of weight.
+   * @throws IllegalArgumentException When the epoch is before the last one.
+   */
+  public void record(
+    int             epoch,
+    int             village,
+    TransactionType transactionType,
+    ProductType     productType,
+    float           weight,
+    float           unitPrice) {
+    if (size > 0 && epoch < epochNumbers[size - 1]) {
+      throw new IllegalArgumentException("Epochs must not decrease.");
+    }
+    if (size == epochNumbers.length) grow();
+
+    epochNumbers[size] = epoch;
+    villageRows[size]  = village;
+    products[size]     = (byte)productType.ordinal();
+    buys[size]         = transactionType == TransactionType.BUY;
+    weights[size]      = weight;
+    unitPrices[size]   = unitPrice;
+    villageBound       = Math.max(villageBound, village + 1);
+    ++size;
+  }
+
+  /**
+   * Forget the trades from an epoch on.
+   * @param epoch First epoch to forget.
+   */
+  public void forgetFrom(int epoch) {
+    size = lowerBound(epoch);
+  }
+
+  /**
+   * Count of recorded trades.
+   * @return Count of rows.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Aggregate every trade.
+   * @param grouping Grouping of the trades.
+   * @return Summary of every group.
+   */
+  public LedgerSummary summarize(LedgerGrouping grouping) {
+    return summarize(grouping, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Aggregate the trades of an epoch range. O(log n) to find the range, then
+   * one pass over its rows.
+   * @param grouping Grouping of the trades.
+   * @param fromEpoch First epoch, inclusive.
+   * @param toEpoch Last epoch, exclusive.
+   * @return Summary of every group, epoch groups cover the traded epochs.
+   */
+  public LedgerSummary summarize(
+    LedgerGrouping grouping, int fromEpoch, int toEpoch) {
+    int from = lowerBound(fromEpoch);
+    int to   = Math.max(from, lowerBound(toEpoch));
+
+    switch (grouping) {
+      case PRODUCT -> {
+        LedgerSummary summary =
+          new LedgerSummary(grouping, 0, ProductType.COUNT);
+        for (int i = from; i < to; ++i) add(summary, products[i], i);
+        return summary;
+      }
+      case VILLAGE -> {
+        LedgerSummary summary = new LedgerSummary(grouping, 0, villageBound);
+        for (int i = from; i < to; ++i) {
+          if (villageRows[i] >= 0) add(summary, villageRows[i], i);
+        }
+        return summary;
+      }
+      case EPOCH -> {
+        int first = from < to ? epochNumbers[from] : fromEpoch;
+        int last  = from < to ? epochNumbers[to - 1] + 1 : first;
+
+        LedgerSummary summary =
+          new LedgerSummary(grouping, first, last - first);
+        for (int i = from; i < to; ++i) {
+          add(summary, epochNumbers[i] - first, i);
+        }
+        return summary;
+      }
+    }
+
+    throw new IllegalArgumentException("Unknown grouping.");
+  }
+
+  /**
+   * Export every trade as CSV with a header row.
+   * @param path File to write.
+   * @throws IOException When writing fails.
+   */
+  public void exportCsv(Path path) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(path)) {
+      writer.write("epoch,village,product,type,weight,unit_price\n");
+
+      StringBuilder line = new StringBuilder(64);
+      for (int i = 0; i < size; ++i) {
+        line.setLength(0);
+        line.append(epochNumbers[i])
+          .append(',')
+          .append(villageRows[i])
+          .append(',')
+          .append(ProductType.byOrdinal(products[i]))
+          .append(',')
+          .append(buys[i] ? TransactionType.BUY : TransactionType.SELL)
+          .append(',')
+          .append(weights[i])
+          .append(',')
+          .append(unitPrices[i])
+          .append('\n');
+        writer.append(line);
+      }
+    }
+  }
+
+  /**
+   * Forget the trades of rewound epochs.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void epochStarted(Epochs epochs) {
+    if (size > 0 && epochNumbers[size - 1] >= epochs.getCount()) {
+      forgetFrom(epochs.getCount());
+    }
+    currentVillage = -1;
+  }
+
+  /**
+   * Forget the trades of the epochs the rewind undid.
+   * @param epochs Simulation.
+   */
+  @Override
+  public void rewound(Epochs epochs) {
+    forgetFrom(epochs.getCount());
+  }
+
+  /**
+   * Remember the row of the village traded with.
+   * @param epochs Simulation.
+   * @param village Village the merchant arrived in.
+   */
+  @Override
+  public void arrived(Epochs epochs, Village village) {
+    currentVillage = epochs.getVillageMap().rowOf(village);
+  }
+
+  /**
+   * Record an executed transaction, empty ones are skipped.
+   * @param epochs Simulation.
+   * @param transactionType Type of the transaction.
+   * @param productType Traded product.
+   * @param weight Traded weight.
+   * @param value Money changing hands.
+   */
+  @Override
+  public void traded(
+    Epochs          epochs,
+    TransactionType transactionType,
+    ProductType     productType,
+    float           weight,
+    float           value) {
+    if (weight <= 0.0f) return;
+
+    record(
+      epochs.getCount(),
+      currentVillage,
+      transactionType,
+      productType,
+      weight,
+      value / weight);
+  }
+
+  /**
+   * Internal, add a row to a group.
+   * @param summary Summary to add to.
+   * @param group Number of the group.
+   * @param i Row.
+   */
+  private void add(LedgerSummary summary, int group, int i) {
+    double value = (double)weights[i] * unitPrices[i];
+    summary.add(group, buys[i], weights[i], value);
+  }
+
+  /**
+   * Internal, first row of an epoch or later.
+   * @param epoch Epoch to find.
+   * @return Row, size if every trade is earlier.
+   */
+  private int lowerBound(int epoch) {
+    int low  = 0;
+    int high = size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (epochNumbers[middle] < epoch) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * Internal, double the capacity.
+   * @throws IllegalStateException When the ledger can not grow any more.
+   */
+  private void grow() {
+    if (size == Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("Trade ledger is full.");
+    }
+
+    int capacity = (int)Math.min(Integer.MAX_VALUE - 8, (long)size * 2);
+    epochNumbers = Arrays.copyOf(epochNumbers, capacity);
+    villageRows  = Arrays.copyOf(villageRows, capacity);
+    products     = Arrays.copyOf(products, capacity);
+    buys         = Arrays.copyOf(buys, capacity);
+    weights      = Arrays.copyOf(weights, capacity);
+    unitPrices   = Arrays.copyOf(unitPrices, capacity);
+  }
+}
@@ -68,7 +68,8 @@ public class Transaction {
   }
 
   /**
-   * Executes the transaction.
+   * Executes the transaction, holding the village's monitor like every trade
+   * with a village that can be shared by merchants.
    * @param village Village partner.
    * @throws IllegalArgumentException When the transaction cannot be fulfilled.
    */
@@ -77,18 +78,46 @@ public class Transaction {
     final float priceMultiplier = strategyType.getPriceMultiplier();
     final float value           = getTotal() * priceMultiplier;
 
+    synchronized (village) {
+      settle(
+        transactionType,
+        product.getType(),
+        product.getWeight(),
+        value,
+        village,
+        playerStorage);
+    }
+  }
+
+  /**
+   * Moves goods and money between the partners without any allocation.
+   * @param transactionType Type of the transaction, from the merchant's view.
+   * @param type Traded product.
+   * @param weight Traded weight.
+   * @param value Money changing hands, multiplier included.
+   * @param village Village partner.
+   * @param playerStorage Merchant's storage.
+   * @throws IllegalArgumentException When the transaction cannot be fulfilled.
+   */
+  public static void settle(
+    TransactionType transactionType,
+    ProductType     type,
+    float           weight,
+    float           value,
+    StockBase       village,
+    StockBase       playerStorage) {
     switch (transactionType) {
       case BUY -> {
-        village.subtractProduct(product);
+        village.subtractWeight(type, weight);
         village.addMoney(value);
         playerStorage.subtractMoney(value); //throws
-        playerStorage.addProduct(product);
+        playerStorage.addWeight(type, weight);
       }
       case SELL -> {
-        village.addProduct(product);
+        village.addWeight(type, weight);
         village.subtractMoney(value);
         playerStorage.addMoney(value);
-        playerStorage.subtractProduct(product); //throws
+        playerStorage.subtractWeight(type, weight); //throws
       }
     }
   }
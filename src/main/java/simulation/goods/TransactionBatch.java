@@ -0,0 +1,127 @@
+package simulation.goods;
+
+import java.util.Arrays;
+
+/**
+ * Reusable batch of planned transactions stored in primitive arrays. Clearing
+ * and refilling the batch does not allocate once it has grown to the largest
+ * plan.
+ */
+public class TransactionBatch {
+  private int               size;
+  private TransactionType[] types;
+  private int[]             products;
+  private float[]           weights;
+  private float[]           prices;
+
+  /**
+   * Constructor, sized for one transaction per product type.
+   */
+  public TransactionBatch() {
+    this(ProductType.COUNT);
+  }
+
+  /**
+   * Constructor.
+   * @param capacity Initial capacity.
+   */
+  public TransactionBatch(int capacity) {
+    size     = 0;
+    types    = new TransactionType[capacity];
+    products = new int[capacity];
+    weights  = new float[capacity];
+    prices   = new float[capacity];
+  }
+
+  /**
+   * Remove all planned transactions.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Plan a transaction.
+   * @param transactionType Type of the transaction.
+   * @param productType Traded product.
+   * @param weight Traded weight.
+   * @param price Price of unit of product.
+   */
+  public void add(
+    TransactionType transactionType,
+    ProductType     productType,
+    float           weight,
+    float           price) {
+    if (size == types.length) grow();
+
+    types[size]    = transactionType;
+    products[size] = productType.ordinal();
+    weights[size]  = weight;
+    prices[size]   = price;
+    ++size;
+  }
+
+  /**
+   * Internal, double the capacity.
+   */
+  private void grow() {
+    int capacity = Math.max(1, types.length * 2);
+    types        = Arrays.copyOf(types, capacity);
+    products     = Arrays.copyOf(products, capacity);
+    weights      = Arrays.copyOf(weights, capacity);
+    prices       = Arrays.copyOf(prices, capacity);
+  }
+
+  /**
+   * Count of planned transactions.
+   * @return Count of planned transactions.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Type getter.
+   * @param i Index of the transaction.
+   * @return Type of the transaction.
+   */
+  public TransactionType getTransactionType(int i) {
+    return types[i];
+  }
+
+  /**
+   * Product type getter.
+   * @param i Index of the transaction.
+   * @return Traded product.
+   */
+  public ProductType getProductType(int i) {
+    return ProductType.byOrdinal(products[i]);
+  }
+
+  /**
+   * Weight getter.
+   * @param i Index of the transaction.
+   * @return Traded weight.
+   */
+  public float getWeight(int i) {
+    return weights[i];
+  }
+
+  /**
+   * Price getter.
+   * @param i Index of the transaction.
+   * @return Price of unit of product.
+   */
+  public float getPrice(int i) {
+    return prices[i];
+  }
+
+  /**
+   * Calculate the total transaction monetary value.
+   * @param i Index of the transaction.
+   * @return Price * Weight.
+   */
+  public float getTotal(int i) {
+    return prices[i] * weights[i];
+  }
+}
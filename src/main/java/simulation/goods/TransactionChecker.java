@@ -4,10 +4,32 @@ package simulation.goods;
  * Provides an interface for classes capable of making transactions.
  */
 public interface TransactionChecker {
+  /**
+   * Check if transaction is possible (enough money or stock).
+   * @param transactionType Type of the transaction.
+   * @param productType Traded product.
+   * @param weight Traded weight.
+   * @param total Price times weight.
+   * @return true if transaction is valid.
+   */
+  boolean isTransactionPossible(
+    TransactionType transactionType,
+    ProductType     productType,
+    float           weight,
+    float           total);
+
   /**
    * Check if transaction is possible (enough money or stock).
    * @param transaction transaction to check.
    * @return true if transaction is valid.
    */
-  boolean isTransactionPossible(Transaction transaction);
+  default boolean isTransactionPossible(Transaction transaction) {
+    Product product = transaction.getProduct();
+
+    return isTransactionPossible(
+      transaction.getTransactionType(),
+      product.getType(),
+      product.getWeight(),
+      transaction.getTotal());
+  }
 }
@@ -11,6 +11,11 @@ public class PlayerState {
   private Position currentPosition;
   private boolean  isDead;
 
+  /**
+   * Whether anything changed since the last markClean, read by delta saves.
+   */
+  private transient boolean dirty;
+
   /**
    * Initialize position to 0,0.
    */
@@ -20,6 +25,17 @@ public class PlayerState {
     currentPosition = new Position(0, 0);
   }
 
+  /**
+   * Copy constructor.
+   * @param other State to copy.
+   */
+  public PlayerState(PlayerState other) {
+    isAttacked      = other.isAttacked;
+    isDead          = other.isDead;
+    currentPosition = other.currentPosition;
+    dirty           = true;
+  }
+
   /**
    * Gets the attacked state.
    * @return Whether an attack happened last epoch.
@@ -42,6 +58,7 @@ public class PlayerState {
    */
   public void setAttacked(boolean attacked) {
     isAttacked = attacked;
+    dirty      = true;
   }
 
   /**
@@ -50,6 +67,7 @@ public class PlayerState {
    */
   public void setCurrentPosition(Position newPosition) {
     currentPosition = newPosition;
+    dirty           = true;
   }
 
   /**
@@ -57,6 +75,15 @@ public class PlayerState {
    */
   public void die() {
     isDead = true;
+    dirty  = true;
+  }
+
+  /**
+   * Undo death, used by rewinding.
+   */
+  public void revive() {
+    isDead = false;
+    dirty  = true;
   }
 
   /**
@@ -66,4 +93,19 @@ public class PlayerState {
   public boolean isDead() {
     return isDead;
   }
+
+  /**
+   * Whether anything changed since the last markClean.
+   * @return true if changed.
+   */
+  public boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Forget the changes, after they were saved.
+   */
+  public void markClean() {
+    dirty = false;
+  }
 }
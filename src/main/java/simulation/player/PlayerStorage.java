@@ -8,47 +8,53 @@ import simulation.strategy.StrategyType;
  * Handles the storage of goods, food and money through the simulation.
  */
 public class PlayerStorage extends StockBase implements TransactionChecker {
-  private static final float   INITIAL_MONEY = 100.0f;
-  private static final Product INITIAL_FOOD =
-    new Product(ProductType.FOOD, 300.0f);
+  private static final float INITIAL_MONEY = 100.0f;
+  private static final float INITIAL_FOOD  = 300.0f;
 
   private final Epochs epochs;
 
   /**
-   * Initializes the Map to HashMap with All the product
-   * types.
+   * Initializes money and food, all other products start empty.
    * @param epochs Epochs.
    */
   public PlayerStorage(Epochs epochs) {
     this.epochs = epochs;
 
-    for (ProductType type : ProductType.values()) {
-      addProduct(new Product(type, 0.0f));
-    }
     addMoney(INITIAL_MONEY);
-    addProduct(INITIAL_FOOD);
+    addWeight(ProductType.FOOD, INITIAL_FOOD);
+  }
+
+  /**
+   * Copy constructor for a fork of the simulation.
+   * @param epochs Fork owning the copy.
+   * @param other Storage to copy.
+   */
+  public PlayerStorage(Epochs epochs, PlayerStorage other) {
+    super(other);
+    this.epochs = epochs;
   }
 
   /**
    * Check if transaction is possible (enough money or stock).
-   * @param transaction transaction to check.
+   * @param transactionType Type of the transaction.
+   * @param productType Traded product.
+   * @param askingWeight Traded weight.
+   * @param total Price times weight.
    * @return true if transaction is valid.
    */
   @Override
-  public boolean isTransactionPossible(Transaction transaction) {
-    float           total           = transaction.getTotal();
-    Product         product         = transaction.getProduct();
-    TransactionType transactionType = transaction.getTransactionType();
-    ProductType     productType     = product.getType();
-
+  public boolean isTransactionPossible(
+    TransactionType transactionType,
+    ProductType     productType,
+    float           askingWeight,
+    float           total) {
     switch (transactionType) {
       case BUY -> {
         boolean hasEnoughMoney = getMoney() >= total;
         return hasEnoughMoney;
       }
       case SELL -> {
-        float stockWeight = getProduct(productType).getWeight();
-        float askingWeight = product.getWeight();
+        float stockWeight = getWeight(productType);
         boolean hasEnoughStock = stockWeight >= askingWeight;
         return hasEnoughStock;
       }
@@ -65,8 +71,7 @@ public class PlayerStorage extends StockBase implements TransactionChecker {
 
     float consumption = strategy.getFoodConsumption();
 
-    Product foodStock = getProduct(ProductType.FOOD);
-    float foodStockWeight = foodStock.getWeight();
+    float foodStockWeight = getWeight(ProductType.FOOD);
 
     if (foodStockWeight < consumption) {
       PlayerState playerState = epochs.getPlayerState();
@@ -74,7 +79,6 @@ public class PlayerStorage extends StockBase implements TransactionChecker {
       return;
     }
 
-    Product toConsume = new Product(ProductType.FOOD, consumption);
-    subtractProduct(toConsume);
+    subtractWeight(ProductType.FOOD, consumption);
   }
 }
@@ -1,6 +1,8 @@
 package simulation.strategy;
 
 import io.arguments.Difficulty;
+import java.nio.ByteBuffer;
+import simulation.computation.RandomSource;
 import simulation.environment.Epochs;
 
 /**
@@ -14,13 +16,56 @@ public class AggressiveStrategy implements StrategyType {
   private float              foodConsumption = 20.0f;
   private float              priceMultiplier = 0.7f;
   private final Difficulty   difficulty;
+  private final RandomSource randomSource;
 
   /**
    * Aggressive strategy constructor. Grabs Difficulty class instance.
    * @param epochs Epochs.
    */
   public AggressiveStrategy(Epochs epochs) {
-    this.difficulty = epochs.getDifficulty();
+    this.difficulty   = epochs.getDifficulty();
+    this.randomSource = epochs.getRandomSource().split();
+  }
+
+  /**
+   * Strategy written by writeTo.
+   * @param epochs Epochs.
+   * @param buffer Positioned at the state, advanced past it.
+   */
+  public AggressiveStrategy(Epochs epochs, ByteBuffer buffer) {
+    this.difficulty      = epochs.getDifficulty();
+    this.foodConsumption = buffer.getFloat();
+    this.priceMultiplier = buffer.getFloat();
+    this.randomSource    = RandomSource.readFrom(buffer);
+  }
+
+  /**
+   * Strategy in a saved state, the counterpart of the getters.
+   * @param epochs Epochs.
+   * @param foodConsumption Daily food consumption.
+   * @param priceMultiplier Price multiplier for transactions.
+   * @param randomSource Strategy's own random stream.
+   */
+  public AggressiveStrategy(
+    Epochs       epochs,
+    float        foodConsumption,
+    float        priceMultiplier,
+    RandomSource randomSource) {
+    this.difficulty      = epochs.getDifficulty();
+    this.foodConsumption = foodConsumption;
+    this.priceMultiplier = priceMultiplier;
+    this.randomSource    = randomSource;
+  }
+
+  /**
+   * Internal, copy constructor used by fork.
+   * @param other Strategy to copy.
+   */
+  private AggressiveStrategy(AggressiveStrategy other) {
+    this.difficulty      = other.difficulty;
+    this.randomSource    = other.randomSource.copy();
+    this.foodConsumption = other.foodConsumption;
+    this.priceMultiplier = other.priceMultiplier;
   }
 
   /**
@@ -29,7 +74,8 @@ public class AggressiveStrategy implements StrategyType {
    */
   @Override
   public void fluctuateFoodConsumption() {
-    foodConsumption = 15.0f + difficulty.getRandomFloat() * FOOD_RAND_MULTI;
+    foodConsumption =
+      15.0f + difficulty.getRandomFloat(randomSource) * FOOD_RAND_MULTI;
   }
 
   /**
@@ -38,7 +84,8 @@ public class AggressiveStrategy implements StrategyType {
    */
   @Override
   public void fluctuatePriceMultiplier() {
-    priceMultiplier = 0.7f + difficulty.getRandomFloat() * PRICE_RAND_MULTI;
+    priceMultiplier =
+      0.7f + difficulty.getRandomFloat(randomSource) * PRICE_RAND_MULTI;
   }
 
   /**
@@ -67,4 +114,32 @@ public class AggressiveStrategy implements StrategyType {
   public float getTravelCost() {
     return travelCost;
   }
+
+  /**
+   * Strategy's own random stream, its state is saved with the strategy.
+   * @return Random stream.
+   */
+  public RandomSource getRandomSource() {
+    return randomSource;
+  }
+
+  /**
+   * Same strategy in the same state for a fork of the simulation.
+   * @param epochs Fork to use the strategy in.
+   * @return Copy with its own random stream.
+   */
+  @Override
+  public StrategyType fork(Epochs epochs) {
+    return new AggressiveStrategy(this);
+  }
+
+  /**
+   * Write the fluctuating values and the random stream.
+   * @param buffer Receives the state.
+   */
+  @Override
+  public void writeTo(ByteBuffer buffer) {
+    buffer.putFloat(foodConsumption).putFloat(priceMultiplier);
+    randomSource.writeTo(buffer);
+  }
 }
@@ -1,6 +1,8 @@
 package simulation.strategy;
 
 import io.arguments.Difficulty;
+import java.nio.ByteBuffer;
+import simulation.computation.RandomSource;
 import simulation.environment.Epochs;
 
 /**
@@ -13,13 +15,49 @@ public class BalancedStrategy implements StrategyType {
   private static final float travelCost      = 1.05f;
   private float              foodConsumption = 15.0f;
   private final Difficulty   difficulty;
+  private final RandomSource randomSource;
 
   /**
    * Balanced Strategy constructor. Grabs Difficulty class instance.
    * @param epochs Epochs.
    */
   public BalancedStrategy(Epochs epochs) {
-    this.difficulty = epochs.getDifficulty();
+    this.difficulty   = epochs.getDifficulty();
+    this.randomSource = epochs.getRandomSource().split();
+  }
+
+  /**
+   * Strategy written by writeTo.
+   * @param epochs Epochs.
+   * @param buffer Positioned at the state, advanced past it.
+   */
+  public BalancedStrategy(Epochs epochs, ByteBuffer buffer) {
+    this.difficulty      = epochs.getDifficulty();
+    this.foodConsumption = buffer.getFloat();
+    this.randomSource    = RandomSource.readFrom(buffer);
+  }
+
+  /**
+   * Strategy in a saved state, the counterpart of the getters.
+   * @param epochs Epochs.
+   * @param foodConsumption Daily food consumption.
+   * @param randomSource Strategy's own random stream.
+   */
+  public BalancedStrategy(
+    Epochs epochs, float foodConsumption, RandomSource randomSource) {
+    this.difficulty      = epochs.getDifficulty();
+    this.foodConsumption = foodConsumption;
+    this.randomSource    = randomSource;
+  }
+
+  /**
+   * Internal, copy constructor used by fork.
+   * @param other Strategy to copy.
+   */
+  private BalancedStrategy(BalancedStrategy other) {
+    this.difficulty      = other.difficulty;
+    this.randomSource    = other.randomSource.copy();
+    this.foodConsumption = other.foodConsumption;
   }
 
   /**
@@ -28,7 +66,8 @@ public class BalancedStrategy implements StrategyType {
    */
   @Override
   public void fluctuateFoodConsumption() {
-    foodConsumption = 12.0f + difficulty.getRandomFloat() * FOOD_RAND_MULTI;
+    foodConsumption =
+      12.0f + difficulty.getRandomFloat(randomSource) * FOOD_RAND_MULTI;
   }
 
   /**
@@ -57,4 +96,32 @@ public class BalancedStrategy implements StrategyType {
   public float getTravelCost() {
     return travelCost;
   }
+
+  /**
+   * Strategy's own random stream, its state is saved with the strategy.
+   * @return Random stream.
+   */
+  public RandomSource getRandomSource() {
+    return randomSource;
+  }
+
+  /**
+   * Same strategy in the same state for a fork of the simulation.
+   * @param epochs Fork to use the strategy in.
+   * @return Copy with its own random stream.
+   */
+  @Override
+  public StrategyType fork(Epochs epochs) {
+    return new BalancedStrategy(this);
+  }
+
+  /**
+   * Write the fluctuating values and the random stream.
+   * @param buffer Receives the state.
+   */
+  @Override
+  public void writeTo(ByteBuffer buffer) {
+    buffer.putFloat(foodConsumption);
+    randomSource.writeTo(buffer);
+  }
 }
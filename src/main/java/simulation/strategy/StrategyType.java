@@ -1,5 +1,8 @@
 package simulation.strategy;
 
+import java.nio.ByteBuffer;
+import simulation.environment.Epochs;
+
 /**
  * Allows for different strategies chosen at runtime.
  */
@@ -35,4 +38,22 @@ public interface StrategyType {
    */
   default void fluctuatePriceMultiplier() {
   }
+
+  /**
+   * Same strategy in the same state for a fork of the simulation. By default,
+   * the strategy has no state and is shared.
+   * @param epochs Fork to use the strategy in.
+   * @return Strategy for the fork.
+   */
+  default StrategyType fork(Epochs epochs) {
+    return this;
+  }
+
+  /**
+   * Write the state of the strategy for a snapshot, read back by the
+   * strategy's snapshot constructor. By default, the strategy has no state.
+   * @param buffer Receives the state.
+   */
+  default void writeTo(ByteBuffer buffer) {
+  }
 }
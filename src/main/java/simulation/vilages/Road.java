@@ -1,6 +1,7 @@
 package simulation.vilages;
 
 import io.arguments.Difficulty;
+import simulation.computation.RandomSource;
 import simulation.environment.Epochs;
 import simulation.environment.Position;
 import simulation.player.PlayerState;
@@ -13,7 +14,8 @@ public class Road {
 
   private final Position   start;
   private final Position   finish;
-  private final Difficulty difficulty;
+  private final Difficulty   difficulty;
+  private final RandomSource randomSource;
 
   /**
    * Default generated constructor.
@@ -24,7 +26,8 @@ public class Road {
   public Road(Position start, Position finish, Epochs epochs) {
     this.start      = start;
     this.finish     = finish;
-    this.difficulty = epochs.getDifficulty();
+    this.difficulty   = epochs.getDifficulty();
+    this.randomSource = epochs.getRandomSource();
   }
 
   /**
@@ -44,7 +47,7 @@ public class Road {
   public float calculateRisk() {
     final float distance = calculateDistance();
     final float riskPerUnit =
-      Math.abs(difficulty.getRandomFloat() * RISK_RAND_MULTI);
+      Math.abs(difficulty.getRandomFloat(randomSource) * RISK_RAND_MULTI);
 
     return (distance * riskPerUnit);
   }
@@ -2,7 +2,6 @@ package simulation.vilages;
 
 import io.arguments.Difficulty;
 import simulation.environment.Epochs;
-import simulation.goods.Product;
 import simulation.goods.ProductType;
 import simulation.player.PlayerStorage;
 
@@ -38,13 +37,12 @@ public class Thugs {
     float moneyToSteal = currentMoney * stealPercent;
     playerStorage.subtractMoney(moneyToSteal);
 
-    for (ProductType type : ProductType.values()) {
-      Product current       = playerStorage.getProduct(type);
-      float   currentWeight = current.getWeight();
-      float   weightToSteal = currentWeight * stealPercent;
-      Product toSteal       = new Product(type, weightToSteal);
+    for (int i = 0; i < ProductType.COUNT; ++i) {
+      ProductType type          = ProductType.byOrdinal(i);
+      float       currentWeight = playerStorage.getWeight(type);
+      float       weightToSteal = currentWeight * stealPercent;
 
-      playerStorage.subtractProduct(toSteal);
+      playerStorage.subtractWeight(type, weightToSteal);
     }
   }
 }
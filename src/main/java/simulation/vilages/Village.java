@@ -1,8 +1,10 @@
 package simulation.vilages;
 
 import io.arguments.Difficulty;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.util.EnumMap;
 import java.util.Map;
+import simulation.computation.RandomSource;
 import simulation.environment.Epochs;
 import simulation.environment.Position;
 import simulation.goods.*;
@@ -15,22 +17,144 @@ public class Village extends StockBase implements TransactionChecker {
   private static final float MONEY_RAND_MULTI = 1000.0f;
   private static final float PRICE_RAND_MULTI = 10.0f;
 
-  private final Position position;
+  /**
+   * Size of a village written by writeSnapshot: position, stock and money,
+   * prices, price index and random stream.
+   */
+  public static final int SNAPSHOT_BYTES =
+    2 * Float.BYTES
+    + StockBase.BYTES
+    + (ProductType.COUNT + 1) * Float.BYTES
+    + RandomSource.BYTES;
+
+  private Position                      position;
   private final Map<ProductType, Float> prices;
-  private final float                   priceIndex;
+  private float                         priceIndex;
   private final Epochs                  epochs;
+  private final RandomSource            randomSource;
 
   /**
    * Initialize with random stock and prices. Set Position.
    * @param epochs Epochs.
    * @param position Position of the village.
+   * @param randomSource Village's own random stream.
    */
-  public Village(Position position, Epochs epochs) {
-    this.epochs   = epochs;
-    this.prices   = new HashMap<>();
-    this.position = position;
+  public Village(Position position, Epochs epochs, RandomSource randomSource) {
+    this.epochs       = epochs;
+    this.randomSource = randomSource;
+    this.prices       = new EnumMap<>(ProductType.class);
+    this.position     = position;
     randomizeStock();
     randomizePrices();
+  }
+
+  /**
+   * Copy constructor, the copy has its own stock, prices and random stream.
+   * @param other Village to copy.
+   */
+  public Village(Village other) {
+    super(other);
+    this.epochs       = other.epochs;
+    this.randomSource = other.randomSource.copy();
+    this.prices       = new EnumMap<>(other.prices);
+    this.position     = other.position;
+    this.priceIndex   = other.priceIndex;
+  }
+
+  /**
+   * Village written by writeSnapshot.
+   * @param epochs Epochs.
+   * @param buffer Positioned at the village, advanced past it.
+   */
+  public Village(Epochs epochs, ByteBuffer buffer) {
+    this.epochs = epochs;
+    this.prices = new EnumMap<>(ProductType.class);
+    position    = new Position(buffer.getFloat(), buffer.getFloat());
+    readFrom(buffer);
+    for (int i = 0; i < ProductType.COUNT; ++i) {
+      addPrice(ProductType.byOrdinal(i), buffer.getFloat());
+    }
+    priceIndex   = buffer.getFloat();
+    randomSource = RandomSource.readFrom(buffer);
+  }
+
+  /**
+   * Village in a saved state, the counterpart of the getters.
+   * @param epochs Epochs.
+   * @param position Position of the village.
+   * @param stock Stock and money as written by writeTo.
+   * @param prices Prices as written by writePrices.
+   * @param priceIndex Price index.
+   * @param randomSource Village's own random stream.
+   */
+  public Village(
+    Epochs       epochs,
+    Position     position,
+    float[]      stock,
+    float[]      prices,
+    float        priceIndex,
+    RandomSource randomSource) {
+    this.epochs       = epochs;
+    this.prices       = new EnumMap<>(ProductType.class);
+    this.position     = position;
+    this.priceIndex   = priceIndex;
+    this.randomSource = randomSource;
+    readFrom(stock, 0);
+    for (int i = 0; i < ProductType.COUNT; ++i) {
+      addPrice(ProductType.byOrdinal(i), prices[i]);
+    }
+  }
+
+  /**
+   * Write the whole village, SNAPSHOT_BYTES bytes.
+   * @param buffer Receives the village.
+   */
+  public void writeSnapshot(ByteBuffer buffer) {
+    buffer.putFloat(position.getX()).putFloat(position.getY());
+    writeTo(buffer);
+    for (int i = 0; i < ProductType.COUNT; ++i) {
+      buffer.putFloat(prices.get(ProductType.byOrdinal(i)));
+    }
+    buffer.putFloat(priceIndex);
+    randomSource.writeTo(buffer);
+  }
+
+  /**
+   * Move the village and randomly change its stock and prices in place,
+   * drawing from a stream of the regeneration instead of its own. Only the
+   * position is allocated, the stock and price tables are reused.
+   * @param position New position of the village.
+   * @param randomSource Stream to draw from.
+   */
+  public void regenerate(Position position, RandomSource randomSource) {
+    this.position = position;
+    randomizeStock(randomSource);
+    randomizePrices(randomSource);
+  }
+
+  /**
+   * Write the prices by product ordinal.
+   * @param destination Receives ProductType.COUNT values.
+   * @param offset Index of the first value.
+   */
+  public void writePrices(float[] destination, int offset) {
+    for (int i = 0; i < ProductType.COUNT; ++i) {
+      destination[offset + i] = prices.get(ProductType.byOrdinal(i));
+    }
+  }
+
+  /**
+   * Move the village back and restore prices written by writePrices, the
+   * price index is recalculated. Used by rewinding.
+   * @param position Earlier position of the village.
+   * @param source Holds ProductType.COUNT prices.
+   * @param offset Index of the first price.
+   */
+  public void restore(Position position, float[] source, int offset) {
+    this.position = position;
+    for (int i = 0; i < ProductType.COUNT; ++i) {
+      addPrice(ProductType.byOrdinal(i), source[offset + i]);
+    }
     priceIndex = calculatePriceIndex();
   }
 
@@ -38,34 +162,51 @@ public class Village extends StockBase implements TransactionChecker {
    * Randomly change stock.
    */
   public void randomizeStock() {
+    randomizeStock(randomSource);
+  }
+
+  /**
+   * Internal, randomly change stock.
+   * @param randomSource Stream to draw from.
+   */
+  private void randomizeStock(RandomSource randomSource) {
     Difficulty randomMachine = epochs.getDifficulty();
     clearStock();
     clearMoney();
 
-    for (ProductType type : ProductType.values()) {
+    for (int i = 0; i < ProductType.COUNT; ++i) {
       float randomWeight =
-        Math.abs(randomMachine.getRandomFloat() * STOCK_RAND_MULTI);
-      Product productToAdd = new Product(type, randomWeight);
-      addProduct(productToAdd);
+        Math.abs(randomMachine.getRandomFloat(randomSource) * STOCK_RAND_MULTI);
+      addWeight(ProductType.byOrdinal(i), randomWeight);
     }
 
     float randomVault =
-      Math.abs(randomMachine.getRandomFloat() * MONEY_RAND_MULTI);
+      Math.abs(randomMachine.getRandomFloat(randomSource) * MONEY_RAND_MULTI);
     addMoney(randomVault);
   }
 
   /**
-   * Randomly change prices.
+   * Randomly change prices and recalculate the price index.
    */
   public void randomizePrices() {
+    randomizePrices(randomSource);
+  }
+
+  /**
+   * Internal, randomly change prices and recalculate the price index.
+   * @param randomSource Stream to draw from.
+   */
+  private void randomizePrices(RandomSource randomSource) {
     Difficulty randomMachine = epochs.getDifficulty();
     clearPrices();
 
     for (ProductType type : ProductType.values()) {
       float randomPrice =
-        Math.abs(randomMachine.getRandomFloat() * PRICE_RAND_MULTI);
+        Math.abs(randomMachine.getRandomFloat(randomSource) * PRICE_RAND_MULTI);
       addPrice(type, randomPrice);
     }
+
+    priceIndex = calculatePriceIndex();
   }
 
   /**
@@ -92,6 +233,7 @@ public class Village extends StockBase implements TransactionChecker {
    */
   private void addPrice(ProductType productType, float price) {
     prices.put(productType, price);
+    markDirty();
   }
 
   /**
@@ -104,20 +246,21 @@ public class Village extends StockBase implements TransactionChecker {
   /**
    * Check if transaction is possible (enough money or stock).
    *
-   * @param transaction transaction to check.
+   * @param transactionType Type of the transaction.
+   * @param productType Traded product.
+   * @param askingWeight Traded weight.
+   * @param total Price times weight.
    * @return true if transaction is valid.
    */
   @Override
-  public boolean isTransactionPossible(Transaction transaction) {
-    float           total           = transaction.getTotal();
-    Product         product         = transaction.getProduct();
-    TransactionType transactionType = transaction.getTransactionType();
-    ProductType     productType     = product.getType();
-
+  public boolean isTransactionPossible(
+    TransactionType transactionType,
+    ProductType     productType,
+    float           askingWeight,
+    float           total) {
     switch (transactionType) {
       case BUY -> {
-        float askingWeight = product.getWeight();
-        float stockWeight = getProduct(productType).getWeight();
+        float stockWeight = getWeight(productType);
         boolean hasEnoughStock = stockWeight >= askingWeight;
         return hasEnoughStock;
       }
@@ -144,6 +287,14 @@ public class Village extends StockBase implements TransactionChecker {
     return simpleAverage;
   }
 
+  /**
+   * Village's own random stream, its state is saved with the village.
+   * @return Random stream.
+   */
+  public RandomSource getRandomSource() {
+    return randomSource;
+  }
+
   /**
    * Price index getter.
    * @return Simple Average of prices.